@@ -0,0 +1,317 @@
+package me.grayingout.benchmarks;
+
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.Map;
+
+import gnu.trove.map.hash.TLongObjectHashMap;
+import me.grayingout.bot.cache.CacheProfile;
+import me.grayingout.bot.cache.RecentlyActiveMemberPolicy;
+import net.dv8tion.jda.api.JDABuilder;
+import net.dv8tion.jda.api.requests.GatewayIntent;
+import net.dv8tion.jda.api.utils.data.DataArray;
+import net.dv8tion.jda.api.utils.data.DataObject;
+import net.dv8tion.jda.internal.JDAImpl;
+import net.dv8tion.jda.internal.entities.GuildImpl;
+import net.dv8tion.jda.internal.entities.MemberImpl;
+import net.dv8tion.jda.internal.utils.config.AuthorizationConfig;
+import net.dv8tion.jda.internal.utils.config.MetaConfig;
+import net.dv8tion.jda.internal.utils.config.ThreadingConfig;
+import net.dv8tion.jda.internal.utils.config.flags.ConfigFlag;
+
+/**
+ * Compares the heap each {@link CacheProfile} uses for one large guild,
+ * by loading a synthetic guild into a JDA that is never connected, as
+ * JDA would from the gateway. Run it from the benchmarks jar, with a
+ * heap large enough for the {@code full} profile:
+ * <pre>
+ * java -Xmx2g -cp target/benchmarks.jar me.grayingout.benchmarks.CacheHeapReport [--option value...]
+ * </pre>
+ * Every member is seen once, as they would be by chunking or through
+ * events over time, and the profile decides which are kept. Some members
+ * are in voice, and some were recently active. It builds the guild with
+ * JDA's internal {@code EntityBuilder}, so may need updating with JDA.
+ * The options are
+ * <ul>
+ * <li>{@code --members}, the number of members in the guild, 100000 by default
+ * <li>{@code --voice-members}, the number of them in a voice channel, 100 by default
+ * <li>{@code --active-members}, the number of them recently active, 2000 by default
+ * <li>{@code --emojis} and {@code --stickers}, the size of the guild's
+ *     emoji and sticker lists, 250 and 60 by default
+ * </ul>
+ */
+public final class CacheHeapReport {
+
+    /**
+     * The id of the synthetic guild, and its everyone role
+     */
+    private static final long GUILD_ID = 5;
+
+    /**
+     * The id of the bot's own user
+     */
+    private static final long SELF_ID = 1;
+
+    /**
+     * The id of the voice channel
+     */
+    private static final long VOICE_CHANNEL_ID = 6;
+
+    /**
+     * The id of the first member, after which they are numbered
+     */
+    private static final long FIRST_MEMBER_ID = 10_000_000L;
+
+    /**
+     * The main method
+     *
+     * @param args The options, as {@code --option value} pairs
+     * @throws Exception If the report could not be made
+     */
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = parseOptions(args);
+        int memberCount = Integer.parseInt(options.getOrDefault("members", "100000"));
+        int voiceCount = Integer.parseInt(options.getOrDefault("voice-members", "100"));
+        int activeCount = Integer.parseInt(options.getOrDefault("active-members", "2000"));
+        int emojiCount = Integer.parseInt(options.getOrDefault("emojis", "250"));
+        int stickerCount = Integer.parseInt(options.getOrDefault("stickers", "60"));
+
+        /* Load a small guild with each profile first, so loading classes is not measured */
+        for (CacheProfile profile : CacheProfile.values()) {
+            loadGuild(createJDA(profile), 1000, 10, 20, emojiCount, stickerCount);
+            RecentlyActiveMemberPolicy.getInstance().forgetGuild(GUILD_ID);
+        }
+
+        System.out.println(String.format("Loading a guild of %d members, %d in voice and %d recently active",
+            memberCount, voiceCount, activeCount));
+        System.out.println(String.format("%-8s %15s %15s %15s %10s", "profile", "members cached", "emojis cached", "stickers cached", "heap MB"));
+
+        for (CacheProfile profile : CacheProfile.values()) {
+            long baseline = usedHeap();
+
+            JDAImpl jda = createJDA(profile);
+            GuildImpl guild = loadGuild(jda, memberCount, voiceCount, activeCount, emojiCount, stickerCount);
+            long used = usedHeap() - baseline;
+
+            System.out.println(String.format("%-8s %15d %15d %15d %10.1f",
+                profile.name().toLowerCase(),
+                guild.getMemberCache().size(),
+                guild.getEmojiCache().size(),
+                guild.getStickerCache().size(),
+                used / 1e6));
+
+            RecentlyActiveMemberPolicy.getInstance().forgetGuild(GUILD_ID);
+        }
+
+        System.exit(0);
+    }
+
+    /**
+     * Creates a JDA with the caching of a profile, that is never connected
+     *
+     * @param profile The profile
+     * @return The JDA, with its self user set
+     */
+    private static JDAImpl createJDA(CacheProfile profile) {
+        /* Applied to a builder that is never built, to prepare the profile as the bot does */
+        profile.apply(JDABuilder.createDefault("x.y.z"));
+
+        JDAImpl jda = new JDAImpl(
+            new AuthorizationConfig("x.y.z"),
+            null,
+            ThreadingConfig.getDefault(),
+            new MetaConfig(2048, null, profile.getCacheFlags(), ConfigFlag.getDefault())
+        ) {
+            @Override
+            public boolean isIntent(GatewayIntent intent) {
+                return true;
+            }
+
+            @Override
+            public EnumSet<GatewayIntent> getGatewayIntents() {
+                return EnumSet.allOf(GatewayIntent.class);
+            }
+        };
+        jda.setMemberCachePolicy(profile.getMemberCachePolicy());
+        jda.setSelfUser(jda.getEntityBuilder().createSelfUser(
+            user(SELF_ID, "bot").put("bot", true)));
+
+        return jda;
+    }
+
+    /**
+     * Loads the synthetic guild into a JDA, as it would be from the gateway
+     *
+     * @param jda          The JDA
+     * @param memberCount  The number of members
+     * @param voiceCount   The number of members in the voice channel
+     * @param activeCount  The number of members recently active
+     * @param emojiCount   The number of emojis
+     * @param stickerCount The number of stickers
+     * @return The guild
+     */
+    private static GuildImpl loadGuild(JDAImpl jda, int memberCount,
+            int voiceCount, int activeCount, int emojiCount, int stickerCount) {
+        DataArray emojis = DataArray.empty();
+        for (int i = 0; i < emojiCount; i++) {
+            emojis.add(DataObject.empty()
+                .put("id", Long.toString(100_000L + i))
+                .put("name", "emoji" + i)
+                .put("animated", false)
+                .put("available", true)
+                .put("managed", false)
+                .put("require_colons", true)
+                .put("roles", DataArray.empty()));
+        }
+
+        DataArray stickers = DataArray.empty();
+        for (int i = 0; i < stickerCount; i++) {
+            stickers.add(DataObject.empty()
+                .put("id", Long.toString(200_000L + i))
+                .put("name", "sticker" + i)
+                .put("description", "A sticker")
+                .put("tags", "sticker")
+                .put("type", 2)
+                .put("format_type", 1)
+                .put("available", true)
+                .put("guild_id", Long.toString(GUILD_ID)));
+        }
+
+        DataObject guildJson = DataObject.empty()
+            .put("id", Long.toString(GUILD_ID))
+            .put("name", "guild")
+            .put("owner_id", Long.toString(FIRST_MEMBER_ID))
+            .put("roles", DataArray.empty().add(DataObject.empty()
+                .put("id", Long.toString(GUILD_ID))
+                .put("name", "@everyone")
+                .put("permissions", "0")
+                .put("position", 0)
+                .put("color", 0)
+                .put("hoist", false)
+                .put("managed", false)
+                .put("mentionable", false)))
+            .put("channels", DataArray.empty().add(DataObject.empty()
+                .put("id", Long.toString(VOICE_CHANNEL_ID))
+                .put("type", 2)
+                .put("name", "voice")
+                .put("position", 0)
+                .put("bitrate", 64000)
+                .put("user_limit", 0)
+                .put("permission_overwrites", DataArray.empty())))
+            .put("emojis", emojis)
+            .put("stickers", stickers)
+            .put("voice_states", DataArray.empty())
+            .put("threads", DataArray.empty())
+            .put("guild_scheduled_events", DataArray.empty())
+            .put("features", DataArray.empty())
+            .put("member_count", memberCount + 1)
+            .put("afk_timeout", 300);
+
+        /* Only the bot itself is sent with a large guild */
+        TLongObjectHashMap<DataObject> selfMember = new TLongObjectHashMap<>();
+        selfMember.put(SELF_ID, member(SELF_ID, "bot"));
+        GuildImpl guild = jda.getEntityBuilder().createGuild(GUILD_ID, guildJson, selfMember, memberCount + 1);
+
+        /* The active members chat before they are seen again */
+        for (int i = 0; i < activeCount; i++) {
+            RecentlyActiveMemberPolicy.getInstance().markActive(guild, FIRST_MEMBER_ID + memberCount - 1 - i);
+        }
+
+        /* Every member is seen, and the policy decides which are kept */
+        for (int i = 0; i < memberCount; i++) {
+            long memberId = FIRST_MEMBER_ID + i;
+            DataObject voiceState = i < voiceCount ? voiceState(memberId) : null;
+            MemberImpl member = jda.getEntityBuilder().createMember(guild, member(memberId, "member" + i), voiceState, null);
+            jda.getEntityBuilder().updateMemberCache(member);
+        }
+
+        return guild;
+    }
+
+    /**
+     * Creates the data of a user
+     *
+     * @param userId The id of the user
+     * @param name   The name of the user
+     * @return The data
+     */
+    private static DataObject user(long userId, String name) {
+        return DataObject.empty()
+            .put("id", Long.toString(userId))
+            .put("username", name)
+            .put("discriminator", "0001")
+            .put("avatar", null);
+    }
+
+    /**
+     * Creates the data of a member
+     *
+     * @param userId The id of the member
+     * @param name   The name of the member
+     * @return The data
+     */
+    private static DataObject member(long userId, String name) {
+        return DataObject.empty()
+            .put("user", user(userId, name))
+            .put("roles", DataArray.empty())
+            .put("joined_at", "2021-01-01T00:00:00.000000+00:00")
+            .put("deaf", false)
+            .put("mute", false)
+            .put("nick", null);
+    }
+
+    /**
+     * Creates the data of a member in the voice channel
+     *
+     * @param userId The id of the member
+     * @return The data
+     */
+    private static DataObject voiceState(long userId) {
+        return DataObject.empty()
+            .put("guild_id", Long.toString(GUILD_ID))
+            .put("channel_id", Long.toString(VOICE_CHANNEL_ID))
+            .put("user_id", Long.toString(userId))
+            .put("session_id", "session" + userId)
+            .put("deaf", false)
+            .put("mute", false)
+            .put("self_deaf", false)
+            .put("self_mute", false)
+            .put("self_stream", false)
+            .put("self_video", false)
+            .put("suppress", false)
+            .put("request_to_speak_timestamp", null);
+    }
+
+    /**
+     * Gets the heap in use, once it has been collected
+     *
+     * @return The bytes in use
+     * @throws InterruptedException If interrupted waiting for the collection
+     */
+    private static long usedHeap() throws InterruptedException {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            Thread.sleep(100);
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    /**
+     * Parses {@code --option value} pairs
+     *
+     * @param args The arguments
+     * @return The value of each option
+     * @throws IllegalArgumentException If an argument is not part of a pair
+     */
+    private static Map<String, String> parseOptions(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (int i = 0; i < args.length; i += 2) {
+            if (!args[i].startsWith("--") || i + 1 >= args.length) {
+                throw new IllegalArgumentException("Expected --option value, got " + args[i]);
+            }
+            options.put(args[i].substring(2), args[i + 1]);
+        }
+        return options;
+    }
+}
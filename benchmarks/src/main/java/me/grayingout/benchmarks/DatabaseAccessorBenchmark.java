@@ -0,0 +1,234 @@
+package me.grayingout.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import me.grayingout.database.accessors.ConfigurationDatabaseAccessor;
+import me.grayingout.database.accessors.LevellingDatabaseAccessor;
+import me.grayingout.database.accessors.WarningsDatabaseAccessor;
+import me.grayingout.database.entities.GuildConfiguration;
+import me.grayingout.database.entities.GuildLeaderboard;
+import me.grayingout.database.entities.GuildLoggingChannel.LoggingEventType;
+import me.grayingout.database.entities.MemberWarning;
+import me.grayingout.database.storage.StorageBackend;
+import net.dv8tion.jda.api.entities.Guild;
+import net.dv8tion.jda.api.entities.Member;
+
+/**
+ * Measures the operations per second of the database accessors' hot
+ * paths, on each storage backend, against datasets of 10k, 1M and
+ * 10M members with experience, generated by {@link StorageDataset}.
+ * <p>
+ * The accessors are used as the commands and listeners use them,
+ * through their caches and the experience buffer, with stubbed JDA
+ * entities. {@code loadGuildLeaderboard} drops the cached leaderboard
+ * before each read, so it measures loading one from storage. Pick
+ * one dataset size with {@code -p rows=1000000}
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DatabaseAccessorBenchmark {
+
+    /**
+     * The number of members with experience
+     */
+    @Param({"10000", "1000000", "10000000"})
+    public int rows;
+
+    /**
+     * The storage backend, as {@code STORAGE_BACKEND} selects it
+     */
+    @Param({"sqlite", "kv"})
+    public String backend;
+
+    /**
+     * The directory the dataset is copied into
+     */
+    private File directory;
+
+    /**
+     * The storage backend the accessors are stored in
+     */
+    private StorageBackend storageBackend;
+
+    /**
+     * The levelling accessor
+     */
+    private LevellingDatabaseAccessor levellingAccessor;
+
+    /**
+     * The warnings accessor
+     */
+    private WarningsDatabaseAccessor warningsAccessor;
+
+    /**
+     * The configuration accessor
+     */
+    private ConfigurationDatabaseAccessor configurationAccessor;
+
+    /**
+     * The guilds of the dataset
+     */
+    private Guild[] guilds;
+
+    /**
+     * The moderator giving the warnings
+     */
+    private Member moderator;
+
+    /**
+     * Copies the dataset and opens the accessors on it
+     *
+     * @throws IOException If the dataset could not be generated or opened
+     */
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        directory = StorageDataset.copy(backend, rows);
+        storageBackend = StorageDataset.open(backend, directory);
+
+        levellingAccessor = new LevellingDatabaseAccessor(storageBackend.getLevelRepository());
+        warningsAccessor = new WarningsDatabaseAccessor(storageBackend.getWarningRepository());
+        configurationAccessor = new ConfigurationDatabaseAccessor(storageBackend.getConfigurationRepository());
+
+        guilds = new Guild[StorageDataset.GUILD_COUNT];
+        for (int guild = 0; guild < guilds.length; guild++) {
+            guilds[guild] = JdaStubs.guild(guild);
+        }
+        moderator = JdaStubs.member(guilds[0], 0);
+    }
+
+    /**
+     * Closes the accessors and deletes the copy of the dataset
+     */
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        levellingAccessor.close();
+        storageBackend.close();
+        StorageDataset.delete(directory);
+    }
+
+    /**
+     * Adds experience to a random member, as every message sent does
+     *
+     * @return The new level, so the result is not optimised away
+     */
+    @Benchmark
+    public int addExperienceToGuildMember() {
+        return levellingAccessor.addExperienceToGuildMember(randomMember(rows), 15).join();
+    }
+
+    /**
+     * Gets the top of a random guild's leaderboard, as {@code /levels top} does
+     *
+     * @return The top members
+     */
+    @Benchmark
+    public List<GuildLeaderboard.Entry> getTopGuildMembers() {
+        return levellingAccessor.getGuildLeaderboard(randomGuild()).join().getEntries(0, 5);
+    }
+
+    /**
+     * Loads a random guild's leaderboard from storage
+     *
+     * @return The size of the leaderboard
+     */
+    @Benchmark
+    public int loadGuildLeaderboard() {
+        Guild guild = randomGuild();
+        levellingAccessor.invalidateGuildLeaderboard(guild.getIdLong());
+        return levellingAccessor.getGuildLeaderboard(guild).join().getSize();
+    }
+
+    /**
+     * Gets the warnings of a random member with warnings,
+     * as {@code /warnings list} does
+     *
+     * @return The warnings
+     */
+    @Benchmark
+    public List<MemberWarning> getMemberWarnings() {
+        return warningsAccessor.getMemberWarnings(randomMember(StorageDataset.getWarnedMemberCount(rows))).join();
+    }
+
+    /**
+     * Gives a random member a warning, as {@code /warnings add} does
+     *
+     * @return The warning
+     */
+    @Benchmark
+    public MemberWarning putWarning() {
+        return warningsAccessor.putWarning(randomMember(rows), moderator, "Benchmark warning").join();
+    }
+
+    /**
+     * Gets the configuration of a random guild
+     *
+     * @return The configuration
+     */
+    @Benchmark
+    public GuildConfiguration getGuildConfiguration() {
+        return configurationAccessor.getGuildConfiguration(randomGuild()).join();
+    }
+
+    /**
+     * Gets the welcome message of a random guild, as each member joining does
+     *
+     * @return The welcome message
+     */
+    @Benchmark
+    public String getWelcomeMessage() {
+        return configurationAccessor.getWelcomeMessage(randomGuild()).join();
+    }
+
+    /**
+     * Gets the logging types enabled in a random guild, as each logged event does
+     *
+     * @return The enabled logging types
+     */
+    @Benchmark
+    public List<LoggingEventType> getEnabledLoggingTypes() {
+        return configurationAccessor.getEnabledLoggingTypes(randomGuild()).join();
+    }
+
+    /**
+     * Gets a random guild of the dataset
+     *
+     * @return The guild
+     */
+    private Guild randomGuild() {
+        return guilds[ThreadLocalRandom.current().nextInt(guilds.length)];
+    }
+
+    /**
+     * Gets a random member of the dataset, who is in the
+     * guild the dataset put them in
+     *
+     * @param memberCount The number of members to pick from
+     * @return The member
+     */
+    private Member randomMember(int memberCount) {
+        int memberId = ThreadLocalRandom.current().nextInt(memberCount);
+        return JdaStubs.member(guilds[memberId % guilds.length], memberId);
+    }
+}
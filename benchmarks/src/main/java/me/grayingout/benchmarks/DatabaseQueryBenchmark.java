@@ -0,0 +1,225 @@
+package me.grayingout.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import me.grayingout.database.accessors.DatabaseAccessor;
+
+/**
+ * Measures the queries per second of the levelling queries on a
+ * 1M row {@code GuildMemberLevelExperience} table, before and after
+ * statements were cached and SQLite was tuned.
+ * <p>
+ * {@code before} prepares every statement afresh on a connection with
+ * the default settings, {@code after} reuses each prepared statement on
+ * a connection configured by {@link DatabaseAccessor#configure(Connection)}.
+ * Every query is committed on its own, as in the accessors
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DatabaseQueryBenchmark {
+
+    /**
+     * The number of rows in the table
+     */
+    private static final int ROW_COUNT = 1_000_000;
+
+    /**
+     * The number of guilds the rows are spread over
+     */
+    private static final int GUILD_COUNT = 100;
+
+    /**
+     * Selects the experience of a member
+     */
+    private static final String SELECT_SQL =
+        "SELECT level_experience FROM GuildMemberLevelExperience WHERE guild_id == ? AND user_id == ?";
+
+    /**
+     * Adds experience to a member
+     */
+    private static final String UPDATE_SQL =
+        "UPDATE GuildMemberLevelExperience SET level_experience = level_experience + ? WHERE guild_id == ? AND user_id == ?";
+
+    /**
+     * How the connection and statements are set up
+     */
+    @Param({"before", "after"})
+    public String configuration;
+
+    /**
+     * The database file
+     */
+    private File databaseFile;
+
+    /**
+     * The connection to the database
+     */
+    private Connection connection;
+
+    /**
+     * The cached select statement, only used {@code after}
+     */
+    private PreparedStatement selectStatement;
+
+    /**
+     * The cached update statement, only used {@code after}
+     */
+    private PreparedStatement updateStatement;
+
+    /**
+     * Creates and fills the database
+     *
+     * @throws IOException  If the database file could not be created
+     * @throws SQLException If the database could not be filled
+     */
+    @Setup(Level.Trial)
+    public void setUp() throws IOException, SQLException {
+        databaseFile = File.createTempFile("levelling-benchmark", ".db");
+
+        connection = DriverManager.getConnection("jdbc:sqlite:" + databaseFile.getPath());
+        if (configuration.equals("after")) {
+            DatabaseAccessor.configure(connection);
+        }
+        connection.setAutoCommit(false);
+
+        try (Statement statement = connection.createStatement()) {
+            statement.execute(
+                "CREATE TABLE GuildMemberLevelExperience ("
+              + "  guild_id INTEGER NOT NULL,"
+              + "  user_id INTEGER NOT NULL,"
+              + "  level_experience INTEGER NOT NULL DEFAULT 0"
+              + ")");
+            statement.execute(
+                "CREATE INDEX GuildMemberLevelExperienceMember"
+              + "  ON GuildMemberLevelExperience (guild_id, user_id)");
+        }
+
+        try (PreparedStatement insertStatement = connection.prepareStatement(
+                "INSERT INTO GuildMemberLevelExperience (guild_id, user_id, level_experience) VALUES (?, ?, ?)")) {
+            for (int row = 0; row < ROW_COUNT; row++) {
+                insertStatement.setLong(1, row % GUILD_COUNT);
+                insertStatement.setLong(2, row);
+                insertStatement.setInt(3, row % 10_000);
+                insertStatement.addBatch();
+            }
+            insertStatement.executeBatch();
+        }
+        connection.commit();
+
+        if (configuration.equals("after")) {
+            selectStatement = connection.prepareStatement(SELECT_SQL);
+            updateStatement = connection.prepareStatement(UPDATE_SQL);
+        }
+    }
+
+    /**
+     * Closes and deletes the database
+     *
+     * @throws SQLException If the database could not be closed
+     */
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        if (selectStatement != null) {
+            selectStatement.close();
+            updateStatement.close();
+        }
+        connection.close();
+
+        databaseFile.delete();
+        new File(databaseFile.getPath() + "-wal").delete();
+        new File(databaseFile.getPath() + "-shm").delete();
+    }
+
+    /**
+     * Reads the experience of a random member
+     *
+     * @return The experience, so the read is not optimised away
+     * @throws SQLException If the query failed
+     */
+    @Benchmark
+    public int selectMemberExperience() throws SQLException {
+        int row = ThreadLocalRandom.current().nextInt(ROW_COUNT);
+
+        PreparedStatement statement = selectStatement != null ? selectStatement : connection.prepareStatement(SELECT_SQL);
+        try {
+            statement.setLong(1, row % GUILD_COUNT);
+            statement.setLong(2, row);
+
+            int experience = 0;
+            try (ResultSet set = statement.executeQuery()) {
+                if (set.next()) {
+                    experience = set.getInt("level_experience");
+                }
+            }
+
+            connection.commit();
+            return experience;
+        } finally {
+            closeUncached(statement);
+        }
+    }
+
+    /**
+     * Adds experience to a random member
+     *
+     * @return The number of rows updated
+     * @throws SQLException If the query failed
+     */
+    @Benchmark
+    public int updateMemberExperience() throws SQLException {
+        int row = ThreadLocalRandom.current().nextInt(ROW_COUNT);
+
+        PreparedStatement statement = updateStatement != null ? updateStatement : connection.prepareStatement(UPDATE_SQL);
+        try {
+            statement.setInt(1, 1);
+            statement.setLong(2, row % GUILD_COUNT);
+            statement.setLong(3, row);
+
+            int updated = statement.executeUpdate();
+            connection.commit();
+            return updated;
+        } finally {
+            closeUncached(statement);
+        }
+    }
+
+    /**
+     * Closes a statement prepared for a single query, which the
+     * accessors used to leak instead
+     *
+     * @param statement The statement
+     * @throws SQLException If the statement could not be closed
+     */
+    private void closeUncached(PreparedStatement statement) throws SQLException {
+        if (statement != selectStatement && statement != updateStatement) {
+            statement.close();
+        }
+    }
+}
@@ -0,0 +1,383 @@
+package me.grayingout.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import me.grayingout.bot.Bot;
+import me.grayingout.database.accessors.ConfigurationDatabaseAccessor;
+import me.grayingout.database.accessors.DatabaseAccessorManager;
+import me.grayingout.database.accessors.LevellingDatabaseAccessor;
+import me.grayingout.database.entities.GuildLoggingChannel.LoggingEventType;
+import net.dv8tion.jda.api.entities.Role;
+import net.dv8tion.jda.api.events.GenericEvent;
+import net.dv8tion.jda.api.hooks.EventListener;
+
+/**
+ * Measures how many message events a second the bot's listener chain
+ * sustains, by dispatching events from a {@link SyntheticGateway} through
+ * the listeners {@link Bot} registers, as JDA's event manager does, on
+ * storage in a temp directory. Run it from the benchmarks jar:
+ * <pre>
+ * java -cp target/benchmarks.jar me.grayingout.benchmarks.EventDispatchHarness [--option value...]
+ * </pre>
+ * It reports the throughput, the p50, p99 and max latency of each
+ * listener, and the bytes each allocates per event on the dispatching
+ * thread. Work a listener hands to other threads, such as database
+ * writes, is not in its latency or allocation, but slows it down if
+ * the dispatching threads have to wait for it. The options are
+ * <ul>
+ * <li>{@code --events}, the number of events measured, 1000000 by default
+ * <li>{@code --warmup}, the number of events dispatched first and not measured, 200000 by default
+ * <li>{@code --threads}, the number of dispatching threads, 1 by default
+ * <li>{@code --guilds}, {@code --channels}, {@code --members} and {@code --level-roles},
+ *     the size of each guild, 100, 10, 10000 and 5 by default
+ * <li>{@code --update-percent} and {@code --delete-percent}, the share of events
+ *     that edit and delete a recent message, 5 and 5 by default
+ * <li>{@code --backend}, the storage backend, {@code sqlite} or {@code kv}
+ * <li>{@code --seed}, the seed of the generated events, so runs can be repeated
+ * </ul>
+ */
+public final class EventDispatchHarness {
+
+    /**
+     * The number of events generated at a time, before they are dispatched
+     */
+    private static final int BATCH_SIZE = 1024;
+
+    /**
+     * Reads the allocated bytes of the dispatching threads
+     */
+    private static final com.sun.management.ThreadMXBean THREADS =
+        (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    /**
+     * The main method
+     *
+     * @param args The options, as {@code --option value} pairs
+     * @throws Exception If the harness could not be run
+     */
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = parseOptions(args);
+        int eventCount = Integer.parseInt(options.getOrDefault("events", "1000000"));
+        int warmupCount = Integer.parseInt(options.getOrDefault("warmup", "200000"));
+        int threadCount = Integer.parseInt(options.getOrDefault("threads", "1"));
+        int updatePercent = Integer.parseInt(options.getOrDefault("update-percent", "5"));
+        int deletePercent = Integer.parseInt(options.getOrDefault("delete-percent", "5"));
+        long seed = Long.parseLong(options.getOrDefault("seed", "42"));
+
+        SyntheticGateway gateway = new SyntheticGateway(
+            Integer.parseInt(options.getOrDefault("guilds", "100")),
+            Integer.parseInt(options.getOrDefault("channels", "10")),
+            Integer.parseInt(options.getOrDefault("members", "10000")),
+            Integer.parseInt(options.getOrDefault("level-roles", "5"))
+        );
+
+        THREADS.setThreadAllocatedMemoryEnabled(true);
+
+        File directory = Files.createTempDirectory("event-dispatch").toFile();
+        try {
+            DatabaseAccessorManager.initDatabaseAccessors(StorageDataset.open(options.getOrDefault("backend", "sqlite"), directory));
+            configureGuilds(gateway);
+
+            Object[] listeners = Bot.createEventListeners();
+
+            System.out.println(String.format("Warming up with %d events", warmupCount));
+            dispatch(gateway, listeners, warmupCount, threadCount, seed, updatePercent, deletePercent);
+
+            long restRequestsBefore = gateway.getRestRequestCount();
+            System.out.println(String.format("Measuring %d events on %d threads", eventCount, threadCount));
+            DispatchWorker[] workers = dispatch(gateway, listeners, eventCount, threadCount, seed + threadCount, updatePercent, deletePercent);
+
+            printReport(listeners, workers, gateway.getRestRequestCount() - restRequestsBefore);
+        } finally {
+            DatabaseAccessorManager.closeDatabaseAccessors();
+            StorageDataset.delete(directory);
+        }
+
+        /* The listeners start threads that would keep running */
+        System.exit(0);
+    }
+
+    /**
+     * Gives each guild a logging channel that logs deleted
+     * messages, and its level roles
+     *
+     * @param gateway The gateway with the guilds
+     */
+    private static void configureGuilds(SyntheticGateway gateway) {
+        ConfigurationDatabaseAccessor configurationAccessor = DatabaseAccessorManager.getConfigurationDatabaseAccessor();
+        LevellingDatabaseAccessor levellingAccessor = DatabaseAccessorManager.getLevellingDatabaseAccessor();
+
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        for (SyntheticGateway.StubGuild guild : gateway.getGuilds()) {
+            futures.add(configurationAccessor.updateLoggingChannelId(guild.getGuild(), guild.getLoggingChannel()));
+            futures.add(configurationAccessor.enableLoggingType(guild.getGuild(), LoggingEventType.MESSAGE_DELETION_LOGGING));
+
+            int level = 1;
+            for (Role role : guild.getLevelRoles()) {
+                futures.add(levellingAccessor.addGuildLevelRole(role, level));
+                level *= 2;
+            }
+        }
+
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).join();
+    }
+
+    /**
+     * Dispatches events from threads, and waits for them to finish
+     *
+     * @param gateway       The gateway generating the events
+     * @param listeners     The listeners
+     * @param eventCount    The number of events, split between the threads
+     * @param threadCount   The number of threads
+     * @param seed          The seed of the first thread's events
+     * @param updatePercent The percentage of events that update a message
+     * @param deletePercent The percentage of events that delete a message
+     * @return The workers of each thread, with what they measured
+     * @throws InterruptedException If interrupted while waiting
+     */
+    private static DispatchWorker[] dispatch(SyntheticGateway gateway, Object[] listeners, int eventCount, int threadCount,
+            long seed, int updatePercent, int deletePercent) throws InterruptedException {
+        DispatchWorker[] workers = new DispatchWorker[threadCount];
+        Thread[] threads = new Thread[threadCount];
+
+        for (int i = 0; i < threadCount; i++) {
+            int workerEventCount = eventCount / threadCount + (i < eventCount % threadCount ? 1 : 0);
+            workers[i] = new DispatchWorker(gateway.createGenerator(seed + i, updatePercent, deletePercent), listeners, workerEventCount);
+            threads[i] = new Thread(workers[i], "event-dispatch-" + i);
+            threads[i].start();
+        }
+
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        return workers;
+    }
+
+    /**
+     * Prints what the workers measured
+     *
+     * @param listeners       The listeners
+     * @param workers         The workers
+     * @param restRequestCount The number of REST requests the listeners queued
+     */
+    private static void printReport(Object[] listeners, DispatchWorker[] workers, long restRequestCount) {
+        long eventCount = 0;
+        double eventsPerSecond = 0;
+        LatencyHistogram eventLatencies = new LatencyHistogram();
+        for (DispatchWorker worker : workers) {
+            eventCount += worker.eventCount;
+            eventsPerSecond += worker.eventCount / (worker.dispatchNanos / 1e9);
+            eventLatencies.merge(worker.eventLatencies);
+        }
+
+        System.out.println();
+        System.out.println(String.format("Throughput:    %,.0f events/s", eventsPerSecond));
+        System.out.println(String.format("REST requests: %,d queued (%.3f per event)", restRequestCount, (double) restRequestCount / eventCount));
+
+        long totalAllocatedBytes = 0;
+        System.out.println();
+        System.out.println(String.format("%-30s %10s %10s %10s %12s %8s", "Listener", "p50 us", "p99 us", "max us", "B/event", "errors"));
+        for (int i = 0; i < listeners.length; i++) {
+            LatencyHistogram latencies = new LatencyHistogram();
+            long allocatedBytes = 0;
+            long errorCount = 0;
+            for (DispatchWorker worker : workers) {
+                latencies.merge(worker.listenerLatencies[i]);
+                allocatedBytes += worker.listenerAllocatedBytes[i];
+                errorCount += worker.listenerErrorCounts[i];
+            }
+            totalAllocatedBytes += allocatedBytes;
+
+            printRow(listeners[i].getClass().getSimpleName(), latencies, allocatedBytes / eventCount, errorCount);
+        }
+        printRow("(every listener)", eventLatencies, totalAllocatedBytes / eventCount, 0);
+
+        System.out.println();
+        System.out.println(String.format("Allocation:    %,.1f MB/s on the dispatching threads",
+            totalAllocatedBytes / (double) eventCount * eventsPerSecond / (1 << 20)));
+
+        for (DispatchWorker worker : workers) {
+            for (int i = 0; i < listeners.length; i++) {
+                if (worker.listenerErrors[i] != null) {
+                    System.err.println("First error from " + listeners[i].getClass().getSimpleName() + ":");
+                    worker.listenerErrors[i].printStackTrace();
+                }
+            }
+        }
+    }
+
+    /**
+     * Prints a row of the report
+     *
+     * @param name                   The name of the row
+     * @param latencies              The latencies
+     * @param allocatedBytesPerEvent The bytes allocated per event
+     * @param errorCount             The number of errors
+     */
+    private static void printRow(String name, LatencyHistogram latencies, long allocatedBytesPerEvent, long errorCount) {
+        System.out.println(String.format("%-30s %10.2f %10.2f %10.2f %12d %8d",
+            name,
+            latencies.getPercentile(50) / 1e3,
+            latencies.getPercentile(99) / 1e3,
+            latencies.getMax() / 1e3,
+            allocatedBytesPerEvent,
+            errorCount));
+    }
+
+    /**
+     * Parses {@code --option value} pairs
+     *
+     * @param args The arguments
+     * @return The values against the option names
+     * @throws IllegalArgumentException If an option has no value
+     */
+    private static Map<String, String> parseOptions(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (int i = 0; i < args.length; i += 2) {
+            if (!args[i].startsWith("--") || i + 1 >= args.length) {
+                throw new IllegalArgumentException("Expected --option value, got " + args[i]);
+            }
+            options.put(args[i].substring(2), args[i + 1]);
+        }
+        return options;
+    }
+
+    /**
+     * Dispatches events to every listener in turn on one thread,
+     * measuring each listener, as JDA's event manager calls them
+     */
+    private static final class DispatchWorker implements Runnable {
+
+        /**
+         * Generates the events
+         */
+        private final SyntheticGateway.EventGenerator generator;
+
+        /**
+         * The listeners
+         */
+        private final Object[] listeners;
+
+        /**
+         * The number of events to dispatch
+         */
+        private final int eventCount;
+
+        /**
+         * The latencies of each listener
+         */
+        private final LatencyHistogram[] listenerLatencies;
+
+        /**
+         * The bytes allocated by each listener
+         */
+        private final long[] listenerAllocatedBytes;
+
+        /**
+         * The number of errors thrown by each listener
+         */
+        private final long[] listenerErrorCounts;
+
+        /**
+         * The first error thrown by each listener
+         */
+        private final Throwable[] listenerErrors;
+
+        /**
+         * The latencies of every listener handling each event
+         */
+        private final LatencyHistogram eventLatencies;
+
+        /**
+         * The time spent in the listeners
+         */
+        private long dispatchNanos;
+
+        /**
+         * Creates a new {@code DispatchWorker}
+         *
+         * @param generator  Generates the events
+         * @param listeners  The listeners
+         * @param eventCount The number of events to dispatch
+         */
+        private DispatchWorker(SyntheticGateway.EventGenerator generator, Object[] listeners, int eventCount) {
+            this.generator = generator;
+            this.listeners = listeners;
+            this.eventCount = eventCount;
+            listenerLatencies = new LatencyHistogram[listeners.length];
+            for (int i = 0; i < listeners.length; i++) {
+                listenerLatencies[i] = new LatencyHistogram();
+            }
+            listenerAllocatedBytes = new long[listeners.length];
+            listenerErrorCounts = new long[listeners.length];
+            listenerErrors = new Throwable[listeners.length];
+            eventLatencies = new LatencyHistogram();
+        }
+
+        @Override
+        public void run() {
+            long threadId = Thread.currentThread().getId();
+            long probeBytes = measureProbeBytes(threadId);
+            GenericEvent[] batch = new GenericEvent[BATCH_SIZE];
+
+            for (int dispatched = 0; dispatched < eventCount; dispatched += BATCH_SIZE) {
+                /* Generate outside of the measurement */
+                int batchSize = Math.min(BATCH_SIZE, eventCount - dispatched);
+                for (int i = 0; i < batchSize; i++) {
+                    batch[i] = generator.next();
+                }
+
+                for (int i = 0; i < batchSize; i++) {
+                    long eventNanos = 0;
+
+                    for (int j = 0; j < listeners.length; j++) {
+                        long allocatedBefore = THREADS.getThreadAllocatedBytes(threadId);
+                        long start = System.nanoTime();
+                        try {
+                            ((EventListener) listeners[j]).onEvent(batch[i]);
+                        } catch (RuntimeException e) {
+                            /* JDA's event manager logs and carries on */
+                            if (listenerErrorCounts[j]++ == 0) {
+                                listenerErrors[j] = e;
+                            }
+                        }
+                        long nanos = System.nanoTime() - start;
+                        listenerAllocatedBytes[j] += Math.max(0, THREADS.getThreadAllocatedBytes(threadId) - allocatedBefore - probeBytes);
+
+                        listenerLatencies[j].record(nanos);
+                        eventNanos += nanos;
+                    }
+
+                    eventLatencies.record(eventNanos);
+                    dispatchNanos += eventNanos;
+                    batch[i] = null;
+                }
+            }
+        }
+
+        /**
+         * Measures the bytes allocated by reading the allocated bytes,
+         * so they can be taken off what each listener allocates
+         *
+         * @param threadId The id of the current thread
+         * @return The bytes allocated by a read
+         */
+        private static long measureProbeBytes(long threadId) {
+            long probeBytes = Long.MAX_VALUE;
+            for (int i = 0; i < 10_000; i++) {
+                long allocatedBefore = THREADS.getThreadAllocatedBytes(threadId);
+                probeBytes = Math.min(probeBytes, THREADS.getThreadAllocatedBytes(threadId) - allocatedBefore);
+            }
+            return probeBytes;
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package me.grayingout.benchmarks;
+
+import java.lang.reflect.Proxy;
+
+import net.dv8tion.jda.api.entities.Guild;
+import net.dv8tion.jda.api.entities.Member;
+
+/**
+ * Stands in for the JDA entities the accessors are given, which
+ * only need their ids, so the accessors can be benchmarked
+ * without connecting to discord
+ */
+final class JdaStubs {
+
+    /**
+     * Creates a guild that only has an id. Looking up its
+     * roles, channels and members finds nothing
+     *
+     * @param guildId The id of the guild
+     * @return The guild
+     */
+    static Guild guild(long guildId) {
+        return (Guild) Proxy.newProxyInstance(Guild.class.getClassLoader(), new Class<?>[] { Guild.class }, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "getIdLong":
+                    return guildId;
+                case "getId":
+                    return Long.toUnsignedString(guildId);
+                case "getRoleById":
+                case "getMemberById":
+                case "getTextChannelById":
+                case "getGuildChannelById":
+                    return null;
+                default:
+                    return invokeObjectMethod(proxy, method.getName(), args);
+            }
+        });
+    }
+
+    /**
+     * Creates a member of a guild that only has an id
+     *
+     * @param guild    The guild
+     * @param memberId The id of the member
+     * @return The member
+     */
+    static Member member(Guild guild, long memberId) {
+        return (Member) Proxy.newProxyInstance(Member.class.getClassLoader(), new Class<?>[] { Member.class }, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "getIdLong":
+                    return memberId;
+                case "getId":
+                    return Long.toUnsignedString(memberId);
+                case "getGuild":
+                    return guild;
+                default:
+                    return invokeObjectMethod(proxy, method.getName(), args);
+            }
+        });
+    }
+
+    /**
+     * Implements the {@code Object} methods of a stub
+     *
+     * @param proxy      The stub
+     * @param methodName The name of the method called
+     * @param args       The arguments
+     * @return The result
+     * @throws UnsupportedOperationException If anything else is called,
+     *                                       as a benchmark has reached past the ids
+     */
+    private static Object invokeObjectMethod(Object proxy, String methodName, Object[] args) {
+        switch (methodName) {
+            case "hashCode":
+                return System.identityHashCode(proxy);
+            case "equals":
+                return proxy == args[0];
+            case "toString":
+                return "Stub" + proxy.getClass().getInterfaces()[0].getSimpleName();
+            default:
+                throw new UnsupportedOperationException(methodName + " is not stubbed");
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package me.grayingout.benchmarks;
+
+import java.util.Arrays;
+
+/**
+ * Counts latencies in log-linear buckets, each within about 3% of
+ * the latencies in it, so percentiles can be read from millions of
+ * samples in a fixed 16KB. Not thread-safe, so each thread records
+ * into its own and they are merged afterwards
+ */
+final class LatencyHistogram {
+
+    /**
+     * The bits of precision kept below the highest set bit
+     */
+    private static final int SUB_BUCKET_BITS = 5;
+
+    /**
+     * The number of buckets for each power of two
+     */
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+
+    /**
+     * The number of latencies in each bucket
+     */
+    private final long[] counts = new long[(64 - SUB_BUCKET_BITS + 1) * SUB_BUCKET_COUNT];
+
+    /**
+     * The number of latencies recorded
+     */
+    private long totalCount;
+
+    /**
+     * The highest latency recorded
+     */
+    private long max;
+
+    /**
+     * Records a latency
+     *
+     * @param nanos The latency in nanoseconds
+     */
+    void record(long nanos) {
+        counts[getIndex(Math.max(0, nanos))]++;
+        totalCount++;
+        max = Math.max(max, nanos);
+    }
+
+    /**
+     * Adds the latencies recorded by another histogram
+     *
+     * @param other The other histogram
+     */
+    void merge(LatencyHistogram other) {
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] += other.counts[i];
+        }
+        totalCount += other.totalCount;
+        max = Math.max(max, other.max);
+    }
+
+    /**
+     * Clears the recorded latencies
+     */
+    void reset() {
+        Arrays.fill(counts, 0);
+        totalCount = 0;
+        max = 0;
+    }
+
+    /**
+     * Gets the number of latencies recorded
+     *
+     * @return The count
+     */
+    long getTotalCount() {
+        return totalCount;
+    }
+
+    /**
+     * Gets the highest latency recorded
+     *
+     * @return The latency in nanoseconds
+     */
+    long getMax() {
+        return max;
+    }
+
+    /**
+     * Gets a percentile of the recorded latencies, as the
+     * top of the bucket it falls in
+     *
+     * @param percentile The percentile, from 0 to 100
+     * @return The latency in nanoseconds
+     */
+    long getPercentile(double percentile) {
+        long target = Math.max(1, (long) Math.ceil(totalCount * percentile / 100));
+
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= target) {
+                return Math.min(max, getHighestInBucket(i));
+            }
+        }
+
+        return max;
+    }
+
+    /**
+     * Gets the bucket of a latency
+     *
+     * @param nanos The latency
+     * @return The index of its bucket
+     */
+    private static int getIndex(long nanos) {
+        if (nanos < SUB_BUCKET_COUNT) {
+            return (int) nanos;
+        }
+
+        /* The highest set bit picks the power of two, the bits below it the bucket within */
+        int magnitude = 63 - Long.numberOfLeadingZeros(nanos);
+        int subBucket = (int) (nanos >>> (magnitude - SUB_BUCKET_BITS)) & (SUB_BUCKET_COUNT - 1);
+        return (magnitude - SUB_BUCKET_BITS + 1) * SUB_BUCKET_COUNT + subBucket;
+    }
+
+    /**
+     * Gets the highest latency that falls in a bucket
+     *
+     * @param index The index of the bucket
+     * @return The latency
+     */
+    private static long getHighestInBucket(int index) {
+        if (index < SUB_BUCKET_COUNT) {
+            return index;
+        }
+
+        int magnitude = index / SUB_BUCKET_COUNT + SUB_BUCKET_BITS - 1;
+        long lowest = (1L << magnitude) | ((long) (index % SUB_BUCKET_COUNT) << (magnitude - SUB_BUCKET_BITS));
+        return lowest + (1L << (magnitude - SUB_BUCKET_BITS)) - 1;
+    }
+}
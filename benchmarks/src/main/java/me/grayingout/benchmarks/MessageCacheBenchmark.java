@@ -0,0 +1,212 @@
+package me.grayingout.benchmarks;
+
+import java.util.Collections;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import me.grayingout.bot.CachedMessage;
+import me.grayingout.bot.MessageCache;
+
+/**
+ * Measures the put and get throughput of the concurrent
+ * {@code MessageCache} against the previous synchronized
+ * cache, with 1, 4 and 16 threads
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MessageCacheBenchmark {
+
+    /**
+     * The maximum number of messages cached
+     */
+    private static final int MAX_SIZE = 100_000;
+
+    /**
+     * The maximum number of messages cached for a guild
+     */
+    private static final int MAX_GUILD_SIZE = 20_000;
+
+    /**
+     * The number of guilds the messages are spread over
+     */
+    private static final int GUILD_COUNT = 16;
+
+    /**
+     * The number of pre-built messages, a power of two larger than
+     * the cache so that writes keep evicting
+     */
+    private static final int MESSAGE_COUNT = 1 << 18;
+
+    /**
+     * A cache under test
+     */
+    private interface Cache {
+
+        /**
+         * Caches a message
+         *
+         * @param message The message
+         */
+        void put(CachedMessage message);
+
+        /**
+         * Gets a cached message
+         *
+         * @param id The id of the message
+         * @return The message, or {@code null}
+         */
+        CachedMessage get(long id);
+    }
+
+    /**
+     * The cache shared by all benchmark threads
+     */
+    @State(Scope.Benchmark)
+    public static class SharedCache {
+
+        /**
+         * The cache implementation to measure
+         */
+        @Param({ "concurrent", "synchronized" })
+        public String implementation;
+
+        /**
+         * The cache
+         */
+        private Cache cache;
+
+        /**
+         * The messages written to the cache
+         */
+        private CachedMessage[] messages;
+
+        /**
+         * Creates the cache and fills it with the most
+         * recent messages
+         */
+        @Setup(Level.Trial)
+        public void setup() {
+            long timeToLive = TimeUnit.DAYS.toMillis(1);
+
+            if ("concurrent".equals(implementation)) {
+                MessageCache concurrent = new MessageCache(MAX_SIZE, MAX_GUILD_SIZE, timeToLive);
+                cache = new Cache() {
+                    public void put(CachedMessage message) { concurrent.put(message); }
+                    public CachedMessage get(long id) { return concurrent.getMessageByIdLong(id); }
+                };
+            } else {
+                SynchronizedMessageCache locking = new SynchronizedMessageCache(MAX_SIZE, MAX_GUILD_SIZE, timeToLive);
+                cache = new Cache() {
+                    public void put(CachedMessage message) { locking.put(message); }
+                    public CachedMessage get(long id) { return locking.getMessageByIdLong(id); }
+                };
+            }
+
+            /* Snowflake like ids, so they share their high bits */
+            long baseId = 1_000_000_000_000_000_000L;
+            messages = new CachedMessage[MESSAGE_COUNT];
+            for (int i = 0; i < MESSAGE_COUNT; i++) {
+                messages[i] = new CachedMessage(
+                    baseId + ((long) i << 22),
+                    i % GUILD_COUNT,
+                    i % 64,
+                    i % 1024,
+                    "member#0000",
+                    new byte[32],
+                    new String[0],
+                    Collections.emptyList(),
+                    0,
+                    -1
+                );
+            }
+
+            for (int i = MESSAGE_COUNT - MAX_SIZE; i < MESSAGE_COUNT; i++) {
+                cache.put(messages[i]);
+            }
+        }
+    }
+
+    /**
+     * The position of a single thread in the messages
+     */
+    @State(Scope.Thread)
+    public static class Cursor {
+
+        /**
+         * The index of the next message
+         */
+        private int index;
+
+        /**
+         * Starts each thread at a different message
+         */
+        @Setup(Level.Iteration)
+        public void setup() {
+            index = ThreadLocalRandom.current().nextInt(MESSAGE_COUNT);
+        }
+
+        /**
+         * Gets the next message
+         *
+         * @param shared The shared cache
+         * @return The message
+         */
+        private CachedMessage next(SharedCache shared) {
+            index = (index + 1) & (MESSAGE_COUNT - 1);
+            return shared.messages[index];
+        }
+    }
+
+    @Benchmark
+    @Threads(1)
+    public void put1Thread(SharedCache shared, Cursor cursor) {
+        shared.cache.put(cursor.next(shared));
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void put4Threads(SharedCache shared, Cursor cursor) {
+        shared.cache.put(cursor.next(shared));
+    }
+
+    @Benchmark
+    @Threads(16)
+    public void put16Threads(SharedCache shared, Cursor cursor) {
+        shared.cache.put(cursor.next(shared));
+    }
+
+    @Benchmark
+    @Threads(1)
+    public CachedMessage get1Thread(SharedCache shared, Cursor cursor) {
+        return shared.cache.get(cursor.next(shared).getIdLong());
+    }
+
+    @Benchmark
+    @Threads(4)
+    public CachedMessage get4Threads(SharedCache shared, Cursor cursor) {
+        return shared.cache.get(cursor.next(shared).getIdLong());
+    }
+
+    @Benchmark
+    @Threads(16)
+    public CachedMessage get16Threads(SharedCache shared, Cursor cursor) {
+        return shared.cache.get(cursor.next(shared).getIdLong());
+    }
+}
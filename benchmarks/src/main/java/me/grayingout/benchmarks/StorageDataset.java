@@ -0,0 +1,197 @@
+package me.grayingout.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import me.grayingout.database.accessors.Database;
+import me.grayingout.database.accessors.SqliteStorageBackend;
+import me.grayingout.database.entities.GuildLoggingChannel.LoggingEventType;
+import me.grayingout.database.storage.ExperienceDelta;
+import me.grayingout.database.storage.StorageBackend;
+import me.grayingout.database.storage.kv.KeyValueStorageBackend;
+
+/**
+ * Generates the datasets the accessor benchmarks run against.
+ * <p>
+ * A dataset of {@code rows} has that many members with experience,
+ * spread over {@link #GUILD_COUNT} guilds, a tenth as many warnings,
+ * given to the first {@link #getWarnedMemberCount(int)} members, and
+ * a configuration for every guild. Generating the larger datasets takes
+ * minutes, so each is generated once into the temp directory and copied
+ * for every trial, which keeps the trials from seeing each other's writes
+ */
+final class StorageDataset {
+
+    /**
+     * The number of guilds the members are spread over
+     */
+    static final int GUILD_COUNT = 100;
+
+    /**
+     * The number of rows written at once while generating
+     */
+    private static final int GENERATE_BATCH_SIZE = 10_000;
+
+    /**
+     * The file marking a dataset as completely generated
+     */
+    private static final String COMPLETE_MARKER = "complete";
+
+    /**
+     * Gets the number of members that have warnings
+     *
+     * @param rows The number of members with experience
+     * @return The number of members with warnings
+     */
+    static int getWarnedMemberCount(int rows) {
+        return Math.max(1, rows / 100);
+    }
+
+    /**
+     * Copies a dataset into a new temp directory, generating
+     * it first if it has not been already
+     *
+     * @param backend The storage backend, {@code sqlite} or {@code kv}
+     * @param rows    The number of members with experience
+     * @return The directory with the copy
+     * @throws IOException If it could not be generated or copied
+     */
+    static File copy(String backend, int rows) throws IOException {
+        File template = new File(System.getProperty("java.io.tmpdir"), "discord-bot-benchmarks/" + backend + "-" + rows);
+        if (!new File(template, COMPLETE_MARKER).exists()) {
+            generate(backend, rows, template);
+        }
+
+        File directory = Files.createTempDirectory("accessor-benchmark").toFile();
+        for (File file : template.listFiles()) {
+            if (!file.getName().equals(COMPLETE_MARKER)) {
+                Files.copy(file.toPath(), new File(directory, file.getName()).toPath(), StandardCopyOption.COPY_ATTRIBUTES);
+            }
+        }
+
+        return directory;
+    }
+
+    /**
+     * Opens the storage backend in a directory
+     *
+     * @param backend   The storage backend, {@code sqlite} or {@code kv}
+     * @param directory The directory
+     * @return The storage backend
+     * @throws IOException If it could not be opened
+     */
+    static StorageBackend open(String backend, File directory) throws IOException {
+        switch (backend) {
+            case "sqlite":
+                return new SqliteStorageBackend(new Database(new File(directory, "bot.db").getPath()));
+            case "kv":
+                return new KeyValueStorageBackend(new File(directory, "storage.kv"), 1000);
+            default:
+                throw new IllegalArgumentException("Unknown storage backend " + backend);
+        }
+    }
+
+    /**
+     * Deletes a directory and the files in it
+     *
+     * @param directory The directory
+     */
+    static void delete(File directory) {
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        directory.delete();
+    }
+
+    /**
+     * Generates a dataset
+     *
+     * @param backend   The storage backend, {@code sqlite} or {@code kv}
+     * @param rows      The number of members with experience
+     * @param directory The directory to generate it in
+     * @throws IOException If it could not be generated
+     */
+    private static void generate(String backend, int rows, File directory) throws IOException {
+        /* Start again from a partially generated dataset */
+        delete(directory);
+        Files.createDirectories(directory.toPath());
+
+        System.out.println(String.format("Generating the %s dataset of %d rows in %s", backend, rows, directory));
+        long startNanos = System.nanoTime();
+
+        StorageBackend storageBackend = open(backend, directory);
+        try {
+            List<ExperienceDelta> deltas = new ArrayList<>();
+            for (int row = 0; row < rows; row++) {
+                deltas.add(new ExperienceDelta(row % GUILD_COUNT, row, 1 + row % 10_000));
+
+                if (deltas.size() == GENERATE_BATCH_SIZE || row == rows - 1) {
+                    checkWritten(storageBackend.getLevelRepository().addExperience(deltas).join());
+                    deltas = new ArrayList<>();
+                }
+            }
+
+            /* Warnings are written one at a time, so keep a batch in flight to group their commits */
+            int warnedMemberCount = getWarnedMemberCount(rows);
+            LocalDateTime receivedAt = LocalDateTime.of(2023, 1, 1, 0, 0);
+            List<CompletableFuture<?>> warnings = new ArrayList<>();
+            for (int warning = 0; warning < rows / 10; warning++) {
+                long memberId = warning % warnedMemberCount;
+                warnings.add(storageBackend.getWarningRepository().putWarning(
+                    memberId % GUILD_COUNT, memberId, 0, receivedAt.plusMinutes(warning), "Generated warning " + warning));
+
+                if (warnings.size() == GENERATE_BATCH_SIZE) {
+                    joinAll(warnings);
+                }
+            }
+            joinAll(warnings);
+
+            for (int guild = 0; guild < GUILD_COUNT; guild++) {
+                long guildId = guild;
+                checkWritten(storageBackend.getConfigurationRepository().updateConfiguration(guildId, configuration -> configuration
+                    .withLoggingChannelId(guildId + 1)
+                    .withLoggingType(LoggingEventType.MESSAGE_DELETION_LOGGING, true)
+                    .withWelcomeChannelId(guildId + 2)
+                    .withWelcomeMessage("Welcome {{member}}")).join());
+            }
+        } finally {
+            storageBackend.close();
+        }
+
+        Files.createFile(new File(directory, COMPLETE_MARKER).toPath());
+        System.out.println(String.format("Generated the dataset in %.1fs", (System.nanoTime() - startNanos) / 1e9));
+    }
+
+    /**
+     * Waits for writes, and clears them
+     *
+     * @param futures The futures of the writes
+     */
+    private static void joinAll(List<CompletableFuture<?>> futures) {
+        for (CompletableFuture<?> future : futures) {
+            checkWritten(future.join());
+        }
+        futures.clear();
+    }
+
+    /**
+     * Checks a write succeeded
+     *
+     * @param result The result of the write
+     * @throws IllegalStateException If it failed
+     */
+    private static void checkWritten(Object result) {
+        if (result == null) {
+            throw new IllegalStateException("Failed to generate the dataset");
+        }
+    }
+}
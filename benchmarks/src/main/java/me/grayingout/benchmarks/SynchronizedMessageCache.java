@@ -0,0 +1,318 @@
+package me.grayingout.benchmarks;
+
+import java.util.ArrayDeque;
+
+import me.grayingout.bot.CachedMessage;
+import me.grayingout.util.collections.LongObjectHashMap;
+
+/**
+ * The previous {@code MessageCache}, which locked the whole cache
+ * for every lookup and write. Kept as the baseline the concurrent
+ * cache is measured against
+ */
+final class SynchronizedMessageCache {
+
+    /**
+     * Stores the cached messages against their id
+     */
+    private final LongObjectHashMap<CacheNode> messages;
+
+    /**
+     * Stores the messages of each guild against the guild id
+     */
+    private final LongObjectHashMap<GuildMessages> guildMessages;
+
+    /**
+     * All cached messages, in the order they were written
+     */
+    private final ArrayDeque<CacheNode> writeOrder;
+
+    /**
+     * The number of removed nodes still in {@code writeOrder}
+     */
+    private int removedInWriteOrder;
+
+    /**
+     * The maximum number of messages cached
+     */
+    private final int maxSize;
+
+    /**
+     * The maximum number of messages cached for a single guild
+     */
+    private final int maxGuildSize;
+
+    /**
+     * How long a message is cached for, in milliseconds
+     */
+    private final long timeToLiveMillis;
+
+    /**
+     * Creates a new {@code SynchronizedMessageCache}
+     *
+     * @param maxSize          The maximum number of messages cached
+     * @param maxGuildSize     The maximum number of messages cached for a guild
+     * @param timeToLiveMillis How long a message is cached for, in milliseconds
+     */
+    SynchronizedMessageCache(int maxSize, int maxGuildSize, long timeToLiveMillis) {
+        this.maxSize = maxSize;
+        this.maxGuildSize = maxGuildSize;
+        this.timeToLiveMillis = timeToLiveMillis;
+
+        messages = new LongObjectHashMap<>(Math.min(maxSize, 1 << 16));
+        guildMessages = new LongObjectHashMap<>();
+        writeOrder = new ArrayDeque<>();
+    }
+
+    /**
+     * Gets a stored message, or {@code null} if no cached
+     * message
+     *
+     * @param id The id of the message
+     * @return The message, or {@code null}, if not present
+     */
+    public final synchronized CachedMessage getMessageByIdLong(long id) {
+        CacheNode node = messages.get(id);
+        if (node == null) {
+            return null;
+        }
+
+        /* Expired, but not removed yet */
+        if (isExpired(node, System.currentTimeMillis())) {
+            return null;
+        }
+
+        return node.message;
+    }
+
+    /**
+     * Caches a message snapshot, replacing any previous
+     * snapshot of the same message
+     *
+     * @param message The message snapshot
+     */
+    public final synchronized void put(CachedMessage message) {
+        /* Drop the old snapshot of an edited message */
+        CacheNode previous = messages.remove(message.getIdLong());
+        if (previous != null) {
+            remove(previous, true, true);
+        }
+
+        GuildMessages guild = guildMessages.get(message.getGuildIdLong());
+        if (guild == null) {
+            guild = new GuildMessages(message.getGuildIdLong());
+            guildMessages.put(message.getGuildIdLong(), guild);
+        }
+
+        CacheNode node = new CacheNode(message, guild, System.currentTimeMillis());
+        messages.put(message.getIdLong(), node);
+        writeOrder.addLast(node);
+        guild.writeOrder.addLast(node);
+        guild.size++;
+
+        /* Enforce the guild bound */
+        while (guild.size > maxGuildSize) {
+            CacheNode oldest = pollLive(guild.writeOrder, guild);
+            messages.remove(oldest.message.getIdLong());
+            remove(oldest, true, false);
+        }
+
+        /* Enforce the global bound */
+        while (messages.size() > maxSize) {
+            CacheNode oldest = pollLive(writeOrder, null);
+            messages.remove(oldest.message.getIdLong());
+            remove(oldest, false, true);
+        }
+
+        expire(node.cachedAt);
+        compact(guild);
+    }
+
+    /**
+     * Gets the number of cached messages
+     *
+     * @return The number of messages
+     */
+    public final synchronized int size() {
+        return messages.size();
+    }
+
+    /**
+     * Returns if a cached message has outlived the time to live
+     *
+     * @param node The cache node
+     * @param now  The current time in milliseconds
+     * @return If it has expired
+     */
+    private final boolean isExpired(CacheNode node, long now) {
+        return now - node.cachedAt > timeToLiveMillis;
+    }
+
+    /**
+     * Removes the expired messages, which are always the
+     * oldest written messages
+     *
+     * @param now The current time in milliseconds
+     */
+    private final void expire(long now) {
+        while (!writeOrder.isEmpty()) {
+            CacheNode oldest = writeOrder.peekFirst();
+
+            if (oldest.removed) {
+                writeOrder.pollFirst();
+                removedInWriteOrder--;
+                continue;
+            }
+
+            if (!isExpired(oldest, now)) {
+                return;
+            }
+
+            writeOrder.pollFirst();
+            messages.remove(oldest.message.getIdLong());
+            remove(oldest, false, true);
+        }
+    }
+
+    /**
+     * Polls the oldest node of a write order that is still
+     * cached, discarding removed nodes in front of it
+     *
+     * @param order The write order
+     * @param guild The guild the order belongs to, or {@code null} for the global order
+     * @return The cache node
+     */
+    private final CacheNode pollLive(ArrayDeque<CacheNode> order, GuildMessages guild) {
+        CacheNode node = order.pollFirst();
+        while (node.removed) {
+            if (guild == null) {
+                removedInWriteOrder--;
+            } else {
+                guild.removedInWriteOrder--;
+            }
+            node = order.pollFirst();
+        }
+
+        return node;
+    }
+
+    /**
+     * Marks a node that has been taken out of the message map
+     * as removed. The node is left in the write orders it is still
+     * in, and skipped once it is reached
+     *
+     * @param node              The cache node
+     * @param inWriteOrder      If the node is still in the global write order
+     * @param inGuildWriteOrder If the node is still in the guild write order
+     */
+    private final void remove(CacheNode node, boolean inWriteOrder, boolean inGuildWriteOrder) {
+        node.removed = true;
+
+        if (inWriteOrder) {
+            removedInWriteOrder++;
+        }
+
+        GuildMessages guild = node.guild;
+        if (inGuildWriteOrder) {
+            guild.removedInWriteOrder++;
+        }
+
+        /* Forget guilds with no cached messages */
+        if (--guild.size == 0) {
+            guildMessages.remove(guild.guildId);
+        }
+    }
+
+    /**
+     * Drops removed nodes from the write orders once they
+     * outnumber the cached messages
+     *
+     * @param guild The guild that was written to
+     */
+    private final void compact(GuildMessages guild) {
+        if (removedInWriteOrder > messages.size() + 1024) {
+            writeOrder.removeIf(node -> node.removed);
+            removedInWriteOrder = 0;
+        }
+
+        if (guild.removedInWriteOrder > guild.size + 64) {
+            guild.writeOrder.removeIf(node -> node.removed);
+            guild.removedInWriteOrder = 0;
+        }
+    }
+
+    /**
+     * A cached message, and its place in the write orders
+     */
+    private static final class CacheNode {
+
+        /**
+         * The message snapshot
+         */
+        private final CachedMessage message;
+
+        /**
+         * The messages of the guild the message belongs to
+         */
+        private final GuildMessages guild;
+
+        /**
+         * When the message was cached, in milliseconds
+         */
+        private final long cachedAt;
+
+        /**
+         * Whether the node has been removed from the cache
+         */
+        private boolean removed;
+
+        /**
+         * Creates a new {@code CacheNode}
+         *
+         * @param message  The message snapshot
+         * @param guild    The guild messages
+         * @param cachedAt When the message was cached
+         */
+        private CacheNode(CachedMessage message, GuildMessages guild, long cachedAt) {
+            this.message = message;
+            this.guild = guild;
+            this.cachedAt = cachedAt;
+        }
+    }
+
+    /**
+     * The cached messages of a single guild
+     */
+    private static final class GuildMessages {
+
+        /**
+         * The id of the guild
+         */
+        private final long guildId;
+
+        /**
+         * The guild's messages, in the order they were written
+         */
+        private final ArrayDeque<CacheNode> writeOrder;
+
+        /**
+         * The number of removed nodes still in {@code writeOrder}
+         */
+        private int removedInWriteOrder;
+
+        /**
+         * The number of cached messages in the guild
+         */
+        private int size;
+
+        /**
+         * Creates a new {@code GuildMessages}
+         *
+         * @param guildId The id of the guild
+         */
+        private GuildMessages(long guildId) {
+            this.guildId = guildId;
+            writeOrder = new ArrayDeque<>();
+        }
+    }
+}
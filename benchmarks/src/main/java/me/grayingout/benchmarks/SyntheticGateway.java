@@ -0,0 +1,622 @@
+package me.grayingout.benchmarks;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.time.OffsetDateTime;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+import net.dv8tion.jda.api.JDA;
+import net.dv8tion.jda.api.entities.Guild;
+import net.dv8tion.jda.api.entities.Member;
+import net.dv8tion.jda.api.entities.Message;
+import net.dv8tion.jda.api.entities.Role;
+import net.dv8tion.jda.api.entities.SelfUser;
+import net.dv8tion.jda.api.entities.User;
+import net.dv8tion.jda.api.entities.channel.ChannelType;
+import net.dv8tion.jda.api.entities.channel.middleman.GuildMessageChannel;
+import net.dv8tion.jda.api.entities.channel.unions.GuildMessageChannelUnion;
+import net.dv8tion.jda.api.entities.channel.unions.MessageChannelUnion;
+import net.dv8tion.jda.api.events.GenericEvent;
+import net.dv8tion.jda.api.events.message.MessageDeleteEvent;
+import net.dv8tion.jda.api.events.message.MessageReceivedEvent;
+import net.dv8tion.jda.api.events.message.MessageUpdateEvent;
+import net.dv8tion.jda.api.requests.RestAction;
+import net.dv8tion.jda.api.utils.TimeUtil;
+
+/**
+ * Generates gateway events as JDA would build them, from stubbed
+ * guilds, channels, members and messages, so the listeners can be
+ * run without a connection to discord.
+ * <p>
+ * The stubs answer what the listeners read with fixed values, and
+ * anything else with an empty value or another stub. Every REST
+ * action is a stub too, which is counted and dropped when it is
+ * queued, so the listeners never wait on discord
+ */
+final class SyntheticGateway {
+
+    /**
+     * The id of the bot's own user
+     */
+    private static final long SELF_USER_ID = 1;
+
+    /**
+     * The number of recent messages that can be updated or deleted
+     */
+    private static final int RECENT_MESSAGE_COUNT = 4096;
+
+    /**
+     * The characters message content is made of
+     */
+    private static final String CONTENT_CHARACTERS = "abcdefghijklmnopqrstuvwxyz      .,!?";
+
+    /**
+     * The stubbed {@code JDA}
+     */
+    private final JDA jda;
+
+    /**
+     * The stubbed guilds
+     */
+    private final StubGuild[] guilds;
+
+    /**
+     * The number of members in each guild
+     */
+    private final int membersPerGuild;
+
+    /**
+     * The number of REST requests queued through the stubs
+     */
+    private final LongAdder restRequests;
+
+    /**
+     * The last sequence used in a message id
+     */
+    private final AtomicLong messageSequence;
+
+    /**
+     * The last gateway sequence number
+     */
+    private final AtomicLong responseNumber;
+
+    /**
+     * Creates a new {@code SyntheticGateway}
+     *
+     * @param guildCount        The number of guilds
+     * @param channelsPerGuild  The number of channels in each guild, the
+     *                          first of which is its logging channel
+     * @param membersPerGuild   The number of members in each guild
+     * @param levelRolesPerGuild The number of level roles in each guild
+     */
+    SyntheticGateway(int guildCount, int channelsPerGuild, int membersPerGuild, int levelRolesPerGuild) {
+        this.membersPerGuild = membersPerGuild;
+        restRequests = new LongAdder();
+        messageSequence = new AtomicLong();
+        responseNumber = new AtomicLong();
+
+        SelfUser selfUser = stub(SelfUser.class, answers()
+            .with("getIdLong", args -> SELF_USER_ID)
+            .with("getId", args -> Long.toString(SELF_USER_ID)));
+        jda = stub(JDA.class, answers().with("getSelfUser", args -> selfUser));
+
+        guilds = new StubGuild[guildCount];
+        for (int i = 0; i < guildCount; i++) {
+            guilds[i] = new StubGuild(1_000_000L + i, channelsPerGuild, levelRolesPerGuild);
+        }
+    }
+
+    /**
+     * Gets the stubbed guilds
+     *
+     * @return The guilds
+     */
+    StubGuild[] getGuilds() {
+        return guilds;
+    }
+
+    /**
+     * Gets the number of REST requests queued through the stubs
+     *
+     * @return The number of requests
+     */
+    long getRestRequestCount() {
+        return restRequests.sum();
+    }
+
+    /**
+     * Creates a generator of events, which must only be used by one thread
+     *
+     * @param seed          The seed of the generator's choices
+     * @param updatePercent The percentage of events that update a message
+     * @param deletePercent The percentage of events that delete a message
+     * @return The generator
+     */
+    EventGenerator createGenerator(long seed, int updatePercent, int deletePercent) {
+        return new EventGenerator(new Random(seed), updatePercent, deletePercent);
+    }
+
+    /**
+     * Generates message events, mostly from a hot fifth of
+     * the members, as in an active guild
+     */
+    final class EventGenerator {
+
+        /**
+         * Makes the generator's choices
+         */
+        private final Random random;
+
+        /**
+         * The percentage of events that update a message
+         */
+        private final int updatePercent;
+
+        /**
+         * The percentage of events that delete a message
+         */
+        private final int deletePercent;
+
+        /**
+         * The messages recently sent, which can be updated or deleted
+         */
+        private final Message[] recentMessages;
+
+        /**
+         * The number of messages sent
+         */
+        private long sentCount;
+
+        /**
+         * Creates a new {@code EventGenerator}
+         *
+         * @param random        Makes the generator's choices
+         * @param updatePercent The percentage of events that update a message
+         * @param deletePercent The percentage of events that delete a message
+         */
+        private EventGenerator(Random random, int updatePercent, int deletePercent) {
+            this.random = random;
+            this.updatePercent = updatePercent;
+            this.deletePercent = deletePercent;
+            recentMessages = new Message[RECENT_MESSAGE_COUNT];
+        }
+
+        /**
+         * Generates the next event
+         *
+         * @return The event
+         */
+        GenericEvent next() {
+            int roll = random.nextInt(100);
+
+            /* Nothing can be updated or deleted before a message is sent */
+            if (sentCount == 0 || roll >= updatePercent + deletePercent) {
+                StubGuild guild = guilds[random.nextInt(guilds.length)];
+                Message message = createMessage(guild, guild.randomChannel(random), randomMemberId(), null);
+
+                recentMessages[(int) (sentCount++ % RECENT_MESSAGE_COUNT)] = message;
+                return new MessageReceivedEvent(jda, responseNumber.incrementAndGet(), message);
+            }
+
+            Message recent = recentMessages[random.nextInt((int) Math.min(sentCount, RECENT_MESSAGE_COUNT))];
+            StubGuild guild = (StubGuild) Proxy.getInvocationHandler(recent.getGuild());
+
+            if (roll < updatePercent) {
+                Message edited = createMessage(guild, (StubChannel) Proxy.getInvocationHandler(recent.getChannel()),
+                    recent.getAuthor().getIdLong(), recent);
+                return new MessageUpdateEvent(jda, responseNumber.incrementAndGet(), edited);
+            }
+
+            return new MessageDeleteEvent(jda, responseNumber.incrementAndGet(), recent.getIdLong(), recent.getChannel());
+        }
+
+        /**
+         * Picks a member, four times in five from the hot fifth of members
+         *
+         * @return The id of the member
+         */
+        private long randomMemberId() {
+            int bound = random.nextInt(5) == 0 ? membersPerGuild : Math.max(1, membersPerGuild / 5);
+            return 10_000_000L + random.nextInt(bound);
+        }
+
+        /**
+         * Creates a message with random content
+         *
+         * @param guild    The guild it is sent in
+         * @param channel  The channel it is sent in
+         * @param authorId The id of the member that sent it
+         * @param original The message it is an edit of, or {@code null}
+         * @return The message
+         */
+        private Message createMessage(StubGuild guild, StubChannel channel, long authorId, Message original) {
+            long messageId = original != null
+                ? original.getIdLong()
+                : TimeUtil.getDiscordTimestamp(System.currentTimeMillis()) | (messageSequence.incrementAndGet() & 0x3FFFFF);
+            OffsetDateTime timeEdited = original != null ? OffsetDateTime.now() : null;
+            String content = randomContent();
+
+            User author = stub(User.class, answers()
+                .with("getIdLong", args -> authorId)
+                .with("getId", args -> Long.toString(authorId))
+                .with("getName", args -> "member" + authorId)
+                .with("getAsTag", args -> "member" + authorId + "#0001")
+                .with("getAsMention", args -> "<@" + authorId + ">"));
+            Member member = stub(Member.class, answers()
+                .with("getIdLong", args -> authorId)
+                .with("getId", args -> Long.toString(authorId))
+                .with("getUser", args -> author)
+                .with("getGuild", args -> guild.proxy)
+                .with("getEffectiveName", args -> author.getName())
+                .with("getAsMention", args -> author.getAsMention()));
+
+            return stub(Message.class, answers()
+                .with("getIdLong", args -> messageId)
+                .with("getId", args -> Long.toString(messageId))
+                .with("getJDA", args -> jda)
+                .with("isFromGuild", args -> true)
+                .with("isFromType", args -> args[0] == ChannelType.TEXT)
+                .with("getChannelType", args -> ChannelType.TEXT)
+                .with("getGuild", args -> guild.proxy)
+                .with("getChannel", args -> channel.proxy)
+                .with("getGuildChannel", args -> channel.proxy)
+                .with("getAuthor", args -> author)
+                .with("getMember", args -> member)
+                .with("getContentRaw", args -> content)
+                .with("getContentDisplay", args -> content)
+                .with("getContentStripped", args -> content)
+                .with("getTimeCreated", args -> TimeUtil.getTimeCreated(messageId))
+                .with("getTimeEdited", args -> timeEdited));
+        }
+
+        /**
+         * Creates the content of a message, of 10 to 200 characters
+         *
+         * @return The content
+         */
+        private String randomContent() {
+            char[] content = new char[10 + random.nextInt(191)];
+            for (int i = 0; i < content.length; i++) {
+                content[i] = CONTENT_CHARACTERS.charAt(random.nextInt(CONTENT_CHARACTERS.length()));
+            }
+            return new String(content);
+        }
+    }
+
+    /**
+     * A stubbed guild, with channels and level roles
+     */
+    final class StubGuild extends StubHandler {
+
+        /**
+         * The id of the guild
+         */
+        private final long guildId;
+
+        /**
+         * The guild
+         */
+        private final Guild proxy;
+
+        /**
+         * The channels of the guild
+         */
+        private final StubChannel[] channels;
+
+        /**
+         * The level roles of the guild against their ids
+         */
+        private final Map<Long, Role> roles;
+
+        /**
+         * Creates a new {@code StubGuild}
+         *
+         * @param guildId            The id of the guild
+         * @param channelCount       The number of channels
+         * @param levelRoleCount     The number of level roles
+         */
+        private StubGuild(long guildId, int channelCount, int levelRoleCount) {
+            super(Guild.class, answers());
+            this.guildId = guildId;
+            proxy = (Guild) Proxy.newProxyInstance(Guild.class.getClassLoader(), new Class<?>[] { Guild.class }, this);
+
+            channels = new StubChannel[Math.max(1, channelCount)];
+            for (int i = 0; i < channels.length; i++) {
+                channels[i] = new StubChannel(this, guildId * 1000 + i);
+            }
+
+            roles = new HashMap<>();
+            for (int i = 0; i < levelRoleCount; i++) {
+                long roleId = guildId * 1000 + 500 + i;
+                roles.put(roleId, stub(Role.class, answers()
+                    .with("getIdLong", args -> roleId)
+                    .with("getId", args -> Long.toString(roleId))
+                    .with("getGuild", args -> proxy)
+                    .with("getName", args -> "Level role " + roleId)));
+            }
+
+            answers
+                .with("getIdLong", args -> guildId)
+                .with("getId", args -> Long.toString(guildId))
+                .with("getName", args -> "Guild " + guildId)
+                .with("getJDA", args -> jda)
+                .with("getRoleById", args -> roles.get(toId(args[0])))
+                .with("getMemberById", args -> null)
+                .with("getTextChannelById", args -> findChannel(toId(args[0])))
+                .with("getGuildChannelById", args -> findChannel(toId(args[args.length - 1])))
+                .with("getChannelById", args -> findChannel(toId(args[1])));
+        }
+
+        /**
+         * Gets the guild
+         *
+         * @return The guild
+         */
+        Guild getGuild() {
+            return proxy;
+        }
+
+        /**
+         * Gets the logging channel of the guild, which the
+         * generated messages are never sent in
+         *
+         * @return The logging channel
+         */
+        GuildMessageChannel getLoggingChannel() {
+            return channels[0].proxy;
+        }
+
+        /**
+         * Gets the level roles of the guild
+         *
+         * @return The level roles
+         */
+        Collection<Role> getLevelRoles() {
+            return roles.values();
+        }
+
+        /**
+         * Picks a channel that is not the logging channel, unless it is the only one
+         *
+         * @param random Makes the choice
+         * @return The channel
+         */
+        private StubChannel randomChannel(Random random) {
+            return channels.length == 1 ? channels[0] : channels[1 + random.nextInt(channels.length - 1)];
+        }
+
+        /**
+         * Finds a channel of the guild
+         *
+         * @param channelId The id of the channel
+         * @return The channel, or {@code null}
+         */
+        private Object findChannel(long channelId) {
+            long index = channelId - guildId * 1000;
+            return index >= 0 && index < channels.length ? channels[(int) index].proxy : null;
+        }
+    }
+
+    /**
+     * A stubbed text channel of a guild
+     */
+    private final class StubChannel extends StubHandler {
+
+        /**
+         * The channel, as every channel type the listeners read it as
+         */
+        private final StubChannelProxy proxy;
+
+        /**
+         * Creates a new {@code StubChannel}
+         *
+         * @param guild     The guild the channel is in
+         * @param channelId The id of the channel
+         */
+        private StubChannel(StubGuild guild, long channelId) {
+            super(StubChannelProxy.class, answers()
+                .with("getIdLong", args -> channelId)
+                .with("getId", args -> Long.toString(channelId))
+                .with("getName", args -> "channel-" + channelId)
+                .with("getAsMention", args -> "<#" + channelId + ">")
+                .with("getType", args -> ChannelType.TEXT)
+                .with("getJDA", args -> jda)
+                .with("getGuild", args -> guild.proxy));
+            proxy = (StubChannelProxy) Proxy.newProxyInstance(
+                StubChannelProxy.class.getClassLoader(), new Class<?>[] { StubChannelProxy.class }, this);
+        }
+    }
+
+    /**
+     * The channel types a stubbed channel is read as
+     */
+    private interface StubChannelProxy extends MessageChannelUnion, GuildMessageChannelUnion {
+    }
+
+    /**
+     * Creates a stub
+     *
+     * @param <T>     The type of the stub
+     * @param type    The interface it implements
+     * @param answers The answers to the methods it does not stub with empty values
+     * @return The stub
+     */
+    private <T> T stub(Class<T> type, Answers answers) {
+        return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] { type }, new StubHandler(type, answers)));
+    }
+
+    /**
+     * Creates empty answers
+     *
+     * @return The answers
+     */
+    private static Answers answers() {
+        return new Answers();
+    }
+
+    /**
+     * Reads an id passed as a {@code long} or a {@code String}
+     *
+     * @param id The id
+     * @return The id as a {@code long}
+     */
+    private static long toId(Object id) {
+        return id instanceof Number ? ((Number) id).longValue() : Long.parseUnsignedLong(id.toString());
+    }
+
+    /**
+     * The answers of a stub, against the names of their methods
+     */
+    private static final class Answers extends HashMap<String, Function<Object[], Object>> {
+
+        /**
+         * The serial version uid
+         */
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * Answers a method
+         *
+         * @param methodName The name of the method
+         * @param answer     Answers it from its arguments
+         * @return The answers
+         */
+        private Answers with(String methodName, Function<Object[], Object> answer) {
+            put(methodName, answer);
+            return this;
+        }
+    }
+
+    /**
+     * Answers the methods of a stub
+     */
+    private class StubHandler implements InvocationHandler {
+
+        /**
+         * The interface the stub implements
+         */
+        private final Class<?> type;
+
+        /**
+         * The answers to the methods it does not stub with empty values
+         */
+        /* default */ final Answers answers;
+
+        /**
+         * The stubs returned by methods, so chained calls do not create more
+         */
+        private final ConcurrentHashMap<Method, Object> returnedStubs;
+
+        /**
+         * Creates a new {@code StubHandler}
+         *
+         * @param type    The interface the stub implements
+         * @param answers The answers to the methods it does not stub with empty values
+         */
+        private StubHandler(Class<?> type, Answers answers) {
+            this.type = type;
+            this.answers = answers;
+            returnedStubs = new ConcurrentHashMap<>();
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) {
+            Function<Object[], Object> answer = answers.get(method.getName());
+            if (answer != null) {
+                return answer.apply(args);
+            }
+
+            switch (method.getName()) {
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "equals":
+                    return proxy == args[0];
+                case "toString":
+                    return "Stub" + type.getSimpleName();
+                default:
+                    break;
+            }
+
+            /* Count and drop REST requests */
+            if (RestAction.class.isAssignableFrom(method.getDeclaringClass())) {
+                switch (method.getName()) {
+                    case "queue":
+                    case "complete":
+                        restRequests.increment();
+                        return null;
+                    case "submit":
+                        restRequests.increment();
+                        return CompletableFuture.completedFuture(null);
+                    default:
+                        break;
+                }
+            }
+
+            Class<?> returnType = method.getReturnType();
+
+            /* Builders return themselves */
+            if (returnType != Object.class && returnType.isInstance(proxy)) {
+                return proxy;
+            }
+
+            if (returnType.isInterface() && !Collection.class.isAssignableFrom(returnType) && !Map.class.isAssignableFrom(returnType)) {
+                return returnedStubs.computeIfAbsent(method, m -> stub(returnType, answers()));
+            }
+
+            return getEmptyValue(returnType);
+        }
+    }
+
+    /**
+     * Gets the empty value of a type
+     *
+     * @param type The type
+     * @return The empty value, or {@code null}
+     */
+    private static Object getEmptyValue(Class<?> type) {
+        if (type == boolean.class) {
+            return false;
+        } else if (type == int.class) {
+            return 0;
+        } else if (type == long.class) {
+            return 0L;
+        } else if (type == double.class) {
+            return 0D;
+        } else if (type == float.class) {
+            return 0F;
+        } else if (type == short.class) {
+            return (short) 0;
+        } else if (type == byte.class) {
+            return (byte) 0;
+        } else if (type == char.class) {
+            return (char) 0;
+        } else if (type == String.class) {
+            return "";
+        } else if (type == List.class || type == Collection.class) {
+            return Collections.emptyList();
+        } else if (type == Set.class) {
+            return Collections.emptySet();
+        } else if (type == Map.class) {
+            return Collections.emptyMap();
+        } else if (type == Optional.class) {
+            return Optional.empty();
+        } else if (type == CompletableFuture.class) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        return null;
+    }
+}
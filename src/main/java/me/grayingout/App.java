@@ -3,6 +3,12 @@ package me.grayingout;
 import io.github.cdimascio.dotenv.Dotenv;
 import me.grayingout.bot.Bot;
 import me.grayingout.database.accessors.DatabaseAccessorManager;
+import me.grayingout.lifecycle.LifecycleManager;
+import me.grayingout.lifecycle.ShutdownStage;
+import me.grayingout.lifecycle.StartupReport;
+import me.grayingout.logging.Logger;
+import me.grayingout.metrics.MetricsRegistry;
+import me.grayingout.metrics.MetricsServer;
 
 /**
  * The main class
@@ -35,9 +41,30 @@ public final class App {
             return;
         }
 
-        System.out.println("Starting bot with token: " + token);
+        /* The token is a secret, so it is not logged */
+        Logger.getLogger(App.class).info("Starting bot");
 
+        /* Open the databases and run their migrations, each at once */
+        long databasesStartedAt = System.nanoTime();
         DatabaseAccessorManager.initDatabaseAccessors();
+        StartupReport.getInstance().record("databases", databasesStartedAt);
+
+        /* Close the databases cleanly when the bot is stopped, once nothing else writes to them */
+        LifecycleManager lifecycleManager = LifecycleManager.getInstance();
+        lifecycleManager.register(ShutdownStage.CLOSE_STORAGE, "databases", DatabaseAccessorManager::closeDatabaseAccessors);
+
+        MetricsServer metricsServer = MetricsServer.startFromEnvironment();
+        boolean dumpMetrics = Boolean.parseBoolean(App.env.get("METRICS_DUMP_ON_SHUTDOWN", "false"));
+        lifecycleManager.register(ShutdownStage.STOP_METRICS, "metrics", () -> {
+            if (metricsServer != null) {
+                metricsServer.stop();
+            }
+
+            /* Keep the final values, which a scrape would have missed */
+            if (dumpMetrics) {
+                System.out.print(MetricsRegistry.getInstance().scrape());
+            }
+        });
 
         /* Create a new bot */
         bot = new Bot(token);
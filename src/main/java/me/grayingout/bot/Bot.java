@@ -1,52 +1,180 @@
 package me.grayingout.bot;
 
-import java.util.stream.Collectors;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import me.grayingout.App;
+import me.grayingout.bot.audioplayer.GuildAudioPlayerManager;
 import me.grayingout.bot.audioplayer.skip.GuildSkipAudioManager;
-import me.grayingout.bot.commands.BotCommand;
+import me.grayingout.bot.cache.CacheProfile;
 import me.grayingout.bot.commands.BotCommandManager;
 import me.grayingout.bot.interactables.audioqueue.AudioQueueMessageManager;
 import me.grayingout.bot.interactables.playingaudio.PlayingAudioMessageManager;
 import me.grayingout.bot.interactables.warningslist.WarningsListMessageManager;
+import me.grayingout.bot.listeners.ConfigurationListeners;
 import me.grayingout.bot.listeners.LevellingListeners;
 import me.grayingout.bot.listeners.LoggingListeners;
 import me.grayingout.bot.listeners.WelcomeMessageListeners;
+import me.grayingout.lifecycle.LifecycleManager;
+import me.grayingout.lifecycle.ShutdownStage;
+import me.grayingout.lifecycle.StartupReport;
+import me.grayingout.logging.LogValue;
+import me.grayingout.logging.Logger;
+import me.grayingout.metrics.MetricsRegistry;
+import me.grayingout.metrics.MetricsWriter;
+import me.grayingout.util.Futures;
 import net.dv8tion.jda.api.JDA;
 import net.dv8tion.jda.api.JDABuilder;
 import net.dv8tion.jda.api.entities.Activity;
+import net.dv8tion.jda.api.entities.Guild;
+import net.dv8tion.jda.api.events.GenericEvent;
 import net.dv8tion.jda.api.events.interaction.command.SlashCommandInteractionEvent;
+import net.dv8tion.jda.api.events.session.ReadyEvent;
+import net.dv8tion.jda.api.events.session.ShutdownEvent;
 import net.dv8tion.jda.api.hooks.ListenerAdapter;
+import net.dv8tion.jda.api.interactions.commands.OptionMapping;
 import net.dv8tion.jda.api.requests.GatewayIntent;
+import net.dv8tion.jda.api.sharding.DefaultShardManagerBuilder;
+import net.dv8tion.jda.api.sharding.ShardManager;
 
 /**
- * The wrapper class for the {@code JDA}
+ * The wrapper class for the {@code JDA}.
+ * <p>
+ * By default the bot is one gateway session, handling every guild.
+ * With {@code SHARD_TOTAL} set, it is split into that many shards with
+ * a {@code ShardManager}, and this process runs shards {@code SHARD_MIN}
+ * to {@code SHARD_MAX} (every shard by default), so the guilds can be
+ * spread across processes and hosts. {@code SHARD_TOTAL=auto} runs the
+ * number of shards Discord recommends, all in this process. Each
+ * process must be given a different range, with the same total
  */
 public final class Bot extends ListenerAdapter {
 
     /**
-     * The {@code JDA} instance
+     * The logger
+     */
+    private static final Logger logger = Logger.getLogger(Bot.class);
+
+    /**
+     * The {@code JDA} instance, or {@code null} if sharded
      */
     private final JDA jda;
+
+    /**
+     * The {@code ShardManager}, or {@code null} if not sharded
+     */
+    private final ShardManager shardManager;
+
+    /**
+     * The event manager of each shard, so they can be stopped
+     */
+    private final List<MetricsEventManager> eventManagers;
+
+    /**
+     * The number of shards this process runs
+     */
+    private final int shardCount;
+
+    /**
+     * The number of shards that have loaded their guilds
+     */
+    private final AtomicInteger readyShards;
+
+    /**
+     * The number of guilds loaded by the ready shards
+     */
+    private final AtomicInteger readyGuilds;
+
+    /**
+     * The number of guilds that were unavailable to the ready shards
+     */
+    private final AtomicInteger unavailableGuilds;
+
+    /**
+     * How much of each guild is cached, from {@code CACHE_PROFILE}
+     */
+    private final CacheProfile cacheProfile;
     
     /**
-     * Instantiates a new {@code Bot} with the provided token
+     * Instantiates a new {@code Bot} with the provided token. It returns
+     * once logged in, while the guilds are still being loaded, and each
+     * guild is handled as soon as it is ready
      * 
      * @param token The bot token
+     * @throws IllegalArgumentException If the shards are not configured correctly
      */
     public Bot(String token) {
-        /* Create a new JDA */
-        jda = JDABuilder.createDefault(token)
-            .addEventListeners(
-                this,
-                new LoggingListeners(),
-                new LevellingListeners(),
-                new WelcomeMessageListeners(),
-                new WarningsListMessageManager(),
-                new AudioQueueMessageManager(),
-                new PlayingAudioMessageManager(),
-                GuildSkipAudioManager.getInstance(),
-                MessageCache.getInstance()
-            )
+        eventManagers = new CopyOnWriteArrayList<>();
+        readyShards = new AtomicInteger();
+        readyGuilds = new AtomicInteger();
+        unavailableGuilds = new AtomicInteger();
+        cacheProfile = CacheProfile.fromEnvironment();
+        logger.info("Caching", "cache_profile", cacheProfile.name().toLowerCase(),
+            "cache_flags", cacheProfile.getCacheFlags().toString());
+
+        /* Create a new JDA or shards, which logs in */
+        long loginStartedAt = System.nanoTime();
+        String shardTotal = App.env.get("SHARD_TOTAL");
+        if (shardTotal == null) {
+            jda = createJDA(token);
+            shardManager = null;
+            shardCount = 1;
+        } else if (shardTotal.equalsIgnoreCase("auto")) {
+            /* Every shard Discord recommends, all in this process */
+            jda = null;
+            shardManager = createShardManager(token, -1, 0, 0);
+            shardCount = shardManager.getShardsTotal();
+        } else {
+            int total = Integer.parseInt(shardTotal);
+            int min = Integer.parseInt(App.env.get("SHARD_MIN", "0"));
+            int max = Integer.parseInt(App.env.get("SHARD_MAX", Integer.toString(total - 1)));
+            if (total < 1 || min < 0 || max < min || max >= total) {
+                throw new IllegalArgumentException(String.format(
+                    "Invalid shards %d to %d of %d, expected 0 <= SHARD_MIN <= SHARD_MAX < SHARD_TOTAL", min, max, total));
+            }
+
+            jda = null;
+            shardManager = createShardManager(token, total, min, max);
+            shardCount = max - min + 1;
+        }
+
+        if (shardManager != null) {
+            logger.info("Starting shards", "shards", shardCount, "shard_total", shardManager.getShardsTotal());
+        }
+
+        /* Stop taking new work first, and disconnect once it has been done */
+        LifecycleManager.getInstance().register(ShutdownStage.STOP_EVENTS, "events", () -> {
+            for (MetricsEventManager eventManager : eventManagers) {
+                eventManager.stop();
+            }
+        });
+        LifecycleManager.getInstance().register(ShutdownStage.DISCONNECT, "jda", this::disconnect);
+        MetricsRegistry.getInstance().register("shards", this::collectShardMetrics);
+
+        StartupReport.getInstance().record("login", loginStartedAt);
+
+        /* Update the bot commands if they have changed, without waiting for the guilds */
+        if (jda != null) {
+            updateCommands(jda);
+        }
+    }
+
+    /**
+     * Creates the single {@code JDA}
+     * 
+     * @param token The bot token
+     * @return The JDA, logged in
+     */
+    private JDA createJDA(String token) {
+        MetricsEventManager eventManager = new MetricsEventManager(0);
+        eventManagers.add(eventManager);
+
+        return cacheProfile.apply(JDABuilder.createDefault(token))
+            .setEventManager(eventManager)
+            .addEventListeners(this)
+            .addEventListeners(createEventListeners())
             .enableIntents(
                 GatewayIntent.MESSAGE_CONTENT,
                 GatewayIntent.GUILD_MEMBERS,
@@ -54,47 +182,249 @@ public final class Bot extends ListenerAdapter {
             )
             .setEventPassthrough(true)
             .setActivity(Activity.competing("World Domination"))
+            /* Disconnecting is a stage of the LifecycleManager, not a hook of its own */
+            .setEnableShutdownHook(false)
             .build();
+    }
+
+    /**
+     * Creates the {@code ShardManager}, running a range of the shards.
+     * The listeners are shared by every shard, while each shard has an
+     * event manager of its own
+     * 
+     * @param token      The bot token
+     * @param shardTotal The total number of shards, or {@code -1} to run
+     *                   every shard Discord recommends
+     * @param minShardId The id of the first shard to run
+     * @param maxShardId The id of the last shard to run
+     * @return The shard manager, which starts the shards in the background
+     */
+    private ShardManager createShardManager(String token, int shardTotal, int minShardId, int maxShardId) {
+        DefaultShardManagerBuilder builder = cacheProfile.apply(DefaultShardManagerBuilder.createDefault(token))
+            .setEventManagerProvider(shardId -> {
+                MetricsEventManager eventManager = new MetricsEventManager(shardId);
+                eventManagers.add(eventManager);
+                return eventManager;
+            })
+            .addEventListeners(this)
+            .addEventListeners(createEventListeners())
+            .enableIntents(
+                GatewayIntent.MESSAGE_CONTENT,
+                GatewayIntent.GUILD_MEMBERS,
+                GatewayIntent.GUILD_VOICE_STATES
+            )
+            .setEventPassthrough(true)
+            .setActivity(Activity.competing("World Domination"))
+            /* Disconnecting is a stage of the LifecycleManager, not a hook of its own */
+            .setEnableShutdownHook(false)
+            .setShardsTotal(shardTotal);
+
+        if (shardTotal != -1) {
+            builder.setShards(minShardId, maxShardId);
+        }
+
+        return builder.build();
+    }
+
+    /**
+     * Registers the slash commands through a shard, and
+     * records how long it took in the startup report
+     * 
+     * @param shard The shard
+     */
+    private static final void updateCommands(JDA shard) {
+        long commandsStartedAt = System.nanoTime();
+        BotCommandManager.updateJDACommands(shard)
+            .thenRun(() -> StartupReport.getInstance().record("commands", commandsStartedAt))
+            .exceptionally(Futures::printFailure);
+    }
+
+    /**
+     * Disconnects every shard, once its queued requests have been sent
+     * 
+     * @throws InterruptedException If interrupted while waiting
+     */
+    private void disconnect() throws InterruptedException {
+        List<JDA> shards = getShards();
+        if (shardManager != null) {
+            shardManager.shutdown();
+        } else {
+            jda.shutdown();
+        }
 
-        /* Wait for the JDA to be ready */
-        try {
-            jda.awaitReady();
-        } catch (InterruptedException e) {
-            e.printStackTrace();
+        for (JDA shard : shards) {
+            shard.awaitStatus(JDA.Status.SHUTDOWN);
         }
+    }
 
-        /* Update the bot commands */
-        BotCommandManager.updateJDACommands(jda);
+    /**
+     * Creates the event listeners registered with the
+     * {@code JDA}, other than the bot itself
+     * 
+     * @return The event listeners, in the order they are registered
+     */
+    public static final Object[] createEventListeners() {
+        return new Object[] {
+            new ConfigurationListeners(),
+            new LoggingListeners(),
+            new LevellingListeners(),
+            new WelcomeMessageListeners(),
+            new WarningsListMessageManager(),
+            new AudioQueueMessageManager(),
+            new PlayingAudioMessageManager(),
+            GuildSkipAudioManager.getInstance(),
+            MessageCache.getInstance(),
+            MemberDisplayCache.getInstance()
+        };
     }
 
     /**
      * Get the {@code JDA} instance of the bot
      * 
-     * @return The bot JDA
+     * @return The bot JDA, or {@code null} if sharded
      */
     public final JDA getJDA() {
         return jda;
     }
 
+    /**
+     * Gets the {@code ShardManager} of the bot
+     * 
+     * @return The shard manager, or {@code null} if not sharded
+     */
+    public final ShardManager getShardManager() {
+        return shardManager;
+    }
+
+    /**
+     * Gets the shards this process runs that have been started
+     * 
+     * @return The shards, or the single {@code JDA} if not sharded
+     */
+    public final List<JDA> getShards() {
+        return shardManager == null ? Collections.singletonList(jda) : shardManager.getShards();
+    }
+
+    /**
+     * Gets the id of the shard a guild is on
+     * 
+     * @param guild The guild
+     * @return The id of the shard, or {@code 0} if not sharded
+     */
+    public static final int getShardId(Guild guild) {
+        return guild.getJDA().getShardInfo().getShardId();
+    }
+
+    /**
+     * Reports the startup once every shard has loaded its guilds.
+     * When sharded, the commands are registered once shard {@code 0}
+     * is ready, by the process that runs it
+     */
+    @Override
+    public void onReady(ReadyEvent event) {
+        if (shardManager != null && getShardId(event) == 0) {
+            updateCommands(event.getJDA());
+        }
+
+        int guilds = readyGuilds.addAndGet(event.getGuildTotalCount());
+        int unavailable = unavailableGuilds.addAndGet(event.getGuildUnavailableCount());
+        if (readyShards.incrementAndGet() == shardCount) {
+            StartupReport.getInstance().finish(
+                "shards", shardCount,
+                "guilds", guilds,
+                "unavailable_guilds", unavailable);
+        }
+    }
+
+    /**
+     * Drops the audio state of a shard's guilds when it is shut down
+     * on its own, as its guilds are replaced when it is restarted
+     */
+    @Override
+    public void onShutdown(ShutdownEvent event) {
+        int shardId = getShardId(event);
+        GuildAudioPlayerManager.getInstance().removeShard(shardId);
+        GuildSkipAudioManager.getInstance().removeShard(shardId);
+    }
+
     /**
      * Detect slash command usage
      */
     @Override
     public void onSlashCommandInteraction(SlashCommandInteractionEvent event) {
-        /* Log the usage of slash commands */
-        System.out.printf(
-            "[Slash Command Usage] \u001b[1m%s\u001b[0m has used \u001b[1m/%s\u001b[0m; %s; \n",
-            event.getUser().getAsTag(),
-            event.getFullCommandName(),
-            event.getOptions().stream().map(o -> o.getName() + "=" + event.getOption(o.getName()).getAsString()).collect(Collectors.joining(" "))
-        );
-
-        /* Get the command */
-        BotCommand command = BotCommandManager.getBotCommand(event.getName());
-        if (command != null) {
-            command.execute(event);
-            return;
+        /* Log the usage of slash commands, formatting the options on the log writer */
+        List<OptionMapping> options = event.getOptions();
+        logger.info("Slash command used",
+            "command", event.getFullCommandName(),
+            "user", event.getUser().getIdLong(),
+            "guild", event.isFromGuild() ? event.getGuild().getIdLong() : null,
+            "options", (LogValue) builder -> appendOptions(builder, options));
+
+        /* Execute the command, off the gateway thread unless configured otherwise */
+        BotCommandManager.executeCommand(event);
+    }
+
+    /**
+     * Gets the id of the shard an event is from
+     * 
+     * @param event The event
+     * @return The id of the shard, or {@code 0} if not sharded
+     */
+    private static final int getShardId(GenericEvent event) {
+        return event.getJDA().getShardInfo().getShardId();
+    }
+
+    /**
+     * Writes the state of each shard this process runs
+     * 
+     * @param writer The writer
+     */
+    private void collectShardMetrics(MetricsWriter writer) {
+        String[] labelNames = { "shard" };
+        List<JDA> shards = getShards();
+
+        writer.writeFamily("bot_shard_connected", "If a shard is connected to the gateway", "gauge");
+        for (JDA shard : shards) {
+            writer.writeSample("bot_shard_connected", labelNames, shardLabel(shard),
+                shard.getStatus() == JDA.Status.CONNECTED ? 1 : 0);
+        }
+
+        writer.writeFamily("bot_shard_gateway_ping_seconds", "The latency of a shard's gateway heartbeat", "gauge");
+        for (JDA shard : shards) {
+            writer.writeSample("bot_shard_gateway_ping_seconds", labelNames, shardLabel(shard),
+                shard.getGatewayPing() / 1000.0);
+        }
+
+        writer.writeFamily("bot_shard_guilds", "The guilds on a shard", "gauge");
+        for (JDA shard : shards) {
+            writer.writeSample("bot_shard_guilds", labelNames, shardLabel(shard),
+                shard.getGuildCache().size());
+        }
+    }
+
+    /**
+     * Gets the label values of a shard's metrics
+     * 
+     * @param shard The shard
+     * @return The label values
+     */
+    private static final String[] shardLabel(JDA shard) {
+        return new String[] { Integer.toString(shard.getShardInfo().getShardId()) };
+    }
+
+    /**
+     * Appends the options of a slash command, as
+     * space separated {@code name=value} pairs
+     * 
+     * @param builder The builder
+     * @param options The options
+     */
+    private static final void appendOptions(StringBuilder builder, List<OptionMapping> options) {
+        for (int i = 0; i < options.size(); i++) {
+            if (i > 0) {
+                builder.append(' ');
+            }
+            builder.append(options.get(i).getName()).append('=').append(options.get(i).getAsString());
         }
-        throw new RuntimeException("Unhandled bot command: " + event.getName());
     }
 }
@@ -0,0 +1,241 @@
+package me.grayingout.bot;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.List;
+
+import net.dv8tion.jda.api.entities.Message;
+import net.dv8tion.jda.api.entities.Message.Attachment;
+import net.dv8tion.jda.api.entities.MessageEmbed;
+
+/**
+ * A compact snapshot of a guild message stored in the
+ * {@code MessageCache}. Unlike a {@code Message} it holds no
+ * references to JDA entities, so caching it does not keep the
+ * author, channel or guild alive
+ */
+public final class CachedMessage {
+
+    /**
+     * The id of the message
+     */
+    private final long messageId;
+
+    /**
+     * The id of the guild the message was sent in
+     */
+    private final long guildId;
+
+    /**
+     * The id of the channel the message was sent in
+     */
+    private final long channelId;
+
+    /**
+     * The id of the author
+     */
+    private final long authorId;
+
+    /**
+     * The tag of the author
+     */
+    private final String authorTag;
+
+    /**
+     * The raw content of the message, UTF-8 encoded
+     */
+    private final byte[] content;
+
+    /**
+     * The proxy URLs of the message attachments
+     */
+    private final String[] attachmentUrls;
+
+    /**
+     * The embeds of the message
+     */
+    private final List<MessageEmbed> embeds;
+
+    /**
+     * When the message was created, in epoch milliseconds
+     */
+    private final long createdAt;
+
+    /**
+     * When the message was last edited in epoch milliseconds,
+     * or {@code -1} if it has not been edited
+     */
+    private final long editedAt;
+
+    /**
+     * Creates a new {@code CachedMessage}
+     *
+     * @param messageId      The id of the message
+     * @param guildId        The id of the guild
+     * @param channelId      The id of the channel
+     * @param authorId       The id of the author
+     * @param authorTag      The tag of the author
+     * @param content        The raw content, UTF-8 encoded
+     * @param attachmentUrls The attachment proxy URLs
+     * @param embeds         The message embeds
+     * @param createdAt      When the message was created
+     * @param editedAt       When the message was edited, or {@code -1}
+     */
+    public CachedMessage(long messageId, long guildId, long channelId, long authorId, String authorTag,
+            byte[] content, String[] attachmentUrls, List<MessageEmbed> embeds, long createdAt, long editedAt) {
+        this.messageId = messageId;
+        this.guildId = guildId;
+        this.channelId = channelId;
+        this.authorId = authorId;
+        this.authorTag = authorTag;
+        this.content = content;
+        this.attachmentUrls = attachmentUrls;
+        this.embeds = embeds;
+        this.createdAt = createdAt;
+        this.editedAt = editedAt;
+    }
+
+    /**
+     * Creates a {@code CachedMessage} snapshot of a guild message
+     *
+     * @param message The message
+     * @return The snapshot
+     */
+    public static final CachedMessage fromMessage(Message message) {
+        List<Attachment> attachments = message.getAttachments();
+        String[] attachmentUrls = new String[attachments.size()];
+        for (int i = 0; i < attachmentUrls.length; i++) {
+            attachmentUrls[i] = attachments.get(i).getProxyUrl();
+        }
+
+        return new CachedMessage(
+            message.getIdLong(),
+            message.getGuild().getIdLong(),
+            message.getChannel().getIdLong(),
+            message.getAuthor().getIdLong(),
+            message.getAuthor().getAsTag(),
+            message.getContentRaw().getBytes(StandardCharsets.UTF_8),
+            attachmentUrls,
+            message.getEmbeds().isEmpty() ? Collections.<MessageEmbed>emptyList() : message.getEmbeds(),
+            message.getTimeCreated().toInstant().toEpochMilli(),
+            message.getTimeEdited() == null ? -1 : message.getTimeEdited().toInstant().toEpochMilli()
+        );
+    }
+
+    /**
+     * Gets the id of the message
+     *
+     * @return The message id
+     */
+    public final long getIdLong() {
+        return messageId;
+    }
+
+    /**
+     * Gets the id of the message as a string
+     *
+     * @return The message id
+     */
+    public final String getId() {
+        return Long.toUnsignedString(messageId);
+    }
+
+    /**
+     * Gets the id of the guild the message was sent in
+     *
+     * @return The guild id
+     */
+    public final long getGuildIdLong() {
+        return guildId;
+    }
+
+    /**
+     * Gets the id of the channel the message was sent in
+     *
+     * @return The channel id
+     */
+    public final long getChannelIdLong() {
+        return channelId;
+    }
+
+    /**
+     * Gets the mention of the channel the message was sent in
+     *
+     * @return The channel mention
+     */
+    public final String getChannelAsMention() {
+        return "<#" + Long.toUnsignedString(channelId) + ">";
+    }
+
+    /**
+     * Gets the id of the author
+     *
+     * @return The author id
+     */
+    public final long getAuthorIdLong() {
+        return authorId;
+    }
+
+    /**
+     * Gets the mention of the author
+     *
+     * @return The author mention
+     */
+    public final String getAuthorAsMention() {
+        return "<@" + Long.toUnsignedString(authorId) + ">";
+    }
+
+    /**
+     * Gets the tag of the author
+     *
+     * @return The author tag
+     */
+    public final String getAuthorTag() {
+        return authorTag;
+    }
+
+    /**
+     * Gets the raw content of the message
+     *
+     * @return The content
+     */
+    public final String getContentRaw() {
+        return new String(content, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Gets the proxy URLs of the message attachments
+     *
+     * @return The attachment URLs
+     */
+    public final String[] getAttachmentUrls() {
+        return attachmentUrls.clone();
+    }
+
+    /**
+     * Gets the embeds of the message
+     *
+     * @return The embeds
+     */
+    public final List<MessageEmbed> getEmbeds() {
+        return embeds;
+    }
+
+    /**
+     * Gets when the message was created
+     *
+     * @return The creation time, in epoch milliseconds
+     */
+    public final long getCreatedAt() {
+        return createdAt;
+    }
+
+    /**
+     * Gets when the message was last edited
+     *
+     * @return The edit time in epoch milliseconds, or {@code -1}
+     */
+    public final long getEditedAt() {
+        return editedAt;
+    }
+}
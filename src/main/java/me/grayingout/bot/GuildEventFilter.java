@@ -0,0 +1,25 @@
+package me.grayingout.bot;
+
+import net.dv8tion.jda.api.entities.Guild;
+import net.dv8tion.jda.api.events.GenericEvent;
+
+/**
+ * A listener for a feature that can be off in a guild, such as logging
+ * without a logging channel, so the {@code MetricsEventManager} skips it
+ * for the guild's events rather than dispatching events it would ignore.
+ * <p>
+ * It is checked on the gateway thread for every event the listener
+ * handles, so must answer from memory, and dispatch the event when
+ * it does not know yet
+ */
+public interface GuildEventFilter {
+
+    /**
+     * Returns if the listener should be given an event from a guild
+     *
+     * @param guild The guild of the event
+     * @param event The event
+     * @return If the event should be dispatched to the listener
+     */
+    boolean isEnabled(Guild guild, GenericEvent event);
+}
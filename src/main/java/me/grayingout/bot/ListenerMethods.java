@@ -0,0 +1,127 @@
+package me.grayingout.bot;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import net.dv8tion.jda.api.events.GenericEvent;
+import net.dv8tion.jda.api.events.UpdateEvent;
+import net.dv8tion.jda.api.hooks.EventListener;
+import net.dv8tion.jda.api.hooks.ListenerAdapter;
+
+/**
+ * Finds the methods of a {@code ListenerAdapter} that handle a type of
+ * event, so an event can be given to only those methods, rather than
+ * to {@code ListenerAdapter.onEvent}, which looks up a method for every
+ * type the event extends, whether it is overridden or not
+ */
+final class ListenerMethods {
+
+    /**
+     * The type of every handle, taking the event
+     */
+    private static final MethodType HANDLER_TYPE = MethodType.methodType(void.class, GenericEvent.class);
+
+    /**
+     * Prevents instantiation
+     */
+    private ListenerMethods() {}
+
+    /**
+     * Finds the methods of a listener that handle a type of event, in the
+     * order {@code ListenerAdapter} calls them, each bound to the listener
+     *
+     * @param listener  The listener
+     * @param eventType The type of event
+     * @return The methods, empty if the listener ignores the event, or
+     *         {@code null} if the listener is not a {@code ListenerAdapter}
+     *         and must be given every event
+     */
+    /* default */ static MethodHandle[] resolve(EventListener listener, Class<? extends GenericEvent> eventType) {
+        if (!(listener instanceof ListenerAdapter)) {
+            return null;
+        }
+
+        List<MethodHandle> handles = new ArrayList<>();
+        addOverridden(handles, listener, "onGenericEvent", GenericEvent.class);
+        if (UpdateEvent.class.isAssignableFrom(eventType)) {
+            addOverridden(handles, listener, "onGenericUpdate", UpdateEvent.class);
+        }
+
+        for (Class<?> type : getEventTypes(eventType)) {
+            String name = type.getSimpleName();
+            if (type == GenericEvent.class || type == UpdateEvent.class || !name.endsWith("Event")) {
+                continue;
+            }
+
+            /* As ListenerAdapter names them, such as onMessageReceived for MessageReceivedEvent */
+            addOverridden(handles, listener, "on" + name.substring(0, name.length() - "Event".length()), type);
+        }
+
+        return handles.toArray(new MethodHandle[0]);
+    }
+
+    /**
+     * Adds a method of {@code ListenerAdapter}, bound to a listener,
+     * if the listener overrides it
+     *
+     * @param handles    The methods found so far
+     * @param listener   The listener
+     * @param name       The name of the method
+     * @param parameter  The type of event it takes
+     */
+    private static void addOverridden(List<MethodHandle> handles, EventListener listener, String name, Class<?> parameter) {
+        Method method;
+        try {
+            method = ListenerAdapter.class.getMethod(name, parameter);
+            if (listener.getClass().getMethod(name, parameter).getDeclaringClass() == ListenerAdapter.class) {
+                return;
+            }
+        } catch (NoSuchMethodException e) {
+            return;
+        }
+
+        try {
+            /* The adapter's own method, which calls the override, so listeners need not be public */
+            handles.add(MethodHandles.publicLookup().unreflect(method).bindTo(listener).asType(HANDLER_TYPE));
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException("Failed to access " + name + " of ListenerAdapter", e);
+        }
+    }
+
+    /**
+     * Gets the types an event extends that are events, from the
+     * event's own class up, each class before its interfaces
+     *
+     * @param eventType The type of event
+     * @return The types
+     */
+    private static Set<Class<?>> getEventTypes(Class<?> eventType) {
+        Set<Class<?>> types = new LinkedHashSet<>();
+        for (Class<?> type = eventType; type != null && GenericEvent.class.isAssignableFrom(type); type = type.getSuperclass()) {
+            addWithInterfaces(types, type);
+        }
+        return types;
+    }
+
+    /**
+     * Adds a type and the interfaces it extends that are events
+     *
+     * @param types The types so far
+     * @param type  The type
+     */
+    private static void addWithInterfaces(Set<Class<?>> types, Class<?> type) {
+        if (!GenericEvent.class.isAssignableFrom(type) || !types.add(type)) {
+            return;
+        }
+
+        for (Class<?> extended : type.getInterfaces()) {
+            addWithInterfaces(types, extended);
+        }
+    }
+}
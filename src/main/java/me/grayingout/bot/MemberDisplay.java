@@ -0,0 +1,148 @@
+package me.grayingout.bot;
+
+import net.dv8tion.jda.api.entities.Member;
+
+/**
+ * A compact snapshot of what is needed to show a guild
+ * member in a list, which outlives the member leaving
+ */
+public final class MemberDisplay {
+
+    /**
+     * The id of the user
+     */
+    private final long userId;
+
+    /**
+     * The tag of the user, or {@code null} if not known
+     */
+    private final String tag;
+
+    /**
+     * The nickname of the member, or {@code null}
+     */
+    private final String nickname;
+
+    /**
+     * The avatar url of the member, or {@code null} if not known
+     */
+    private final String avatarUrl;
+
+    /**
+     * If the member is still in the guild
+     */
+    private final boolean present;
+
+    /**
+     * Creates a new {@code MemberDisplay}
+     *
+     * @param userId    The id of the user
+     * @param tag       The tag of the user, or {@code null} if not known
+     * @param nickname  The nickname of the member, or {@code null}
+     * @param avatarUrl The avatar url of the member, or {@code null} if not known
+     * @param present   If the member is still in the guild
+     */
+    private MemberDisplay(long userId, String tag, String nickname, String avatarUrl, boolean present) {
+        this.userId = userId;
+        this.tag = tag;
+        this.nickname = nickname;
+        this.avatarUrl = avatarUrl;
+        this.present = present;
+    }
+
+    /**
+     * Creates a {@code MemberDisplay} for a member in the guild
+     *
+     * @param member The member
+     * @return The display
+     */
+    public static final MemberDisplay fromMember(Member member) {
+        return new MemberDisplay(
+            member.getIdLong(),
+            member.getUser().getAsTag(),
+            member.getNickname(),
+            member.getEffectiveAvatarUrl(),
+            true
+        );
+    }
+
+    /**
+     * Creates a {@code MemberDisplay} for a user that is
+     * no longer in the guild
+     *
+     * @param userId The id of the user
+     * @return The display
+     */
+    public static final MemberDisplay fromAbsentUser(long userId) {
+        return new MemberDisplay(userId, null, null, null, false);
+    }
+
+    /**
+     * Gets the id of the user
+     *
+     * @return The user id
+     */
+    public final long getUserId() {
+        return userId;
+    }
+
+    /**
+     * Gets the tag of the user
+     *
+     * @return The tag, or {@code null} if not known
+     */
+    public final String getTag() {
+        return tag;
+    }
+
+    /**
+     * Gets the nickname of the member
+     *
+     * @return The nickname, or {@code null}
+     */
+    public final String getNickname() {
+        return nickname;
+    }
+
+    /**
+     * Gets the avatar url of the member
+     *
+     * @return The avatar url, or {@code null} if not known
+     */
+    public final String getAvatarUrl() {
+        return avatarUrl;
+    }
+
+    /**
+     * Returns if the member is still in the guild
+     *
+     * @return If they are present
+     */
+    public final boolean isPresent() {
+        return present;
+    }
+
+    /**
+     * Gets the mention of the user, which works even
+     * after they have left
+     *
+     * @return The mention
+     */
+    public final String getAsMention() {
+        return "<@" + userId + ">";
+    }
+
+    /**
+     * Gets the name to show for the member, their tag or
+     * their id if they have left
+     *
+     * @return The name
+     */
+    public final String getDisplayName() {
+        if (tag == null) {
+            return "Unknown User (" + userId + ")";
+        }
+
+        return nickname == null ? tag : nickname + " (" + tag + ")";
+    }
+}
@@ -0,0 +1,310 @@
+package me.grayingout.bot;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import me.grayingout.App;
+import me.grayingout.logging.Logger;
+import net.dv8tion.jda.api.entities.Guild;
+import net.dv8tion.jda.api.entities.Member;
+import net.dv8tion.jda.api.events.guild.GuildLeaveEvent;
+import net.dv8tion.jda.api.events.guild.member.GuildMemberJoinEvent;
+import net.dv8tion.jda.api.events.guild.member.GuildMemberRemoveEvent;
+import net.dv8tion.jda.api.events.guild.member.update.GuildMemberUpdateNicknameEvent;
+import net.dv8tion.jda.api.hooks.ListenerAdapter;
+
+/**
+ * Resolves the members shown in list views, such as the leaderboard,
+ * in batches and caches a {@code MemberDisplay} for each of them.
+ * <p>
+ * Members that are not in the JDA cache are requested together through
+ * gateway member chunking instead of one REST request each. Members
+ * that have left are cached as absent so they are not requested again
+ */
+public final class MemberDisplayCache extends ListenerAdapter {
+
+    /**
+     * The logger
+     */
+    private static final Logger logger = Logger.getLogger(MemberDisplayCache.class);
+
+    /**
+     * The most members requested in one chunk request
+     */
+    private static final int MAX_CHUNK_SIZE = 100;
+
+    /**
+     * The cached displays of each guild
+     */
+    private final ConcurrentHashMap<Long, GuildDisplays> guilds;
+
+    /**
+     * The maximum number of displays cached for a guild
+     */
+    private final int maxGuildSize;
+
+    /**
+     * How long a display is cached for, in milliseconds
+     */
+    private final long timeToLiveMillis;
+
+    /**
+     * Creates a new {@code MemberDisplayCache}
+     *
+     * @param maxGuildSize     The maximum number of displays cached for a guild
+     * @param timeToLiveMillis How long a display is cached for, in milliseconds
+     */
+    public MemberDisplayCache(int maxGuildSize, long timeToLiveMillis) {
+        this.maxGuildSize = maxGuildSize;
+        this.timeToLiveMillis = timeToLiveMillis;
+        guilds = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Gets the {@code MemberDisplayCache} instance
+     *
+     * @return The instance
+     */
+    public static final MemberDisplayCache getInstance() {
+        return InstanceHolder.INSTANCE;
+    }
+
+    /**
+     * Gets the displays of members of a guild, requesting the
+     * ones that are not cached in a single batch. This never
+     * blocks the calling thread
+     *
+     * @param guild   The guild
+     * @param userIds The ids of the members
+     * @return A future completed with the displays against the user
+     *         id, in the order requested. Members that could not be
+     *         found are included as absent
+     */
+    public final CompletableFuture<Map<Long, MemberDisplay>> getMemberDisplays(Guild guild, Collection<Long> userIds) {
+        GuildDisplays displays = guilds.computeIfAbsent(guild.getIdLong(), guildId -> new GuildDisplays());
+        long now = System.currentTimeMillis();
+
+        Map<Long, MemberDisplay> resolved = new ConcurrentHashMap<>();
+        List<Long> missing = new ArrayList<>();
+        for (long userId : userIds) {
+            /* Cached display */
+            MemberDisplay display = displays.get(userId, now - timeToLiveMillis);
+            if (display != null) {
+                resolved.put(userId, display);
+                continue;
+            }
+
+            /* Member already in the JDA cache */
+            Member member = guild.getMemberById(userId);
+            if (member != null) {
+                display = MemberDisplay.fromMember(member);
+                displays.put(display, now);
+                resolved.put(userId, display);
+                continue;
+            }
+
+            missing.add(userId);
+        }
+
+        /* Request the rest in chunks */
+        List<CompletableFuture<Void>> requests = new ArrayList<>();
+        for (int i = 0; i < missing.size(); i += MAX_CHUNK_SIZE) {
+            requests.add(requestMembers(guild, displays, missing.subList(i, Math.min(i + MAX_CHUNK_SIZE, missing.size())), resolved));
+        }
+
+        return CompletableFuture.allOf(requests.toArray(new CompletableFuture<?>[0])).thenApply(done -> {
+            /* Keep the order requested */
+            Map<Long, MemberDisplay> ordered = new LinkedHashMap<>();
+            for (long userId : userIds) {
+                ordered.put(userId, resolved.getOrDefault(userId, MemberDisplay.fromAbsentUser(userId)));
+            }
+
+            return ordered;
+        });
+    }
+
+    /**
+     * Drops the cached display of a member
+     *
+     * @param guildId The id of the guild
+     * @param userId  The id of the member
+     */
+    public final void invalidate(long guildId, long userId) {
+        GuildDisplays displays = guilds.get(guildId);
+        if (displays != null) {
+            displays.remove(userId);
+        }
+    }
+
+    @Override
+    public void onGuildMemberJoin(GuildMemberJoinEvent event) {
+        invalidate(event.getGuild().getIdLong(), event.getUser().getIdLong());
+    }
+
+    @Override
+    public void onGuildMemberRemove(GuildMemberRemoveEvent event) {
+        invalidate(event.getGuild().getIdLong(), event.getUser().getIdLong());
+    }
+
+    @Override
+    public void onGuildMemberUpdateNickname(GuildMemberUpdateNicknameEvent event) {
+        invalidate(event.getGuild().getIdLong(), event.getUser().getIdLong());
+    }
+
+    @Override
+    public void onGuildLeave(GuildLeaveEvent event) {
+        guilds.remove(event.getGuild().getIdLong());
+    }
+
+    /**
+     * Requests a chunk of members through the gateway and caches
+     * their displays, marking the ones not returned as absent
+     *
+     * @param guild    The guild
+     * @param displays The cached displays of the guild
+     * @param userIds  The ids of the members
+     * @param resolved The displays resolved so far, added to
+     * @return A future completed once the chunk has been handled
+     */
+    private final CompletableFuture<Void> requestMembers(Guild guild, GuildDisplays displays, List<Long> userIds, Map<Long, MemberDisplay> resolved) {
+        CompletableFuture<Void> future = new CompletableFuture<>();
+
+        guild.retrieveMembersByIds(new ArrayList<>(userIds))
+            .onSuccess(members -> {
+                long now = System.currentTimeMillis();
+                for (Member member : members) {
+                    MemberDisplay display = MemberDisplay.fromMember(member);
+                    displays.put(display, now);
+                    resolved.put(member.getIdLong(), display);
+                }
+
+                /* Members that were not returned have left */
+                for (long userId : userIds) {
+                    if (!resolved.containsKey(userId)) {
+                        displays.put(MemberDisplay.fromAbsentUser(userId), now);
+                    }
+                }
+
+                future.complete(null);
+            })
+            .onError(throwable -> {
+                /* Shown as absent, but not cached so they are requested again */
+                logger.warn("Failed to request guild members", throwable, "guild", guild.getIdLong(), "members", userIds.size());
+                future.complete(null);
+            });
+
+        return future;
+    }
+
+    /**
+     * The cached displays of a single guild, evicting the
+     * least recently used first
+     */
+    private final class GuildDisplays {
+
+        /**
+         * The cached displays against the user id, in access order
+         */
+        private final LinkedHashMap<Long, CachedDisplay> displays;
+
+        /**
+         * Creates a new {@code GuildDisplays}
+         */
+        private GuildDisplays() {
+            displays = new LinkedHashMap<Long, CachedDisplay>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Long, CachedDisplay> eldest) {
+                    return size() > maxGuildSize;
+                }
+            };
+        }
+
+        /**
+         * Gets a cached display
+         *
+         * @param userId      The id of the member
+         * @param cachedAfter The earliest time the display can have been cached at
+         * @return The display, or {@code null} if it is not cached or expired
+         */
+        private synchronized MemberDisplay get(long userId, long cachedAfter) {
+            CachedDisplay cached = displays.get(userId);
+            if (cached == null) {
+                return null;
+            }
+
+            if (cached.cachedAt < cachedAfter) {
+                displays.remove(userId);
+                return null;
+            }
+
+            return cached.display;
+        }
+
+        /**
+         * Caches a display
+         *
+         * @param display  The display
+         * @param cachedAt When it was cached
+         */
+        private synchronized void put(MemberDisplay display, long cachedAt) {
+            displays.put(display.getUserId(), new CachedDisplay(display, cachedAt));
+        }
+
+        /**
+         * Drops a cached display
+         *
+         * @param userId The id of the member
+         */
+        private synchronized void remove(long userId) {
+            displays.remove(userId);
+        }
+    }
+
+    /**
+     * A cached display and when it was cached
+     */
+    private static final class CachedDisplay {
+
+        /**
+         * The display
+         */
+        private final MemberDisplay display;
+
+        /**
+         * When it was cached
+         */
+        private final long cachedAt;
+
+        /**
+         * Creates a new {@code CachedDisplay}
+         *
+         * @param display  The display
+         * @param cachedAt When it was cached
+         */
+        private CachedDisplay(MemberDisplay display, long cachedAt) {
+            this.display = display;
+            this.cachedAt = cachedAt;
+        }
+    }
+
+    /**
+     * Lazily creates the {@code MemberDisplayCache} instance the
+     * first time it is used
+     */
+    private static final class InstanceHolder {
+
+        /**
+         * The {@code MemberDisplayCache} instance
+         */
+        private static final MemberDisplayCache INSTANCE = new MemberDisplayCache(
+            Integer.parseInt(App.env.get("MEMBER_DISPLAY_CACHE_MAX_GUILD_SIZE", "1000")),
+            TimeUnit.MINUTES.toMillis(Long.parseLong(App.env.get("MEMBER_DISPLAY_CACHE_TTL_MINUTES", "10")))
+        );
+    }
+}
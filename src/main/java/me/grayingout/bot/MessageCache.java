@@ -1,75 +1,510 @@
 package me.grayingout.bot;
 
-import java.util.HashMap;
+import java.util.ArrayDeque;
+import java.util.concurrent.TimeUnit;
 
+import me.grayingout.App;
+import me.grayingout.bot.journal.MessageJournal;
+import me.grayingout.util.collections.ConcurrentLongObjectMap;
+import me.grayingout.util.collections.LongObjectHashMap;
 import net.dv8tion.jda.api.entities.Message;
-import net.dv8tion.jda.api.events.GenericEvent;
 import net.dv8tion.jda.api.events.message.MessageReceivedEvent;
 import net.dv8tion.jda.api.events.message.MessageUpdateEvent;
-import net.dv8tion.jda.api.hooks.EventListener;
+import net.dv8tion.jda.api.hooks.ListenerAdapter;
 
 /**
- * Caches all messages and does not remove them - including
- * deleted messages. This can be used to get information about deleted
- * messages
+ * Caches compact snapshots of guild messages, including messages
+ * that have since been deleted. This can be used to get information
+ * about deleted messages.
+ * <p>
+ * The cache is bounded both globally and per guild, evicting the
+ * least recently written messages first, and messages are expired
+ * once they have been cached for longer than the time to live.
+ * <p>
+ * The cache is thread-safe. Lookups never lock, while writes are
+ * split between stripes by message id, each with its own lock and an
+ * even share of the bounds, so messages from different gateway
+ * threads can be cached in parallel.
+ * <p>
+ * Every snapshot can also be written through to a {@code MessageJournal},
+ * which keeps messages on disk for far longer than the cache
  */
-public class MessageCache implements EventListener {
+public class MessageCache extends ListenerAdapter {
 
     /**
-     * The {@code MessageCache} instance
+     * Stores the cached messages against their id
      */
-    private static MessageCache instance;
+    private final ConcurrentLongObjectMap<CacheNode> messages;
 
     /**
-     * Stores the messages
+     * The write stripes, a power of two
      */
-    private final HashMap<Long, Message> messages;
+    private final Stripe[] stripes;
+
+    /**
+     * Used to pick the stripe of a message id
+     */
+    private final int stripeShift;
+
+    /**
+     * How long a message is cached for, in milliseconds
+     */
+    private final long timeToLiveMillis;
+
+    /**
+     * The journal snapshots are written through to, or {@code null}
+     */
+    private final MessageJournal journal;
 
     /**
      * Creates a new {@code MessageCache}
+     *
+     * @param maxSize          The maximum number of messages cached
+     * @param maxGuildSize     The maximum number of messages cached for a guild
+     * @param timeToLiveMillis How long a message is cached for, in milliseconds
+     * @param stripeCount      The number of write stripes, rounded up to a power of two
+     * @param journal          The journal to write through to, or {@code null}
+     */
+    public MessageCache(int maxSize, int maxGuildSize, long timeToLiveMillis, int stripeCount, MessageJournal journal) {
+        this.timeToLiveMillis = timeToLiveMillis;
+        this.journal = journal;
+
+        int count = stripeCount <= 1 ? 1 : Integer.highestOneBit(stripeCount - 1) << 1;
+        stripes = new Stripe[count];
+        stripeShift = 64 - Integer.numberOfTrailingZeros(count);
+
+        /* Each stripe gets an even share of the bounds, which add up to them exactly */
+        for (int i = 0; i < count; i++) {
+            stripes[i] = new Stripe(share(maxSize, count, i), share(maxGuildSize, count, i));
+        }
+
+        messages = new ConcurrentLongObjectMap<>(Math.min(maxSize, 1 << 16));
+    }
+
+    /**
+     * Creates a new {@code MessageCache}, with no journal
+     *
+     * @param maxSize          The maximum number of messages cached
+     * @param maxGuildSize     The maximum number of messages cached for a guild
+     * @param timeToLiveMillis How long a message is cached for, in milliseconds
+     * @param stripeCount      The number of write stripes, rounded up to a power of two
+     */
+    public MessageCache(int maxSize, int maxGuildSize, long timeToLiveMillis, int stripeCount) {
+        this(maxSize, maxGuildSize, timeToLiveMillis, stripeCount, null);
+    }
+
+    /**
+     * Creates a new {@code MessageCache}, with no journal and a
+     * write stripe for each available processor
+     *
+     * @param maxSize          The maximum number of messages cached
+     * @param maxGuildSize     The maximum number of messages cached for a guild
+     * @param timeToLiveMillis How long a message is cached for, in milliseconds
      */
-    private MessageCache() {
-        messages = new HashMap<>();
+    public MessageCache(int maxSize, int maxGuildSize, long timeToLiveMillis) {
+        this(maxSize, maxGuildSize, timeToLiveMillis, defaultStripeCount(), null);
     }
 
     /**
      * Gets the {@code MessageCache} instance
-     * 
+     *
      * @return The instance
      */
     public static final MessageCache getInstance() {
-        if (instance == null) {
-            instance = new MessageCache();
-        }
-
-        return instance;
+        return InstanceHolder.INSTANCE;
     }
 
     /**
      * Gets a stored message, or {@code null} if no cached
-     * message
-     * 
+     * message. This never locks
+     *
      * @param id The id of the message
      * @return The message, or {@code null}, if not present
      */
-    public final Message getMessageByIdLong(long id) {
-        return messages.get(id);
+    public final CachedMessage getMessageByIdLong(long id) {
+        CacheNode node = messages.get(id);
+        if (node == null) {
+            return null;
+        }
+
+        /* Expired, but not removed yet */
+        if (isExpired(node, System.currentTimeMillis())) {
+            return null;
+        }
+
+        return node.message;
+    }
+
+    /**
+     * Caches a message snapshot, replacing any previous
+     * snapshot of the same message
+     *
+     * @param message The message snapshot
+     */
+    public final void put(CachedMessage message) {
+        stripeFor(message.getIdLong()).put(message);
+
+        if (journal != null) {
+            journal.append(message);
+        }
+    }
+
+    /**
+     * Gets the number of cached messages
+     *
+     * @return The number of messages
+     */
+    public final int size() {
+        return messages.size();
     }
 
     @Override
-    public void onEvent(GenericEvent event) {
+    public void onMessageReceived(MessageReceivedEvent event) {
         /* Add messages */
-        if (event instanceof MessageReceivedEvent) {
-            Message message = ((MessageReceivedEvent) event).getMessage();
-            messages.put(message.getIdLong(), message);
-            return;
+        Message message = event.getMessage();
+        if (message.isFromGuild()) {
+            put(CachedMessage.fromMessage(message));
         }
+    }
 
+    @Override
+    public void onMessageUpdate(MessageUpdateEvent event) {
         /* Update messages */
-        if (event instanceof MessageUpdateEvent) {
-            Message message = ((MessageUpdateEvent) event).getMessage();
-            messages.put(message.getIdLong(), message);
-            return;
+        Message message = event.getMessage();
+        if (message.isFromGuild()) {
+            put(CachedMessage.fromMessage(message));
+        }
+    }
+
+    /**
+     * Gets the default number of write stripes, one for
+     * each available processor
+     *
+     * @return The stripe count
+     */
+    private static final int defaultStripeCount() {
+        return Math.min(16, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Gets a stripe's share of a bound, handing out the
+     * remainder to the first stripes
+     *
+     * @param bound  The bound
+     * @param count  The number of stripes
+     * @param stripe The index of the stripe
+     * @return The stripe's share
+     */
+    private static final int share(int bound, int count, int stripe) {
+        return bound / count + (stripe < bound % count ? 1 : 0);
+    }
+
+    /**
+     * Gets the stripe a message id is written through. Every
+     * snapshot of a message goes through the same stripe
+     *
+     * @param id The id of the message
+     * @return The stripe
+     */
+    private final Stripe stripeFor(long id) {
+        if (stripes.length == 1) {
+            return stripes[0];
+        }
+
+        /* Take the high bits, which mix in all the bits of the id */
+        return stripes[(int) ((id * 0x9E3779B97F4A7C15L) >>> stripeShift)];
+    }
+
+    /**
+     * Returns if a cached message has outlived the time to live
+     *
+     * @param node The cache node
+     * @param now  The current time in milliseconds
+     * @return If it has expired
+     */
+    private final boolean isExpired(CacheNode node, long now) {
+        return now - node.cachedAt > timeToLiveMillis;
+    }
+
+    /**
+     * Lazily creates the {@code MessageCache} instance the
+     * first time it is used
+     */
+    private static final class InstanceHolder {
+
+        /**
+         * The {@code MessageCache} instance
+         */
+        private static final MessageCache INSTANCE = new MessageCache(
+            Integer.parseInt(App.env.get("MESSAGE_CACHE_MAX_SIZE", "100000")),
+            Integer.parseInt(App.env.get("MESSAGE_CACHE_MAX_GUILD_SIZE", "20000")),
+            TimeUnit.MINUTES.toMillis(Long.parseLong(App.env.get("MESSAGE_CACHE_TTL_MINUTES", "1440"))),
+            defaultStripeCount(),
+            MessageJournal.getInstance()
+        );
+    }
+
+    /**
+     * The write orders of the messages written through a stripe.
+     * All writes to a stripe hold its lock
+     */
+    private final class Stripe {
+
+        /**
+         * The stripe's messages of each guild against the guild id
+         */
+        private final LongObjectHashMap<GuildMessages> guildMessages;
+
+        /**
+         * The stripe's messages, in the order they were written
+         */
+        private final ArrayDeque<CacheNode> writeOrder;
+
+        /**
+         * The number of removed nodes still in {@code writeOrder}
+         */
+        private int removedInWriteOrder;
+
+        /**
+         * The number of messages cached through the stripe
+         */
+        private int size;
+
+        /**
+         * The maximum number of messages cached through the stripe
+         */
+        private final int maxSize;
+
+        /**
+         * The maximum number of messages of a single guild
+         * cached through the stripe
+         */
+        private final int maxGuildSize;
+
+        /**
+         * Creates a new {@code Stripe}
+         *
+         * @param maxSize      The maximum number of messages cached
+         * @param maxGuildSize The maximum number of messages cached for a guild
+         */
+        private Stripe(int maxSize, int maxGuildSize) {
+            this.maxSize = maxSize;
+            this.maxGuildSize = maxGuildSize;
+
+            guildMessages = new LongObjectHashMap<>();
+            writeOrder = new ArrayDeque<>();
+        }
+
+        /**
+         * Caches a message snapshot, replacing any previous
+         * snapshot of the same message
+         *
+         * @param message The message snapshot
+         */
+        private synchronized void put(CachedMessage message) {
+            GuildMessages guild = guildMessages.get(message.getGuildIdLong());
+            if (guild == null) {
+                guild = new GuildMessages(message.getGuildIdLong());
+                guildMessages.put(message.getGuildIdLong(), guild);
+            }
+
+            CacheNode node = new CacheNode(message, guild, System.currentTimeMillis());
+            writeOrder.addLast(node);
+            guild.writeOrder.addLast(node);
+            guild.size++;
+            size++;
+
+            /* Swap in the new snapshot, so readers never miss an edited message */
+            CacheNode previous = messages.put(message.getIdLong(), node);
+            if (previous != null) {
+                remove(previous, true, true);
+            }
+
+            /* Enforce the guild bound */
+            while (guild.size > maxGuildSize) {
+                CacheNode oldest = pollLive(guild.writeOrder, guild);
+                messages.remove(oldest.message.getIdLong());
+                remove(oldest, true, false);
+            }
+
+            /* Enforce the stripe bound */
+            while (size > maxSize) {
+                CacheNode oldest = pollLive(writeOrder, null);
+                messages.remove(oldest.message.getIdLong());
+                remove(oldest, false, true);
+            }
+
+            expire(node.cachedAt);
+            compact(guild);
+        }
+
+        /**
+         * Removes the expired messages, which are always the
+         * oldest written messages
+         *
+         * @param now The current time in milliseconds
+         */
+        private void expire(long now) {
+            while (!writeOrder.isEmpty()) {
+                CacheNode oldest = writeOrder.peekFirst();
+
+                if (oldest.removed) {
+                    writeOrder.pollFirst();
+                    removedInWriteOrder--;
+                    continue;
+                }
+
+                if (!isExpired(oldest, now)) {
+                    return;
+                }
+
+                writeOrder.pollFirst();
+                messages.remove(oldest.message.getIdLong());
+                remove(oldest, false, true);
+            }
+        }
+
+        /**
+         * Polls the oldest node of a write order that is still
+         * cached, discarding removed nodes in front of it
+         *
+         * @param order The write order
+         * @param guild The guild the order belongs to, or {@code null} for the stripe order
+         * @return The cache node
+         */
+        private CacheNode pollLive(ArrayDeque<CacheNode> order, GuildMessages guild) {
+            CacheNode node = order.pollFirst();
+            while (node.removed) {
+                if (guild == null) {
+                    removedInWriteOrder--;
+                } else {
+                    guild.removedInWriteOrder--;
+                }
+                node = order.pollFirst();
+            }
+
+            return node;
+        }
+
+        /**
+         * Marks a node that has been taken out of the message map
+         * as removed. The node is left in the write orders it is still
+         * in, and skipped once it is reached
+         *
+         * @param node              The cache node
+         * @param inWriteOrder      If the node is still in the stripe write order
+         * @param inGuildWriteOrder If the node is still in the guild write order
+         */
+        private void remove(CacheNode node, boolean inWriteOrder, boolean inGuildWriteOrder) {
+            node.removed = true;
+            size--;
+
+            if (inWriteOrder) {
+                removedInWriteOrder++;
+            }
+
+            GuildMessages guild = node.guild;
+            if (inGuildWriteOrder) {
+                guild.removedInWriteOrder++;
+            }
+
+            /* Forget guilds with no cached messages */
+            if (--guild.size == 0) {
+                guildMessages.remove(guild.guildId);
+            }
+        }
+
+        /**
+         * Drops removed nodes from the write orders once they
+         * outnumber the cached messages
+         *
+         * @param guild The guild that was written to
+         */
+        private void compact(GuildMessages guild) {
+            if (removedInWriteOrder > size + 1024) {
+                writeOrder.removeIf(node -> node.removed);
+                removedInWriteOrder = 0;
+            }
+
+            if (guild.removedInWriteOrder > guild.size + 64) {
+                guild.writeOrder.removeIf(node -> node.removed);
+                guild.removedInWriteOrder = 0;
+            }
+        }
+    }
+
+    /**
+     * A cached message, and its place in the write orders
+     */
+    private static final class CacheNode {
+
+        /**
+         * The message snapshot
+         */
+        private final CachedMessage message;
+
+        /**
+         * The messages of the guild the message belongs to
+         */
+        private final GuildMessages guild;
+
+        /**
+         * When the message was cached, in milliseconds
+         */
+        private final long cachedAt;
+
+        /**
+         * Whether the node has been removed from the cache
+         */
+        private boolean removed;
+
+        /**
+         * Creates a new {@code CacheNode}
+         *
+         * @param message  The message snapshot
+         * @param guild    The guild messages
+         * @param cachedAt When the message was cached
+         */
+        private CacheNode(CachedMessage message, GuildMessages guild, long cachedAt) {
+            this.message = message;
+            this.guild = guild;
+            this.cachedAt = cachedAt;
+        }
+    }
+
+    /**
+     * The cached messages of a single guild within a stripe
+     */
+    private static final class GuildMessages {
+
+        /**
+         * The id of the guild
+         */
+        private final long guildId;
+
+        /**
+         * The guild's messages, in the order they were written
+         */
+        private final ArrayDeque<CacheNode> writeOrder;
+
+        /**
+         * The number of removed nodes still in {@code writeOrder}
+         */
+        private int removedInWriteOrder;
+
+        /**
+         * The number of cached messages in the guild
+         */
+        private int size;
+
+        /**
+         * Creates a new {@code GuildMessages}
+         *
+         * @param guildId The id of the guild
+         */
+        private GuildMessages(long guildId) {
+            this.guildId = guildId;
+            writeOrder = new ArrayDeque<>();
         }
     }
 }
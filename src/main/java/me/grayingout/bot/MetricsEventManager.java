@@ -0,0 +1,451 @@
+package me.grayingout.bot;
+
+import java.lang.invoke.MethodHandle;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import me.grayingout.App;
+import me.grayingout.logging.Logger;
+import me.grayingout.metrics.Counter;
+import me.grayingout.metrics.LatencyHistogram;
+import me.grayingout.metrics.MetricFamily;
+import me.grayingout.metrics.MetricsRegistry;
+import net.dv8tion.jda.api.entities.Guild;
+import net.dv8tion.jda.api.events.GenericEvent;
+import net.dv8tion.jda.api.events.channel.GenericChannelEvent;
+import net.dv8tion.jda.api.events.guild.GenericGuildEvent;
+import net.dv8tion.jda.api.events.interaction.GenericInteractionCreateEvent;
+import net.dv8tion.jda.api.events.message.GenericMessageEvent;
+import net.dv8tion.jda.api.events.role.GenericRoleEvent;
+import net.dv8tion.jda.api.hooks.EventListener;
+import net.dv8tion.jda.api.hooks.IEventManager;
+
+/**
+ * An event manager that routes each event to only the listeners that
+ * handle its type, and times each listener for each type of event.
+ * Listeners must implement {@code EventListener}.
+ * <p>
+ * The route of each type of event is worked out the first time it is
+ * seen: the methods each {@code ListenerAdapter} overrides for it, in
+ * registration order, and every other {@code EventListener}. Listeners
+ * that are a {@link GuildEventFilter} are skipped for the guilds their
+ * feature is off in.
+ * <p>
+ * With {@code EVENT_DISPATCH_THREADS} above 1, the listeners of an event
+ * are run in parallel on a pool of that many threads, shared by every
+ * shard, and the gateway thread waits for them all before the next event,
+ * so events are still handled in order. The listeners of an event must
+ * then not depend on each other. Once stopped, events are dropped rather
+ * than dispatched
+ */
+public final class MetricsEventManager implements IEventManager {
+
+    /**
+     * The logger
+     */
+    private static final Logger logger = Logger.getLogger(MetricsEventManager.class);
+
+    /**
+     * The time each listener takes to handle each type of event
+     */
+    private static final MetricFamily<LatencyHistogram> LISTENER_DURATIONS = MetricsRegistry.getInstance().timer(
+        "bot_listener_duration_seconds", "The time a listener takes to handle an event", "listener", "event");
+
+    /**
+     * The uncaught exceptions thrown by each listener
+     */
+    private static final MetricFamily<Counter> LISTENER_ERRORS = MetricsRegistry.getInstance().counter(
+        "bot_listener_errors_total", "The uncaught exceptions thrown by a listener", "listener");
+
+    /**
+     * The events each listener was skipped for, as its feature is off in the guild
+     */
+    private static final MetricFamily<Counter> LISTENER_SKIPS = MetricsRegistry.getInstance().counter(
+        "bot_listener_skipped_total", "The events a listener was skipped for as its feature is off in the guild", "listener");
+
+    /**
+     * The events received by each shard
+     */
+    private static final MetricFamily<Counter> SHARD_EVENTS = MetricsRegistry.getInstance().counter(
+        "bot_shard_events_total", "The events received by a shard", "shard");
+
+    /**
+     * Runs the listeners of an event in parallel, or
+     * {@code null} if they are run on the gateway thread
+     */
+    private static final ExecutorService dispatchExecutor = createDispatchExecutor(
+        Integer.parseInt(App.env.get("EVENT_DISPATCH_THREADS", "1")));
+
+    /**
+     * The events received by the shard of this event manager
+     */
+    private final Counter events;
+
+    /**
+     * The registered listeners, in the order they were registered
+     */
+    private final List<InstrumentedListener> listeners;
+
+    /**
+     * The listeners of each type of event, worked out as each type is
+     * first seen. Replaced whenever a listener is registered or unregistered
+     */
+    private volatile Map<Class<?>, Route[]> routes;
+
+    /**
+     * If events are dropped, such as while shutting down
+     */
+    private volatile boolean stopped;
+
+    /**
+     * Creates a new {@code MetricsEventManager} with no listeners
+     * 
+     * @param shardId The id of the shard it handles the events of, or
+     *                {@code 0} when not sharded
+     */
+    public MetricsEventManager(int shardId) {
+        events = SHARD_EVENTS.get(Integer.toString(shardId));
+        listeners = new CopyOnWriteArrayList<>();
+        routes = new ConcurrentHashMap<>();
+    }
+
+    @Override
+    public void register(Object listener) {
+        if (!(listener instanceof EventListener)) {
+            throw new IllegalArgumentException("Listener must implement EventListener");
+        }
+
+        listeners.add(new InstrumentedListener((EventListener) listener));
+        routes = new ConcurrentHashMap<>();
+    }
+
+    @Override
+    public void unregister(Object listener) {
+        listeners.removeIf(instrumented -> instrumented.listener == listener);
+        routes = new ConcurrentHashMap<>();
+    }
+
+    @Override
+    public List<Object> getRegisteredListeners() {
+        List<Object> registered = new ArrayList<>(listeners.size());
+        for (InstrumentedListener instrumented : listeners) {
+            registered.add(instrumented.listener);
+        }
+        return Collections.unmodifiableList(registered);
+    }
+
+    /**
+     * Stops dispatching events to the listeners, so no
+     * new work is started. Events being handled are not
+     * interrupted
+     */
+    public void stop() {
+        stopped = true;
+    }
+
+    @Override
+    public void handle(GenericEvent event) {
+        if (stopped) {
+            return;
+        }
+
+        events.increment();
+        Route[] route = getRoute(event.getClass());
+        if (route.length == 0) {
+            return;
+        }
+
+        /* The guild is only looked up if a listener is a feature that can be off */
+        Guild guild = null;
+        boolean guildFound = false;
+        Route[] enabled = route;
+        int enabledCount = 0;
+        for (int i = 0; i < route.length; i++) {
+            GuildEventFilter filter = route[i].listener.filter;
+            if (filter != null) {
+                if (!guildFound) {
+                    guild = getGuild(event);
+                    guildFound = true;
+                }
+
+                if (guild != null && !filter.isEnabled(guild, event)) {
+                    route[i].listener.skips.increment();
+                    if (enabled == route) {
+                        enabled = new Route[route.length];
+                        System.arraycopy(route, 0, enabled, 0, i);
+                    }
+                    continue;
+                }
+            }
+
+            if (enabled != route) {
+                enabled[enabledCount] = route[i];
+            }
+            enabledCount++;
+        }
+
+        if (dispatchExecutor == null || enabledCount < 2) {
+            for (int i = 0; i < enabledCount; i++) {
+                enabled[i].dispatch(event);
+            }
+            return;
+        }
+
+        dispatchInParallel(enabled, enabledCount, event);
+    }
+
+    /**
+     * Dispatches an event to listeners in parallel, running the first on
+     * this thread, and waits for them all
+     *
+     * @param route      The listeners
+     * @param routeCount The number of listeners
+     * @param event      The event
+     */
+    private static void dispatchInParallel(Route[] route, int routeCount, GenericEvent event) {
+        Future<?>[] dispatched = new Future<?>[routeCount - 1];
+        for (int i = 1; i < routeCount; i++) {
+            Route listener = route[i];
+            dispatched[i - 1] = dispatchExecutor.submit(() -> listener.dispatch(event));
+        }
+
+        route[0].dispatch(event);
+
+        for (Future<?> future : dispatched) {
+            try {
+                future.get();
+            } catch (ExecutionException e) {
+                /* Listener exceptions are logged by the listener's route, so only errors get here */
+                if (e.getCause() instanceof Error) {
+                    throw (Error) e.getCause();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    /**
+     * Gets the listeners of a type of event, working
+     * them out if it has not been seen before
+     *
+     * @param eventType The type of event
+     * @return The listeners, in the order they were registered
+     */
+    private Route[] getRoute(Class<? extends GenericEvent> eventType) {
+        Map<Class<?>, Route[]> current = routes;
+        Route[] route = current.get(eventType);
+        if (route == null) {
+            route = current.computeIfAbsent(eventType, type -> createRoute(eventType));
+        }
+        return route;
+    }
+
+    /**
+     * Works out the listeners of a type of event
+     *
+     * @param eventType The type of event
+     * @return The listeners, in the order they were registered
+     */
+    private Route[] createRoute(Class<? extends GenericEvent> eventType) {
+        List<Route> route = new ArrayList<>();
+        for (InstrumentedListener instrumented : listeners) {
+            MethodHandle[] methods = ListenerMethods.resolve(instrumented.listener, eventType);
+            if (methods == null || methods.length > 0) {
+                route.add(new Route(instrumented, methods, instrumented.getDuration(eventType)));
+            }
+        }
+
+        logger.debug("Routed event", "event", eventType.getSimpleName(), "listeners", route.size());
+        return route.toArray(new Route[0]);
+    }
+
+    /**
+     * Gets the guild an event is from
+     *
+     * @param event The event
+     * @return The guild, or {@code null} if it is not from a guild
+     */
+    private static Guild getGuild(GenericEvent event) {
+        if (event instanceof GenericGuildEvent) {
+            return ((GenericGuildEvent) event).getGuild();
+        }
+        if (event instanceof GenericMessageEvent) {
+            GenericMessageEvent messageEvent = (GenericMessageEvent) event;
+            return messageEvent.isFromGuild() ? messageEvent.getGuild() : null;
+        }
+        if (event instanceof GenericChannelEvent) {
+            GenericChannelEvent channelEvent = (GenericChannelEvent) event;
+            return channelEvent.isFromGuild() ? channelEvent.getGuild() : null;
+        }
+        if (event instanceof GenericRoleEvent) {
+            return ((GenericRoleEvent) event).getGuild();
+        }
+        if (event instanceof GenericInteractionCreateEvent) {
+            return ((GenericInteractionCreateEvent) event).getGuild();
+        }
+        return null;
+    }
+
+    /**
+     * Creates the pool the listeners of an event are run on in parallel.
+     * Its queue is bounded, and when it is full a listener is run on the
+     * gateway thread instead, which slows down the events to match
+     *
+     * @param threads The number of threads
+     * @return The pool, or {@code null} if there would only be one thread
+     */
+    private static ExecutorService createDispatchExecutor(int threads) {
+        if (threads < 2) {
+            return null;
+        }
+
+        AtomicInteger threadCount = new AtomicInteger();
+        return new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(threads * 64),
+            r -> {
+                Thread thread = new Thread(r, "event-dispatch-" + threadCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            },
+            new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    /**
+     * A listener of a type of event, with the methods
+     * that handle it
+     */
+    private static final class Route {
+
+        /**
+         * The listener
+         */
+        private final InstrumentedListener listener;
+
+        /**
+         * The methods of the listener that handle the event, or
+         * {@code null} to give it to {@code onEvent}
+         */
+        private final MethodHandle[] methods;
+
+        /**
+         * The time the listener takes to handle the event
+         */
+        private final LatencyHistogram duration;
+
+        /**
+         * Creates a new {@code Route}
+         *
+         * @param listener The listener
+         * @param methods  The methods of the listener that handle the
+         *                 event, or {@code null} to give it to {@code onEvent}
+         * @param duration The time the listener takes to handle the event
+         */
+        private Route(InstrumentedListener listener, MethodHandle[] methods, LatencyHistogram duration) {
+            this.listener = listener;
+            this.methods = methods;
+            this.duration = duration;
+        }
+
+        /**
+         * Gives an event to the listener, logging what it throws
+         *
+         * @param event The event
+         * @throws Error If the listener threw an error
+         */
+        private void dispatch(GenericEvent event) {
+            long start = System.nanoTime();
+            try {
+                if (methods == null) {
+                    listener.listener.onEvent(event);
+                } else {
+                    for (MethodHandle method : methods) {
+                        method.invokeExact(event);
+                    }
+                }
+            } catch (Throwable throwable) {
+                /* One listener failing must not stop the others */
+                listener.errors.increment();
+                logger.error("Uncaught exception in a listener", throwable, "listener", listener.name, "event", event.getClass().getSimpleName());
+
+                if (throwable instanceof Error) {
+                    throw (Error) throwable;
+                }
+            } finally {
+                duration.recordSince(start);
+            }
+        }
+    }
+
+    /**
+     * A registered listener, with its metrics
+     */
+    private static final class InstrumentedListener {
+
+        /**
+         * The listener
+         */
+        private final EventListener listener;
+
+        /**
+         * The listener, if its feature can be off in a guild
+         */
+        private final GuildEventFilter filter;
+
+        /**
+         * The name of the listener's class, used as its label
+         */
+        private final String name;
+
+        /**
+         * The time the listener takes to handle each type of event
+         */
+        private final Map<Class<?>, LatencyHistogram> durations;
+
+        /**
+         * The uncaught exceptions thrown by the listener
+         */
+        private final Counter errors;
+
+        /**
+         * The events the listener was skipped for
+         */
+        private final Counter skips;
+
+        /**
+         * Creates a new {@code InstrumentedListener}
+         *
+         * @param listener The listener
+         */
+        private InstrumentedListener(EventListener listener) {
+            this.listener = listener;
+            filter = listener instanceof GuildEventFilter ? (GuildEventFilter) listener : null;
+            name = listener.getClass().getSimpleName().isEmpty() ? listener.getClass().getName() : listener.getClass().getSimpleName();
+            durations = new ConcurrentHashMap<>();
+            errors = LISTENER_ERRORS.get(name);
+            skips = LISTENER_SKIPS.get(name);
+        }
+
+        /**
+         * Gets the time the listener takes to handle a type of event
+         *
+         * @param eventType The type of event
+         * @return The durations
+         */
+        private LatencyHistogram getDuration(Class<?> eventType) {
+            return durations.computeIfAbsent(eventType, type -> LISTENER_DURATIONS.get(name, type.getSimpleName()));
+        }
+    }
+}
@@ -6,6 +6,9 @@ import java.nio.ByteBuffer;
 import com.sedmelluq.discord.lavaplayer.player.AudioPlayer;
 import com.sedmelluq.discord.lavaplayer.track.playback.MutableAudioFrame;
 
+import me.grayingout.metrics.Counter;
+import me.grayingout.metrics.MetricFamily;
+import me.grayingout.metrics.MetricsRegistry;
 import net.dv8tion.jda.api.audio.AudioSendHandler;
 
 /**
@@ -13,6 +16,23 @@ import net.dv8tion.jda.api.audio.AudioSendHandler;
  */
 public final class AudioPlayerSendHandler implements AudioSendHandler {
 
+    /**
+     * The 20ms audio frames asked for, by whether one was ready
+     */
+    private static final MetricFamily<Counter> AUDIO_FRAMES = MetricsRegistry.getInstance().counter(
+        "bot_audio_frames_total", "The 20ms audio frames asked for while connected, by whether one was ready", "result");
+
+    /**
+     * The frames that were ready to send
+     */
+    private static final Counter PROVIDED_FRAMES = AUDIO_FRAMES.get("provided");
+
+    /**
+     * The frames that were not ready, because nothing is
+     * playing or the track could not keep up
+     */
+    private static final Counter MISSING_FRAMES = AUDIO_FRAMES.get("missing");
+
     /**
      * Audio player instance
      */
@@ -38,7 +58,9 @@ public final class AudioPlayerSendHandler implements AudioSendHandler {
 
     @Override
     public boolean canProvide() {
-        return audioPlayer.provide(audioFrame);
+        boolean provided = audioPlayer.provide(audioFrame);
+        (provided ? PROVIDED_FRAMES : MISSING_FRAMES).increment();
+        return provided;
     }
 
     @Override
@@ -9,6 +9,9 @@ import com.sedmelluq.discord.lavaplayer.track.AudioTrack;
 import com.sedmelluq.discord.lavaplayer.track.AudioTrackEndReason;
 
 import me.grayingout.bot.audioplayer.skip.GuildSkipAudioManager;
+import me.grayingout.metrics.Counter;
+import me.grayingout.metrics.MetricFamily;
+import me.grayingout.metrics.MetricsRegistry;
 import net.dv8tion.jda.api.entities.Guild;
 
 /**
@@ -16,6 +19,12 @@ import net.dv8tion.jda.api.entities.Guild;
  */
 public class AudioTrackScheduler extends AudioEventAdapter {
 
+    /**
+     * The tracks that have ended, by why they ended
+     */
+    private static final MetricFamily<Counter> TRACKS_ENDED = MetricsRegistry.getInstance().counter(
+        "bot_audio_tracks_ended_total", "The audio tracks that have ended", "reason");
+
     /**
      * The audio player
      */
@@ -129,6 +138,8 @@ public class AudioTrackScheduler extends AudioEventAdapter {
     
     @Override
     public void onTrackEnd(AudioPlayer player, AudioTrack track, AudioTrackEndReason endReason) {
+        TRACKS_ENDED.get(endReason.name()).increment();
+
         if (endReason.equals(AudioTrackEndReason.LOAD_FAILED)) {
             /* Clear current skip vote */
             GuildSkipAudioManager.getInstance().getGuildSkipAudio(guild).resetVoteSkips();
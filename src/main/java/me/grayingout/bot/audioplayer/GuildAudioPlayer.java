@@ -115,6 +115,18 @@ public final class GuildAudioPlayer {
         audioTrackScheduler.clear();
     }
 
+    /**
+     * Stops playing and clears the queue, then releases the
+     * audio player. It must not be used after
+     */
+    public final void destroy() {
+        /* Clear first, so stopping does not start the next track */
+        audioTrackScheduler.clear();
+        audioTrackScheduler.setLoopingEnabled(false);
+        audioTrackScheduler.stop();
+        audioPlayer.destroy();
+    }
+
     /**
      * Ends the currently playing audio and starts the
      * next audio
@@ -1,11 +1,14 @@
 package me.grayingout.bot.audioplayer;
 
-import java.util.HashMap;
-
 import com.sedmelluq.discord.lavaplayer.player.AudioPlayerManager;
 import com.sedmelluq.discord.lavaplayer.player.DefaultAudioPlayerManager;
 import com.sedmelluq.discord.lavaplayer.source.AudioSourceManagers;
 
+import me.grayingout.bot.Bot;
+import me.grayingout.lifecycle.LifecycleManager;
+import me.grayingout.lifecycle.ShutdownStage;
+import me.grayingout.metrics.MetricsRegistry;
+import me.grayingout.util.collections.ShardedGuildMap;
 import net.dv8tion.jda.api.entities.Guild;
 
 /**
@@ -19,9 +22,10 @@ public final class GuildAudioPlayerManager {
     private static GuildAudioPlayerManager guildAudioPlayerManager;
 
     /**
-     * Stores the {@code GuildAudioPlayer} for each guild
+     * Stores the {@code GuildAudioPlayer} for each guild by its shard,
+     * which is concurrent so the metrics can be read while it changes
      */
-    private final HashMap<Long, GuildAudioPlayer> guildAudioPlayers;
+    private final ShardedGuildMap<GuildAudioPlayer> guildAudioPlayers;
 
     /**
      * The main {@code AudioPlayerManager}
@@ -29,10 +33,22 @@ public final class GuildAudioPlayerManager {
     private final AudioPlayerManager audioPlayerManager;
 
     private GuildAudioPlayerManager() {
-        guildAudioPlayers = new HashMap<>();
+        guildAudioPlayers = new ShardedGuildMap<>();
         audioPlayerManager = new DefaultAudioPlayerManager();
 
         AudioSourceManagers.registerRemoteSources(audioPlayerManager);
+
+        MetricsRegistry metricsRegistry = MetricsRegistry.getInstance();
+        metricsRegistry.gauge("bot_audio_players", "The guilds with an audio player",
+            () -> guildAudioPlayers.size());
+        metricsRegistry.gauge("bot_audio_players_playing", "The audio players playing a track",
+            () -> guildAudioPlayers.values().filter(p -> p.getPlayingAudioTrack() != null).count());
+        metricsRegistry.gauge("bot_audio_players_looping", "The audio players looping their track",
+            () -> guildAudioPlayers.values().filter(GuildAudioPlayer::isLooping).count());
+        metricsRegistry.gauge("bot_audio_queued_tracks", "The tracks queued across every audio player",
+            () -> guildAudioPlayers.values().mapToInt(p -> p.getAudioTrackQueue().length).sum());
+
+        LifecycleManager.getInstance().register(ShutdownStage.STOP_AUDIO, "audio-players", this::shutdown);
     }
 
     /**
@@ -40,7 +56,7 @@ public final class GuildAudioPlayerManager {
      * 
      * @return The singleton
      */
-    public static final GuildAudioPlayerManager getInstance() {
+    public static final synchronized GuildAudioPlayerManager getInstance() {
         if (guildAudioPlayerManager == null) {
             guildAudioPlayerManager = new GuildAudioPlayerManager();
         }
@@ -55,16 +71,38 @@ public final class GuildAudioPlayerManager {
      * @return The {@code GuildAudioPlayer}
      */
     public final GuildAudioPlayer getGuildAudioPlayer(Guild guild) {
-        if (guildAudioPlayers.get(guild.getIdLong()) == null) {
+        return guildAudioPlayers.computeIfAbsent(Bot.getShardId(guild), guild.getIdLong(), id -> {
             GuildAudioPlayer guildAudioPlayer = new GuildAudioPlayer(guild, audioPlayerManager);
             
             /* Set the audio send handler on the guild */
             guild.getAudioManager().setSendingHandler(guildAudioPlayer.getAudioPlayerSendHandler());
             
-            guildAudioPlayers.put(guild.getIdLong(), guildAudioPlayer);
+            return guildAudioPlayer;
+        });
+    }
+
+    /**
+     * Stops and releases the {@code GuildAudioPlayer}s of a shard's
+     * guilds, such as when the shard is shut down, as its guilds
+     * are replaced if it is started again
+     * 
+     * @param shardId The id of the shard
+     */
+    public final void removeShard(int shardId) {
+        for (GuildAudioPlayer guildAudioPlayer : guildAudioPlayers.removeShard(shardId).values()) {
+            guildAudioPlayer.destroy();
         }
+    }
+
+    /**
+     * Stops and releases every {@code GuildAudioPlayer},
+     * then stops loading tracks
+     */
+    private void shutdown() {
+        guildAudioPlayers.values().forEach(GuildAudioPlayer::destroy);
+        guildAudioPlayers.clear();
 
-        return guildAudioPlayers.get(guild.getIdLong());
+        audioPlayerManager.shutdown();
     }
 
     /**
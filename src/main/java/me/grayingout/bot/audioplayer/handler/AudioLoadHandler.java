@@ -8,6 +8,7 @@ import com.sedmelluq.discord.lavaplayer.track.AudioPlaylist;
 import com.sedmelluq.discord.lavaplayer.track.AudioTrack;
 
 import me.grayingout.bot.audioplayer.GuildAudioPlayer;
+import me.grayingout.logging.Logger;
 
 /**
  * The handler class for handling the result of loading
@@ -15,6 +16,11 @@ import me.grayingout.bot.audioplayer.GuildAudioPlayer;
  */
 public final class AudioLoadHandler implements AudioLoadResultHandler {
 
+    /**
+     * The logger
+     */
+    private static final Logger logger = Logger.getLogger(AudioLoadHandler.class);
+
     /**
      * The future that contains the load result
      */
@@ -45,7 +51,7 @@ public final class AudioLoadHandler implements AudioLoadResultHandler {
     @Override
     public void loadFailed(FriendlyException e) {
         /* Something went wrong */
-        e.printStackTrace();
+        logger.warn("Failed to load audio", e);
         future.complete(new AudioLoadResult(
             AudioLoadResultType.ERROR,
             null
@@ -1,7 +1,7 @@
 package me.grayingout.bot.audioplayer.skip;
 
-import java.util.HashMap;
-
+import me.grayingout.bot.Bot;
+import me.grayingout.util.collections.ShardedGuildMap;
 import net.dv8tion.jda.api.entities.Guild;
 import net.dv8tion.jda.api.entities.GuildVoiceState;
 import net.dv8tion.jda.api.events.guild.voice.GuildVoiceUpdateEvent;
@@ -18,22 +18,23 @@ public final class GuildSkipAudioManager extends ListenerAdapter {
     private static GuildSkipAudioManager INSTANCE;
 
     /**
-     * Holds the {@code GuildSkipAudio} instances
+     * Holds the {@code GuildSkipAudio} instances by shard, which is
+     * concurrent as each shard's events are on a thread of its own
      */
-    private final HashMap<Long, GuildSkipAudio> guildSkipAudios;
+    private final ShardedGuildMap<GuildSkipAudio> guildSkipAudios;
 
     /**
      * Creates a new {@code GuildSkipAudioManager}
      */
     private GuildSkipAudioManager() {
-        guildSkipAudios = new HashMap<>();
+        guildSkipAudios = new ShardedGuildMap<>();
     }
 
     /**
      * Gets the {@code GuildSkipAudioManager} instance
      * @return
      */
-    public static final GuildSkipAudioManager getInstance() {
+    public static final synchronized GuildSkipAudioManager getInstance() {
         if (INSTANCE == null) {
             INSTANCE = new GuildSkipAudioManager();
         }
@@ -47,10 +48,16 @@ public final class GuildSkipAudioManager extends ListenerAdapter {
      * @return
      */
     public final GuildSkipAudio getGuildSkipAudio(Guild guild) {
-        if (guildSkipAudios.get(guild.getIdLong()) == null) {
-            guildSkipAudios.put(guild.getIdLong(), new GuildSkipAudio(guild));
-        }
-        return guildSkipAudios.get(guild.getIdLong());
+        return guildSkipAudios.computeIfAbsent(Bot.getShardId(guild), guild.getIdLong(), id -> new GuildSkipAudio(guild));
+    }
+
+    /**
+     * Removes the {@code GuildSkipAudio}s of a shard's guilds
+     * 
+     * @param shardId The id of the shard
+     */
+    public final void removeShard(int shardId) {
+        guildSkipAudios.removeShard(shardId);
     }
 
     @Override
@@ -0,0 +1,184 @@
+package me.grayingout.bot.cache;
+
+import java.util.EnumSet;
+
+import me.grayingout.App;
+import net.dv8tion.jda.api.JDABuilder;
+import net.dv8tion.jda.api.sharding.DefaultShardManagerBuilder;
+import net.dv8tion.jda.api.utils.ChunkingFilter;
+import net.dv8tion.jda.api.utils.MemberCachePolicy;
+import net.dv8tion.jda.api.utils.cache.CacheFlag;
+
+/**
+ * How much of each guild JDA caches, chosen with {@code CACHE_PROFILE}.
+ * <p>
+ * {@code lean} (the default) caches only what the {@link CacheRequirement}s
+ * of the bot's features add up to. {@code default} is what JDA caches by
+ * default, and {@code full} also caches every member of every guild, by
+ * requesting them all when a guild is loaded, which only suits small bots
+ */
+public enum CacheProfile {
+
+    /**
+     * Only what the features need
+     */
+    LEAN(leanCacheFlags(), leanMemberCachePolicy(), ChunkingFilter.NONE),
+
+    /**
+     * What JDA caches by default, other than presences and scheduled
+     * events, which need intents the bot does not enable
+     */
+    DEFAULT(defaultCacheFlags(), MemberCachePolicy.DEFAULT, ChunkingFilter.NONE),
+
+    /**
+     * Every member of every guild
+     */
+    FULL(defaultCacheFlags(), MemberCachePolicy.ALL, ChunkingFilter.ALL);
+
+    /**
+     * The cache flags enabled
+     */
+    private final EnumSet<CacheFlag> cacheFlags;
+
+    /**
+     * The members cached
+     */
+    private final MemberCachePolicy memberCachePolicy;
+
+    /**
+     * The guilds whose members are all requested when loaded
+     */
+    private final ChunkingFilter chunkingFilter;
+
+    /**
+     * Creates a new {@code CacheProfile}
+     *
+     * @param cacheFlags        The cache flags enabled
+     * @param memberCachePolicy The members cached
+     * @param chunkingFilter    The guilds whose members are all requested when loaded
+     */
+    private CacheProfile(EnumSet<CacheFlag> cacheFlags, MemberCachePolicy memberCachePolicy, ChunkingFilter chunkingFilter) {
+        this.cacheFlags = cacheFlags;
+        this.memberCachePolicy = memberCachePolicy;
+        this.chunkingFilter = chunkingFilter;
+    }
+
+    /**
+     * Gets the profile configured with {@code CACHE_PROFILE}
+     *
+     * @return The profile
+     * @throws IllegalStateException If the profile is unknown
+     */
+    public static final CacheProfile fromEnvironment() {
+        String profile = App.env.get("CACHE_PROFILE", "lean");
+        for (CacheProfile cacheProfile : values()) {
+            if (cacheProfile.name().equalsIgnoreCase(profile)) {
+                return cacheProfile;
+            }
+        }
+
+        throw new IllegalStateException("Unknown CACHE_PROFILE " + profile + ", expected lean, default or full");
+    }
+
+    /**
+     * Sets the caching of a {@code JDABuilder} to the profile
+     *
+     * @param builder The builder
+     * @return The builder
+     */
+    public final JDABuilder apply(JDABuilder builder) {
+        prepare();
+        return builder
+            .enableCache(cacheFlags)
+            .disableCache(EnumSet.complementOf(cacheFlags))
+            .setMemberCachePolicy(memberCachePolicy)
+            .setChunkingFilter(chunkingFilter);
+    }
+
+    /**
+     * Sets the caching of every shard of a {@code DefaultShardManagerBuilder}
+     * to the profile
+     *
+     * @param builder The builder
+     * @return The builder
+     */
+    public final DefaultShardManagerBuilder apply(DefaultShardManagerBuilder builder) {
+        prepare();
+        return builder
+            .enableCache(cacheFlags)
+            .disableCache(EnumSet.complementOf(cacheFlags))
+            .setMemberCachePolicy(memberCachePolicy)
+            .setChunkingFilter(chunkingFilter);
+    }
+
+    /**
+     * Gets the cache flags enabled
+     *
+     * @return The cache flags
+     */
+    public final EnumSet<CacheFlag> getCacheFlags() {
+        return EnumSet.copyOf(cacheFlags);
+    }
+
+    /**
+     * Gets the members cached. Call {@link #apply} first if it is used
+     * for a cache, so recently active members are unloaded correctly
+     *
+     * @return The member cache policy
+     */
+    public final MemberCachePolicy getMemberCachePolicy() {
+        return memberCachePolicy;
+    }
+
+    /**
+     * Gets the guilds whose members are all requested when loaded
+     *
+     * @return The chunking filter
+     */
+    public final ChunkingFilter getChunkingFilter() {
+        return chunkingFilter;
+    }
+
+    /**
+     * Tells the recently active members which policy they are part of
+     */
+    private void prepare() {
+        RecentlyActiveMemberPolicy.getInstance().setCachePolicy(memberCachePolicy);
+    }
+
+    /**
+     * Gets the cache flags every feature needs together
+     *
+     * @return The cache flags
+     */
+    private static EnumSet<CacheFlag> leanCacheFlags() {
+        EnumSet<CacheFlag> cacheFlags = EnumSet.noneOf(CacheFlag.class);
+        for (CacheRequirement requirement : CacheRequirement.values()) {
+            cacheFlags.addAll(requirement.getCacheFlags());
+        }
+        return cacheFlags;
+    }
+
+    /**
+     * Gets the members every feature needs cached together
+     *
+     * @return The member cache policy
+     */
+    private static MemberCachePolicy leanMemberCachePolicy() {
+        MemberCachePolicy policy = MemberCachePolicy.NONE;
+        for (CacheRequirement requirement : CacheRequirement.values()) {
+            policy = policy.or(requirement.getMemberCachePolicy());
+        }
+        return policy;
+    }
+
+    /**
+     * Gets the cache flags JDA enables by default, that the bot has the intents for
+     *
+     * @return The cache flags
+     */
+    private static EnumSet<CacheFlag> defaultCacheFlags() {
+        return EnumSet.complementOf(EnumSet.of(
+            CacheFlag.ACTIVITY, CacheFlag.CLIENT_STATUS, CacheFlag.ONLINE_STATUS, CacheFlag.SCHEDULED_EVENTS));
+    }
+}
@@ -0,0 +1,87 @@
+package me.grayingout.bot.cache;
+
+import java.util.EnumSet;
+
+import net.dv8tion.jda.api.utils.MemberCachePolicy;
+import net.dv8tion.jda.api.utils.cache.CacheFlag;
+
+/**
+ * What each feature of the bot needs JDA to cache. The lean
+ * {@code CacheProfile} caches only what these add up to, so a
+ * feature that reads more of the cache must say so here, or
+ * retrieve what it needs when it needs it
+ */
+public enum CacheRequirement {
+
+    /**
+     * Permission checks, for the bot and the members using commands,
+     * which need the overrides of members in channels. The owner is
+     * one member, so is kept to save retrieving them
+     */
+    CORE(EnumSet.of(CacheFlag.MEMBER_OVERRIDES), MemberCachePolicy.OWNER),
+
+    /**
+     * Audio, where skip votes count the members in the bot's voice
+     * channel, and commands check the voice channel of their user
+     */
+    AUDIO(EnumSet.of(CacheFlag.VOICE_STATE), MemberCachePolicy.VOICE),
+
+    /**
+     * Levelling, which grants level roles to members as they chat,
+     * so the members chatting stay cached
+     */
+    LEVELLING(EnumSet.noneOf(CacheFlag.class), RecentlyActiveMemberPolicy.getInstance()),
+
+    /**
+     * Logging, which reads deleted messages from the {@code MessageCache}
+     * and members from the {@code MemberDisplayCache}, which retrieves
+     * them when they are not cached
+     */
+    LOGGING(EnumSet.noneOf(CacheFlag.class), MemberCachePolicy.NONE),
+
+    /**
+     * Moderation and the other list views, which show members through
+     * the {@code MemberDisplayCache}, and take the members they act on
+     * from the command
+     */
+    MODERATION(EnumSet.noneOf(CacheFlag.class), MemberCachePolicy.NONE);
+
+    /**
+     * The cache flags the feature needs
+     */
+    private final EnumSet<CacheFlag> cacheFlags;
+
+    /**
+     * The members the feature needs cached
+     */
+    private final MemberCachePolicy memberCachePolicy;
+
+    /**
+     * Creates a new {@code CacheRequirement}
+     *
+     * @param cacheFlags        The cache flags the feature needs
+     * @param memberCachePolicy The members the feature needs cached
+     */
+    private CacheRequirement(EnumSet<CacheFlag> cacheFlags, MemberCachePolicy memberCachePolicy) {
+        this.cacheFlags = cacheFlags;
+        this.memberCachePolicy = memberCachePolicy;
+    }
+
+    /**
+     * Gets the cache flags the feature needs
+     *
+     * @return The cache flags
+     */
+    public final EnumSet<CacheFlag> getCacheFlags() {
+        return EnumSet.copyOf(cacheFlags);
+    }
+
+    /**
+     * Gets the members the feature needs cached
+     *
+     * @return The member cache policy
+     */
+    public final MemberCachePolicy getMemberCachePolicy() {
+        return memberCachePolicy;
+    }
+}
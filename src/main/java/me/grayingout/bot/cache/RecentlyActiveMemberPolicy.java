@@ -0,0 +1,290 @@
+package me.grayingout.bot.cache;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import me.grayingout.App;
+import me.grayingout.metrics.MetricsRegistry;
+import net.dv8tion.jda.api.JDA;
+import net.dv8tion.jda.api.entities.Guild;
+import net.dv8tion.jda.api.entities.Member;
+import net.dv8tion.jda.api.utils.MemberCachePolicy;
+
+/**
+ * A {@code MemberCachePolicy} that caches the members who have been
+ * active recently, such as by sending messages, so a guild's chatty
+ * members stay cached while they are earning experience without every
+ * member of the guild being cached.
+ * <p>
+ * A member is forgotten, and unloaded from the JDA cache unless another
+ * policy keeps them, once they have not been active for
+ * {@code RECENT_MEMBER_MINUTES} (15 by default), or once more than
+ * {@code RECENT_MEMBERS_PER_GUILD} (1000 by default) members of their
+ * guild have been active since
+ */
+public final class RecentlyActiveMemberPolicy implements MemberCachePolicy {
+
+    /**
+     * The singleton instance, configured in the environment
+     */
+    private static final RecentlyActiveMemberPolicy recentlyActiveMemberPolicy = new RecentlyActiveMemberPolicy(
+        TimeUnit.MINUTES.toMillis(Long.parseLong(App.env.get("RECENT_MEMBER_MINUTES", "15"))),
+        Integer.parseInt(App.env.get("RECENT_MEMBERS_PER_GUILD", "1000")));
+
+    /**
+     * How long a member is cached for after they were last active
+     */
+    private final long activeMillis;
+
+    /**
+     * The most members of a guild cached for being active
+     */
+    private final int maxGuildSize;
+
+    /**
+     * The recently active members of each guild
+     */
+    private final Map<Long, GuildActivity> guilds;
+
+    /**
+     * The whole policy of the cache this is part of, which decides
+     * if a forgotten member is still cached for another reason
+     */
+    private volatile MemberCachePolicy cachePolicy;
+
+    /**
+     * Forgets the members that are no longer active,
+     * started the first time a member is active
+     */
+    private ScheduledExecutorService sweeper;
+
+    /**
+     * Creates a new {@code RecentlyActiveMemberPolicy}
+     *
+     * @param activeMillis How long a member is cached for after they were last active
+     * @param maxGuildSize The most members of a guild cached for being active
+     */
+    private RecentlyActiveMemberPolicy(long activeMillis, int maxGuildSize) {
+        this.activeMillis = activeMillis;
+        this.maxGuildSize = Math.max(1, maxGuildSize);
+        guilds = new ConcurrentHashMap<>();
+        cachePolicy = this;
+
+        MetricsRegistry.getInstance().gauge("bot_recently_active_members", "The members cached for being recently active",
+            () -> guilds.values().stream().mapToInt(GuildActivity::size).sum());
+    }
+
+    /**
+     * Gets the {@code RecentlyActiveMemberPolicy} singleton
+     *
+     * @return The singleton
+     */
+    public static final RecentlyActiveMemberPolicy getInstance() {
+        return recentlyActiveMemberPolicy;
+    }
+
+    @Override
+    public boolean cacheMember(Member member) {
+        GuildActivity activity = guilds.get(member.getGuild().getIdLong());
+        return activity != null && activity.isActive(member.getIdLong(), System.currentTimeMillis() - activeMillis);
+    }
+
+    /**
+     * Records a member being active, so they are cached from the next
+     * time JDA sees them. Members are not cached straight away, as JDA
+     * has already decided whether to cache them by the time the event
+     * that made them active is handled
+     *
+     * @param guild  The guild
+     * @param userId The id of the member
+     */
+    public final void markActive(Guild guild, long userId) {
+        startSweeper();
+
+        GuildActivity activity = guilds.computeIfAbsent(guild.getIdLong(), id -> new GuildActivity(guild.getJDA(), id));
+        Long evicted = activity.markActive(userId, System.currentTimeMillis());
+        if (evicted != null) {
+            activity.unload(List.of(evicted));
+        }
+    }
+
+    /**
+     * Forgets the members of a guild, such as when the bot leaves it
+     *
+     * @param guildId The id of the guild
+     */
+    public final void forgetGuild(long guildId) {
+        guilds.remove(guildId);
+    }
+
+    /**
+     * Sets the whole policy of the cache this is part of, so members
+     * that are cached for another reason, such as being in a voice
+     * channel, are not unloaded when they are forgotten
+     *
+     * @param cachePolicy The policy
+     */
+    /* default */ final void setCachePolicy(MemberCachePolicy cachePolicy) {
+        this.cachePolicy = cachePolicy;
+    }
+
+    /**
+     * Starts forgetting the members that are no longer active,
+     * once a minute, if it has not been started already
+     */
+    private synchronized void startSweeper() {
+        if (sweeper != null) {
+            return;
+        }
+
+        sweeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "recently-active-members");
+            thread.setDaemon(true);
+            return thread;
+        });
+        sweeper.scheduleWithFixedDelay(this::sweep, 1, 1, TimeUnit.MINUTES);
+    }
+
+    /**
+     * Forgets and unloads the members that are no longer active
+     */
+    private void sweep() {
+        long activeSince = System.currentTimeMillis() - activeMillis;
+        for (GuildActivity activity : guilds.values()) {
+            activity.unload(activity.removeInactive(activeSince));
+        }
+    }
+
+    /**
+     * The recently active members of a guild
+     */
+    private final class GuildActivity {
+
+        /**
+         * The shard the guild is on
+         */
+        private final JDA jda;
+
+        /**
+         * The id of the guild
+         */
+        private final long guildId;
+
+        /**
+         * When each member was last active against their user id, least
+         * recently active first, as each is moved to the end when active.
+         * Guarded by itself
+         */
+        private final LinkedHashMap<Long, Long> lastActive;
+
+        /**
+         * Creates a new {@code GuildActivity}
+         *
+         * @param jda     The shard the guild is on
+         * @param guildId The id of the guild
+         */
+        private GuildActivity(JDA jda, long guildId) {
+            this.jda = jda;
+            this.guildId = guildId;
+            lastActive = new LinkedHashMap<>();
+        }
+
+        /**
+         * Returns if a member has been active since a time
+         *
+         * @param userId      The id of the member
+         * @param activeSince The time, in epoch milliseconds
+         * @return If they have been active
+         */
+        private boolean isActive(long userId, long activeSince) {
+            synchronized (lastActive) {
+                Long activeAt = lastActive.get(userId);
+                return activeAt != null && activeAt >= activeSince;
+            }
+        }
+
+        /**
+         * Records a member being active
+         *
+         * @param userId The id of the member
+         * @param now    The time, in epoch milliseconds
+         * @return The id of the least recently active member, if they
+         *         were forgotten to make room, else {@code null}
+         */
+        private Long markActive(long userId, long now) {
+            synchronized (lastActive) {
+                lastActive.remove(userId);
+                lastActive.put(userId, now);
+                if (lastActive.size() <= maxGuildSize) {
+                    return null;
+                }
+
+                Iterator<Long> eldest = lastActive.keySet().iterator();
+                Long evicted = eldest.next();
+                eldest.remove();
+                return evicted;
+            }
+        }
+
+        /**
+         * Forgets the members that have not been active since a time
+         *
+         * @param activeSince The time, in epoch milliseconds
+         * @return The ids of the members forgotten
+         */
+        private List<Long> removeInactive(long activeSince) {
+            List<Long> removed = new ArrayList<>();
+            synchronized (lastActive) {
+                Iterator<Map.Entry<Long, Long>> iterator = lastActive.entrySet().iterator();
+                while (iterator.hasNext()) {
+                    Map.Entry<Long, Long> entry = iterator.next();
+                    if (entry.getValue() >= activeSince) {
+                        break;
+                    }
+
+                    removed.add(entry.getKey());
+                    iterator.remove();
+                }
+            }
+            return removed;
+        }
+
+        /**
+         * Unloads forgotten members from the JDA cache, other than
+         * those the rest of the cache policy keeps
+         *
+         * @param userIds The ids of the members
+         */
+        private void unload(List<Long> userIds) {
+            Guild guild = jda.getGuildById(guildId);
+            if (guild == null) {
+                return;
+            }
+
+            for (long userId : userIds) {
+                Member member = guild.getMemberById(userId);
+                if (member != null && !cachePolicy.cacheMember(member)) {
+                    guild.unloadMember(userId);
+                }
+            }
+        }
+
+        /**
+         * Gets the number of members recorded as active
+         *
+         * @return The number of members
+         */
+        private int size() {
+            synchronized (lastActive) {
+                return lastActive.size();
+            }
+        }
+    }
+}
@@ -1,8 +1,21 @@
 package me.grayingout.bot.commands;
 
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
 import java.util.stream.Collectors;
 
+import me.grayingout.App;
 import me.grayingout.bot.commands.implementations.HelloCommand;
 import me.grayingout.bot.commands.implementations.LoggingCommand;
 import me.grayingout.bot.commands.implementations.RulesCommand;
@@ -22,13 +35,72 @@ import me.grayingout.bot.commands.implementations.levelling.LevelsCommand;
 import me.grayingout.bot.commands.implementations.moderation.BulkDeleteCommand;
 import me.grayingout.bot.commands.implementations.moderation.SlowmodeCommand;
 import me.grayingout.bot.commands.implementations.moderation.WarningsCommand;
+import me.grayingout.lifecycle.LifecycleManager;
+import me.grayingout.lifecycle.ShutdownStage;
+import me.grayingout.logging.Logger;
+import me.grayingout.metrics.Counter;
+import me.grayingout.metrics.LatencyHistogram;
+import me.grayingout.metrics.MetricFamily;
+import me.grayingout.metrics.MetricsRegistry;
+import me.grayingout.util.EmbedFactory;
 import net.dv8tion.jda.api.JDA;
+import net.dv8tion.jda.api.events.interaction.command.SlashCommandInteractionEvent;
+import net.dv8tion.jda.api.interactions.commands.build.CommandData;
 
 /**
- * Manages the {@code BotCommand}s
+ * Manages the {@code BotCommand}s, and executes them.
+ * <p>
+ * By default each command is executed on a virtual thread of its own,
+ * with at most {@code COMMAND_GUILD_CONCURRENCY} (4 by default) running
+ * at once in a guild, so commands are free to block. At most
+ * {@code COMMAND_GUILD_QUEUE} more (4 by default) wait their turn, and
+ * the rest are answered with a busy reply. With
+ * {@code COMMAND_EXECUTION=gateway} they are executed on the gateway
+ * thread that received them instead. While shutting down, the commands
+ * already running are left to finish
  */
 public final class BotCommandManager {
 
+    /**
+     * The logger
+     */
+    private static final Logger logger = Logger.getLogger(BotCommandManager.class);
+
+    /**
+     * The time each command waits to be executed
+     */
+    private static final MetricFamily<LatencyHistogram> COMMAND_WAITS = MetricsRegistry.getInstance().timer(
+        "bot_command_wait_seconds", "The time a command waits for the commands running in its guild", "command");
+
+    /**
+     * The time each command takes to execute
+     */
+    private static final MetricFamily<LatencyHistogram> COMMAND_DURATIONS = MetricsRegistry.getInstance().timer(
+        "bot_command_duration_seconds", "The time a command takes to execute, not including work it leaves queued", "command");
+
+    /**
+     * The commands executed, by whether they threw, and the
+     * commands turned away as their guild was busy
+     */
+    private static final MetricFamily<Counter> COMMAND_EXECUTIONS = MetricsRegistry.getInstance().counter(
+        "bot_commands_total", "The commands executed or turned away", "command", "outcome");
+
+    /**
+     * Runs the commands on virtual threads, or {@code null}
+     * if they are executed on the gateway thread
+     */
+    private static final CommandDispatcher dispatcher = App.env.get("COMMAND_EXECUTION", "virtual").equalsIgnoreCase("gateway")
+        ? null
+        : new CommandDispatcher(
+            Integer.parseInt(App.env.get("COMMAND_GUILD_CONCURRENCY", "4")),
+            Integer.parseInt(App.env.get("COMMAND_GUILD_QUEUE", "4")));
+
+    static {
+        if (dispatcher != null) {
+            LifecycleManager.getInstance().register(ShutdownStage.DRAIN_COMMANDS, "commands", dispatcher::shutdown);
+        }
+    }
+
     /**
      * Stores the {@code BotCommand}s
      */
@@ -70,17 +142,136 @@ public final class BotCommandManager {
     }
 
     /**
-     * Adds all commands to the provided JDA instance
+     * Executes the command of a slash command event,
+     * as configured with {@code COMMAND_EXECUTION}, or
+     * replies that the guild is busy
+     * 
+     * @param event The slash command event
+     * @throws RuntimeException If there is no command with the name
+     */
+    public static final void executeCommand(SlashCommandInteractionEvent event) {
+        BotCommand command = getBotCommand(event.getName());
+        if (command == null) {
+            throw new RuntimeException("Unhandled bot command: " + event.getName());
+        }
+
+        long queuedAt = System.nanoTime();
+        if (dispatcher == null) {
+            execute(command, event, queuedAt);
+            return;
+        }
+
+        if (!dispatcher.dispatch(event.isFromGuild() ? event.getGuild().getIdLong() : 0, () -> execute(command, event, queuedAt))) {
+            /* Waiting any longer would miss the deadline to acknowledge the interaction */
+            event.replyEmbeds(EmbedFactory.createBusyEmbed()).setEphemeral(true).queue();
+            COMMAND_EXECUTIONS.get(event.getName(), "busy").increment();
+        }
+    }
+
+    /**
+     * Executes a command, recording how long it took
+     * 
+     * @param command  The command
+     * @param event    The slash command event
+     * @param queuedAt When the command was queued, from {@link System#nanoTime()}
+     */
+    private static final void execute(BotCommand command, SlashCommandInteractionEvent event, long queuedAt) {
+        long start = System.nanoTime();
+        COMMAND_WAITS.get(event.getName()).record(start - queuedAt);
+
+        boolean succeeded = false;
+        try {
+            command.execute(event);
+            succeeded = true;
+        } catch (RuntimeException e) {
+            logger.error("Command failed", e, "command", event.getFullCommandName(), "user", event.getUser().getIdLong());
+        } finally {
+            COMMAND_DURATIONS.get(event.getName()).recordSince(start);
+            COMMAND_EXECUTIONS.get(event.getName(), succeeded ? "success" : "error").increment();
+        }
+    }
+
+    /**
+     * Registers the commands with Discord, unless they have not changed
+     * since they were last registered. A hash of the commands is kept in
+     * {@code COMMANDS_HASH_PATH} ({@code commands.sha256} by default), and
+     * {@code COMMANDS_FORCE_UPDATE=true} registers them regardless, such
+     * as after they were changed elsewhere
      * 
      * @param jda The jda
+     * @return A future completed with if the commands were registered
+     */
+    public static final CompletableFuture<Boolean> updateJDACommands(JDA jda) {
+        /* Sorted so the hash does not depend on the order of the map */
+        List<CommandData> commandData = botCommands.values()
+            .stream()
+            .map(c -> c.getCommandData())
+            .sorted(Comparator.comparing(CommandData::getName))
+            .collect(Collectors.toList());
+
+        Path hashPath = Paths.get(App.env.get("COMMANDS_HASH_PATH", "commands.sha256"));
+        String hash = hashCommands(jda.getSelfUser().getApplicationIdLong(), commandData);
+
+        if (!Boolean.parseBoolean(App.env.get("COMMANDS_FORCE_UPDATE", "false")) && hash.equals(readHash(hashPath))) {
+            logger.info("Slash commands unchanged, not registering them", "commands", commandData.size());
+            return CompletableFuture.completedFuture(false);
+        }
+
+        return jda.updateCommands()
+            .addCommands(commandData)
+            .submit()
+            .thenApply(commands -> {
+                logger.info("Registered slash commands", "commands", commands.size());
+
+                /* Only once Discord has them, so a failure is retried next time */
+                try {
+                    Files.writeString(hashPath, hash);
+                } catch (IOException e) {
+                    logger.warn("Failed to write the slash command hash", e, "path", hashPath);
+                }
+                return true;
+            });
+    }
+
+    /**
+     * Hashes the data of the commands, along with the
+     * application they are registered to
+     * 
+     * @param applicationId The id of the application
+     * @param commandData   The data of the commands, sorted by name
+     * @return The hash, in hex
+     */
+    private static final String hashCommands(long applicationId, List<CommandData> commandData) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            /* Every JVM has SHA-256 */
+            throw new IllegalStateException(e);
+        }
+
+        digest.update(Long.toString(applicationId).getBytes(StandardCharsets.UTF_8));
+        for (CommandData data : commandData) {
+            digest.update(data.toData().toJson());
+        }
+
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    /**
+     * Reads the hash of the commands last registered
+     * 
+     * @param hashPath The path of the hash
+     * @return The hash, or {@code null} if there is none
      */
-    public static final void updateJDACommands(JDA jda) {
-        jda.updateCommands()
-            .addCommands(
-                botCommands.values()
-                    .stream()
-                    .map(c -> c.getCommandData())
-                    .collect(Collectors.toList())
-            ).queue();
+    private static final String readHash(Path hashPath) {
+        try {
+            return Files.readString(hashPath).trim();
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException e) {
+            logger.warn("Failed to read the slash command hash", e, "path", hashPath);
+            return null;
+        }
     }
 }
@@ -0,0 +1,170 @@
+package me.grayingout.bot.commands;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import me.grayingout.logging.Logger;
+
+/**
+ * Runs commands off the gateway thread, each on a virtual thread of
+ * its own, so commands that block on the database, Discord or audio
+ * loading do not hold up events. Each guild has at most a set number
+ * of commands running at once, and the rest wait their turn in order,
+ * so a burst in one guild cannot take over the database lanes. Commands
+ * acknowledge their interaction when they run, so only a few may wait,
+ * and the rest are turned away rather than miss Discord's deadline
+ */
+/* default */ final class CommandDispatcher {
+
+    /**
+     * The logger
+     */
+    private static final Logger logger = Logger.getLogger(CommandDispatcher.class);
+
+    /**
+     * Starts a virtual thread for each command
+     */
+    private final ExecutorService executor;
+
+    /**
+     * The most commands run at once in a guild
+     */
+    private final int guildConcurrency;
+
+    /**
+     * The most commands waiting at once in a guild
+     */
+    private final int guildQueueSize;
+
+    /**
+     * The guilds with commands running against their ids,
+     * removed once they have none. Guarded by itself
+     */
+    private final Map<Long, GuildCommands> guilds;
+
+    /**
+     * Creates a new {@code CommandDispatcher}
+     *
+     * @param guildConcurrency The most commands run at once in a guild
+     * @param guildQueueSize   The most commands waiting at once in a guild
+     */
+    /* default */ CommandDispatcher(int guildConcurrency, int guildQueueSize) {
+        this.guildConcurrency = Math.max(1, guildConcurrency);
+        this.guildQueueSize = Math.max(0, guildQueueSize);
+        executor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("command-", 0).factory());
+        guilds = new HashMap<>();
+    }
+
+    /**
+     * Runs a command on a virtual thread, once the guild has
+     * fewer than its most commands running, unless the guild
+     * already has its most commands waiting
+     *
+     * @param guildId The id of the guild, or {@code 0} outside of guilds,
+     *                where commands are not limited
+     * @param command The command
+     * @return If the command was accepted, which it is not if
+     *         the guild has too many commands waiting
+     */
+    /* default */ boolean dispatch(long guildId, Runnable command) {
+        if (guildId == 0) {
+            try {
+                executor.execute(command);
+            } catch (RejectedExecutionException e) {
+                logger.warn("Command not run, as the bot is shutting down");
+            }
+            return true;
+        }
+
+        synchronized (guilds) {
+            GuildCommands guildCommands = guilds.computeIfAbsent(guildId, id -> new GuildCommands());
+            if (guildCommands.running >= guildConcurrency) {
+                if (guildCommands.waiting.size() >= guildQueueSize) {
+                    return false;
+                }
+                guildCommands.waiting.add(command);
+                return true;
+            }
+            guildCommands.running++;
+        }
+
+        try {
+            executor.execute(() -> runInGuild(guildId, command));
+        } catch (RejectedExecutionException e) {
+            logger.warn("Command not run, as the bot is shutting down", "guild", guildId);
+            release(guildId);
+        }
+        return true;
+    }
+
+    /**
+     * Stops running new commands, and waits for the
+     * running and waiting commands to finish
+     *
+     * @throws InterruptedException If interrupted while waiting
+     */
+    /* default */ void shutdown() throws InterruptedException {
+        executor.shutdown();
+        executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Runs a command, then the guild's waiting commands on the same
+     * thread until there are none, then frees the guild's slot
+     *
+     * @param guildId The id of the guild
+     * @param command The command
+     */
+    private void runInGuild(long guildId, Runnable command) {
+        while (command != null) {
+            try {
+                command.run();
+            } catch (RuntimeException e) {
+                /* Carry on with the waiting commands rather than losing the slot */
+                logger.error("Uncaught exception running a command", e, "guild", guildId);
+            }
+
+            command = release(guildId);
+        }
+    }
+
+    /**
+     * Frees one of a guild's slots, unless it has a command
+     * waiting, which is run in the freed slot instead
+     *
+     * @param guildId The id of the guild
+     * @return The command to run next, or {@code null} if the slot was freed
+     */
+    private Runnable release(long guildId) {
+        synchronized (guilds) {
+            GuildCommands guildCommands = guilds.get(guildId);
+            Runnable command = guildCommands.waiting.poll();
+
+            if (command == null && --guildCommands.running == 0) {
+                guilds.remove(guildId);
+            }
+            return command;
+        }
+    }
+
+    /**
+     * The commands of a guild
+     */
+    private static final class GuildCommands {
+
+        /**
+         * The commands waiting for one running to finish
+         */
+        private final ArrayDeque<Runnable> waiting = new ArrayDeque<>();
+
+        /**
+         * The number of commands running
+         */
+        private int running;
+    }
+}
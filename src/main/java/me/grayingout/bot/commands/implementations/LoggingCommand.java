@@ -4,6 +4,7 @@ import me.grayingout.bot.commands.BotCommand;
 import me.grayingout.database.accessors.DatabaseAccessorManager;
 import me.grayingout.database.entities.GuildLoggingChannel;
 import me.grayingout.util.EmbedFactory;
+import me.grayingout.util.Futures;
 import net.dv8tion.jda.api.Permission;
 import net.dv8tion.jda.api.entities.MessageEmbed.Field;
 import net.dv8tion.jda.api.entities.channel.Channel;
@@ -55,22 +56,26 @@ public final class LoggingCommand extends BotCommand {
             
                 /* Update the logging channel */
                 DatabaseAccessorManager.getConfigurationDatabaseAccessor()
-                    .updateLoggingChannelId(event.getGuild(), (GuildMessageChannel) channel);
-            
-                /* Success */
-                event.getHook().sendMessageEmbeds(
-                    EmbedFactory.createSuccessEmbed("Logging Channel Updated", "The bot will now log messages in " + channel.getAsMention())
-                ).queue();
+                    .updateLoggingChannelId(event.getGuild(), (GuildMessageChannel) channel)
+                    .thenRun(() -> {
+                        /* Success */
+                        event.getHook().sendMessageEmbeds(
+                            EmbedFactory.createSuccessEmbed("Logging Channel Updated", "The bot will now log messages in " + channel.getAsMention())
+                        ).queue();
+                    })
+                    .exceptionally(Futures.replyFailure(event));
                 break;
             case "remove-channel":
                 /* Remove the logging channel */
                 DatabaseAccessorManager.getConfigurationDatabaseAccessor()
-                    .removeLoggingChannel(event.getGuild());
-            
-                /* Success */
-                event.getHook().sendMessageEmbeds(
-                    EmbedFactory.createSuccessEmbed("Logging Channel Removed", "The bot will no longer log messages")
-                ).queue();
+                    .removeLoggingChannel(event.getGuild())
+                    .thenRun(() -> {
+                        /* Success */
+                        event.getHook().sendMessageEmbeds(
+                            EmbedFactory.createSuccessEmbed("Logging Channel Removed", "The bot will no longer log messages")
+                        ).queue();
+                    })
+                    .exceptionally(Futures.replyFailure(event));
                 break;
             case "enable-logging": {
                 /* Check logging type exists */
@@ -89,12 +94,14 @@ public final class LoggingCommand extends BotCommand {
                 }
 
                 DatabaseAccessorManager.getConfigurationDatabaseAccessor()
-                    .enableLoggingType(event.getGuild(), loggingType);
-            
-                /* Success */
-                event.getHook().sendMessageEmbeds(
-                    EmbedFactory.createSuccessEmbed("Logging Type Enabled", "The bot will now log logs of type `" + type + "`")
-                ).queue();
+                    .enableLoggingType(event.getGuild(), loggingType)
+                    .thenRun(() -> {
+                        /* Success */
+                        event.getHook().sendMessageEmbeds(
+                            EmbedFactory.createSuccessEmbed("Logging Type Enabled", "The bot will now log logs of type `" + type + "`")
+                        ).queue();
+                    })
+                    .exceptionally(Futures.replyFailure(event));
                 break;
             }
             case "disable-logging": {
@@ -114,43 +121,47 @@ public final class LoggingCommand extends BotCommand {
                 }
 
                 DatabaseAccessorManager.getConfigurationDatabaseAccessor()
-                    .disableLoggingType(event.getGuild(), loggingType);
-            
-                /* Success */
-                event.getHook().sendMessageEmbeds(
-                    EmbedFactory.createSuccessEmbed("Logging Type Disabled", "The bot will no longer log logs of type `" + type + "`")
-                ).queue();
+                    .disableLoggingType(event.getGuild(), loggingType)
+                    .thenRun(() -> {
+                        /* Success */
+                        event.getHook().sendMessageEmbeds(
+                            EmbedFactory.createSuccessEmbed("Logging Type Disabled", "The bot will no longer log logs of type `" + type + "`")
+                        ).queue();
+                    })
+                    .exceptionally(Futures.replyFailure(event));
                 break;
             }
             case "show-config":
-                GuildLoggingChannel loggingChannel = GuildLoggingChannel
-                    .getGuildLoggingChannel(event.getGuild());
-
-                /* Create the logging fields */
-                Field[] fields = new Field[2];
-                fields[0] = new Field(
-                    "Logging Channel",
-                    loggingChannel.getLoggingChannel() == null ? "<none>" : loggingChannel.getLoggingChannel().getAsMention(),
-                    false);
+                GuildLoggingChannel
+                    .getGuildLoggingChannel(event.getGuild())
+                    .thenAccept(loggingChannel -> {
+                        /* Create the logging fields */
+                        Field[] fields = new Field[2];
+                        fields[0] = new Field(
+                            "Logging Channel",
+                            loggingChannel.getLoggingChannel() == null ? "<none>" : loggingChannel.getLoggingChannel().getAsMention(),
+                            false);
                 
-                /* Construct which logging types are enabled */
-                StringBuilder enabledLoggingTypes = new StringBuilder();
-                for (GuildLoggingChannel.LoggingEventType type : GuildLoggingChannel.LoggingEventType.values()) {
-                    if (loggingChannel.isLoggingTypeEnabled(type)) {
-                        enabledLoggingTypes.append(":green_circle: `" + type.name() + "`\n");
-                        continue;
-                    }
-                    enabledLoggingTypes.append(":red_circle: `" + type.name() + "`\n");
-                }
-                fields[1] = new Field("Enabled Logging Types", enabledLoggingTypes.toString(), false);
+                        /* Construct which logging types are enabled */
+                        StringBuilder enabledLoggingTypes = new StringBuilder();
+                        for (GuildLoggingChannel.LoggingEventType type : GuildLoggingChannel.LoggingEventType.values()) {
+                            if (loggingChannel.isLoggingTypeEnabled(type)) {
+                                enabledLoggingTypes.append(":green_circle: `" + type.name() + "`\n");
+                                continue;
+                            }
+                            enabledLoggingTypes.append(":red_circle: `" + type.name() + "`\n");
+                        }
+                        fields[1] = new Field("Enabled Logging Types", enabledLoggingTypes.toString(), false);
 
-                /* Send message */
-                event.getHook().sendMessageEmbeds(
-                    EmbedFactory.createGenericEmbed(
-                        ":gear: Logging Channel Config",
-                        "",
-                        fields)
-                ).queue();
+                        /* Send message */
+                        event.getHook().sendMessageEmbeds(
+                            EmbedFactory.createGenericEmbed(
+                                ":gear: Logging Channel Config",
+                                "",
+                                fields)
+                        ).queue();
+                    })
+                    .exceptionally(Futures.replyFailure(event));
                 break;
             default:
                 throw new RuntimeException("Unhandled /logging subcommand: " + event.getSubcommandName());
@@ -4,6 +4,7 @@ import me.grayingout.bot.commands.BotCommand;
 import me.grayingout.database.accessors.DatabaseAccessorManager;
 import me.grayingout.database.entities.GuildWelcomeMessage;
 import me.grayingout.util.EmbedFactory;
+import me.grayingout.util.Futures;
 import net.dv8tion.jda.api.Permission;
 import net.dv8tion.jda.api.entities.MessageEmbed.Field;
 import net.dv8tion.jda.api.entities.channel.Channel;
@@ -55,23 +56,27 @@ public final class WelcomeMessageCommand extends BotCommand {
                     .updateWelcomeChannelId(
                         event.getGuild(),
                         (GuildMessageChannel) event.getOption("channel").getAsChannel()
-                    );
-                
-                /* Success */
-                event.getHook().sendMessageEmbeds(
-                    EmbedFactory.createSuccessEmbed("Welcome Channel Updated", "The bot will now send welcome messages in " + channel.getAsMention())
-                ).queue();
+                    )
+                    .thenRun(() -> {
+                        /* Success */
+                        event.getHook().sendMessageEmbeds(
+                            EmbedFactory.createSuccessEmbed("Welcome Channel Updated", "The bot will now send welcome messages in " + channel.getAsMention())
+                        ).queue();
+                    })
+                    .exceptionally(Futures.replyFailure(event));
                 break;
             }
             case "remove-channel": {
                 DatabaseAccessorManager
                     .getConfigurationDatabaseAccessor()
-                    .removeWelcomeChannelId(event.getGuild());
-                
-                /* Success */
-                event.getHook().sendMessageEmbeds(
-                    EmbedFactory.createSuccessEmbed("Welcome Channel Updated", "The bot will no longer send welcome messages")
-                ).queue();
+                    .removeWelcomeChannelId(event.getGuild())
+                    .thenRun(() -> {
+                        /* Success */
+                        event.getHook().sendMessageEmbeds(
+                            EmbedFactory.createSuccessEmbed("Welcome Channel Updated", "The bot will no longer send welcome messages")
+                        ).queue();
+                    })
+                    .exceptionally(Futures.replyFailure(event));
                 break;
             }
             case "set-message": {
@@ -79,26 +84,30 @@ public final class WelcomeMessageCommand extends BotCommand {
 
                 DatabaseAccessorManager
                     .getConfigurationDatabaseAccessor()
-                    .setWelcomeMessage(event.getGuild(), welcomeMessage);
-                
-                /* Success */
-                event.getHook().sendMessageEmbeds(
-                    EmbedFactory.createSuccessEmbed("Welcome Message Updated", "The welcome message has been updated to `" + welcomeMessage + "`")
-                ).queue();
+                    .setWelcomeMessage(event.getGuild(), welcomeMessage)
+                    .thenRun(() -> {
+                        /* Success */
+                        event.getHook().sendMessageEmbeds(
+                            EmbedFactory.createSuccessEmbed("Welcome Message Updated", "The welcome message has been updated to `" + welcomeMessage + "`")
+                        ).queue();
+                    })
+                    .exceptionally(Futures.replyFailure(event));
                 break;
             }
             case "show-config": {
-                GuildWelcomeMessage welcomeMessage = GuildWelcomeMessage.getGuildWelcomeMessage(event.getGuild());
-                
-                Field[] fields = new Field[] {
-                    new Field("Channel", welcomeMessage.getWelcomeChannel() == null ? "<none>" : welcomeMessage.getWelcomeChannel().getAsMention(), false),
-                    new Field("Message", welcomeMessage.getMessage(), false)
-                };
-                
-                /* Success */
-                event.getHook().sendMessageEmbeds(
-                    EmbedFactory.createGenericEmbed(":gear: Welcome Message Config", "", fields)
-                ).queue();
+                GuildWelcomeMessage.getGuildWelcomeMessage(event.getGuild())
+                    .thenAccept(welcomeMessage -> {
+                        Field[] fields = new Field[] {
+                            new Field("Channel", welcomeMessage.getWelcomeChannel() == null ? "<none>" : welcomeMessage.getWelcomeChannel().getAsMention(), false),
+                            new Field("Message", welcomeMessage.getMessage(), false)
+                        };
+                        
+                        /* Success */
+                        event.getHook().sendMessageEmbeds(
+                            EmbedFactory.createGenericEmbed(":gear: Welcome Message Config", "", fields)
+                        ).queue();
+                    })
+                    .exceptionally(Futures.replyFailure(event));
                 break;
             }
             default:
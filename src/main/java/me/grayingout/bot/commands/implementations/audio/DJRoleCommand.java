@@ -3,6 +3,7 @@ package me.grayingout.bot.commands.implementations.audio;
 import me.grayingout.bot.commands.BotCommand;
 import me.grayingout.database.accessors.DatabaseAccessorManager;
 import me.grayingout.util.EmbedFactory;
+import me.grayingout.util.Futures;
 import net.dv8tion.jda.api.Permission;
 import net.dv8tion.jda.api.entities.Role;
 import net.dv8tion.jda.api.events.interaction.command.SlashCommandInteractionEvent;
@@ -39,35 +40,41 @@ public final class DJRoleCommand extends BotCommand {
                 Role role = event.getOption("role").getAsRole();
 
                 DatabaseAccessorManager.getConfigurationDatabaseAccessor()
-                    .updateGuildDJRole(event.getGuild(), role);
-                
-                /* Send response */
-                event.getHook().sendMessageEmbeds(EmbedFactory.createSuccessEmbed(
-                    "DJ Role Updated",
-                    "The DJ role has been set to " + role.getAsMention()
-                )).queue();
+                    .updateGuildDJRole(event.getGuild(), role)
+                    .thenRun(() -> {
+                        /* Send response */
+                        event.getHook().sendMessageEmbeds(EmbedFactory.createSuccessEmbed(
+                            "DJ Role Updated",
+                            "The DJ role has been set to " + role.getAsMention()
+                        )).queue();
+                    })
+                    .exceptionally(Futures.replyFailure(event));
                 break;
             }
             case "remove": {
                 DatabaseAccessorManager.getConfigurationDatabaseAccessor()
-                    .removeGuildDJRole(event.getGuild());
-            
-                /* Send response */
-                event.getHook().sendMessageEmbeds(EmbedFactory.createSuccessEmbed(
-                    "DJ Role Removed",
-                    "The DJ role has been removed"
-                )).queue();
+                    .removeGuildDJRole(event.getGuild())
+                    .thenRun(() -> {
+                        /* Send response */
+                        event.getHook().sendMessageEmbeds(EmbedFactory.createSuccessEmbed(
+                            "DJ Role Removed",
+                            "The DJ role has been removed"
+                        )).queue();
+                    })
+                    .exceptionally(Futures.replyFailure(event));
                 break;
             }
             case "get": {
-                Role role = DatabaseAccessorManager.getConfigurationDatabaseAccessor()
-                    .getGuildDJRole(event.getGuild());
-            
-                /* Send response */
-                event.getHook().sendMessageEmbeds(EmbedFactory.createSuccessEmbed(
-                    "DJ Role",
-                    role == null ? "There is currently no DJ role" : "The DJ role currently is " + role.getAsMention()
-                )).queue();
+                DatabaseAccessorManager.getConfigurationDatabaseAccessor()
+                    .getGuildDJRole(event.getGuild())
+                    .thenAccept(role -> {
+                        /* Send response */
+                        event.getHook().sendMessageEmbeds(EmbedFactory.createSuccessEmbed(
+                            "DJ Role",
+                            role == null ? "There is currently no DJ role" : "The DJ role currently is " + role.getAsMention()
+                        )).queue();
+                    })
+                    .exceptionally(Futures.replyFailure(event));
                 break;
             }
         }
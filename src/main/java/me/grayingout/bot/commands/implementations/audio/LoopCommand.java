@@ -5,6 +5,7 @@ import me.grayingout.bot.audioplayer.GuildAudioPlayerManager;
 import me.grayingout.bot.commands.BotCommand;
 import me.grayingout.util.Audio;
 import me.grayingout.util.EmbedFactory;
+import me.grayingout.util.Futures;
 import net.dv8tion.jda.api.events.interaction.command.SlashCommandInteractionEvent;
 import net.dv8tion.jda.api.interactions.commands.OptionType;
 import net.dv8tion.jda.api.interactions.commands.build.CommandData;
@@ -21,39 +22,41 @@ public final class LoopCommand extends BotCommand {
     @Override
     public void execute(SlashCommandInteractionEvent event) {
         /* Check member is a DJ */
-        if (!Audio.isMemberAValidDJ(event.getMember())) {
-            event.deferReply(true).queue();
-            event.getHook().sendMessageEmbeds(EmbedFactory.createNotADJEmbed()).queue();
-            return;
-        }
-        event.deferReply().queue();
+        Audio.isMemberAValidDJ(event.getMember()).thenAccept(isDJ -> {
+            if (!isDJ) {
+                event.deferReply(true).queue();
+                event.getHook().sendMessageEmbeds(EmbedFactory.createNotADJEmbed()).queue();
+                return;
+            }
+            event.deferReply().queue();
 
-        /* Check execution environment */
-        if (!Audio.checkValidCommandExecutionState(event, true)) {
-            return;
-        }
+            /* Check execution environment */
+            if (!Audio.checkValidCommandExecutionState(event, true)) {
+                return;
+            }
 
-        boolean enabled = event.getOption("enabled").getAsBoolean();
+            boolean enabled = event.getOption("enabled").getAsBoolean();
 
-        GuildAudioPlayer guildAudioPlayer = GuildAudioPlayerManager.getInstance()
-            .getGuildAudioPlayer(event.getGuild());
+            GuildAudioPlayer guildAudioPlayer = GuildAudioPlayerManager.getInstance()
+                .getGuildAudioPlayer(event.getGuild());
         
-        /* Enable */
-        if (enabled) {
-            guildAudioPlayer.enableLoop();
+            /* Enable */
+            if (enabled) {
+                guildAudioPlayer.enableLoop();
+                event.getHook().sendMessageEmbeds(EmbedFactory.createSuccessEmbed(
+                    "Loop Enabled",
+                    "The current or next playing track will now loop"
+                )).queue();
+                return;
+            }
+        
+            /* Disable */
+            guildAudioPlayer.disableLoop();
             event.getHook().sendMessageEmbeds(EmbedFactory.createSuccessEmbed(
-                "Loop Enabled",
-                "The current or next playing track will now loop"
+                "Loop Disable",
+                "The current track will no longer loop"
             )).queue();
-            return;
-        }
-        
-        /* Disable */
-        guildAudioPlayer.disableLoop();
-        event.getHook().sendMessageEmbeds(EmbedFactory.createSuccessEmbed(
-            "Loop Disable",
-            "The current track will no longer loop"
-        )).queue();
+        }).exceptionally(Futures.replyFailure(event));
     }
     
 }
@@ -5,6 +5,7 @@ import me.grayingout.bot.audioplayer.GuildAudioPlayerManager;
 import me.grayingout.bot.commands.BotCommand;
 import me.grayingout.util.Audio;
 import me.grayingout.util.EmbedFactory;
+import me.grayingout.util.Futures;
 import net.dv8tion.jda.api.events.interaction.command.SlashCommandInteractionEvent;
 import net.dv8tion.jda.api.interactions.commands.build.CommandData;
 import net.dv8tion.jda.api.interactions.commands.build.Commands;
@@ -23,31 +24,33 @@ public final class StopCommand extends BotCommand {
     @Override
     public void execute(SlashCommandInteractionEvent event) {
         /* Check member is a DJ */
-        if (!Audio.isMemberAValidDJ(event.getMember())) {
-            event.deferReply(true).queue();
-            event.getHook().sendMessageEmbeds(EmbedFactory.createNotADJEmbed()).queue();
-            return;
-        }
-
-        event.deferReply().queue();
-
-        /* Check the execution environment */
-        if (!Audio.checkValidCommandExecutionState(event, true)) {
-            return;
-        }
-
-        GuildAudioPlayer guildAudioPlayer = GuildAudioPlayerManager
-            .getInstance()
-            .getGuildAudioPlayer(event.getGuild());
+        Audio.isMemberAValidDJ(event.getMember()).thenAccept(isDJ -> {
+            if (!isDJ) {
+                event.deferReply(true).queue();
+                event.getHook().sendMessageEmbeds(EmbedFactory.createNotADJEmbed()).queue();
+                return;
+            }
+
+            event.deferReply().queue();
+
+            /* Check the execution environment */
+            if (!Audio.checkValidCommandExecutionState(event, true)) {
+                return;
+            }
+
+            GuildAudioPlayer guildAudioPlayer = GuildAudioPlayerManager
+                .getInstance()
+                .getGuildAudioPlayer(event.getGuild());
         
-        /* Stop playing and clear the queue */
-        guildAudioPlayer.stopPlaying();
-        guildAudioPlayer.clearQueue();
-
-        /* Response */
-        event.getHook().sendMessageEmbeds(EmbedFactory.createSuccessEmbed(
-            "Audio Stopped",
-            "The audio playing has been stopped and the queue has been cleared"
-        )).queue();
+            /* Stop playing and clear the queue */
+            guildAudioPlayer.stopPlaying();
+            guildAudioPlayer.clearQueue();
+
+            /* Response */
+            event.getHook().sendMessageEmbeds(EmbedFactory.createSuccessEmbed(
+                "Audio Stopped",
+                "The audio playing has been stopped and the queue has been cleared"
+            )).queue();
+        }).exceptionally(Futures.replyFailure(event));
     }
 }
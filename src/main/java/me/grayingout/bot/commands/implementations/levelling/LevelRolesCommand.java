@@ -8,6 +8,7 @@ import me.grayingout.bot.commands.BotCommand;
 import me.grayingout.database.accessors.DatabaseAccessorManager;
 import me.grayingout.database.entities.GuildLevelRole;
 import me.grayingout.util.EmbedFactory;
+import me.grayingout.util.Futures;
 import me.grayingout.util.SlashCommands;
 import net.dv8tion.jda.api.Permission;
 import net.dv8tion.jda.api.entities.MessageEmbed;
@@ -83,15 +84,18 @@ public final class LevelRolesCommand extends BotCommand {
                 }
 
                 /* Update the level */
-                DatabaseAccessorManager.getLevellingDatabaseAccessor().addGuildLevelRole(role, level);
-                
-                /* Send success */
-                event.getHook().sendMessageEmbeds(
-                    EmbedFactory.createSuccessEmbed(
-                        "Added Level Role",
-                        String.format("%s has been added as a role reward for level %s", role.getAsMention(), level)
-                    )
-                ).queue();
+                DatabaseAccessorManager.getLevellingDatabaseAccessor()
+                    .addGuildLevelRole(role, level)
+                    .thenRun(() -> {
+                        /* Send success */
+                        event.getHook().sendMessageEmbeds(
+                            EmbedFactory.createSuccessEmbed(
+                                "Added Level Role",
+                                String.format("%s has been added as a role reward for level %s", role.getAsMention(), level)
+                            )
+                        ).queue();
+                    })
+                    .exceptionally(Futures.replyFailure(event));
                 break;
             }
             case "remove": {
@@ -99,59 +103,64 @@ public final class LevelRolesCommand extends BotCommand {
                 Role role = event.getOption("role").getAsRole();
 
                 /* Delete the role */
-                DatabaseAccessorManager.getLevellingDatabaseAccessor().deleteGuildLevelRole(role.getIdLong());
-
-                /* Send response message */
-                event.getHook().sendMessageEmbeds(
-                    EmbedFactory.createSuccessEmbed("Removed Level Role", role.getAsMention() + " has been removed from any levels")
-                ).queue();
+                DatabaseAccessorManager.getLevellingDatabaseAccessor()
+                    .deleteGuildLevelRole(event.getGuild(), role.getIdLong())
+                    .thenRun(() -> {
+                        /* Send response message */
+                        event.getHook().sendMessageEmbeds(
+                            EmbedFactory.createSuccessEmbed("Removed Level Role", role.getAsMention() + " has been removed from any levels")
+                        ).queue();
+                    })
+                    .exceptionally(Futures.replyFailure(event));
                 break;
             }
             case "list": {
                 /* Get the roles */
-                List<GuildLevelRole> levelRoles = DatabaseAccessorManager
+                DatabaseAccessorManager
                     .getLevellingDatabaseAccessor()
-                    .getGuildLevelRoles(event.getGuild());
-            
-                /* Store the fields */
-                List<Field> fields = new ArrayList<>();
-
-                /* Sort the roles in order of required level in descending order */
-                levelRoles = levelRoles.stream()
-                    .sorted(new GuildLevelRole.GuildLevelRoleComparator(false))
-                    .collect(Collectors.toList());
+                    .getGuildLevelRoles(event.getGuild())
+                    .thenAccept(levelRoles -> {
+                        /* Store the fields */
+                        List<Field> fields = new ArrayList<>();
+
+                        /* Sort the roles in order of required level in descending order */
+                        levelRoles = levelRoles.stream()
+                            .sorted(new GuildLevelRole.GuildLevelRoleComparator(false))
+                            .collect(Collectors.toList());
                 
-                int previousRequiredLevel = -1;
-
-                /* This basically combines roles with same required level together */
-                for (GuildLevelRole levelRole : levelRoles) {
-                    if (levelRole.getRequiredLevel() != previousRequiredLevel) {
-                        previousRequiredLevel = levelRole.getRequiredLevel();
-                        fields.add(new Field(
-                            "Level: " + previousRequiredLevel,
-                            levelRole.getRole().getAsMention(),
-                            false
-                        ));
-                        continue;
-                    }
-
-                    Field oldField = fields.get(fields.size()-1);
-
-                    fields.set(fields.size()-1, new Field(
-                        oldField.getName(),
-                        oldField.getValue() + "\n" + levelRole.getRole().getAsMention(),
-                        oldField.isInline()
-                    ));
-                }
-
-                /* Create response embed */
-                MessageEmbed embed = EmbedFactory.createGenericEmbed(
-                    "🎭 Level Role Rewards",
-                    "The following roles are available at the following levels",
-                    fields.toArray(new Field[] {}));
+                        int previousRequiredLevel = -1;
+
+                        /* This basically combines roles with same required level together */
+                        for (GuildLevelRole levelRole : levelRoles) {
+                            if (levelRole.getRequiredLevel() != previousRequiredLevel) {
+                                previousRequiredLevel = levelRole.getRequiredLevel();
+                                fields.add(new Field(
+                                    "Level: " + previousRequiredLevel,
+                                    levelRole.getRole().getAsMention(),
+                                    false
+                                ));
+                                continue;
+                            }
+
+                            Field oldField = fields.get(fields.size()-1);
+
+                            fields.set(fields.size()-1, new Field(
+                                oldField.getName(),
+                                oldField.getValue() + "\n" + levelRole.getRole().getAsMention(),
+                                oldField.isInline()
+                            ));
+                        }
+
+                        /* Create response embed */
+                        MessageEmbed embed = EmbedFactory.createGenericEmbed(
+                            "🎭 Level Role Rewards",
+                            "The following roles are available at the following levels",
+                            fields.toArray(new Field[] {}));
                 
-                /* Send response */
-                event.getHook().sendMessageEmbeds(embed).queue();
+                        /* Send response */
+                        event.getHook().sendMessageEmbeds(embed).queue();
+                    })
+                    .exceptionally(Futures.replyFailure(event));
                 break;
             }
         }
@@ -1,11 +1,17 @@
 package me.grayingout.bot.commands.implementations.levelling;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
 
+import me.grayingout.bot.MemberDisplay;
+import me.grayingout.bot.MemberDisplayCache;
 import me.grayingout.bot.commands.BotCommand;
 import me.grayingout.database.accessors.DatabaseAccessorManager;
-import me.grayingout.database.entities.GuildMemberLevelExperience;
+import me.grayingout.database.entities.GuildLeaderboard;
 import me.grayingout.util.EmbedFactory;
+import me.grayingout.util.Futures;
 import me.grayingout.util.Levelling;
 import me.grayingout.util.SlashCommands;
 import net.dv8tion.jda.api.Permission;
@@ -29,13 +35,19 @@ public class LevelsCommand extends BotCommand {
      */
     private static final String PROGRESS_STRING_BASE = "----------";
 
+    /**
+     * The number of members on each page of the leaderboard
+     */
+    private static final int LEADERBOARD_PAGE_SIZE = 10;
+
     @Override
     public CommandData getCommandData() {
         return Commands.slash("levels", "View and set levels")
             .addSubcommands(
                 new SubcommandData("get", "Get a member's level")
                     .addOption(OptionType.USER, "member", "The member to get the level of", false),
-                new SubcommandData("top", "Get the top 5 levels in the guild"),
+                new SubcommandData("top", "Get the top levels in the guild")
+                    .addOption(OptionType.INTEGER, "page", "The page of the leaderboard to show", false),
                 new SubcommandData("set", "Set the level of a member")
                     .addOption(OptionType.USER, "member", "The member to get the level of", true)
                     .addOption(OptionType.INTEGER, "level", "The level to set to", true)
@@ -57,77 +69,122 @@ public class LevelsCommand extends BotCommand {
                     member = event.getMember();
                 }
 
-                /* Get level information */
-                GuildMemberLevelExperience experience = DatabaseAccessorManager
+                /* Get level information and rank */
+                DatabaseAccessorManager
                     .getLevellingDatabaseAccessor()
-                    .getGildMemberLevelExperience(member);
-                
-                /* Create fields */
-                Field[] fields = {
-                    new Field("Level", String.format(
-                        "%s (%s)",
-                        experience.getLevel(),
-                        experience.getExperience()
-                    ), false),
-                    new Field("Progress", getProgressString(
-                        experience.getCurrentLevelExperience(),
-                        experience.getNextLevelExperience(),
-                        experience.getExperience()
-                    ), false)
-                };
+                    .getGildMemberLevelExperience(member)
+                    .thenAcceptBoth(DatabaseAccessorManager.getLevellingDatabaseAccessor().getGuildLeaderboard(event.getGuild()), (experience, leaderboard) -> {
+                        int rank = leaderboard.getRank(member.getIdLong());
+
+                        /* Create fields */
+                        Field[] fields = {
+                            new Field("Level", String.format(
+                                "%s (%s)",
+                                experience.getLevel(),
+                                experience.getExperience()
+                            ), false),
+                            new Field("Rank", rank == -1
+                                ? "Unranked"
+                                : String.format("#%s of %s", rank, leaderboard.getSize()),
+                            false),
+                            new Field("Progress", getProgressString(
+                                experience.getCurrentLevelExperience(),
+                                experience.getNextLevelExperience(),
+                                experience.getExperience()
+                            ), false)
+                        };
                 
-                /* Send level report response */
-                event.getHook().sendMessageEmbeds(
-                    EmbedFactory.createGenericEmbed(
-                        "📈 Level Report for " + member.getUser().getAsTag() + " (" + member.getId() + ")",
-                        "",
-                        fields
-                    )
-                ).queue();
+                        /* Send level report response */
+                        event.getHook().sendMessageEmbeds(
+                            EmbedFactory.createGenericEmbed(
+                                "📈 Level Report for " + member.getUser().getAsTag() + " (" + member.getId() + ")",
+                                "",
+                                fields
+                            )
+                        ).queue();
+                    })
+                    .exceptionally(Futures.replyFailure(event));
                 break;
             }
             case "top": {
-                /* Get the top 5 members */
-                List<GuildMemberLevelExperience> experiences =
-                DatabaseAccessorManager.getLevellingDatabaseAccessor().getTopGuildMembers(event.getGuild());
-            
-                Field[] fields = new Field[5];
-                
-                /* Add members */
-                for (int i = 1; i <= 5; i++) {
-                    /* Get the place trophy */
-                    String trophy = i == 1 ? ":first_place:" : i == 2 ? ":second_place:" : i == 3 ? ":third_place:" : "";
-                    
-                    /* No one in position */
-                    if (i > experiences.size()) {
-                        /* Add empty field */
-                        fields[i-1] = new Field(
-                            trophy + " <vacant>",
-                            "*Could this be you?*",
-                            false
-                        );
-                        continue;
-                    }
-
-                    /* Get the member's experience */
-                    GuildMemberLevelExperience experience = experiences.get(i-1);
-
-                    /* Add level field */
-                    fields[i-1] = new Field(
-                        trophy + " " + experience.getLevel() + " (" + experience.getExperience() + ")",
-                        experience.getMember().getAsMention(),
-                        false
-                    );
+                /* Get the page to show */
+                Integer page = event.getOption("page") == null ? Integer.valueOf(1) : SlashCommands.safelyGetIntOption(event, "page");
+                if (page == null) {
+                    /* Invalid integer */
+                    event.getHook().sendMessageEmbeds(EmbedFactory.createInvalidIntegerOptionEmbed("page")).queue();
+                    return;
+                }
+
+                /* Check valid page */
+                if (page < 1) {
+                    event.getHook().sendMessageEmbeds(
+                        EmbedFactory.createWarningEmbed("Invalid Argument", "`page` must be greater than 0")
+                    ).queue();
+                    return;
                 }
 
-                /* Send top levels response */
-                event.getHook().sendMessageEmbeds(
-                    EmbedFactory.createGenericEmbed(
-                        "🏆 Top 5 Server Member Levels",
-                        "A list of the top 5 server members ordered by how much level experience they have",
-                        fields
-                    )
-                ).queue();
+                /* Get the members on the page */
+                DatabaseAccessorManager.getLevellingDatabaseAccessor().getGuildLeaderboard(event.getGuild())
+                    .thenCompose(leaderboard -> {
+                        int pageCount = Math.max(1, (leaderboard.getSize() + LEADERBOARD_PAGE_SIZE - 1) / LEADERBOARD_PAGE_SIZE);
+
+                        /* Page past the end of the leaderboard */
+                        if (page > pageCount) {
+                            event.getHook().sendMessageEmbeds(
+                                EmbedFactory.createWarningEmbed("Invalid Argument", "The leaderboard only has " + pageCount + " page(s)")
+                            ).queue();
+                            return CompletableFuture.<Void>completedFuture(null);
+                        }
+
+                        /* Resolve the members on the page in one batch */
+                        List<GuildLeaderboard.Entry> entries = leaderboard.getEntries((page - 1) * LEADERBOARD_PAGE_SIZE, LEADERBOARD_PAGE_SIZE);
+                        List<Long> userIds = entries.stream().map(GuildLeaderboard.Entry::getUserId).collect(Collectors.toList());
+
+                        return MemberDisplayCache.getInstance()
+                            .getMemberDisplays(event.getGuild(), userIds)
+                            .thenAccept(displays -> {
+                                List<Field> fields = new ArrayList<>();
+
+                                /* Add members */
+                                for (GuildLeaderboard.Entry entry : entries) {
+                                    /* Get the place trophy */
+                                    int rank = entry.getRank();
+                                    String trophy = rank == 1 ? ":first_place:" : rank == 2 ? ":second_place:" : rank == 3 ? ":third_place:" : "#" + rank;
+
+                                    /* Members that left are still ranked */
+                                    MemberDisplay display = displays.get(entry.getUserId());
+                                    String name = display.isPresent()
+                                        ? display.getAsMention()
+                                        : display.getAsMention() + " *(left the server)*";
+
+                                    /* Add level field */
+                                    fields.add(new Field(
+                                        trophy + " " + Levelling.getLevelFromExperience(entry.getExperience()) + " (" + entry.getExperience() + ")",
+                                        name,
+                                        false
+                                    ));
+                                }
+
+                                /* No one on the leaderboard */
+                                if (fields.isEmpty()) {
+                                    fields.add(new Field(
+                                        ":first_place: <vacant>",
+                                        "*Could this be you?*",
+                                        false
+                                    ));
+                                }
+
+                                /* Send top levels response */
+                                event.getHook().sendMessageEmbeds(
+                                    EmbedFactory.createGenericEmbed(
+                                        "🏆 Server Member Levels",
+                                        String.format("Server members ordered by how much level experience they have (page %s of %s)", page, pageCount),
+                                        fields.toArray(new Field[] {})
+                                    )
+                                ).queue();
+                            });
+                    })
+                    .exceptionally(Futures.replyFailure(event));
                 break;
             }
             case "set": {
@@ -160,12 +217,14 @@ public class LevelsCommand extends BotCommand {
 
                 /* Set the member's new level */
                 DatabaseAccessorManager.getLevellingDatabaseAccessor()
-                    .setGuildMemberLevelExperience(member, Levelling.getExperienceForLevel(level));
-
-                /* Send response message */
-                event.getHook().sendMessageEmbeds(
-                    EmbedFactory.createSuccessEmbed("Updated Members Level", "The member's level has been set to `" + level + "`")
-                ).queue();
+                    .setGuildMemberLevelExperience(member, Levelling.getExperienceForLevel(level))
+                    .thenRun(() -> {
+                        /* Send response message */
+                        event.getHook().sendMessageEmbeds(
+                            EmbedFactory.createSuccessEmbed("Updated Members Level", "The member's level has been set to `" + level + "`")
+                        ).queue();
+                    })
+                    .exceptionally(Futures.replyFailure(event));
                 break;
             }
         }
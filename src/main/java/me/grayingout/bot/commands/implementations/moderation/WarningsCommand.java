@@ -1,13 +1,14 @@
 package me.grayingout.bot.commands.implementations.moderation;
 
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
 
 import me.grayingout.bot.commands.BotCommand;
 import me.grayingout.bot.interactables.warningslist.WarningsListMessage;
 import me.grayingout.bot.interactables.warningslist.WarningsListMessageManager;
 import me.grayingout.database.accessors.DatabaseAccessorManager;
-import me.grayingout.database.entities.MemberWarning;
 import me.grayingout.util.EmbedFactory;
+import me.grayingout.util.Futures;
 import me.grayingout.util.SlashCommands;
 import me.grayingout.util.Warnings;
 import net.dv8tion.jda.api.Permission;
@@ -18,7 +19,6 @@ import net.dv8tion.jda.api.interactions.commands.OptionType;
 import net.dv8tion.jda.api.interactions.commands.build.CommandData;
 import net.dv8tion.jda.api.interactions.commands.build.Commands;
 import net.dv8tion.jda.api.interactions.commands.build.SubcommandData;
-import net.dv8tion.jda.api.utils.messages.MessageCreateData;
 
 /**
  * A slash command for giving out, removing, listing, and
@@ -58,33 +58,36 @@ public final class WarningsCommand extends BotCommand {
                 Member moderator = event.getMember();
                 
                 /* Check if reason provided */
-                String reason = "<no reason provided>";
-                if (event.getOption("reason") != null) {
-                    reason = event.getOption("reason").getAsString();
-                }
+                String reason = event.getOption("reason") == null
+                    ? "<no reason provided>"
+                    : event.getOption("reason").getAsString();
 
                 /* Warn the member */
-                MemberWarning warning = DatabaseAccessorManager.getWarningsDatabaseAccessor().putWarning(
+                DatabaseAccessorManager.getWarningsDatabaseAccessor().putWarning(
                     member,
                     moderator,
-                    reason);
-                
-                /* Check warning was put into the database */
-                if (warning != null) {
-                    /* Send DM */
-                    member.getUser().openPrivateChannel().complete().sendMessageEmbeds(Warnings.createDMWarningEmbed(member, moderator, reason)).queue();
+                    reason)
+                    .thenAccept(warning -> {
+                        /* Check warning was put into the database */
+                        if (warning != null) {
+                            /* Send DM */
+                            member.getUser().openPrivateChannel()
+                                .flatMap(channel -> channel.sendMessageEmbeds(Warnings.createDMWarningEmbed(member, moderator, reason)))
+                                .queue();
 
-                    /* Send success response */
-                    event.getHook().sendMessageEmbeds(
-                        Warnings.createWarningSuccessEmbed(member, moderator, reason, warning.getWarningId())
-                    ).queue();
-                    break;
-                }
-                
-                /* Send error response */
-                event.getHook().sendMessageEmbeds(
-                    EmbedFactory.createWarningEmbed("Database Access Error", "Failed to warn member. Contact the the bot developer.")
-                ).queue();
+                            /* Send success response */
+                            event.getHook().sendMessageEmbeds(
+                                Warnings.createWarningSuccessEmbed(member, moderator, reason, warning.getWarningId())
+                            ).queue();
+                            return;
+                        }
+                        
+                        /* Send error response */
+                        event.getHook().sendMessageEmbeds(
+                            EmbedFactory.createWarningEmbed("Database Access Error", "Failed to warn member. Contact the the bot developer.")
+                        ).queue();
+                    })
+                    .exceptionally(Futures.replyFailure(event));
                 break;
             }
             case "remove": {
@@ -114,20 +117,26 @@ public final class WarningsCommand extends BotCommand {
                 }
 
                 /* Check warning exists */
-                MemberWarning warning = DatabaseAccessorManager.getWarningsDatabaseAccessor().getMemberWarningById(member, id);
-                if (warning == null) {
-                    event.getHook().sendMessageEmbeds(
-                        EmbedFactory.createWarningEmbed("Invalid Id", "Warning not found for the provided id")
-                    ).queue();
-                    break;
-                }
-                
-                /* Send response message */
-                DatabaseAccessorManager.getWarningsDatabaseAccessor().deleteWarning(member, id);
-                
-                event.getHook().sendMessageEmbeds(
-                    EmbedFactory.createSuccessEmbed("Warning Removed", "Warning has been removed from member")
-                ).queue();
+                DatabaseAccessorManager.getWarningsDatabaseAccessor()
+                    .getMemberWarningById(member, id)
+                    .thenCompose(warning -> {
+                        if (warning == null) {
+                            event.getHook().sendMessageEmbeds(
+                                EmbedFactory.createWarningEmbed("Invalid Id", "Warning not found for the provided id")
+                            ).queue();
+                            return CompletableFuture.<Void>completedFuture(null);
+                        }
+
+                        return DatabaseAccessorManager.getWarningsDatabaseAccessor()
+                            .deleteWarning(member, id)
+                            .thenRun(() -> {
+                                /* Send response message */
+                                event.getHook().sendMessageEmbeds(
+                                    EmbedFactory.createSuccessEmbed("Warning Removed", "Warning has been removed from member")
+                                ).queue();
+                            });
+                    })
+                    .exceptionally(Futures.replyFailure(event));
                 break;
             }
             case "clear": {
@@ -141,12 +150,15 @@ public final class WarningsCommand extends BotCommand {
 
                 /* Clear the members warnings */
                 Member member = event.getOption("member").getAsMember();
-                DatabaseAccessorManager.getWarningsDatabaseAccessor().clearMemberWarnings(member);
-
-                /* Send success response */
-                event.getHook().sendMessageEmbeds(
-                    EmbedFactory.createSuccessEmbed("Cleared Warnings", "All warnings have been cleared for " + member.getAsMention())
-                ).queue();
+                DatabaseAccessorManager.getWarningsDatabaseAccessor()
+                    .clearMemberWarnings(member)
+                    .thenRun(() -> {
+                        /* Send success response */
+                        event.getHook().sendMessageEmbeds(
+                            EmbedFactory.createSuccessEmbed("Cleared Warnings", "All warnings have been cleared for " + member.getAsMention())
+                        ).queue();
+                    })
+                    .exceptionally(Futures.replyFailure(event));
                 break;
             }
             case "list": {
@@ -164,11 +176,14 @@ public final class WarningsCommand extends BotCommand {
                 }
 
                 /* Create the message data */
-                MessageCreateData data = WarningsListMessage.createWarningsListMessageData(member);
-                event.getHook().sendMessage(data).queue(m -> {
-                    /* Register message */
-                    WarningsListMessageManager.register(new WarningsListMessage(m, member));
-                });
+                WarningsListMessage.createWarningsListMessageData(member)
+                    .thenAccept(data -> {
+                        event.getHook().sendMessage(data).queue(m -> {
+                            /* Register message */
+                            WarningsListMessageManager.register(new WarningsListMessage(m, member));
+                        });
+                    })
+                    .exceptionally(Futures.replyFailure(event));
                 break;
             }
             default:
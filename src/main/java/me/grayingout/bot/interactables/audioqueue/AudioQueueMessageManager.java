@@ -1,10 +1,11 @@
 package me.grayingout.bot.interactables.audioqueue;
 
-import java.util.HashMap;
+import java.util.concurrent.ConcurrentHashMap;
 
 import me.grayingout.bot.audioplayer.GuildAudioPlayerManager;
 import me.grayingout.util.Audio;
 import me.grayingout.util.EmbedFactory;
+import me.grayingout.util.Futures;
 import net.dv8tion.jda.api.events.interaction.component.ButtonInteractionEvent;
 import net.dv8tion.jda.api.hooks.ListenerAdapter;
 
@@ -17,7 +18,7 @@ public final class AudioQueueMessageManager extends ListenerAdapter {
     /**
      * Stores the {@code AudioQueueMessage}s against their message long id
      */
-    private static final HashMap<Long, AudioQueueMessage> messages = new HashMap<>();
+    private static final ConcurrentHashMap<Long, AudioQueueMessage> messages = new ConcurrentHashMap<>();
 
     /**
      * Registers an {@code AudioQueueMessage} on the manager
@@ -54,17 +55,19 @@ public final class AudioQueueMessageManager extends ListenerAdapter {
             }
             case "audio_queue_clear": {
                 /* Check member is a DJ */
-                if (!Audio.isMemberAValidDJ(event.getMember())) {
-                    event.deferReply(true).queue();
-                    event.getHook().sendMessageEmbeds(EmbedFactory.createNotADJEmbed()).queue();
-                    break;
-                }
+                Audio.isMemberAValidDJ(event.getMember()).thenAccept(isDJ -> {
+                    if (!isDJ) {
+                        event.deferReply(true).queue();
+                        event.getHook().sendMessageEmbeds(EmbedFactory.createNotADJEmbed()).queue();
+                        return;
+                    }
 
-                event.deferEdit().queue();
-                if (messages.get(event.getMessageIdLong()) == null) break;
+                    event.deferEdit().queue();
+                    if (messages.get(event.getMessageIdLong()) == null) return;
 
-                GuildAudioPlayerManager.getInstance().getGuildAudioPlayer(event.getGuild()).clearQueue();
-                messages.get(event.getMessageIdLong()).refresh();
+                    GuildAudioPlayerManager.getInstance().getGuildAudioPlayer(event.getGuild()).clearQueue();
+                    messages.get(event.getMessageIdLong()).refresh();
+                }).exceptionally(Futures.replyFailure(event));
                 break;
             }
         }
@@ -1,6 +1,6 @@
 package me.grayingout.bot.interactables.playingaudio;
 
-import java.util.HashMap;
+import java.util.concurrent.ConcurrentHashMap;
 
 import net.dv8tion.jda.api.events.interaction.component.ButtonInteractionEvent;
 import net.dv8tion.jda.api.hooks.ListenerAdapter;
@@ -13,7 +13,7 @@ public final class PlayingAudioMessageManager extends ListenerAdapter {
     /**
      * Stores the {@code AudioQueueMessage}s against their message long id
      */
-    private static final HashMap<Long, PlayingAudioMessage> messages = new HashMap<>();
+    private static final ConcurrentHashMap<Long, PlayingAudioMessage> messages = new ConcurrentHashMap<>();
 
     /**
      * Registers an {@code AudioQueueMessage} on the manager
@@ -2,11 +2,18 @@ package me.grayingout.bot.interactables.warningslist;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 
+import me.grayingout.bot.MemberDisplay;
+import me.grayingout.bot.MemberDisplayCache;
 import me.grayingout.database.accessors.DatabaseAccessorManager;
 import me.grayingout.database.entities.MemberWarning;
 import me.grayingout.util.EmbedFactory;
+import me.grayingout.util.Futures;
 import me.grayingout.util.Paging;
 import net.dv8tion.jda.api.entities.Member;
 import net.dv8tion.jda.api.entities.Message;
@@ -91,35 +98,39 @@ public final class WarningsListMessage {
      */
     public final void showPage(int page) {
         /* Get the member's warnings */
-        List<MemberWarning> warnings = DatabaseAccessorManager.getWarningsDatabaseAccessor()
-        .getMemberWarnings(member);
-
-        /* Make sure page is within bounds */
-        int boundedPage = Paging.boundPage(page, WARNINGS_PAGE_SIZE, warnings.size());
-
-        /* Edit message */
-        message.editMessage(
-        new MessageEditBuilder()
-            .setEmbeds(createWarningsListMessageEmbed(member, warnings, boundedPage))
-            .setActionRow(getActionRowButtons(boundedPage, warnings.size()))
-            .build()
-        ).queue();
+        DatabaseAccessorManager.getWarningsDatabaseAccessor()
+        .getMemberWarnings(member)
+        .thenCompose(warnings -> {
+            /* Make sure page is within bounds */
+            int boundedPage = Paging.boundPage(page, WARNINGS_PAGE_SIZE, warnings.size());
+
+            return createWarningsListMessageEmbed(member, warnings, boundedPage).thenAccept(embed -> {
+                /* Edit message */
+                message.editMessage(
+                new MessageEditBuilder()
+                    .setEmbeds(embed)
+                    .setActionRow(getActionRowButtons(boundedPage, warnings.size()))
+                    .build()
+                ).queue();
+            });
+        })
+        .exceptionally(Futures::printFailure);
     }
 
     /**
      * Creates the {@code MessageCreateData} for a warnings list
      * 
      * @param member The member the list is for
-     * @return The {@code MessageCreateData}
+     * @return A future completed with the {@code MessageCreateData}
      */
-    public static final MessageCreateData createWarningsListMessageData(Member member) {
-        List<MemberWarning> warnings = DatabaseAccessorManager.getWarningsDatabaseAccessor()
-            .getMemberWarnings(member);
-
-        return new MessageCreateBuilder()
-            .setEmbeds(createWarningsListMessageEmbed(member, warnings, 1))
-            .setActionRow(getActionRowButtons(1, warnings.size()))
-            .build();
+    public static final CompletableFuture<MessageCreateData> createWarningsListMessageData(Member member) {
+        return DatabaseAccessorManager.getWarningsDatabaseAccessor()
+            .getMemberWarnings(member)
+            .thenCompose(warnings -> createWarningsListMessageEmbed(member, warnings, 1)
+                .thenApply(embed -> new MessageCreateBuilder()
+                    .setEmbeds(embed)
+                    .setActionRow(getActionRowButtons(1, warnings.size()))
+                    .build()));
     }
 
     /**
@@ -128,21 +139,53 @@ public final class WarningsListMessage {
      * @param member    The warned member
      * @param warnings  The warnings
      * @param page      The current page
-     * @return The built embed
+     * @return A future completed with the built embed
      */
-    private static final MessageEmbed createWarningsListMessageEmbed(Member member, List<MemberWarning> warnings, int page) {
+    private static final CompletableFuture<MessageEmbed> createWarningsListMessageEmbed(Member member, List<MemberWarning> warnings, int page) {
         /* Get indexes of the start and end of the page */
         int pageStartIndex = Paging.getPageStartIndex(page, WARNINGS_PAGE_SIZE, warnings.size());
         int pageEndIndex = Paging.getPageEndIndex(page, WARNINGS_PAGE_SIZE, warnings.size());
-        
+        List<MemberWarning> pageWarnings = warnings.subList(pageStartIndex, pageEndIndex);
+
+        /* Resolve the moderators on the page in one batch */
+        Set<Long> moderatorIds = new LinkedHashSet<>();
+        for (MemberWarning warning : pageWarnings) {
+            moderatorIds.add(warning.getModeratorId());
+        }
+
+        return MemberDisplayCache.getInstance()
+            .getMemberDisplays(member.getGuild(), moderatorIds)
+            .thenApply(moderators -> createWarningsListMessageEmbed(member, warnings, pageWarnings, moderators, page));
+    }
+
+    /**
+     * Creates an embed for a page of warnings once the
+     * moderators have been resolved
+     * 
+     * @param member       The warned member
+     * @param warnings     The warnings
+     * @param pageWarnings The warnings on the current page
+     * @param moderators   The moderators on the current page against their id
+     * @param page         The current page
+     * @return The built embed
+     */
+    private static final MessageEmbed createWarningsListMessageEmbed(
+            Member member,
+            List<MemberWarning> warnings,
+            List<MemberWarning> pageWarnings,
+            Map<Long, MemberDisplay> moderators,
+            int page) {
         ArrayList<Field> warningFields = new ArrayList<>();
         
         /* Add each field from the current page */
-        for (MemberWarning warning : warnings.subList(pageStartIndex, pageEndIndex)) {
+        for (MemberWarning warning : pageWarnings) {
+            /* Moderators that left are still shown by id */
+            String moderatorTag = moderators.get(warning.getModeratorId()).getTag();
+
             warningFields.add(new Field(
                 String.format(
                     ":pen_ballpoint: Warned by **%s** (%s)",
-                    warning.getModerator(member.getGuild()).getUser().getAsTag(),
+                    moderatorTag == null ? "Unknown User" : moderatorTag,
                     warning.getModeratorId()),
                 String.format(
                     "**Reason:** %s\n**Warned on:** %s\n[%s]",
@@ -0,0 +1,367 @@
+package me.grayingout.bot.journal;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+
+/**
+ * A single memory-mapped file of the message journal.
+ * <p>
+ * Records are only ever appended. Each record is written as its
+ * length, a CRC32 of its body and then the body, and a zero length
+ * marks the end of the written records. A record cut short by a crash
+ * fails its checksum when the segment is reopened, and everything
+ * from it onwards is ignored.
+ * <p>
+ * Only the ids and offsets of the records are kept on heap. This
+ * class is not thread-safe, the journal only uses it from its own
+ * thread
+ */
+final class JournalSegment {
+
+    /**
+     * Identifies a journal segment file
+     */
+    private static final int MAGIC = 0x4D4A524E;
+
+    /**
+     * The version of the segment format
+     */
+    private static final int VERSION = 1;
+
+    /**
+     * The size of the segment header
+     */
+    private static final int HEADER_SIZE = 8;
+
+    /**
+     * The size of the header before each record body
+     */
+    static final int RECORD_HEADER_SIZE = 8;
+
+    /**
+     * The sequence number of the segment, which orders
+     * segments from oldest to newest
+     */
+    private final long sequence;
+
+    /**
+     * The segment file
+     */
+    private final Path path;
+
+    /**
+     * The mapped segment file
+     */
+    private final MappedByteBuffer buffer;
+
+    /**
+     * The position the next record is written at
+     */
+    private int writePosition;
+
+    /**
+     * The message ids of the records, in the order written
+     */
+    private long[] ids;
+
+    /**
+     * The offsets of the records, in the order written
+     */
+    private int[] offsets;
+
+    /**
+     * The number of records in the segment
+     */
+    private int recordCount;
+
+    /**
+     * The smallest message id in the segment
+     */
+    private long minId;
+
+    /**
+     * The largest message id in the segment
+     */
+    private long maxId;
+
+    /**
+     * The latest time a record in the segment was written
+     */
+    private long maxWrittenAt;
+
+    /**
+     * Creates a new {@code JournalSegment}
+     *
+     * @param sequence The sequence number
+     * @param path     The segment file
+     * @param buffer   The mapped segment file
+     */
+    private JournalSegment(long sequence, Path path, MappedByteBuffer buffer) {
+        this.sequence = sequence;
+        this.path = path;
+        this.buffer = buffer;
+
+        ids = new long[1024];
+        offsets = new int[1024];
+        minId = Long.MAX_VALUE;
+        maxId = Long.MIN_VALUE;
+        maxWrittenAt = Long.MIN_VALUE;
+    }
+
+    /**
+     * Creates a new, empty segment file
+     *
+     * @param directory The journal directory
+     * @param sequence  The sequence number of the segment
+     * @param size      The size of the segment in bytes
+     * @return The segment
+     * @throws IOException If the file could not be created
+     */
+    static JournalSegment create(Path directory, long sequence, int size) throws IOException {
+        Path path = directory.resolve(fileName(sequence));
+        JournalSegment segment = new JournalSegment(sequence, path, map(path, size, true));
+
+        segment.buffer.putInt(0, MAGIC);
+        segment.buffer.putInt(4, VERSION);
+        segment.writePosition = HEADER_SIZE;
+
+        return segment;
+    }
+
+    /**
+     * Opens an existing segment file, rebuilding its index
+     * from the records that were fully written
+     *
+     * @param path     The segment file
+     * @param sequence The sequence number of the segment
+     * @return The segment, or {@code null} if it is not a journal segment
+     * @throws IOException If the file could not be read
+     */
+    static JournalSegment open(Path path, long sequence) throws IOException {
+        JournalSegment segment = new JournalSegment(sequence, path, map(path, (int) Files.size(path), false));
+
+        if (segment.buffer.capacity() < HEADER_SIZE
+                || segment.buffer.getInt(0) != MAGIC
+                || segment.buffer.getInt(4) != VERSION) {
+            return null;
+        }
+
+        CRC32 crc = new CRC32();
+        int position = HEADER_SIZE;
+        while (position + RECORD_HEADER_SIZE <= segment.buffer.capacity()) {
+            int length = segment.buffer.getInt(position);
+            if (length <= 0 || position + RECORD_HEADER_SIZE + length > segment.buffer.capacity()) {
+                break;
+            }
+
+            ByteBuffer body = segment.body(position, length);
+            crc.reset();
+            crc.update(body.duplicate());
+            if ((int) crc.getValue() != segment.buffer.getInt(position + 4)) {
+                break;
+            }
+
+            segment.index(MessageRecordCodec.readMessageId(body), MessageRecordCodec.readWrittenAt(body), position);
+            position += RECORD_HEADER_SIZE + length;
+        }
+
+        segment.writePosition = position;
+        return segment;
+    }
+
+    /**
+     * Appends a record body to the segment
+     *
+     * @param body The record body
+     * @return If the record fit in the segment
+     */
+    boolean append(ByteBuffer body) {
+        int length = body.remaining();
+        if (writePosition + RECORD_HEADER_SIZE + length > buffer.capacity()) {
+            return false;
+        }
+
+        CRC32 crc = new CRC32();
+        crc.update(body.duplicate());
+
+        int position = writePosition;
+        ByteBuffer target = buffer.duplicate();
+        target.position(position + RECORD_HEADER_SIZE);
+        target.put(body.duplicate());
+
+        /* The length goes in last, as a non-zero length is what marks the record as written */
+        buffer.putInt(position + 4, (int) crc.getValue());
+        buffer.putInt(position, length);
+
+        writePosition = position + RECORD_HEADER_SIZE + length;
+        index(MessageRecordCodec.readMessageId(body), MessageRecordCodec.readWrittenAt(body), position);
+        return true;
+    }
+
+    /**
+     * Gets the body of the newest record of a message in
+     * the segment
+     *
+     * @param messageId The id of the message
+     * @return The record body, or {@code null} if not in the segment
+     */
+    ByteBuffer find(long messageId) {
+        if (messageId < minId || messageId > maxId) {
+            return null;
+        }
+
+        for (int i = recordCount - 1; i >= 0; i--) {
+            if (ids[i] == messageId) {
+                return record(i);
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Gets the body of a record
+     *
+     * @param index The index of the record, in the order written
+     * @return The record body
+     */
+    ByteBuffer record(int index) {
+        int offset = offsets[index];
+        return body(offset, buffer.getInt(offset));
+    }
+
+    /**
+     * Gets the number of records in the segment
+     *
+     * @return The record count
+     */
+    int getRecordCount() {
+        return recordCount;
+    }
+
+    /**
+     * Gets the latest time a record in the segment was written
+     *
+     * @return The time in milliseconds, or {@link Long#MIN_VALUE} if empty
+     */
+    long getMaxWrittenAt() {
+        return maxWrittenAt;
+    }
+
+    /**
+     * Gets the sequence number of the segment
+     *
+     * @return The sequence number
+     */
+    long getSequence() {
+        return sequence;
+    }
+
+    /**
+     * Writes the mapped contents out to the file
+     */
+    void force() {
+        buffer.force();
+    }
+
+    /**
+     * Deletes the segment file. The mapping is released once
+     * the segment is garbage collected
+     *
+     * @throws IOException If the file could not be deleted
+     */
+    void delete() throws IOException {
+        Files.deleteIfExists(path);
+    }
+
+    /**
+     * Gets the file name of a segment
+     *
+     * @param sequence The sequence number of the segment
+     * @return The file name
+     */
+    static String fileName(long sequence) {
+        return String.format("segment-%020d.log", sequence);
+    }
+
+    /**
+     * Gets the sequence number from a segment file name
+     *
+     * @param fileName The file name
+     * @return The sequence number, or {@code -1} if not a segment file
+     */
+    static long parseSequence(String fileName) {
+        if (!fileName.startsWith("segment-") || !fileName.endsWith(".log")) {
+            return -1;
+        }
+
+        try {
+            return Long.parseLong(fileName.substring(8, fileName.length() - 4));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Gets a read-only view of a record body
+     *
+     * @param offset The offset of the record
+     * @param length The length of the body
+     * @return The body
+     */
+    private ByteBuffer body(int offset, int length) {
+        ByteBuffer body = buffer.asReadOnlyBuffer();
+        body.position(offset + RECORD_HEADER_SIZE);
+        body.limit(offset + RECORD_HEADER_SIZE + length);
+        return body.slice();
+    }
+
+    /**
+     * Adds a record to the on-heap index
+     *
+     * @param messageId The id of the message
+     * @param writtenAt When the record was written
+     * @param offset    The offset of the record
+     */
+    private void index(long messageId, long writtenAt, int offset) {
+        if (recordCount == ids.length) {
+            ids = Arrays.copyOf(ids, recordCount * 2);
+            offsets = Arrays.copyOf(offsets, recordCount * 2);
+        }
+
+        ids[recordCount] = messageId;
+        offsets[recordCount] = offset;
+        recordCount++;
+
+        minId = Math.min(minId, messageId);
+        maxId = Math.max(maxId, messageId);
+        maxWrittenAt = Math.max(maxWrittenAt, writtenAt);
+    }
+
+    /**
+     * Maps a segment file into memory
+     *
+     * @param path   The segment file
+     * @param size   The size to map
+     * @param create If the file should be created
+     * @return The mapped file
+     * @throws IOException If the file could not be mapped
+     */
+    private static MappedByteBuffer map(Path path, int size, boolean create) throws IOException {
+        StandardOpenOption[] options = create
+            ? new StandardOpenOption[] { StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE }
+            : new StandardOpenOption[] { StandardOpenOption.READ, StandardOpenOption.WRITE };
+
+        /* The mapping stays valid after the channel is closed */
+        try (FileChannel channel = FileChannel.open(path, options)) {
+            return channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        }
+    }
+}
@@ -0,0 +1,421 @@
+package me.grayingout.bot.journal;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import me.grayingout.App;
+import me.grayingout.bot.CachedMessage;
+import me.grayingout.lifecycle.LifecycleManager;
+import me.grayingout.lifecycle.ShutdownStage;
+import me.grayingout.logging.Logger;
+import me.grayingout.util.collections.ConcurrentLongObjectMap;
+import net.dv8tion.jda.api.utils.TimeUtil;
+
+/**
+ * An append-only, on-disk journal of message snapshots, so deleted
+ * messages can still be logged after they have left the
+ * {@code MessageCache}, or after the bot restarts.
+ * <p>
+ * The journal is split into memory-mapped segment files. New records
+ * are appended to the newest segment, and a new segment is started once
+ * it is full. Every guild has a retention window, set once its
+ * configuration is loaded, and nothing is journaled for a guild until
+ * then, as it may not be logging deleted messages. A compaction pass
+ * deletes segments with no records left inside their guild's window,
+ * and rewrites mostly expired segments so that only the live records
+ * are kept.
+ * <p>
+ * All reads and writes happen on the journal's own thread, so callers
+ * never wait on the disk
+ */
+public final class MessageJournal {
+
+    /**
+     * The logger
+     */
+    private static final Logger logger = Logger.getLogger(MessageJournal.class);
+
+    /**
+     * How often expired segments are compacted
+     */
+    private static final long COMPACTION_INTERVAL_MILLIS = TimeUnit.HOURS.toMillis(1);
+
+    /**
+     * The directory the segments are stored in
+     */
+    private final Path directory;
+
+    /**
+     * The size of each segment in bytes
+     */
+    private final int segmentSize;
+
+    /**
+     * The retention window of guilds logging deleted messages, which
+     * also keeps the records of guilds whose window is not set yet
+     */
+    private final long defaultRetentionMillis;
+
+    /**
+     * The retention window of each guild against the guild id
+     */
+    private final ConcurrentLongObjectMap<Long> guildRetention;
+
+    /**
+     * The segments, from oldest to newest. Only used from
+     * the journal thread
+     */
+    private final List<JournalSegment> segments;
+
+    /**
+     * Runs all reads, writes and compactions of the journal
+     */
+    private final ScheduledExecutorService executor;
+
+    /**
+     * Creates a new {@code MessageJournal}, reopening any
+     * segments already in the directory
+     *
+     * @param directory              The directory the segments are stored in
+     * @param segmentSize            The size of each segment in bytes
+     * @param defaultRetentionMillis The retention window of guilds logging deleted messages, in milliseconds
+     * @throws IOException If the existing segments could not be opened
+     */
+    public MessageJournal(Path directory, int segmentSize, long defaultRetentionMillis) throws IOException {
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.defaultRetentionMillis = defaultRetentionMillis;
+
+        guildRetention = new ConcurrentLongObjectMap<>(64);
+        segments = new ArrayList<>();
+        open();
+
+        executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "message-journal");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.scheduleWithFixedDelay(this::compactNow,
+            COMPACTION_INTERVAL_MILLIS, COMPACTION_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+
+        /* Make sure appended records reach the disk when the bot is stopped */
+        LifecycleManager.getInstance().register(ShutdownStage.FLUSH_CACHES, "message-journal", this::close);
+    }
+
+    /**
+     * Gets the {@code MessageJournal} instance
+     *
+     * @return The instance, or {@code null} if the journal could not be opened
+     */
+    public static final MessageJournal getInstance() {
+        return InstanceHolder.INSTANCE;
+    }
+
+    /**
+     * Appends a message snapshot to the journal, unless the guild
+     * is not retaining messages, or its retention window is not set
+     *
+     * @param message The message snapshot
+     */
+    public final void append(CachedMessage message) {
+        if (executor.isShutdown()) {
+            return;
+        }
+
+        /* Until its configuration is loaded, the guild may not be logging deleted messages */
+        Long retention = guildRetention.get(message.getGuildIdLong());
+        if (retention == null || retention <= 0) {
+            return;
+        }
+
+        /* Encode on the calling thread, only the copy into the segment is serialised */
+        ByteBuffer body = MessageRecordCodec.encode(message, System.currentTimeMillis());
+        executor.execute(() -> appendNow(body));
+    }
+
+    /**
+     * Gets the newest snapshot of a message in the journal, if it
+     * is still inside its guild's retention window. Messages appended
+     * before this is called are always found
+     *
+     * @param id The id of the message
+     * @return A future completed with the message, or {@code null} if not present
+     */
+    public final CompletableFuture<CachedMessage> getMessageByIdLong(long id) {
+        if (executor.isShutdown()) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        return CompletableFuture.supplyAsync(() -> find(id), executor);
+    }
+
+    /**
+     * Sets the retention window of a guild. A window of zero
+     * stops the guild's messages being journaled
+     *
+     * @param guildId         The id of the guild
+     * @param retentionMillis The retention window in milliseconds
+     */
+    public final void setGuildRetention(long guildId, long retentionMillis) {
+        guildRetention.put(guildId, retentionMillis);
+    }
+
+    /**
+     * Gets the retention window of a guild's journaled records.
+     * Until the guild's window is set, records journaled before
+     * a restart are kept for the default window
+     *
+     * @param guildId The id of the guild
+     * @return The retention window in milliseconds
+     */
+    public final long getGuildRetention(long guildId) {
+        Long retention = guildRetention.get(guildId);
+        return retention == null ? defaultRetentionMillis : retention;
+    }
+
+    /**
+     * Gets the retention window of guilds logging deleted messages
+     *
+     * @return The retention window in milliseconds
+     */
+    public final long getDefaultRetention() {
+        return defaultRetentionMillis;
+    }
+
+    /**
+     * Runs a compaction pass now, rather than waiting
+     * for the next scheduled one
+     *
+     * @return A future completed once the pass has finished
+     */
+    public final CompletableFuture<Void> compact() {
+        return CompletableFuture.runAsync(this::compactNow, executor);
+    }
+
+    /**
+     * Stops the journal once the queued appends have been
+     * written, and forces the newest segment out to disk
+     */
+    public final void close() {
+        executor.shutdown();
+        try {
+            executor.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        if (!segments.isEmpty()) {
+            segments.get(segments.size() - 1).force();
+        }
+    }
+
+    /**
+     * Opens the segments already in the journal directory
+     *
+     * @throws IOException If the segments could not be opened
+     */
+    private void open() throws IOException {
+        Files.createDirectories(directory);
+
+        List<Long> sequences = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "segment-*.log")) {
+            for (Path file : files) {
+                long sequence = JournalSegment.parseSequence(file.getFileName().toString());
+                if (sequence >= 0) {
+                    sequences.add(sequence);
+                }
+            }
+        }
+        sequences.sort(null);
+
+        for (long sequence : sequences) {
+            JournalSegment segment = JournalSegment.open(directory.resolve(JournalSegment.fileName(sequence)), sequence);
+            if (segment == null) {
+                logger.warn("Skipping unrecognised message journal segment", "segment", sequence);
+                continue;
+            }
+            segments.add(segment);
+        }
+    }
+
+    /**
+     * Appends a record body to the newest segment, starting
+     * a new segment if it is full
+     *
+     * @param body The record body
+     */
+    private void appendNow(ByteBuffer body) {
+        try {
+            if (!write(body)) {
+                logger.warn("Message is too large for the message journal", "message", MessageRecordCodec.readMessageId(body), "bytes", body.remaining());
+            }
+        } catch (IOException e) {
+            logger.error("Failed to append to the message journal", e);
+        }
+    }
+
+    /**
+     * Writes a record body to the newest segment, starting
+     * a new segment if it is full
+     *
+     * @param body The record body
+     * @return If the record was written, which it is not if
+     *         it is too large for a segment
+     * @throws IOException If a new segment could not be started
+     */
+    private boolean write(ByteBuffer body) throws IOException {
+        if (!segments.isEmpty() && segments.get(segments.size() - 1).append(body)) {
+            return true;
+        }
+        return startSegment().append(body);
+    }
+
+    /**
+     * Seals the newest segment and starts a new one
+     *
+     * @return The new segment
+     * @throws IOException If the segment could not be created
+     */
+    private JournalSegment startSegment() throws IOException {
+        long sequence = 0;
+        if (!segments.isEmpty()) {
+            JournalSegment sealed = segments.get(segments.size() - 1);
+            sealed.force();
+            sequence = sealed.getSequence() + 1;
+        }
+
+        JournalSegment segment = JournalSegment.create(directory, sequence, segmentSize);
+        segments.add(segment);
+        return segment;
+    }
+
+    /**
+     * Finds the newest snapshot of a message
+     *
+     * @param id The id of the message
+     * @return The message, or {@code null} if not present or expired
+     */
+    private CachedMessage find(long id) {
+        /* A message can only be written after it was created */
+        long createdAt = (id >>> TimeUtil.TIMESTAMP_OFFSET) + TimeUtil.DISCORD_EPOCH;
+
+        ByteBuffer newest = null;
+        for (int i = segments.size() - 1; i >= 0; i--) {
+            JournalSegment segment = segments.get(i);
+            if (segment.getMaxWrittenAt() < createdAt) {
+                continue;
+            }
+
+            /* Compaction can move an older snapshot into a newer segment */
+            ByteBuffer body = segment.find(id);
+            if (body != null && (newest == null
+                    || MessageRecordCodec.readWrittenAt(body) > MessageRecordCodec.readWrittenAt(newest))) {
+                newest = body;
+            }
+        }
+
+        if (newest == null || isExpired(newest, System.currentTimeMillis())) {
+            return null;
+        }
+
+        return MessageRecordCodec.decode(newest);
+    }
+
+    /**
+     * Returns if a record has left its guild's retention window
+     *
+     * @param body The record body
+     * @param now  The current time in milliseconds
+     * @return If it has expired
+     */
+    private boolean isExpired(ByteBuffer body, long now) {
+        return now - MessageRecordCodec.readWrittenAt(body) > getGuildRetention(MessageRecordCodec.readGuildId(body));
+    }
+
+    /**
+     * Deletes the segments with no live records, and moves the
+     * live records out of segments that are mostly expired
+     */
+    private void compactNow() {
+        long now = System.currentTimeMillis();
+
+        /* Take a snapshot, as rewriting appends to the newest segment */
+        List<JournalSegment> sealed = new ArrayList<>(segments.subList(0, Math.max(0, segments.size() - 1)));
+        for (JournalSegment segment : sealed) {
+            List<ByteBuffer> live = new ArrayList<>();
+            for (int i = 0; i < segment.getRecordCount(); i++) {
+                ByteBuffer body = segment.record(i);
+                if (!isExpired(body, now)) {
+                    live.add(body);
+                }
+            }
+
+            /* Leave segments that are still mostly live */
+            if (live.size() * 2 > segment.getRecordCount()) {
+                continue;
+            }
+
+            /* Keep the segment unless every live record is on disk elsewhere */
+            try {
+                for (ByteBuffer body : live) {
+                    if (!write(body)) {
+                        throw new IOException("Record of message " + MessageRecordCodec.readMessageId(body) + " no longer fits in a segment");
+                    }
+                }
+                segments.get(segments.size() - 1).force();
+            } catch (IOException | UncheckedIOException e) {
+                logger.error("Failed to move live records out of message journal segment", e, "segment", segment.getSequence());
+                return;
+            }
+
+            try {
+                segment.delete();
+            } catch (IOException e) {
+                logger.warn("Failed to delete message journal segment", e, "segment", segment.getSequence());
+                continue;
+            }
+            segments.remove(segment);
+        }
+    }
+
+    /**
+     * Lazily opens the {@code MessageJournal} instance the
+     * first time it is used
+     */
+    private static final class InstanceHolder {
+
+        /**
+         * The {@code MessageJournal} instance
+         */
+        private static final MessageJournal INSTANCE = create();
+
+        /**
+         * Opens the journal configured in the environment
+         *
+         * @return The journal, or {@code null} if it could not be opened
+         */
+        private static MessageJournal create() {
+            try {
+                return new MessageJournal(
+                    Paths.get(App.env.get("MESSAGE_JOURNAL_DIRECTORY", "message-journal")),
+                    Integer.parseInt(App.env.get("MESSAGE_JOURNAL_SEGMENT_MB", "64")) << 20,
+                    TimeUnit.DAYS.toMillis(Long.parseLong(App.env.get("MESSAGE_JOURNAL_RETENTION_DAYS", "30")))
+                );
+            } catch (IOException e) {
+                logger.error("Failed to open the message journal, deleted messages will not be persisted", e);
+                return null;
+            }
+        }
+    }
+}
@@ -0,0 +1,222 @@
+package me.grayingout.bot.journal;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import me.grayingout.bot.CachedMessage;
+import net.dv8tion.jda.api.EmbedBuilder;
+import net.dv8tion.jda.api.entities.MessageEmbed;
+import net.dv8tion.jda.api.utils.data.DataArray;
+import net.dv8tion.jda.api.utils.data.DataObject;
+
+/**
+ * Encodes message snapshots as journal record bodies, and
+ * decodes them again.
+ * <p>
+ * A body starts with the message id, the guild id and the time
+ * it was written, so they can be read without decoding the rest
+ */
+final class MessageRecordCodec {
+
+    /**
+     * The offset of the message id in a body
+     */
+    private static final int MESSAGE_ID_OFFSET = 0;
+
+    /**
+     * The offset of the guild id in a body
+     */
+    private static final int GUILD_ID_OFFSET = 8;
+
+    /**
+     * The offset of the written time in a body
+     */
+    private static final int WRITTEN_AT_OFFSET = 16;
+
+    /**
+     * Not instantiable
+     */
+    private MessageRecordCodec() {}
+
+    /**
+     * Encodes a message snapshot as a record body
+     *
+     * @param message   The message snapshot
+     * @param writtenAt When the record is written, in milliseconds
+     * @return The record body
+     */
+    static ByteBuffer encode(CachedMessage message, long writtenAt) {
+        byte[] authorTag = message.getAuthorTag().getBytes(StandardCharsets.UTF_8);
+        byte[] content = message.getContentRaw().getBytes(StandardCharsets.UTF_8);
+
+        String[] attachmentUrls = message.getAttachmentUrls();
+        byte[][] attachments = new byte[attachmentUrls.length][];
+        int size = 7 * 8 + 2 + authorTag.length + 4 + content.length + 2 + 2;
+        for (int i = 0; i < attachments.length; i++) {
+            attachments[i] = attachmentUrls[i].getBytes(StandardCharsets.UTF_8);
+            size += 2 + attachments[i].length;
+        }
+
+        List<MessageEmbed> messageEmbeds = message.getEmbeds();
+        byte[][] embeds = new byte[messageEmbeds.size()][];
+        for (int i = 0; i < embeds.length; i++) {
+            embeds[i] = messageEmbeds.get(i).toData().toJson();
+            size += 4 + embeds[i].length;
+        }
+
+        ByteBuffer body = ByteBuffer.allocate(size);
+        body.putLong(message.getIdLong());
+        body.putLong(message.getGuildIdLong());
+        body.putLong(writtenAt);
+        body.putLong(message.getChannelIdLong());
+        body.putLong(message.getAuthorIdLong());
+        body.putLong(message.getCreatedAt());
+        body.putLong(message.getEditedAt());
+
+        body.putShort((short) authorTag.length);
+        body.put(authorTag);
+        body.putInt(content.length);
+        body.put(content);
+
+        body.putShort((short) attachments.length);
+        for (byte[] attachment : attachments) {
+            body.putShort((short) attachment.length);
+            body.put(attachment);
+        }
+
+        body.putShort((short) embeds.length);
+        for (byte[] embed : embeds) {
+            body.putInt(embed.length);
+            body.put(embed);
+        }
+
+        body.flip();
+        return body;
+    }
+
+    /**
+     * Decodes a record body back into a message snapshot
+     *
+     * @param body The record body
+     * @return The message snapshot
+     */
+    static CachedMessage decode(ByteBuffer body) {
+        ByteBuffer in = body.duplicate();
+
+        long messageId = in.getLong();
+        long guildId = in.getLong();
+        in.getLong();
+        long channelId = in.getLong();
+        long authorId = in.getLong();
+        long createdAt = in.getLong();
+        long editedAt = in.getLong();
+
+        String authorTag = new String(read(in, in.getShort()), StandardCharsets.UTF_8);
+        byte[] content = read(in, in.getInt());
+
+        String[] attachmentUrls = new String[in.getShort()];
+        for (int i = 0; i < attachmentUrls.length; i++) {
+            attachmentUrls[i] = new String(read(in, in.getShort()), StandardCharsets.UTF_8);
+        }
+
+        int embedCount = in.getShort();
+        List<MessageEmbed> embeds = embedCount == 0 ? Collections.<MessageEmbed>emptyList() : new ArrayList<>(embedCount);
+        for (int i = 0; i < embedCount; i++) {
+            MessageEmbed embed = decodeEmbed(DataObject.fromJson(read(in, in.getInt())));
+            if (embed != null) {
+                embeds.add(embed);
+            }
+        }
+
+        return new CachedMessage(messageId, guildId, channelId, authorId, authorTag,
+            content, attachmentUrls, embeds, createdAt, editedAt);
+    }
+
+    /**
+     * Reads the message id of a record body
+     *
+     * @param body The record body
+     * @return The message id
+     */
+    static long readMessageId(ByteBuffer body) {
+        return body.getLong(body.position() + MESSAGE_ID_OFFSET);
+    }
+
+    /**
+     * Reads the guild id of a record body
+     *
+     * @param body The record body
+     * @return The guild id
+     */
+    static long readGuildId(ByteBuffer body) {
+        return body.getLong(body.position() + GUILD_ID_OFFSET);
+    }
+
+    /**
+     * Reads when a record body was written
+     *
+     * @param body The record body
+     * @return The time in milliseconds
+     */
+    static long readWrittenAt(ByteBuffer body) {
+        return body.getLong(body.position() + WRITTEN_AT_OFFSET);
+    }
+
+    /**
+     * Reads a number of bytes
+     *
+     * @param in     The buffer to read from
+     * @param length The number of bytes
+     * @return The bytes
+     */
+    private static byte[] read(ByteBuffer in, int length) {
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return bytes;
+    }
+
+    /**
+     * Rebuilds an embed from its JSON form. Bots can only send
+     * rich embeds, so everything is rebuilt as a rich embed
+     *
+     * @param data The embed JSON
+     * @return The embed, or {@code null} if nothing could be rebuilt
+     */
+    private static MessageEmbed decodeEmbed(DataObject data) {
+        EmbedBuilder builder = new EmbedBuilder()
+            .setTitle(data.getString("title", null), data.getString("url", null))
+            .setDescription(data.getString("description", null));
+
+        if (data.hasKey("color") && !data.isNull("color")) {
+            builder.setColor(data.getInt("color"));
+        }
+
+        if (data.hasKey("timestamp") && !data.isNull("timestamp")) {
+            builder.setTimestamp(OffsetDateTime.parse(data.getString("timestamp")));
+        }
+
+        data.optObject("author").ifPresent(author -> builder.setAuthor(
+            author.getString("name", null),
+            author.getString("url", null),
+            author.getString("icon_url", null)
+        ));
+        data.optObject("footer").ifPresent(footer -> builder.setFooter(
+            footer.getString("text", null),
+            footer.getString("icon_url", null)
+        ));
+        data.optObject("image").ifPresent(image -> builder.setImage(image.getString("url", null)));
+        data.optObject("thumbnail").ifPresent(thumbnail -> builder.setThumbnail(thumbnail.getString("url", null)));
+
+        DataArray fields = data.optArray("fields").orElseGet(DataArray::empty);
+        for (int i = 0; i < fields.length(); i++) {
+            DataObject field = fields.getObject(i);
+            builder.addField(field.getString("name", ""), field.getString("value", ""), field.getBoolean("inline", false));
+        }
+
+        return builder.isEmpty() ? null : builder.build();
+    }
+}
@@ -0,0 +1,47 @@
+package me.grayingout.bot.listeners;
+
+import me.grayingout.database.accessors.DatabaseAccessorManager;
+import me.grayingout.util.Futures;
+import net.dv8tion.jda.api.events.guild.GuildJoinEvent;
+import net.dv8tion.jda.api.events.guild.GuildLeaveEvent;
+import net.dv8tion.jda.api.events.guild.GuildReadyEvent;
+import net.dv8tion.jda.api.hooks.ListenerAdapter;
+
+/**
+ * Listeners for the guild configuration and level role caches
+ */
+public final class ConfigurationListeners extends ListenerAdapter {
+
+    @Override
+    public void onGuildReady(GuildReadyEvent event) {
+        /* Load each guild as it is ready, rather than on its first message */
+        warmCaches(event.getGuild().getIdLong());
+    }
+
+    @Override
+    public void onGuildJoin(GuildJoinEvent event) {
+        warmCaches(event.getGuild().getIdLong());
+    }
+
+    @Override
+    public void onGuildLeave(GuildLeaveEvent event) {
+        /* Nothing will read the guild's configuration anymore */
+        DatabaseAccessorManager.getConfigurationDatabaseAccessor().getConfigurationCache()
+            .invalidate(event.getGuild().getIdLong());
+    }
+
+    /**
+     * Loads the configuration and level roles of a guild into
+     * their caches in the background
+     * 
+     * @param guildId The id of the guild
+     */
+    private static final void warmCaches(long guildId) {
+        DatabaseAccessorManager.getConfigurationDatabaseAccessor().getConfigurationCache()
+            .get(guildId)
+            .exceptionally(Futures::printFailure);
+        DatabaseAccessorManager.getLevellingDatabaseAccessor().getLevelRoleIndexCache()
+            .get(guildId)
+            .exceptionally(Futures::printFailure);
+    }
+}
@@ -1,14 +1,37 @@
 package me.grayingout.bot.listeners;
 
+import java.util.concurrent.CompletableFuture;
+
+import me.grayingout.bot.GuildEventFilter;
+import me.grayingout.bot.cache.RecentlyActiveMemberPolicy;
 import me.grayingout.database.accessors.DatabaseAccessorManager;
+import me.grayingout.database.entities.GuildLevelRoleIndex;
+import me.grayingout.util.Futures;
 import me.grayingout.util.Levelling;
+import net.dv8tion.jda.api.entities.Guild;
+import net.dv8tion.jda.api.events.GenericEvent;
+import net.dv8tion.jda.api.events.guild.GuildLeaveEvent;
 import net.dv8tion.jda.api.events.message.MessageReceivedEvent;
+import net.dv8tion.jda.api.events.role.RoleDeleteEvent;
 import net.dv8tion.jda.api.hooks.ListenerAdapter;
 
 /**
- * Listeners for the levelling system
+ * Listeners for the levelling system. Every guild earns experience,
+ * but deleted roles are skipped in guilds without level roles
  */
-public class LevellingListeners extends ListenerAdapter {
+public class LevellingListeners extends ListenerAdapter implements GuildEventFilter {
+
+    @Override
+    public boolean isEnabled(Guild guild, GenericEvent event) {
+        if (!(event instanceof RoleDeleteEvent)) {
+            return true;
+        }
+
+        /* Until the level roles are loaded, the listener checks them */
+        GuildLevelRoleIndex levelRoles = DatabaseAccessorManager.getLevellingDatabaseAccessor()
+            .getLevelRoleIndexCache().getIfLoaded(guild.getIdLong());
+        return levelRoles == null || !levelRoles.isEmpty();
+    }
     
     @Override
     public void onMessageReceived(MessageReceivedEvent event) {
@@ -27,19 +50,45 @@ public class LevellingListeners extends ListenerAdapter {
             return;
         }
 
+        /* Keep the member cached while they chat, for their level roles */
+        RecentlyActiveMemberPolicy.getInstance().markActive(event.getGuild(), event.getAuthor().getIdLong());
+
         /* Grant experience for the message */
-        int newLevel = DatabaseAccessorManager
+        DatabaseAccessorManager
             .getLevellingDatabaseAccessor()
-            .addExperienceToGuildMember(event.getMember(), 1);
-        
-        if (newLevel != -1) {
-            /* New level! */
-            event.getChannel().sendMessage(
-                ":confetti_ball: Congratulations " + event.getMember().getAsMention() + ". You advanced to level " + newLevel + "!"
-            ).queue();
-
-            /* Update their roles */
-            Levelling.updateMemberLevelRoles(event.getMember());
-        }
+            .addExperienceToGuildMember(event.getMember(), 1)
+            .thenCompose(newLevel -> {
+                if (newLevel == -1) {
+                    return CompletableFuture.<Void>completedFuture(null);
+                }
+
+                /* New level! */
+                event.getChannel().sendMessage(
+                    ":confetti_ball: Congratulations " + event.getMember().getAsMention() + ". You advanced to level " + newLevel + "!"
+                ).queue();
+
+                /* Update their roles */
+                return Levelling.updateMemberLevelRoles(event.getMember(), newLevel);
+            })
+            .exceptionally(Futures::printFailure);
+    }
+
+    @Override
+    public void onRoleDelete(RoleDeleteEvent event) {
+        /* Stop rewarding a deleted role */
+        DatabaseAccessorManager
+            .getLevellingDatabaseAccessor()
+            .deleteGuildLevelRole(event.getGuild(), event.getRole().getIdLong())
+            .exceptionally(Futures::printFailure);
+    }
+
+    @Override
+    public void onGuildLeave(GuildLeaveEvent event) {
+        /* Nothing will read the guild's level roles or leaderboard anymore */
+        DatabaseAccessorManager.getLevellingDatabaseAccessor().getLevelRoleIndexCache()
+            .invalidate(event.getGuild().getIdLong());
+        DatabaseAccessorManager.getLevellingDatabaseAccessor()
+            .invalidateGuildLeaderboard(event.getGuild().getIdLong());
+        RecentlyActiveMemberPolicy.getInstance().forgetGuild(event.getGuild().getIdLong());
     }
 }
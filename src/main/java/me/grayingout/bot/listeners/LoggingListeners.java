@@ -1,10 +1,19 @@
 package me.grayingout.bot.listeners;
 
+import me.grayingout.bot.GuildEventFilter;
+import me.grayingout.database.accessors.DatabaseAccessorManager;
+import me.grayingout.database.entities.GuildConfiguration;
 import me.grayingout.database.entities.GuildLoggingChannel;
+import me.grayingout.database.entities.GuildLoggingChannel.LoggingEventType;
+import me.grayingout.util.Futures;
+import net.dv8tion.jda.api.entities.Guild;
+import net.dv8tion.jda.api.events.GenericEvent;
 import net.dv8tion.jda.api.events.channel.ChannelCreateEvent;
 import net.dv8tion.jda.api.events.channel.ChannelDeleteEvent;
+import net.dv8tion.jda.api.events.channel.GenericChannelEvent;
 import net.dv8tion.jda.api.events.channel.update.ChannelUpdateNameEvent;
 import net.dv8tion.jda.api.events.message.MessageDeleteEvent;
+import net.dv8tion.jda.api.events.role.GenericRoleEvent;
 import net.dv8tion.jda.api.events.role.RoleCreateEvent;
 import net.dv8tion.jda.api.events.role.RoleDeleteEvent;
 import net.dv8tion.jda.api.events.role.update.RoleUpdateNameEvent;
@@ -12,55 +21,99 @@ import net.dv8tion.jda.api.events.role.update.RoleUpdatePermissionsEvent;
 import net.dv8tion.jda.api.hooks.ListenerAdapter;
 
 /**
- * Listeners for the logging system
+ * Listeners for the logging system. Role and channel logs look
+ * up the audit logs with blocking requests, so they are moved off
+ * the database threads onto the JDA callback pool. Events are
+ * skipped in guilds that do not log their type
  */
-public class LoggingListeners extends ListenerAdapter {
+public class LoggingListeners extends ListenerAdapter implements GuildEventFilter {
+
+    @Override
+    public boolean isEnabled(Guild guild, GenericEvent event) {
+        /* Until the configuration is loaded, the listener loads it */
+        GuildConfiguration configuration = DatabaseAccessorManager.getConfigurationDatabaseAccessor()
+            .getConfigurationCache().getIfLoaded(guild.getIdLong());
+        if (configuration == null) {
+            return true;
+        }
+
+        if (configuration.getLoggingChannelId() == -1) {
+            return false;
+        }
+
+        if (event instanceof MessageDeleteEvent) {
+            return configuration.isLoggingTypeEnabled(LoggingEventType.MESSAGE_DELETION_LOGGING);
+        }
+        if (event instanceof GenericChannelEvent) {
+            return configuration.isLoggingTypeEnabled(LoggingEventType.CHANNEL_LOGGING);
+        }
+        if (event instanceof GenericRoleEvent) {
+            return configuration.isLoggingTypeEnabled(LoggingEventType.ROLE_LOGGING);
+        }
+        return true;
+    }
 
     @Override
     public void onMessageDelete(MessageDeleteEvent event) {
         /* Log deleted messages */
-        GuildLoggingChannel.getGuildLoggingChannel(event.getGuild()).logMessageDelete(event);
+        GuildLoggingChannel.getGuildLoggingChannel(event.getGuild())
+            .thenAccept(loggingChannel -> loggingChannel.logMessageDelete(event))
+            .exceptionally(Futures::printFailure);
     }
 
     @Override
     public void onChannelCreate(ChannelCreateEvent event) {
         /* Log channel create */
-        GuildLoggingChannel.getGuildLoggingChannel(event.getGuild()).logChannelCreate(event);
+        GuildLoggingChannel.getGuildLoggingChannel(event.getGuild())
+            .thenAcceptAsync(loggingChannel -> loggingChannel.logChannelCreate(event), event.getJDA().getCallbackPool())
+            .exceptionally(Futures::printFailure);
     }
 
     @Override
     public void onChannelDelete(ChannelDeleteEvent event) {
         /* Log channel delete */
-        GuildLoggingChannel.getGuildLoggingChannel(event.getGuild()).logChannelDelete(event);
+        GuildLoggingChannel.getGuildLoggingChannel(event.getGuild())
+            .thenAcceptAsync(loggingChannel -> loggingChannel.logChannelDelete(event), event.getJDA().getCallbackPool())
+            .exceptionally(Futures::printFailure);
     }
 
     @Override
     public void onChannelUpdateName(ChannelUpdateNameEvent event) {
         /* Log channel name change */
-        GuildLoggingChannel.getGuildLoggingChannel(event.getGuild()).logChannelNameUpdate(event);
+        GuildLoggingChannel.getGuildLoggingChannel(event.getGuild())
+            .thenAcceptAsync(loggingChannel -> loggingChannel.logChannelNameUpdate(event), event.getJDA().getCallbackPool())
+            .exceptionally(Futures::printFailure);
     }
 
     @Override
     public void onRoleCreate(RoleCreateEvent event) {
         /* Log role create */
-        GuildLoggingChannel.getGuildLoggingChannel(event.getGuild()).logRoleCreate(event);
+        GuildLoggingChannel.getGuildLoggingChannel(event.getGuild())
+            .thenAcceptAsync(loggingChannel -> loggingChannel.logRoleCreate(event), event.getJDA().getCallbackPool())
+            .exceptionally(Futures::printFailure);
     }
 
     @Override
     public void onRoleDelete(RoleDeleteEvent event) {
         /* Log role delete */
-        GuildLoggingChannel.getGuildLoggingChannel(event.getGuild()).logRoleDelete(event);
+        GuildLoggingChannel.getGuildLoggingChannel(event.getGuild())
+            .thenAcceptAsync(loggingChannel -> loggingChannel.logRoleDelete(event), event.getJDA().getCallbackPool())
+            .exceptionally(Futures::printFailure);
     }
 
     @Override
     public void onRoleUpdateName(RoleUpdateNameEvent event) {
         /* Log role name update */
-        GuildLoggingChannel.getGuildLoggingChannel(event.getGuild()).logRoleNameUpdate(event);
+        GuildLoggingChannel.getGuildLoggingChannel(event.getGuild())
+            .thenAcceptAsync(loggingChannel -> loggingChannel.logRoleNameUpdate(event), event.getJDA().getCallbackPool())
+            .exceptionally(Futures::printFailure);
     }
 
     @Override
     public void onRoleUpdatePermissions(RoleUpdatePermissionsEvent event) {
         /* Log role permissions update */
-        GuildLoggingChannel.getGuildLoggingChannel(event.getGuild()).logRolePermissionsUpdate(event);
+        GuildLoggingChannel.getGuildLoggingChannel(event.getGuild())
+            .thenAcceptAsync(loggingChannel -> loggingChannel.logRolePermissionsUpdate(event), event.getJDA().getCallbackPool())
+            .exceptionally(Futures::printFailure);
     }
 }
@@ -1,21 +1,46 @@
 package me.grayingout.bot.listeners;
 
+import me.grayingout.bot.GuildEventFilter;
+import me.grayingout.database.accessors.DatabaseAccessorManager;
+import me.grayingout.database.entities.GuildConfiguration;
 import me.grayingout.database.entities.GuildWelcomeMessage;
 import me.grayingout.util.EmbedFactory;
+import me.grayingout.util.Futures;
 import me.grayingout.util.WelcomeMessage;
+import net.dv8tion.jda.api.entities.Guild;
 import net.dv8tion.jda.api.entities.MessageEmbed.Field;
+import net.dv8tion.jda.api.events.GenericEvent;
 import net.dv8tion.jda.api.events.guild.member.GuildMemberJoinEvent;
 import net.dv8tion.jda.api.hooks.ListenerAdapter;
 
 /**
- * Listeners for the welcome messages system
+ * Listeners for the welcome messages system, skipped
+ * in guilds without a welcome channel
  */
-public final class WelcomeMessageListeners extends ListenerAdapter {
-    
+public final class WelcomeMessageListeners extends ListenerAdapter implements GuildEventFilter {
+
+    @Override
+    public boolean isEnabled(Guild guild, GenericEvent event) {
+        /* Until the configuration is loaded, the listener loads it */
+        GuildConfiguration configuration = DatabaseAccessorManager.getConfigurationDatabaseAccessor()
+            .getConfigurationCache().getIfLoaded(guild.getIdLong());
+        return configuration == null || configuration.getWelcomeChannelId() != -1;
+    }
+
     @Override
     public void onGuildMemberJoin(GuildMemberJoinEvent event) {
-        GuildWelcomeMessage welcomeMessage = GuildWelcomeMessage.getGuildWelcomeMessage(event.getGuild());
-        
+        GuildWelcomeMessage.getGuildWelcomeMessage(event.getGuild())
+            .thenAccept(welcomeMessage -> sendWelcomeMessage(welcomeMessage, event))
+            .exceptionally(Futures::printFailure);
+    }
+
+    /**
+     * Sends the welcome message for a member joining
+     * 
+     * @param welcomeMessage The guild's welcome message
+     * @param event          The join event
+     */
+    private static final void sendWelcomeMessage(GuildWelcomeMessage welcomeMessage, GuildMemberJoinEvent event) {
         /* No welcome message channel set up */
         if (welcomeMessage.getWelcomeChannel() == null) {
             return;
@@ -1,81 +1,78 @@
 package me.grayingout.database.accessors;
 
-import java.sql.Connection;
-import java.sql.PreparedStatement;
-import java.sql.ResultSet;
-import java.sql.SQLException;
-import java.sql.Statement;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
+import java.util.function.UnaryOperator;
 
+import me.grayingout.App;
+import me.grayingout.database.entities.GuildConfiguration;
 import me.grayingout.database.entities.GuildLoggingChannel;
-import me.grayingout.database.entities.GuildLoggingChannel.LoggingEventType;
-import me.grayingout.database.entities.GuildWelcomeMessage;
-import me.grayingout.database.query.DatabaseQuery;
-import me.grayingout.util.WelcomeMessage;
+import me.grayingout.database.storage.ConfigurationRepository;
 import net.dv8tion.jda.api.entities.Guild;
 import net.dv8tion.jda.api.entities.Role;
 import net.dv8tion.jda.api.entities.channel.middleman.GuildMessageChannel;
 
 /**
  * Class for accessing the configuration data
- * of a guild in the config database
+ * of a guild, through a cache of each guild's configuration
  */
-public final class ConfigurationDatabaseAccessor extends DatabaseAccessor {
+public final class ConfigurationDatabaseAccessor {
+
+    /**
+     * The repository the configurations are stored in
+     */
+    private final ConfigurationRepository repository;
+
+    /**
+     * The cached configuration of each guild, which
+     * all reads go through
+     */
+    private final GuildSnapshotCache<GuildConfiguration> configurationCache;
     
     /**
      * Creates a new {@code ConfigurationDatabaseAccessor}
+     * 
+     * @param repository The repository the configurations are stored in
      */
-    public ConfigurationDatabaseAccessor() {
-        super("configuration.db");
+    public ConfigurationDatabaseAccessor(ConfigurationRepository repository) {
+        this.repository = repository;
+
+        configurationCache = new GuildSnapshotCache<>(
+            "guild configuration",
+            this::loadGuildConfiguration,
+            Integer.parseInt(App.env.get("GUILD_CONFIGURATION_CACHE_SIZE", "10000"))
+        );
     }
 
-    @Override
-    public final void init() {
-        queueQuery(new DatabaseQuery<Void>() {
-            @Override
-            public Void execute(Connection connection) throws SQLException {
-                Statement statement = connection.createStatement();
-                
-                /* Creates the table that stores guild configurations */
-                statement.execute(
-                    "CREATE TABLE IF NOT EXISTS GuildConfiguration ("
-                  + "  guild_id INTEGER NOT NULL PRIMARY KEY,"
-                  + "  logging_channel_id INTEGER DEFAULT -1,"
-                  + "  enabled_logging_types TEXT DEFAULT \"\","
-                  + "  welcome_channel_id INTEGER DEFAULT -1,"
-                  + "  welcome_message TEXT,"
-                  + "  dj_role_id INTEGER DEFAULT -1"
-                  + ")");
-                
-                return null;
-            }
-        });
+    /**
+     * Gets the configuration of a guild
+     * 
+     * @param guild The guild
+     * @return A future completed with the configuration, which
+     *         fails if it could not be loaded
+     */
+    public final CompletableFuture<GuildConfiguration> getGuildConfiguration(Guild guild) {
+        return configurationCache.get(guild.getIdLong());
+    }
+
+    /**
+     * Gets the cache of guild configurations
+     * 
+     * @return The cache
+     */
+    public final GuildSnapshotCache<GuildConfiguration> getConfigurationCache() {
+        return configurationCache;
     }
 
     /**
      * Removes the DJ role in a guild
      * 
      * @param guild The guild
+     * @return A future completed once the role has been removed
      */
-    public final void removeGuildDJRole(Guild guild) {
-
-        queueQuery(new DatabaseQuery<Void>() {
-            @Override
-            public Void execute(Connection connection) throws SQLException {
-                PreparedStatement statement = connection.prepareStatement(
-                    "UPDATE GuildConfiguration SET dj_role_id = -1 WHERE guild_id == ?"
-                );
-
-                statement.setLong(1, guild.getIdLong());
-
-                statement.executeUpdate();
-
-                return null;
-            }
-        });
+    public final CompletableFuture<Void> removeGuildDJRole(Guild guild) {
+        return updateConfiguration(guild, configuration -> configuration.withDJRoleId(-1));
     }
 
     /**
@@ -83,26 +80,10 @@ public final class ConfigurationDatabaseAccessor extends DatabaseAccessor {
      * 
      * @param guild The guild
      * @param role  The role to use
+     * @return A future completed once the role has been updated
      */
-    public final void updateGuildDJRole(Guild guild, Role role) {
-        /* Make sure guild has a config */
-        createDefaultGuildConfig(guild);
-
-        queueQuery(new DatabaseQuery<Void>() {
-            @Override
-            public Void execute(Connection connection) throws SQLException {
-                PreparedStatement statement = connection.prepareStatement(
-                    "UPDATE GuildConfiguration SET dj_role_id = ? WHERE guild_id == ?"
-                );
-
-                statement.setLong(1, role.getIdLong());
-                statement.setLong(2, guild.getIdLong());
-
-                statement.executeUpdate();
-
-                return null;
-            }
-        });
+    public final CompletableFuture<Void> updateGuildDJRole(Guild guild, Role role) {
+        return updateConfiguration(guild, configuration -> configuration.withDJRoleId(role.getIdLong()));
     }
 
     /**
@@ -110,62 +91,20 @@ public final class ConfigurationDatabaseAccessor extends DatabaseAccessor {
      * there is no DJ role
      * 
      * @param guild The guild
-     * @return The DJ role, or {@code null}
+     * @return A future completed with the DJ role, or {@code null}
      */
-    public final Role getGuildDJRole(Guild guild) {
-        CompletableFuture<Object> future = queueQuery(new DatabaseQuery<Long>() {
-            @Override
-            public Long execute(Connection connection) throws SQLException {
-                PreparedStatement statement = connection.prepareStatement(
-                    "SELECT dj_role_id FROM GuildConfiguration WHERE guild_id == ?"
-                );
-
-                statement.setLong(1, guild.getIdLong());
-
-                ResultSet set = statement.executeQuery();
-
-                if (!set.next()) {
-                    return -1L;
-                }
-
-                return set.getLong("dj_role_id");
-            }
-        });
-
-        return guild.getRoleById((long) future.join());
+    public final CompletableFuture<Role> getGuildDJRole(Guild guild) {
+        return getGuildConfiguration(guild).thenApply(configuration -> guild.getRoleById(configuration.getDJRoleId()));
     }
 
     /**
      * Gets the welcome message used for a specific guild
      * 
      * @param guild   The guild
+     * @return A future completed with the welcome message
      */
-    public final String getWelcomeMessage(Guild guild) {
-        CompletableFuture<Object> future = queueQuery(new DatabaseQuery<String>() {
-            @Override
-            public String execute(Connection connection) throws SQLException {
-                PreparedStatement statement = connection.prepareStatement(
-                    "SELECT welcome_message FROM GuildConfiguration WHERE guild_id == ?"
-                );
-
-                statement.setLong(1, guild.getIdLong());
-
-                /* No configuration in table */
-                ResultSet set = statement.executeQuery();
-                if (!set.next()) {
-                    return WelcomeMessage.getDefaultWelcomeMessage();
-                }
-
-                /* No custom message */
-                if (set.getString("welcome_message") == null) {
-                    return WelcomeMessage.getDefaultWelcomeMessage();
-                }
-
-                return set.getString("welcome_message");
-            }
-        });
-
-        return (String) future.join();
+    public final CompletableFuture<String> getWelcomeMessage(Guild guild) {
+        return getGuildConfiguration(guild).thenApply(GuildConfiguration::getWelcomeMessage);
     }
 
     /**
@@ -173,32 +112,10 @@ public final class ConfigurationDatabaseAccessor extends DatabaseAccessor {
      * 
      * @param guild   The guild
      * @param message The welcome message
+     * @return A future completed once the message has been updated
      */
-    public final void setWelcomeMessage(Guild guild, String message) {
-        /* Make sure the guild has a config */
-        createDefaultGuildConfig(guild);
-        
-        CompletableFuture<Object> future = queueQuery(new DatabaseQuery<Void>() {
-            @Override
-            public Void execute(Connection connection) throws SQLException {
-                PreparedStatement statement = connection.prepareStatement(
-                    "UPDATE GuildConfiguration SET welcome_message = ? WHERE guild_id == ?"
-                );
-
-                statement.setString(1, message);
-                statement.setLong(2, guild.getIdLong());
-
-                statement.executeUpdate();
-
-                return null;
-            }
-        });
-
-        /* Wait for query to finish */
-        future.join();
-        
-        /* Update the welcome message singleton */
-        GuildWelcomeMessage.refreshWelcomeMessage(guild);
+    public final CompletableFuture<Void> setWelcomeMessage(Guild guild, String message) {
+        return updateConfiguration(guild, configuration -> configuration.withWelcomeMessage(message));
     }
 
     /**
@@ -206,28 +123,10 @@ public final class ConfigurationDatabaseAccessor extends DatabaseAccessor {
      * messages are sent in for a specific guild
      * 
      * @param guild The guild
-     * @return The channel id
+     * @return A future completed with the channel id
      */
-    public final long getWelcomeChannelId(Guild guild) {
-        CompletableFuture<Object> future = queueQuery(new DatabaseQuery<Long>() {
-            @Override
-            public Long execute(Connection connection) throws SQLException {
-                PreparedStatement statement = connection.prepareStatement(
-                    "SELECT welcome_channel_id FROM GuildConfiguration WHERE guild_id == ?"
-                );
-
-                statement.setLong(1, guild.getIdLong());
-
-                ResultSet set = statement.executeQuery();
-                if (!set.next()) {
-                    return -1L;
-                }
-
-                return set.getLong("welcome_channel_id");
-            }
-        });
-
-        return (long) future.join();
+    public final CompletableFuture<Long> getWelcomeChannelId(Guild guild) {
+        return getGuildConfiguration(guild).thenApply(GuildConfiguration::getWelcomeChannelId);
     }
 
     /**
@@ -235,63 +134,20 @@ public final class ConfigurationDatabaseAccessor extends DatabaseAccessor {
      * 
      * @param guild   The guild
      * @param channel The new welcome channel
+     * @return A future completed once the channel has been updated
      */
-    public final void updateWelcomeChannelId(Guild guild, GuildMessageChannel channel) {
-        /* Make sure the guild has a config row */
-        createDefaultGuildConfig(guild);
-
-        CompletableFuture<Object> future = queueQuery(new DatabaseQuery<Void>() {
-            @Override
-            public Void execute(Connection connection) throws SQLException {
-                PreparedStatement statement = connection.prepareStatement(
-                    "UPDATE GuildConfiguration SET welcome_channel_id = ? WHERE guild_id == ?"
-                );
-
-                statement.setLong(1, channel.getIdLong());
-                statement.setLong(2, guild.getIdLong());
-    
-                statement.executeUpdate();
-
-                return null;
-            }
-        });
-
-        /* Wait for query to finish */
-        future.join();
-        
-        /* Update the welcome message singleton */
-        GuildWelcomeMessage.refreshWelcomeMessage(guild);
+    public final CompletableFuture<Void> updateWelcomeChannelId(Guild guild, GuildMessageChannel channel) {
+        return updateConfiguration(guild, configuration -> configuration.withWelcomeChannelId(channel.getIdLong()));
     }
 
     /**
      * Removes the welcome channel for a specific guild
      * 
      * @param guild   The guild
+     * @return A future completed once the channel has been removed
      */
-    public final void removeWelcomeChannelId(Guild guild) {
-        /* Make sure the guild has a config row */
-        createDefaultGuildConfig(guild);
-
-        CompletableFuture<Object> future = queueQuery(new DatabaseQuery<Void>() {
-            @Override
-            public Void execute(Connection connection) throws SQLException {
-                PreparedStatement statement = connection.prepareStatement(
-                    "UPDATE GuildConfiguration SET welcome_channel_id = -1 WHERE guild_id == ?"
-                );
-
-                statement.setLong(1, guild.getIdLong());
-    
-                statement.executeUpdate();
-
-                return null;
-            }
-        });
-
-        /* Wait for query to finish */
-        future.join();
-        
-        /* Update the welcome message singleton */
-        GuildWelcomeMessage.refreshWelcomeMessage(guild);
+    public final CompletableFuture<Void> removeWelcomeChannelId(Guild guild) {
+        return updateConfiguration(guild, configuration -> configuration.withWelcomeChannelId(-1));
     }
 
     /**
@@ -299,54 +155,10 @@ public final class ConfigurationDatabaseAccessor extends DatabaseAccessor {
      * 
      * @param guild THe guild
      * @param type The logging type
+     * @return A future completed once the type has been enabled
      */
-    public final void enableLoggingType(Guild guild, GuildLoggingChannel.LoggingEventType type) {
-        /* Make sure guild has a config row */
-        createDefaultGuildConfig(guild);
-        
-        CompletableFuture<Object> future = queueQuery(new DatabaseQuery<Void>() {
-            @Override
-            public Void execute(Connection connection) throws SQLException {
-                PreparedStatement selectStatement = connection.prepareStatement(
-                    "SELECT enabled_logging_types FROM GuildConfiguration WHERE guild_id == ?"
-                );
-
-                selectStatement.setLong(1, guild.getIdLong());
-
-                /* Check a result set did come back - it should */
-                ResultSet set = selectStatement.executeQuery();
-                if (!set.next()) {
-                    return null;
-                }
-
-                /* Ignore if already enabled */
-                String currentLoggingTypes = set.getString("enabled_logging_types");
-                if (currentLoggingTypes.indexOf(type.name()) != -1) {
-                    return null;
-                }
-
-                /* Add the new type */
-                String newLoggingTypes = currentLoggingTypes + "," + type.name();
-
-                /* Update field */
-                PreparedStatement updateStatement = connection.prepareStatement(
-                    "UPDATE GuildConfiguration SET enabled_logging_types = ? WHERE guild_id == ?"
-                );
-
-                updateStatement.setString(1, newLoggingTypes);
-                updateStatement.setLong(2, guild.getIdLong());
-
-                updateStatement.executeUpdate();
-
-                return null;
-            }
-        });
-
-        /* Wait for query to finish */
-        future.join();
-
-        /* Update guild logging channel */
-        GuildLoggingChannel.refreshLoggingChannel(guild);
+    public final CompletableFuture<Void> enableLoggingType(Guild guild, GuildLoggingChannel.LoggingEventType type) {
+        return updateConfiguration(guild, configuration -> configuration.withLoggingType(type, true));
     }
 
     /**
@@ -354,216 +166,92 @@ public final class ConfigurationDatabaseAccessor extends DatabaseAccessor {
      * 
      * @param guild The guild
      * @param type The logging type
+     * @return A future completed once the type has been disabled
      */
-    public final void disableLoggingType(Guild guild, GuildLoggingChannel.LoggingEventType type) {
-        /* Make sure guild has a config row */
-        createDefaultGuildConfig(guild);
-        
-        CompletableFuture<Object> future = queueQuery(new DatabaseQuery<Void>() {
-            @Override
-            public Void execute(Connection connection) throws SQLException {
-                PreparedStatement selectStatement = connection.prepareStatement(
-                    "SELECT enabled_logging_types FROM GuildConfiguration WHERE guild_id == ?"
-                );
-
-                selectStatement.setLong(1, guild.getIdLong());
-
-                /* Check a result set did come back - it should */
-                ResultSet set = selectStatement.executeQuery();
-                if (!set.next()) {
-                    return null;
-                }
-
-                /* Remove the type */
-                String currentLoggingTypes = set.getString("enabled_logging_types");
-                String newLoggingTypes = currentLoggingTypes.replace(type.name(), "").replace(",,", ",");
-
-                /* Update field */
-                PreparedStatement updateStatement = connection.prepareStatement(
-                    "UPDATE GuildConfiguration SET enabled_logging_types = ? WHERE guild_id == ?"
-                );
-
-                updateStatement.setString(1, newLoggingTypes);
-                updateStatement.setLong(2, guild.getIdLong());
-
-                updateStatement.executeUpdate();
-
-                return null;
-            }
-        });
-
-        /* Wait for query to finish */
-        future.join();
-
-        /* Update guild logging channel */
-        GuildLoggingChannel.refreshLoggingChannel(guild);
+    public final CompletableFuture<Void> disableLoggingType(Guild guild, GuildLoggingChannel.LoggingEventType type) {
+        return updateConfiguration(guild, configuration -> configuration.withLoggingType(type, false));
     }
 
     /**
      * Gets the enabled logging types for a guild
      * 
      * @param guild The guild
-     * @return The enabled logging types
+     * @return A future completed with the enabled logging types
      */
-    public final List<GuildLoggingChannel.LoggingEventType> getEnabledLoggingTypes(Guild guild) {
-        CompletableFuture<Object> future = queueQuery(new DatabaseQuery<String>() {
-            @Override
-            public String execute(Connection connection) throws SQLException {
-                PreparedStatement statement = connection.prepareStatement(
-                    "SELECT enabled_logging_types FROM GuildConfiguration WHERE guild_id == ?"
-                );
-
-                statement.setLong(1, guild.getIdLong());
-
-                ResultSet set = statement.executeQuery();
-                if (!set.next()) {
-                    return "";
-                }
-
-                return set.getString("enabled_logging_types");
-            }
-        });
-
-        /* Wait for query to finish */
-        List<String> enabledLoggingTypesStrings = new ArrayList<String>(Arrays.asList(((String) future.join()).split(",")));
-        List<LoggingEventType> enabledLoggingEventTypes = new ArrayList<>();
-        
-        /* Get the logging event types which are enabled */
-        for (LoggingEventType loggingEventType : GuildLoggingChannel.LoggingEventType.values()) {
-            if (enabledLoggingTypesStrings.contains(loggingEventType.toString())) {
-                enabledLoggingEventTypes.add(loggingEventType);
-            }
-        }
-
-        return enabledLoggingEventTypes;
+    public final CompletableFuture<List<GuildLoggingChannel.LoggingEventType>> getEnabledLoggingTypes(Guild guild) {
+        return getGuildConfiguration(guild).thenApply(configuration -> new ArrayList<>(configuration.getEnabledLoggingTypes()));
     }
 
     /**
      * Gets the logging channel id of a specific guild
      * 
      * @param guild The guild
-     * @return The logging channel id, or {@code -1} if it does not exist
+     * @return A future completed with the channel id, or {@code -1} if it does not exist
      */
-    public final long getLoggingChannelId(Guild guild) {
-        CompletableFuture<Object> future = queueQuery(new DatabaseQuery<Long>() {
-            @Override
-            public Long execute(Connection connection) throws SQLException {
-                PreparedStatement statement = connection.prepareStatement(
-                    "SELECT logging_channel_id FROM GuildConfiguration WHERE guild_id == ?"
-                );
-
-                statement.setLong(1, guild.getIdLong());
-    
-                ResultSet set = statement.executeQuery();
-    
-                if (!set.next()) {
-                    return -1L;
-                }
-    
-                return set.getLong("logging_channel_id");
-            }
-        });
-
-        return (long) future.join();
+    public final CompletableFuture<Long> getLoggingChannelId(Guild guild) {
+        return getGuildConfiguration(guild).thenApply(GuildConfiguration::getLoggingChannelId);
     }
 
     /**
-     * Updates the logging channel id of the specific guild
+     * Updates the logging channel of a specific guild
      * 
      * @param guild   The guild
      * @param channel The new logging channel
+     * @return A future completed once the channel has been updated
      */
-    public final void updateLoggingChannelId(Guild guild, GuildMessageChannel channel) {
-        /* Make sure the guild has a config row */
-        createDefaultGuildConfig(guild);
-
-        CompletableFuture<Object> future = queueQuery(new DatabaseQuery<Void>() {
-            @Override
-            public Void execute(Connection connection) throws SQLException {
-                PreparedStatement statement = connection.prepareStatement(
-                    "UPDATE GuildConfiguration SET logging_channel_id = ? WHERE guild_id == ?"
-                );
-
-                statement.setLong(1, channel.getIdLong());
-                statement.setLong(2, guild.getIdLong());
-    
-                statement.executeUpdate();
-
-                return null;
-            }
-            
-        });
-
-        /* Wait for query to finish */
-        future.join();
-        
-        /* Update the logging channel singleton */
-        GuildLoggingChannel.refreshLoggingChannel(guild);
+    public final CompletableFuture<Void> updateLoggingChannelId(Guild guild, GuildMessageChannel channel) {
+        return updateConfiguration(guild, configuration -> configuration.withLoggingChannelId(channel.getIdLong()));
     }
 
     /**
      * Remove a logging channel from a guild
      * 
      * @param guild The guild
+     * @return A future completed once the channel has been removed
      */
-    public final void removeLoggingChannel(Guild guild) {
-        /* Make sure the guild has a config row */
-        createDefaultGuildConfig(guild);
-
-        CompletableFuture<Object> future = queueQuery(new DatabaseQuery<Void>() {
-            @Override
-            public Void execute(Connection connection) throws SQLException {
-                PreparedStatement statement = connection.prepareStatement(
-                    "UPDATE GuildConfiguration SET logging_channel_id = ? WHERE guild_id == ?"
-                );
-
-                statement.setLong(1, -1);
-                statement.setLong(2, guild.getIdLong());
-
-                statement.executeUpdate();
+    public final CompletableFuture<Void> removeLoggingChannel(Guild guild) {
+        return updateConfiguration(guild, configuration -> configuration.withLoggingChannelId(-1));
+    }
 
-                return null;
+    /**
+     * Loads the configuration of a guild
+     * 
+     * @param guildId The id of the guild
+     * @return A future completed with the configuration, or {@code null} if the read failed
+     */
+    private final CompletableFuture<GuildConfiguration> loadGuildConfiguration(long guildId) {
+        return repository.getConfiguration(guildId).thenApply(configuration -> {
+            if (configuration != null) {
+                GuildLoggingChannel.updateMessageRetention(configuration);
             }
-        });
 
-        /* Wait for query to finish */
-        future.join();
-        
-        /* Update the logging channel singleton */
-        GuildLoggingChannel.refreshLoggingChannel(guild);
+            return configuration;
+        });
     }
 
     /**
-     * Checks if the guild has a config in the database, if
-     * not it creates a default config
+     * Changes the stored configuration of a guild, then replaces
+     * the cached configuration with it, or drops the cached
+     * configuration if the write failed
+     * 
+     * @param guild   The guild
+     * @param updater Applies the change to a configuration
+     * @return A future completed once the cache has been updated,
+     *         which fails if the write failed
      */
-    private final void createDefaultGuildConfig(Guild guild) {
-        queueQuery(new DatabaseQuery<Void>() {
-            @Override
-            public Void execute(Connection connection) throws SQLException {
-                /* Select the config */
-                PreparedStatement checkStatement = connection.prepareStatement(
-                    "SELECT * FROM GuildConfiguration WHERE guild_id == ?"
-                );
-                checkStatement.setLong(1, guild.getIdLong());
-
-                ResultSet set = checkStatement.executeQuery();
-
-                /* Check if a config already exists */
-                if (set.next()) {
-                    return null;
-                }
-
-                /* Insert the config */
-                PreparedStatement insertStatement = connection.prepareStatement(
-                    "INSERT INTO GuildConfiguration (guild_id) VALUES (?)"
-                );
-
-                insertStatement.setLong(1, guild.getIdLong());
-
-                insertStatement.executeUpdate();
+    private final CompletableFuture<Void> updateConfiguration(Guild guild, UnaryOperator<GuildConfiguration> updater) {
+        return repository.updateConfiguration(guild.getIdLong(), updater).thenCompose(stored -> {
+            /* Load it again on the next read, as the stored configuration is unknown */
+            if (stored == null) {
+                configurationCache.invalidate(guild.getIdLong());
+                return CompletableFuture.failedFuture(new IllegalStateException(
+                    "Failed to store the configuration of guild " + guild.getIdLong()));
+            }
 
-                return null;
+            return configurationCache.update(guild.getIdLong(), cached -> stored);
+        }).thenAccept(configuration -> {
+            if (configuration != null) {
+                GuildLoggingChannel.updateMessageRetention(configuration);
             }
         });
     }
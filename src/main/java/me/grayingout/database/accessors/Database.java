@@ -0,0 +1,670 @@
+package me.grayingout.database.accessors;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import me.grayingout.App;
+import me.grayingout.database.migration.DatabaseMigration;
+import me.grayingout.database.migration.MigrationRunner;
+import me.grayingout.database.query.DatabaseQuery;
+import me.grayingout.logging.Logger;
+import me.grayingout.metrics.MetricsRegistry;
+import me.grayingout.metrics.MetricsWriter;
+
+/**
+ * A SQLite database file, and the lanes queries against it are
+ * executed on. One or more {@code DatabaseAccessor}s use each
+ * database, each owning the tables of its schema.
+ * <p>
+ * Every write goes through a single writer thread and connection, in
+ * the order queued. Unless the database is opened without any, queries
+ * that declare themselves read-only are executed on a pool of read
+ * connections instead, so reads do not queue behind writes. A read
+ * sees every write that had been committed when it started.
+ * <p>
+ * Writes are group committed: the writer takes every write waiting in
+ * its queue, up to a batch size, executes them in one transaction and
+ * commits once. If any of them fail the transaction is rolled back and
+ * each write is retried in its own transaction, so one bad query only
+ * fails itself. Accessors sharing a database share these batches, and
+ * their queries can join each other's tables
+ */
+public final class Database {
+
+    /**
+     * Marks a query that failed, as {@code null} is a valid result
+     */
+    private static final Object FAILED = new Object();
+
+    /**
+     * The logger
+     */
+    private static final Logger logger = Logger.getLogger(Database.class);
+
+    /**
+     * The names of the labels of the lane metrics
+     */
+    private static final String[] LANE_LABEL_NAMES = { "database", "lane" };
+
+    /**
+     * The open databases, whose lanes are written when
+     * the metrics are scraped
+     */
+    private static final Set<Database> openDatabases = Collections.newSetFromMap(new ConcurrentHashMap<>());
+
+    static {
+        MetricsRegistry.getInstance().register("database", Database::collectMetrics);
+    }
+
+    /**
+     * The path to the database file
+     */
+    private final String databasePath;
+
+    /**
+     * The connection writes are executed on
+     */
+    private DatabaseConnection writeConnection;
+
+    /**
+     * The writes waiting to be executed
+     */
+    private final BlockingQueue<QueuedWrite> writeQueue;
+
+    /**
+     * Executes the queries which write to the database
+     */
+    private final Thread writerThread;
+
+    /**
+     * The most writes committed in one transaction
+     */
+    private final int maxBatchSize;
+
+    /**
+     * How long the writer waits for a batch to fill
+     */
+    private final long maxBatchWaitNanos;
+
+    /**
+     * If the database has been closed. Guarded by {@link #writeQueue}
+     */
+    private boolean closed;
+
+    /**
+     * Executes the read-only queries, or {@code null} if
+     * they are executed by the writer
+     */
+    private final ExecutorService readExecutor;
+
+    /**
+     * The read connections that have been opened
+     */
+    private final List<DatabaseConnection> readConnections;
+
+    /**
+     * The connection owned by the current query thread
+     */
+    private final ThreadLocal<DatabaseConnection> threadConnection;
+
+    /**
+     * The metrics of the write lane
+     */
+    private final DatabaseLaneMetrics writeMetrics;
+
+    /**
+     * The metrics of the read lane
+     */
+    private final DatabaseLaneMetrics readMetrics;
+
+    /**
+     * Opens a {@code Database}, with the number of read connections
+     * and the group commit configured in the environment
+     * 
+     * @param databasePath The path to the database file
+     */
+    public Database(String databasePath) {
+        this(
+            databasePath,
+            Integer.parseInt(App.env.get("DATABASE_READ_CONNECTIONS", "2")),
+            Integer.parseInt(App.env.get("DATABASE_GROUP_COMMIT_BATCH_SIZE", "128")),
+            Long.parseLong(App.env.get("DATABASE_GROUP_COMMIT_MAX_WAIT_US", "0"))
+        );
+    }
+
+    /**
+     * Opens a {@code Database}
+     * 
+     * @param databasePath         The path to the database file
+     * @param readConnectionCount  The number of read connections, or {@code 0}
+     *                             to execute reads on the writer
+     * @param maxBatchSize         The most writes committed in one transaction,
+     *                             or {@code 1} to commit every write on its own
+     * @param maxBatchWaitMicros   How long the writer waits for more writes once
+     *                             it has one, or {@code 0} to only take those
+     *                             already waiting
+     */
+    public Database(String databasePath, int readConnectionCount, int maxBatchSize, long maxBatchWaitMicros) {
+        this.databasePath = databasePath;
+        this.maxBatchSize = Math.max(1, maxBatchSize);
+        this.maxBatchWaitNanos = TimeUnit.MICROSECONDS.toNanos(maxBatchWaitMicros);
+        writeQueue = new LinkedBlockingQueue<>();
+        writerThread = new Thread(this::runWriter, databasePath + "-writer");
+        readExecutor = readConnectionCount > 0
+            ? Executors.newFixedThreadPool(readConnectionCount, namedThreads(databasePath + "-reader"))
+            : null;
+        readConnections = new ArrayList<>();
+        threadConnection = new ThreadLocal<>();
+        writeMetrics = new DatabaseLaneMetrics("write");
+        readMetrics = new DatabaseLaneMetrics("read");
+
+        /* Connect to database */
+        try {
+            writeConnection = DatabaseConnection.openWriter(databasePath);
+        } catch (SQLException e) {
+            logger.error("Failed to connect to the database", e, "database", databasePath);
+
+            /* Fail queries straight away rather than leaving them queued */
+            closed = true;
+            return;
+        }
+
+        openDatabases.add(this);
+        writerThread.start();
+    }
+
+    /**
+     * Queue the execution of a query. The future is completed
+     * with {@code null} if the query fails
+     * 
+     * @param <T>   The type of the result
+     * @param query The database query
+     * @return A completable future that will be called with the result
+     */
+    @SuppressWarnings("unchecked")
+    /* default */ <T> CompletableFuture<T> queueQuery(DatabaseQuery<T> query) {
+        CompletableFuture<T> typedFuture = new CompletableFuture<>();
+        CompletableFuture<Object> future = (CompletableFuture<Object>) (CompletableFuture<?>) typedFuture;
+
+        /* Queue the write */
+        if (!query.isReadOnly() || readExecutor == null) {
+            synchronized (writeQueue) {
+                if (!closed) {
+                    writeMetrics.queued();
+                    writeQueue.add(new QueuedWrite(query, future));
+                    return typedFuture;
+                }
+            }
+
+            logger.warn("Failed to queue db query, the database is closed", "database", databasePath);
+            future.complete(null);
+            return typedFuture;
+        }
+
+        /* Queue the read */
+        long queuedAt = System.nanoTime();
+        readMetrics.queued();
+        try {
+            readExecutor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    Object result = FAILED;
+                    try {
+                        long startedAt = System.nanoTime();
+                        readMetrics.dequeued(startedAt - queuedAt);
+
+                        result = executeRead(query);
+                        readMetrics.finished(System.nanoTime() - startedAt, result != FAILED);
+                    } finally {
+                        /* Completed whatever was thrown, so the caller is never left waiting */
+                        future.complete(result == FAILED ? null : result);
+                    }
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            readMetrics.dequeued(System.nanoTime() - queuedAt);
+            logger.warn("Failed to queue db query, the database is closed", "database", databasePath);
+            future.complete(null);
+        }
+
+        return typedFuture;
+    }
+
+    /**
+     * Gets the prepared statement for some SQL on the connection of
+     * the current query, preparing it the first time it is used. The
+     * statement is owned by the database and must not be closed, but
+     * its result sets should be. Must only be called from a query
+     * being executed
+     * 
+     * @param sql The SQL of the statement
+     * @return The prepared statement, with its parameters cleared
+     * @throws SQLException If the statement could not be prepared
+     */
+    /* default */ final PreparedStatement prepareStatement(String sql) throws SQLException {
+        return threadConnection.get().prepareStatement(sql);
+    }
+
+    /**
+     * Brings the schema of an accessor up to date. The migrations
+     * run on a connection of their own, so they are not batched
+     * with other writes, and accessors migrate one at a time
+     * 
+     * @param schemaName The name of the accessor's schema
+     * @param migrations The migrations of the schema, in version order
+     * @throws IllegalStateException If the schema could not be brought up to date
+     */
+    /* default */ final synchronized void migrate(String schemaName, List<DatabaseMigration> migrations) {
+        if (!isConnected()) {
+            return;
+        }
+
+        DatabaseConnection connection;
+        try {
+            connection = DatabaseConnection.openWriter(databasePath);
+        } catch (SQLException e) {
+            throw new IllegalStateException("Failed to connect to " + databasePath + " to migrate " + schemaName, e);
+        }
+
+        try {
+            new MigrationRunner(databasePath, schemaName, migrations).migrate(connection.getConnection());
+        } finally {
+            connection.close();
+        }
+    }
+
+    /**
+     * Closes the connections to the database once the queries
+     * already queued have been executed. Queries queued afterwards
+     * complete with {@code null}
+     */
+    public void close() {
+        openDatabases.remove(this);
+
+        if (isClosed()) {
+            return;
+        }
+
+        /* Reads can queue writes, so stop them first */
+        if (readExecutor != null) {
+            readExecutor.shutdown();
+            awaitTermination(readExecutor);
+
+            synchronized (readConnections) {
+                for (DatabaseConnection connection : readConnections) {
+                    connection.close();
+                }
+                readConnections.clear();
+            }
+        }
+
+        /* The writer closes its connection once it reaches the end of the queue */
+        synchronized (writeQueue) {
+            if (closed) {
+                return;
+            }
+
+            closed = true;
+            writeQueue.add(QueuedWrite.END);
+        }
+
+        try {
+            writerThread.join(TimeUnit.SECONDS.toMillis(10));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Gets the path to the database file
+     * 
+     * @return The path
+     */
+    public final String getPath() {
+        return databasePath;
+    }
+
+    /**
+     * Returns if there is an active connection to the
+     * database
+     * 
+     * @return If there is an active connection
+     */
+    public final boolean isConnected() {
+        return writeConnection != null;
+    }
+
+    /**
+     * Gets the metrics of the lane that writes are executed on
+     * 
+     * @return The write lane metrics
+     */
+    public final DatabaseLaneMetrics getWriteLaneMetrics() {
+        return writeMetrics;
+    }
+
+    /**
+     * Gets the metrics of the lane that read-only queries are
+     * executed on. Nothing is counted if reads are executed
+     * by the writer
+     * 
+     * @return The read lane metrics
+     */
+    public final DatabaseLaneMetrics getReadLaneMetrics() {
+        return readMetrics;
+    }
+
+    /**
+     * Returns if the database has been closed
+     * 
+     * @return If it is closed
+     */
+    private final boolean isClosed() {
+        synchronized (writeQueue) {
+            return closed;
+        }
+    }
+
+    /**
+     * Executes batches of writes until the database is closed,
+     * then closes the write connection
+     */
+    private final void runWriter() {
+        threadConnection.set(writeConnection);
+
+        List<QueuedWrite> batch = new ArrayList<>(maxBatchSize);
+        boolean end = false;
+        while (!end) {
+            try {
+                end = takeBatch(batch);
+            } catch (InterruptedException e) {
+                /* Only closing stops the writer */
+                continue;
+            }
+
+            if (!batch.isEmpty()) {
+                executeBatch(batch);
+                batch.clear();
+            }
+        }
+
+        writeConnection.close();
+    }
+
+    /**
+     * Takes the next batch of writes off the queue, waiting
+     * for at least one
+     * 
+     * @param batch The list to add the writes to
+     * @return If the end of the queue was reached
+     * @throws InterruptedException If interrupted while waiting
+     */
+    private final boolean takeBatch(List<QueuedWrite> batch) throws InterruptedException {
+        QueuedWrite write = writeQueue.take();
+        long deadline = System.nanoTime() + maxBatchWaitNanos;
+
+        while (write != QueuedWrite.END) {
+            batch.add(write);
+            if (batch.size() == maxBatchSize) {
+                return false;
+            }
+
+            /* Take what is already waiting, then wait for more until the deadline */
+            write = writeQueue.poll();
+            if (write == null) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    return false;
+                }
+
+                write = writeQueue.poll(remaining, TimeUnit.NANOSECONDS);
+                if (write == null) {
+                    return false;
+                }
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Executes a batch of writes in one transaction, and completes
+     * their futures once it has been committed. If any of them fail,
+     * they are retried in their own transactions
+     * 
+     * @param batch The writes
+     */
+    private final void executeBatch(List<QueuedWrite> batch) {
+        long startedAt = System.nanoTime();
+        for (QueuedWrite write : batch) {
+            writeMetrics.dequeued(startedAt - write.queuedAt);
+        }
+
+        if (batch.size() == 1) {
+            completeWrite(batch.get(0), startedAt);
+            return;
+        }
+
+        Connection connection = writeConnection.getConnection();
+        Object[] results = new Object[batch.size()];
+        try {
+            for (int i = 0; i < results.length; i++) {
+                results[i] = batch.get(i).query.execute(connection);
+            }
+
+            /* Commit before completing, so reads queued afterwards see the writes */
+            connection.commit();
+        } catch (SQLException | RuntimeException e) {
+            logger.warn("Failed to execute a batch of db queries, retrying them individually", e, "database", databasePath, "size", batch.size());
+
+            try {
+                connection.rollback();
+            } catch (SQLException rollbackException) {
+                logger.error("Failed to roll back db transaction", rollbackException, "database", databasePath);
+            }
+
+            for (QueuedWrite write : batch) {
+                completeWrite(write, System.nanoTime());
+            }
+            return;
+        }
+
+        /* The batch shares its execution time */
+        long executionNanos = (System.nanoTime() - startedAt) / batch.size();
+        writeMetrics.committed();
+        for (int i = 0; i < results.length; i++) {
+            writeMetrics.finished(executionNanos, true);
+            batch.get(i).future.complete(results[i]);
+        }
+    }
+
+    /**
+     * Executes a single write in its own transaction and
+     * completes its future
+     * 
+     * @param write     The write
+     * @param startedAt When execution started, from {@link System#nanoTime()}
+     */
+    private final void completeWrite(QueuedWrite write, long startedAt) {
+        Object result = executeWrite(write.query);
+        writeMetrics.finished(System.nanoTime() - startedAt, result != FAILED);
+        write.future.complete(result == FAILED ? null : result);
+    }
+
+    /**
+     * Executes a query on the writer and commits it
+     * 
+     * @param query The query
+     * @return The result, or {@link #FAILED}
+     */
+    private final Object executeWrite(DatabaseQuery<?> query) {
+        Connection connection = writeConnection.getConnection();
+
+        try {
+            Object result = query.execute(connection);
+
+            /* Commit before completing, so reads queued afterwards see the write */
+            connection.commit();
+            writeMetrics.committed();
+            return result;
+        } catch (SQLException | RuntimeException e) {
+            logger.error("Failed to execute db query", e, "database", databasePath);
+
+            /* Do not let a partially applied query be committed by the next one */
+            try {
+                connection.rollback();
+            } catch (SQLException rollbackException) {
+                logger.error("Failed to roll back db transaction", rollbackException, "database", databasePath);
+            }
+
+            return FAILED;
+        }
+    }
+
+    /**
+     * Executes a read-only query on the read connection of
+     * the current thread, opening it if needed
+     * 
+     * @param query The query
+     * @return The result, or {@link #FAILED}
+     */
+    private final Object executeRead(DatabaseQuery<?> query) {
+        try {
+            DatabaseConnection connection = threadConnection.get();
+            if (connection == null) {
+                connection = DatabaseConnection.openReader(databasePath);
+                threadConnection.set(connection);
+
+                synchronized (readConnections) {
+                    readConnections.add(connection);
+                }
+            }
+
+            return query.execute(connection.getConnection());
+        } catch (SQLException | RuntimeException e) {
+            logger.error("Failed to execute db read query", e, "database", databasePath);
+            return FAILED;
+        }
+    }
+
+    /**
+     * Writes the metrics of the lanes of the open databases
+     * 
+     * @param writer The writer to write them to
+     */
+    private static final void collectMetrics(MetricsWriter writer) {
+        List<String[]> labelValues = new ArrayList<>();
+        List<DatabaseLaneMetrics> lanes = new ArrayList<>();
+        for (Database database : openDatabases) {
+            for (DatabaseLaneMetrics lane : new DatabaseLaneMetrics[] { database.writeMetrics, database.readMetrics }) {
+                labelValues.add(new String[] { database.databasePath, lane.getName() });
+                lanes.add(lane);
+            }
+        }
+
+        writer.writeFamily("database_queue_depth", "The queries waiting to be executed", "gauge");
+        for (int i = 0; i < lanes.size(); i++) {
+            writer.writeSample("database_queue_depth", LANE_LABEL_NAMES, labelValues.get(i), lanes.get(i).getQueueDepth());
+        }
+
+        writer.writeFamily("database_queries_total", "The queries executed, by whether they failed", "counter");
+        String[] outcomeLabelNames = { "database", "lane", "outcome" };
+        for (int i = 0; i < lanes.size(); i++) {
+            String[] values = labelValues.get(i);
+            writer.writeSample("database_queries_total", outcomeLabelNames, new String[] { values[0], values[1], "executed" }, lanes.get(i).getExecutedCount());
+            writer.writeSample("database_queries_total", outcomeLabelNames, new String[] { values[0], values[1], "failed" }, lanes.get(i).getFailedCount());
+        }
+
+        writer.writeFamily("database_commits_total", "The transactions committed", "counter");
+        for (int i = 0; i < lanes.size(); i++) {
+            writer.writeSample("database_commits_total", LANE_LABEL_NAMES, labelValues.get(i), lanes.get(i).getCommitCount());
+        }
+
+        writer.writeFamily("database_query_wait_seconds", "The time a query spent queued", "summary");
+        for (int i = 0; i < lanes.size(); i++) {
+            writer.writeSummary("database_query_wait_seconds", LANE_LABEL_NAMES, labelValues.get(i), lanes.get(i).getWaitTimes());
+        }
+
+        writer.writeFamily("database_query_execution_seconds", "The time a query spent executing", "summary");
+        for (int i = 0; i < lanes.size(); i++) {
+            writer.writeSummary("database_query_execution_seconds", LANE_LABEL_NAMES, labelValues.get(i), lanes.get(i).getExecutionTimes());
+        }
+    }
+
+    /**
+     * Waits for an executor to finish its queued queries
+     * 
+     * @param executor The executor
+     */
+    private static final void awaitTermination(ExecutorService executor) {
+        try {
+            executor.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * A write waiting in the queue
+     */
+    private static final class QueuedWrite {
+
+        /**
+         * Marks the end of the queue once the database is closed
+         */
+        private static final QueuedWrite END = new QueuedWrite(null, null);
+
+        /**
+         * The query
+         */
+        private final DatabaseQuery<?> query;
+
+        /**
+         * The future completed with the result of the query
+         */
+        private final CompletableFuture<Object> future;
+
+        /**
+         * When the write was queued, from {@link System#nanoTime()}
+         */
+        private final long queuedAt;
+
+        /**
+         * Creates a new {@code QueuedWrite}
+         * 
+         * @param query  The query
+         * @param future The future completed with the result
+         */
+        private QueuedWrite(DatabaseQuery<?> query, CompletableFuture<Object> future) {
+            this.query = query;
+            this.future = future;
+            queuedAt = System.nanoTime();
+        }
+    }
+
+    /**
+     * Creates a thread factory that numbers its threads
+     * 
+     * @param name The base name of the threads
+     * @return The thread factory
+     */
+    private static final ThreadFactory namedThreads(String name) {
+        AtomicInteger count = new AtomicInteger();
+        return runnable -> new Thread(runnable, name + "-" + count.incrementAndGet());
+    }
+}
@@ -1,92 +1,183 @@
 package me.grayingout.database.accessors;
 
 import java.sql.Connection;
-import java.sql.DriverManager;
+import java.sql.PreparedStatement;
 import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 
+import me.grayingout.App;
+import me.grayingout.database.migration.DatabaseMigration;
 import me.grayingout.database.query.DatabaseQuery;
 
 /**
  * A base class for database accessors, which are classes
- * that provided access to a database, for executing queries
+ * that provided access to a database, for executing queries.
+ * <p>
+ * Queries should get their statements through
+ * {@link #prepareStatement(String)}, which keeps each statement
+ * prepared for the lifetime of the connection, so SQLite only
+ * parses each query once.
+ * <p>
+ * Each accessor owns a schema, the tables it creates, within a
+ * {@link Database}. Depending on the configuration the database is
+ * a file of its own, or one shared by every accessor. The schema is
+ * brought up to date by the accessor's migrations while it is created,
+ * before any query is executed
  */
 public abstract class DatabaseAccessor {
-    
+
+    /**
+     * The name of the accessor's schema
+     */
+    private final String schemaName;
+
     /**
-     * The connection to the database
+     * The database the accessor executes queries on
      */
-    private Connection dbConnection;
+    private final Database database;
 
     /**
-     * Holds a queue of database queries to
-     * be executed
+     * Creates a new {@code DatabaseAccessor}, on the database
+     * its schema is configured to be stored in
+     * 
+     * @param schemaName The name of the accessor's schema
+     * @param migrations The migrations of the schema
+     * @throws IllegalStateException If the schema could not be brought up to date
      */
-    private final ExecutorService es;
+    public DatabaseAccessor(String schemaName, List<DatabaseMigration> migrations) {
+        this(schemaName, DatabaseAccessorManager.getDatabase(schemaName), migrations);
+    }
 
     /**
      * Creates a new {@code DatabaseAccessor}
      * 
-     * @param databasePath The path to the database file
+     * @param schemaName The name of the accessor's schema
+     * @param database   The database to execute queries on
+     * @param migrations The migrations that create and update the schema,
+     *                   in version order. Migrations must never be removed
+     *                   or reordered once released, and must only touch the
+     *                   accessor's own tables, as the database may be shared
+     * @throws IllegalStateException If the schema could not be brought up to date
      */
-    public DatabaseAccessor(String databasePath) {
-        es = Executors.newFixedThreadPool(1);
-
-        /* Connect to database */
-        try {
-            dbConnection = DriverManager.getConnection("jdbc:sqlite:" + databasePath);
-            dbConnection.setAutoCommit(false);
-        } catch (SQLException e) {
-            e.printStackTrace();
-            return;
-        }
+    public DatabaseAccessor(String schemaName, Database database, List<DatabaseMigration> migrations) {
+        this.schemaName = schemaName;
+        this.database = database;
 
-        /* Initialise database */
-        init();
+        /* Bring the schema up to date before any query can see it */
+        database.migrate(schemaName, migrations);
     }
 
     /**
-     * Queue the execution of a query
+     * Queue the execution of a query. The future is completed
+     * with {@code null} if the query fails
      * 
+     * @param <T>   The type of the result
      * @param query The database query
      * @return A completable future that will be called with the result
      */
-    public CompletableFuture<Object> queueQuery(DatabaseQuery<?> query) {
-        CompletableFuture<Object> future = new CompletableFuture<>();
-
-        /* Queue the query */
-        es.submit(new Runnable() {
-            @Override
-            public void run() {
-                try {
-                    future.complete(query.execute(dbConnection));
-                    dbConnection.commit();
-                } catch (SQLException e) {
-                    System.err.println("Failed to execute db query");
-                    e.printStackTrace();
-                    future.complete(null);
-                }
-            }
-        });
-
-        return future;
+    public <T> CompletableFuture<T> queueQuery(DatabaseQuery<T> query) {
+        return database.queueQuery(query);
+    }
+
+    /**
+     * Gets the prepared statement for some SQL on the connection of
+     * the current query, preparing it the first time it is used. The
+     * statement is owned by the database and must not be closed, but
+     * its result sets should be. Must only be called from a query
+     * being executed
+     * 
+     * @param sql The SQL of the statement
+     * @return The prepared statement, with its parameters cleared
+     * @throws SQLException If the statement could not be prepared
+     */
+    /* default */ final PreparedStatement prepareStatement(String sql) throws SQLException {
+        return database.prepareStatement(sql);
+    }
+
+    /**
+     * Queues anything the accessor is holding back, before its
+     * database is closed. The database is closed separately, as
+     * other accessors may share it
+     */
+    public void close() {
+        /* Nothing is held back by default */
     }
 
     /**
-     * Returns if there is an active connection to the warnings
-     * database
+     * Gets the name of the accessor's schema
+     * 
+     * @return The schema name
+     */
+    public final String getSchemaName() {
+        return schemaName;
+    }
+
+    /**
+     * Gets the database the accessor executes queries on
+     * 
+     * @return The database
+     */
+    public final Database getDatabase() {
+        return database;
+    }
+
+    /**
+     * Returns if there is an active connection to the
+     * accessor's database
      * 
      * @return If there is an active connection
      */
     public final boolean isConnected() {
-        return dbConnection != null;
+        return database.isConnected();
     }
 
     /**
-     * The initialisation method called immediately
-     * after connecting to the database
+     * Gets the metrics of the lane that writes are executed on,
+     * which is shared with any accessor on the same database
+     * 
+     * @return The write lane metrics
      */
-    /* default */ abstract void init();
+    public final DatabaseLaneMetrics getWriteLaneMetrics() {
+        return database.getWriteLaneMetrics();
+    }
+
+    /**
+     * Gets the metrics of the lane that read-only queries are
+     * executed on, which is shared with any accessor on the
+     * same database
+     * 
+     * @return The read lane metrics
+     */
+    public final DatabaseLaneMetrics getReadLaneMetrics() {
+        return database.getReadLaneMetrics();
+    }
+
+    /**
+     * Configures a SQLite connection for throughput. The journal
+     * mode cannot be changed inside a transaction, so this must be
+     * called before auto-commit is turned off
+     * 
+     * @param connection The connection to the database
+     * @throws SQLException If the connection could not be configured
+     */
+    public static final void configure(Connection connection) throws SQLException {
+        long mmapSize = Long.parseLong(App.env.get("SQLITE_MMAP_SIZE_MB", "256")) << 20;
+        long cacheSize = Long.parseLong(App.env.get("SQLITE_CACHE_SIZE_MB", "16")) << 10;
+
+        try (Statement statement = connection.createStatement()) {
+            /* Readers no longer block the writer, and commits append to the log */
+            statement.execute("PRAGMA journal_mode = WAL");
+
+            /* Only sync on checkpoints, which is safe in WAL mode */
+            statement.execute("PRAGMA synchronous = NORMAL");
+
+            statement.execute("PRAGMA mmap_size = " + mmapSize);
+
+            /* A negative cache size is in KiB rather than pages */
+            statement.execute("PRAGMA cache_size = -" + cacheSize);
+            statement.execute("PRAGMA temp_store = MEMORY");
+        }
+    }
 }
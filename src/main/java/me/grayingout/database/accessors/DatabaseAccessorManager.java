@@ -1,10 +1,47 @@
 package me.grayingout.database.accessors;
 
+import java.io.File;
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import me.grayingout.App;
+import me.grayingout.database.storage.StorageBackend;
+import me.grayingout.database.storage.kv.KeyValueStorageBackend;
+
 /**
- * Handles the {@code DatabaseAccessor} singletons
+ * Handles the {@code DatabaseAccessor} singletons, and the
+ * databases they are stored in.
+ * <p>
+ * By default each accessor has a database file of its own. With
+ * {@code DATABASE_MODE=consolidated} every accessor shares one file,
+ * so their writes share a writer and its group commits, and queries
+ * can join across their tables. Existing files are merged into the
+ * consolidated file with {@link DatabaseMergeTool}.
+ * <p>
+ * The accessors are stored in the {@code StorageBackend} chosen
+ * with {@code STORAGE_BACKEND}, which is either {@code sqlite}
+ * (the default) or {@code kv}
  */
 public final class DatabaseAccessorManager {
-    
+
+    /**
+     * The names of the schemas of the accessors, which are
+     * also the names of their files when not consolidated
+     */
+    /* default */ static final String[] SCHEMA_NAMES = { "warnings", "configuration", "levelling" };
+
+    /**
+     * The open databases against their paths, which is concurrent
+     * so different databases can be opened at once
+     */
+    private static final Map<String, Database> databases = new ConcurrentHashMap<>();
+
+    /**
+     * The backend the accessors are stored in
+     */
+    private static StorageBackend storageBackend;
+
     /**
      * The {@code WarningsDatabaseAccessor} singleton
      */
@@ -24,9 +61,96 @@ public final class DatabaseAccessorManager {
      * Initialises all {@code DatabaseAccessor}s
      */
     public static final void initDatabaseAccessors() {
-        warningsDatabaseAccessor = new WarningsDatabaseAccessor();
-        configurationDatabaseAccessor = new ConfigurationDatabaseAccessor();
-        levellingDatabaseAccessor = new LevellingDatabaseAccessor();
+        warningsDatabaseAccessor = new WarningsDatabaseAccessor(getStorageBackend().getWarningRepository());
+        configurationDatabaseAccessor = new ConfigurationDatabaseAccessor(getStorageBackend().getConfigurationRepository());
+        levellingDatabaseAccessor = new LevellingDatabaseAccessor(getStorageBackend().getLevelRepository());
+    }
+
+    /**
+     * Initialises all {@code DatabaseAccessor}s on a storage
+     * backend, rather than the one configured in the environment
+     * 
+     * @param backend The storage backend, closed along with the accessors
+     */
+    public static final void initDatabaseAccessors(StorageBackend backend) {
+        synchronized (DatabaseAccessorManager.class) {
+            storageBackend = backend;
+        }
+
+        initDatabaseAccessors();
+    }
+
+    /**
+     * Closes all initialised {@code DatabaseAccessor}s, and then the
+     * storage backend once the queued queries have been executed
+     */
+    public static final void closeDatabaseAccessors() {
+        if (levellingDatabaseAccessor != null) {
+            levellingDatabaseAccessor.close();
+        }
+
+        synchronized (DatabaseAccessorManager.class) {
+            if (storageBackend != null) {
+                storageBackend.close();
+                storageBackend = null;
+            }
+        }
+
+        for (Database database : databases.values()) {
+            database.close();
+        }
+        databases.clear();
+    }
+
+    /**
+     * Gets the database a schema is configured to be stored
+     * in, opening it the first time it is used
+     * 
+     * @param schemaName The name of the schema
+     * @return The database
+     * @throws IllegalStateException If the consolidated database does not
+     *                               exist, but the separate files do
+     */
+    /* default */ static final Database getDatabase(String schemaName) {
+        boolean consolidated = App.env.get("DATABASE_MODE", "separate").equalsIgnoreCase("consolidated");
+        String path = consolidated
+            ? App.env.get("DATABASE_CONSOLIDATED_PATH", "bot.db")
+            : schemaName + ".db";
+
+        return databases.computeIfAbsent(path, p -> {
+            if (consolidated) {
+                checkMerged(p);
+            }
+
+            return new Database(p);
+        });
+    }
+
+    /**
+     * Gets the backend the accessors are stored in, opening
+     * it the first time it is used
+     * 
+     * @return The storage backend
+     * @throws IllegalStateException If the backend could not be opened
+     */
+    /* default */ static final synchronized StorageBackend getStorageBackend() {
+        if (storageBackend == null) {
+            String backend = App.env.get("STORAGE_BACKEND", "sqlite");
+
+            if (backend.equalsIgnoreCase("kv")) {
+                try {
+                    storageBackend = new KeyValueStorageBackend();
+                } catch (IOException e) {
+                    throw new IllegalStateException("Failed to open the key-value store", e);
+                }
+            } else if (backend.equalsIgnoreCase("sqlite")) {
+                storageBackend = new SqliteStorageBackend();
+            } else {
+                throw new IllegalStateException("Unknown STORAGE_BACKEND " + backend + ", expected sqlite or kv");
+            }
+        }
+
+        return storageBackend;
     }
 
     /**
@@ -36,7 +160,7 @@ public final class DatabaseAccessorManager {
      */
     public static final WarningsDatabaseAccessor getWarningsDatabaseAccessor() {
         if (warningsDatabaseAccessor == null) {
-            warningsDatabaseAccessor = new WarningsDatabaseAccessor();
+            warningsDatabaseAccessor = new WarningsDatabaseAccessor(getStorageBackend().getWarningRepository());
         }
 
         return warningsDatabaseAccessor;
@@ -49,12 +173,12 @@ public final class DatabaseAccessorManager {
      */
     public static final ConfigurationDatabaseAccessor getConfigurationDatabaseAccessor() {
         if (configurationDatabaseAccessor == null) {
-            configurationDatabaseAccessor = new ConfigurationDatabaseAccessor();
+            configurationDatabaseAccessor = new ConfigurationDatabaseAccessor(getStorageBackend().getConfigurationRepository());
         }
 
         return configurationDatabaseAccessor;
     }
-    
+
     /**
      * Gets the {@code WarningsDatabaseAccessor} singleton
      * 
@@ -62,9 +186,31 @@ public final class DatabaseAccessorManager {
      */
     public static final LevellingDatabaseAccessor getLevellingDatabaseAccessor() {
         if (levellingDatabaseAccessor == null) {
-            levellingDatabaseAccessor = new LevellingDatabaseAccessor();
+            levellingDatabaseAccessor = new LevellingDatabaseAccessor(getStorageBackend().getLevelRepository());
         }
 
         return levellingDatabaseAccessor;
     }
+
+    /**
+     * Refuses to create a new consolidated database while the
+     * separate files still exist, as starting with it empty would
+     * hide their data
+     * 
+     * @param path The path to the consolidated database
+     * @throws IllegalStateException If the separate files have not been merged
+     */
+    private static final void checkMerged(String path) {
+        if (new File(path).exists()) {
+            return;
+        }
+
+        for (String schemaName : SCHEMA_NAMES) {
+            if (new File(schemaName + ".db").exists()) {
+                throw new IllegalStateException(String.format(
+                    "%s does not exist, but %s.db does. Merge the databases with %s before starting in consolidated mode",
+                    path, schemaName, DatabaseMergeTool.class.getName()));
+            }
+        }
+    }
 }
@@ -0,0 +1,133 @@
+package me.grayingout.database.accessors;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HashMap;
+import java.util.Map;
+
+import me.grayingout.logging.Logger;
+
+/**
+ * A connection to a database, along with the statements
+ * prepared on it. Only used from the thread that owns it
+ */
+final class DatabaseConnection {
+
+    /**
+     * The logger
+     */
+    private static final Logger logger = Logger.getLogger(DatabaseConnection.class);
+
+    /**
+     * The connection to the database
+     */
+    private final Connection connection;
+
+    /**
+     * The prepared statements of the connection against their SQL
+     */
+    private final Map<String, PreparedStatement> statementCache;
+
+    /**
+     * Creates a new {@code DatabaseConnection}
+     *
+     * @param connection The connection to the database
+     */
+    private DatabaseConnection(Connection connection) {
+        this.connection = connection;
+        statementCache = new HashMap<>();
+    }
+
+    /**
+     * Opens the connection that queries which write to
+     * the database are executed on
+     *
+     * @param databasePath The path to the database file
+     * @return The connection
+     * @throws SQLException If the connection could not be opened
+     */
+    static DatabaseConnection openWriter(String databasePath) throws SQLException {
+        Connection connection = DriverManager.getConnection("jdbc:sqlite:" + databasePath);
+        DatabaseAccessor.configure(connection);
+        connection.setAutoCommit(false);
+
+        return new DatabaseConnection(connection);
+    }
+
+    /**
+     * Opens a connection that only reads from the database. Each
+     * read runs in its own implicit transaction, so it sees every
+     * write committed before it started
+     *
+     * @param databasePath The path to the database file
+     * @return The connection
+     * @throws SQLException If the connection could not be opened
+     */
+    static DatabaseConnection openReader(String databasePath) throws SQLException {
+        Connection connection = DriverManager.getConnection("jdbc:sqlite:" + databasePath);
+        DatabaseAccessor.configure(connection);
+
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("PRAGMA query_only = 1");
+        }
+
+        return new DatabaseConnection(connection);
+    }
+
+    /**
+     * Gets the prepared statement for some SQL, preparing
+     * it the first time it is used
+     *
+     * @param sql The SQL of the statement
+     * @return The prepared statement, with its parameters cleared
+     * @throws SQLException If the statement could not be prepared
+     */
+    PreparedStatement prepareStatement(String sql) throws SQLException {
+        PreparedStatement statement = statementCache.get(sql);
+        if (statement == null || statement.isClosed()) {
+            statement = connection.prepareStatement(sql);
+            statementCache.put(sql, statement);
+            return statement;
+        }
+
+        statement.clearParameters();
+        statement.clearBatch();
+        return statement;
+    }
+
+    /**
+     * Gets the underlying JDBC connection
+     *
+     * @return The connection
+     */
+    Connection getConnection() {
+        return connection;
+    }
+
+    /**
+     * Closes the cached statements and the connection, committing
+     * anything left uncommitted on the writer
+     */
+    void close() {
+        for (PreparedStatement statement : statementCache.values()) {
+            try {
+                statement.close();
+            } catch (SQLException e) {
+                logger.warn("Failed to close db statement", e);
+            }
+        }
+        statementCache.clear();
+
+        try {
+            if (!connection.getAutoCommit()) {
+                connection.commit();
+            }
+            connection.close();
+        } catch (SQLException e) {
+            logger.error("Failed to close db connection", e);
+        }
+    }
+}
@@ -0,0 +1,232 @@
+package me.grayingout.database.accessors;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import me.grayingout.metrics.LatencyHistogram;
+
+/**
+ * Counts the queries going through one lane of a
+ * {@code DatabaseAccessor}, and how long they took
+ */
+public final class DatabaseLaneMetrics {
+
+    /**
+     * The name of the lane
+     */
+    private final String name;
+
+    /**
+     * The number of queries waiting to be executed
+     */
+    private final AtomicInteger queueDepth;
+
+    /**
+     * The number of queries executed successfully
+     */
+    private final LongAdder executedCount;
+
+    /**
+     * The number of queries that failed
+     */
+    private final LongAdder failedCount;
+
+    /**
+     * The number of transactions committed
+     */
+    private final LongAdder commitCount;
+
+    /**
+     * The total time queries spent queued
+     */
+    private final LongAdder totalWaitNanos;
+
+    /**
+     * The total time queries spent executing
+     */
+    private final LongAdder totalExecutionNanos;
+
+    /**
+     * The time each query spent queued
+     */
+    private final LatencyHistogram waitTimes;
+
+    /**
+     * The time each query spent executing
+     */
+    private final LatencyHistogram executionTimes;
+
+    /**
+     * Creates a new {@code DatabaseLaneMetrics}
+     *
+     * @param name The name of the lane
+     */
+    DatabaseLaneMetrics(String name) {
+        this.name = name;
+        queueDepth = new AtomicInteger();
+        executedCount = new LongAdder();
+        failedCount = new LongAdder();
+        commitCount = new LongAdder();
+        totalWaitNanos = new LongAdder();
+        totalExecutionNanos = new LongAdder();
+        waitTimes = new LatencyHistogram();
+        executionTimes = new LatencyHistogram();
+    }
+
+    /**
+     * Records a query being queued
+     */
+    void queued() {
+        queueDepth.incrementAndGet();
+    }
+
+    /**
+     * Records a query being taken off the queue, either
+     * to be executed or because it was rejected
+     *
+     * @param waitNanos How long it was queued for
+     */
+    void dequeued(long waitNanos) {
+        queueDepth.decrementAndGet();
+        totalWaitNanos.add(waitNanos);
+        waitTimes.record(waitNanos);
+    }
+
+    /**
+     * Records a query finishing
+     *
+     * @param executionNanos How long it took to execute
+     * @param succeeded      If it succeeded
+     */
+    void finished(long executionNanos, boolean succeeded) {
+        totalExecutionNanos.add(executionNanos);
+        executionTimes.record(executionNanos);
+        (succeeded ? executedCount : failedCount).increment();
+    }
+
+    /**
+     * Records a transaction being committed
+     */
+    void committed() {
+        commitCount.increment();
+    }
+
+    /**
+     * Gets the name of the lane
+     *
+     * @return The name
+     */
+    public final String getName() {
+        return name;
+    }
+
+    /**
+     * Gets the number of queries waiting to be executed
+     *
+     * @return The queue depth
+     */
+    public final int getQueueDepth() {
+        return queueDepth.get();
+    }
+
+    /**
+     * Gets the number of queries executed successfully
+     *
+     * @return The count
+     */
+    public final long getExecutedCount() {
+        return executedCount.sum();
+    }
+
+    /**
+     * Gets the number of queries that failed
+     *
+     * @return The count
+     */
+    public final long getFailedCount() {
+        return failedCount.sum();
+    }
+
+    /**
+     * Gets the number of transactions committed. Group commit
+     * makes this lower than the number of queries executed
+     *
+     * @return The count
+     */
+    public final long getCommitCount() {
+        return commitCount.sum();
+    }
+
+    /**
+     * Gets the total time queries spent queued
+     *
+     * @return The time in nanoseconds
+     */
+    public final long getTotalWaitNanos() {
+        return totalWaitNanos.sum();
+    }
+
+    /**
+     * Gets the total time queries spent executing
+     *
+     * @return The time in nanoseconds
+     */
+    public final long getTotalExecutionNanos() {
+        return totalExecutionNanos.sum();
+    }
+
+    /**
+     * Gets the time each query spent queued
+     *
+     * @return The wait times
+     */
+    public final LatencyHistogram getWaitTimes() {
+        return waitTimes;
+    }
+
+    /**
+     * Gets the time each query spent executing. Queries committed
+     * together share the time the batch took
+     *
+     * @return The execution times
+     */
+    public final LatencyHistogram getExecutionTimes() {
+        return executionTimes;
+    }
+
+    /**
+     * Gets the average time a query spent queued
+     *
+     * @return The time in milliseconds
+     */
+    public final double getAverageWaitMillis() {
+        return average(getTotalWaitNanos());
+    }
+
+    /**
+     * Gets the average time a query spent executing
+     *
+     * @return The time in milliseconds
+     */
+    public final double getAverageExecutionMillis() {
+        return average(getTotalExecutionNanos());
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s lane: %d queued, %d executed, %d failed, %d commits, %.2fms avg wait, %.2fms avg execution",
+            name, getQueueDepth(), getExecutedCount(), getFailedCount(), getCommitCount(), getAverageWaitMillis(), getAverageExecutionMillis());
+    }
+
+    /**
+     * Averages a total over the finished queries
+     *
+     * @param totalNanos The total in nanoseconds
+     * @return The average in milliseconds
+     */
+    private double average(long totalNanos) {
+        long count = getExecutedCount() + getFailedCount();
+        return count == 0 ? 0 : (double) totalNanos / count / TimeUnit.MILLISECONDS.toNanos(1);
+    }
+}
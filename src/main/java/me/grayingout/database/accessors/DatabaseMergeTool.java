@@ -0,0 +1,213 @@
+package me.grayingout.database.accessors;
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+import me.grayingout.App;
+import me.grayingout.database.migration.MigrationRunner;
+
+/**
+ * Merges the separate database files of the accessors into one
+ * consolidated database, for {@code DATABASE_MODE=consolidated}.
+ * Run offline, while the bot is stopped:
+ * <pre>
+ * java -cp discord-bot-1.0-SNAPSHOT-jar-with-dependencies.jar me.grayingout.database.accessors.DatabaseMergeTool [output] [input...]
+ * </pre>
+ * The output defaults to {@code DATABASE_CONSOLIDATED_PATH}, and the
+ * inputs to the file of each accessor. Each input's schema is named
+ * after its file, and keeps its version, so the accessors carry on
+ * migrating it from where it was. The inputs are left untouched
+ */
+public final class DatabaseMergeTool {
+
+    /**
+     * The main method
+     * 
+     * @param args The output path, followed by the input paths
+     */
+    public static void main(String[] args) {
+        String outputPath = args.length > 0 ? args[0] : App.env.get("DATABASE_CONSOLIDATED_PATH", "bot.db");
+
+        List<String> inputPaths = new ArrayList<>();
+        if (args.length > 1) {
+            for (int i = 1; i < args.length; i++) {
+                inputPaths.add(args[i]);
+            }
+        } else {
+            for (String schemaName : DatabaseAccessorManager.SCHEMA_NAMES) {
+                inputPaths.add(schemaName + ".db");
+            }
+        }
+
+        /* Never merge into existing data */
+        if (new File(outputPath).exists()) {
+            System.err.println(outputPath + " already exists, refusing to merge into it");
+            System.exit(1);
+        }
+
+        try (Connection connection = DriverManager.getConnection("jdbc:sqlite:" + outputPath)) {
+            DatabaseAccessor.configure(connection);
+
+            for (String inputPath : inputPaths) {
+                if (!new File(inputPath).exists()) {
+                    System.out.println("Skipping " + inputPath + ", it does not exist");
+                    continue;
+                }
+
+                mergeDatabase(connection, inputPath);
+            }
+        } catch (SQLException | RuntimeException e) {
+            System.err.println("Failed to merge the databases into " + outputPath);
+            e.printStackTrace();
+
+            /* Do not leave a partial merge to be started from */
+            new File(outputPath).delete();
+            new File(outputPath + "-wal").delete();
+            new File(outputPath + "-shm").delete();
+            System.exit(1);
+        }
+
+        System.out.println("Merged the databases into " + outputPath + ". Set DATABASE_MODE=consolidated to use it");
+    }
+
+    /**
+     * Copies the tables of a database file into the consolidated
+     * database in one transaction, along with its schema version
+     * 
+     * @param connection The connection to the consolidated database
+     * @param inputPath  The path to the file to merge
+     * @throws SQLException If the file could not be merged
+     */
+    private static final void mergeDatabase(Connection connection, String inputPath) throws SQLException {
+        String schemaName = new File(inputPath).getName().replaceFirst("\\.db$", "");
+
+        /* Files can only be attached outside of a transaction */
+        try (PreparedStatement statement = connection.prepareStatement("ATTACH DATABASE ? AS source")) {
+            statement.setString(1, inputPath);
+            statement.execute();
+        }
+
+        try {
+            connection.setAutoCommit(false);
+
+            if (MigrationRunner.getSchemaVersion(connection, schemaName) != 0) {
+                throw new IllegalStateException("The " + schemaName + " schema has already been merged");
+            }
+
+            int version = getSourceSchemaVersion(connection, schemaName);
+
+            /* Copy the tables before creating their indexes, so each index is built once */
+            List<String> indexSqls = new ArrayList<>();
+            long rowCount = 0;
+            try (Statement statement = connection.createStatement();
+                    ResultSet set = statement.executeQuery(
+                        "SELECT type, name, sql FROM source.sqlite_master"
+                      + "  WHERE sql IS NOT NULL AND name NOT LIKE 'sqlite_%' AND name != 'SchemaVersion'"
+                      + "  ORDER BY type != 'table'")) {
+                while (set.next()) {
+                    if (!set.getString("type").equals("table")) {
+                        indexSqls.add(set.getString("sql"));
+                        continue;
+                    }
+
+                    /* The name is quoted, as it comes from the file rather than the bot */
+                    String table = "\"" + set.getString("name").replace("\"", "\"\"") + "\"";
+                    try (Statement copyStatement = connection.createStatement()) {
+                        copyStatement.execute(set.getString("sql"));
+                        rowCount += copyStatement.executeUpdate("INSERT INTO main." + table + " SELECT * FROM source." + table);
+                    }
+                }
+            }
+
+            try (Statement statement = connection.createStatement()) {
+                for (String indexSql : indexSqls) {
+                    statement.execute(indexSql);
+                }
+
+                /* Keep AUTOINCREMENT from reusing the ids of deleted rows */
+                if (hasTable(connection, "source", "sqlite_sequence")) {
+                    statement.execute(
+                        "UPDATE main.sqlite_sequence SET seq = ("
+                      + "  SELECT source_sequence.seq FROM source.sqlite_sequence source_sequence"
+                      + "  WHERE source_sequence.name == main.sqlite_sequence.name)"
+                      + "  WHERE name IN (SELECT name FROM source.sqlite_sequence)");
+                    statement.execute(
+                        "INSERT INTO main.sqlite_sequence (name, seq)"
+                      + "  SELECT name, seq FROM source.sqlite_sequence"
+                      + "  WHERE name NOT IN (SELECT name FROM main.sqlite_sequence)");
+                }
+            }
+
+            MigrationRunner.setSchemaVersion(connection, schemaName, version);
+            connection.commit();
+
+            System.out.println(String.format("Merged %s as the %s schema at version %d, copying %d rows",
+                inputPath, schemaName, version, rowCount));
+        } catch (SQLException | RuntimeException e) {
+            connection.rollback();
+            throw e;
+        } finally {
+            connection.setAutoCommit(true);
+
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("DETACH DATABASE source");
+            }
+        }
+    }
+
+    /**
+     * Reads the version of a schema in the attached file, which was
+     * only stored in {@code user_version} before it was stored per schema
+     * 
+     * @param connection The connection with the file attached as {@code source}
+     * @param schemaName The name of the schema
+     * @return The version
+     * @throws SQLException If it could not be read
+     */
+    private static final int getSourceSchemaVersion(Connection connection, String schemaName) throws SQLException {
+        if (hasTable(connection, "source", "SchemaVersion")) {
+            try (PreparedStatement statement = connection.prepareStatement(
+                    "SELECT version FROM source.SchemaVersion WHERE schema_name == ?")) {
+                statement.setString(1, schemaName);
+
+                try (ResultSet set = statement.executeQuery()) {
+                    if (set.next()) {
+                        return set.getInt("version");
+                    }
+                }
+            }
+        }
+
+        try (Statement statement = connection.createStatement();
+                ResultSet set = statement.executeQuery("PRAGMA source.user_version")) {
+            return set.getInt(1);
+        }
+    }
+
+    /**
+     * Returns if a database has a table
+     * 
+     * @param connection The connection to the database
+     * @param database   The name the database is attached as
+     * @param table      The name of the table
+     * @return If it has the table
+     * @throws SQLException If it could not be checked
+     */
+    private static final boolean hasTable(Connection connection, String database, String table) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(
+                "SELECT 1 FROM " + database + ".sqlite_master WHERE type == 'table' AND name == ?")) {
+            statement.setString(1, table);
+
+            try (ResultSet set = statement.executeQuery()) {
+                return set.next();
+            }
+        }
+    }
+}
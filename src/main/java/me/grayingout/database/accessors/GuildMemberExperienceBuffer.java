@@ -0,0 +1,412 @@
+package me.grayingout.database.accessors;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import me.grayingout.database.storage.ExperienceDelta;
+import me.grayingout.lifecycle.LifecycleManager;
+import me.grayingout.lifecycle.ShutdownStage;
+import me.grayingout.util.Levelling;
+
+/**
+ * A write-behind buffer for guild member level experience.
+ * <p>
+ * Experience increments are absorbed in memory against a cached
+ * total for each guild member, and the accumulated deltas are
+ * written to the level repository in a single batch,
+ * either on a fixed interval or once enough increments are pending
+ */
+public final class GuildMemberExperienceBuffer {
+
+    /**
+     * How long a member's cached experience is kept after
+     * their last increment before it is dropped from memory
+     */
+    private static final long IDLE_EVICTION_MILLIS = TimeUnit.MINUTES.toMillis(10);
+
+    /**
+     * The accessor the buffer loads from and flushes to
+     */
+    private final LevellingDatabaseAccessor accessor;
+
+    /**
+     * The buffered experience of each guild member
+     */
+    private final ConcurrentHashMap<GuildMemberKey, BufferedExperience> entries;
+
+    /**
+     * The number of increments received since the last flush
+     */
+    private final AtomicInteger pendingIncrements;
+
+    /**
+     * Whether a size triggered flush has already been requested
+     */
+    private final AtomicBoolean flushRequested;
+
+    /**
+     * The number of pending increments that triggers a flush
+     */
+    private final int flushThreshold;
+
+    /**
+     * Runs the periodic and size triggered flushes
+     */
+    private final ScheduledExecutorService scheduler;
+
+    /**
+     * Creates a new {@code GuildMemberExperienceBuffer}
+     *
+     * @param accessor        The levelling database accessor
+     * @param flushIntervalMs The interval between flushes in milliseconds
+     * @param flushThreshold  The number of pending increments that triggers a flush
+     */
+    GuildMemberExperienceBuffer(LevellingDatabaseAccessor accessor, long flushIntervalMs, int flushThreshold) {
+        this.accessor = accessor;
+        this.flushThreshold = flushThreshold;
+        entries = new ConcurrentHashMap<>();
+        pendingIncrements = new AtomicInteger();
+        flushRequested = new AtomicBoolean();
+
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "experience-buffer-flush");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::flush, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+
+        /* Make sure nothing is lost when the bot is stopped, before the database is closed */
+        LifecycleManager.getInstance().register(ShutdownStage.FLUSH_CACHES, "experience-buffer", this::close);
+    }
+
+    /**
+     * Adds experience to a guild member and returns their new level
+     * if the experience caused them to level up, else {@code -1}
+     *
+     * @param guildId    The id of the guild
+     * @param userId     The id of the member
+     * @param experience The experience to add
+     * @return A future completed with the new level, or {@code -1}
+     */
+    public final CompletableFuture<Integer> addExperience(long guildId, long userId, int experience) {
+        return getOrLoad(guildId, userId).thenApply(entry -> {
+            int previousExperience = entry.total.getAndAdd(experience);
+            entry.pending.addAndGet(experience);
+            entry.lastUpdated = System.currentTimeMillis();
+
+            /* Entry was removed while being updated */
+            if (entry.retired) {
+                /* The stored experience is being overwritten, which the increment must not undo */
+                if (entry.discarded) {
+                    entry.pending.set(0);
+                    return -1;
+                }
+
+                /* Evicted, move the increment to a fresh entry */
+                moveOrphanedExperience(guildId, userId, entry);
+            }
+
+            accessor.updateLeaderboard(guildId, userId, entry.total::get);
+
+            /* Request a flush once enough increments have built up */
+            if (pendingIncrements.incrementAndGet() >= flushThreshold && flushRequested.compareAndSet(false, true)) {
+                scheduler.execute(this::flush);
+            }
+
+            /* Check for a new level */
+            int previousLevel = Levelling.getLevelFromExperience(previousExperience);
+            int newLevel = Levelling.getLevelFromExperience(previousExperience + experience);
+            if (previousLevel != newLevel) {
+                return newLevel;
+            }
+            return -1;
+        });
+    }
+
+    /**
+     * Gets the experience of a guild member, including any
+     * experience that has not been flushed yet
+     *
+     * @param guildId The id of the guild
+     * @param userId  The id of the member
+     * @return A future completed with the experience
+     */
+    public final CompletableFuture<Integer> getExperience(long guildId, long userId) {
+        return getOrLoad(guildId, userId).thenApply(entry -> entry.total.get());
+    }
+
+    /**
+     * Gets the buffered experience of every member of a guild,
+     * including experience that has not been flushed
+     *
+     * @param guildId The id of the guild
+     * @return The experience against the user id
+     */
+    /* default */ final Map<Long, Integer> getBufferedExperience(long guildId) {
+        Map<Long, Integer> bufferedExperience = new HashMap<>();
+        for (Map.Entry<GuildMemberKey, BufferedExperience> mapEntry : entries.entrySet()) {
+            if (mapEntry.getKey().guildId == guildId) {
+                bufferedExperience.put(mapEntry.getKey().userId, mapEntry.getValue().total.get());
+            }
+        }
+
+        return bufferedExperience;
+    }
+
+    /**
+     * Drops the buffered experience of a guild member, discarding
+     * any experience that has not been flushed. Used before the
+     * member's experience is overwritten in the database
+     *
+     * @param guildId The id of the guild
+     * @param userId  The id of the member
+     */
+    public final void discard(long guildId, long userId) {
+        BufferedExperience entry = entries.remove(new GuildMemberKey(guildId, userId));
+        if (entry != null) {
+            /* Before retiring it, so increments that see it retired drop their experience */
+            entry.discarded = true;
+            entry.retired = true;
+            entry.pending.set(0);
+        }
+    }
+
+    /**
+     * Writes all pending experience to the database in a single
+     * transaction. The write is queued before this method returns, so
+     * queries queued afterwards will see the flushed experience
+     *
+     * @return A future completed once the write has been committed
+     */
+    public final synchronized CompletableFuture<Void> flush() {
+        flushRequested.set(false);
+        pendingIncrements.set(0);
+
+        List<ExperienceDelta> deltas = new ArrayList<>();
+        List<BufferedExperience> flushed = new ArrayList<>();
+        for (Map.Entry<GuildMemberKey, BufferedExperience> mapEntry : entries.entrySet()) {
+            int delta = mapEntry.getValue().pending.getAndSet(0);
+            if (delta != 0) {
+                deltas.add(new ExperienceDelta(mapEntry.getKey().guildId, mapEntry.getKey().userId, delta));
+                flushed.add(mapEntry.getValue());
+            }
+        }
+
+        if (deltas.isEmpty()) {
+            evictIdleEntries();
+            return CompletableFuture.completedFuture(null);
+        }
+
+        return accessor.queueExperienceDeltas(deltas).thenAccept(result -> {
+            /* Write failed, put the experience back for the next flush */
+            if (result == null) {
+                for (int i = 0; i < deltas.size(); i++) {
+                    ExperienceDelta delta = deltas.get(i);
+                    BufferedExperience entry = flushed.get(i);
+                    entry.pending.addAndGet(delta.getDelta());
+
+                    /* Removed since, handled as an increment to a removed entry is */
+                    if (entry.retired) {
+                        if (entry.discarded) {
+                            entry.pending.set(0);
+                        } else {
+                            moveOrphanedExperience(delta.getGuildId(), delta.getUserId(), entry);
+                        }
+                    }
+                }
+                return;
+            }
+
+            /* Only evict once the database holds the flushed experience */
+            evictIdleEntries();
+        });
+    }
+
+    /**
+     * Stops the periodic flushing and writes any pending
+     * experience to the database
+     */
+    public final void close() {
+        scheduler.shutdown();
+        flush().join();
+    }
+
+    /**
+     * Removes members that have not gained experience for a while
+     * from the buffer
+     */
+    private final void evictIdleEntries() {
+        long now = System.currentTimeMillis();
+
+        Iterator<Map.Entry<GuildMemberKey, BufferedExperience>> iterator = entries.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<GuildMemberKey, BufferedExperience> mapEntry = iterator.next();
+            BufferedExperience entry = mapEntry.getValue();
+
+            if (now - entry.lastUpdated <= IDLE_EVICTION_MILLIS) {
+                continue;
+            }
+
+            entry.retired = true;
+            iterator.remove();
+
+            /* Experience added while the entry was being evicted */
+            if (entry.pending.get() != 0) {
+                moveOrphanedExperience(mapEntry.getKey().guildId, mapEntry.getKey().userId, entry);
+            }
+        }
+    }
+
+    /**
+     * Moves the unflushed experience of an evicted entry onto
+     * the member's current entry
+     *
+     * @param guildId The id of the guild
+     * @param userId  The id of the member
+     * @param entry   The evicted entry
+     */
+    private final void moveOrphanedExperience(long guildId, long userId, BufferedExperience entry) {
+        int orphaned = entry.pending.getAndSet(0);
+        if (orphaned == 0) {
+            return;
+        }
+
+        /* Re-insert the evicted total, without going back to the database */
+        BufferedExperience replacement = new BufferedExperience(entry.total.get());
+        replacement.pending.set(orphaned);
+
+        BufferedExperience current = entries.putIfAbsent(new GuildMemberKey(guildId, userId), replacement);
+        if (current != null) {
+            /* Reloaded from the database, which does not hold the orphaned experience yet */
+            current.total.addAndGet(orphaned);
+            current.pending.addAndGet(orphaned);
+        }
+    }
+
+    /**
+     * Gets the buffered experience of a guild member, loading
+     * it from the database if it is not already buffered
+     *
+     * @param guildId The id of the guild
+     * @param userId  The id of the member
+     * @return A future completed with the buffered experience, which fails
+     *         if the experience could not be loaded
+     */
+    private final CompletableFuture<BufferedExperience> getOrLoad(long guildId, long userId) {
+        GuildMemberKey key = new GuildMemberKey(guildId, userId);
+
+        BufferedExperience entry = entries.get(key);
+        if (entry != null) {
+            return CompletableFuture.completedFuture(entry);
+        }
+
+        /* Load outside of the map so the database read does not block other members */
+        return accessor.queryGuildMemberExperience(guildId, userId).thenApply(storedExperience -> {
+            /* Do not buffer a total that is missing the stored experience */
+            if (storedExperience == null) {
+                throw new IllegalStateException("Failed to load the experience of member " + userId + " in guild " + guildId);
+            }
+
+            BufferedExperience loaded = new BufferedExperience(storedExperience);
+            BufferedExperience current = entries.putIfAbsent(key, loaded);
+
+            return current == null ? loaded : current;
+        });
+    }
+
+    /**
+     * The buffered experience of a single guild member
+     */
+    private static final class BufferedExperience {
+
+        /**
+         * The total experience of the member, including
+         * experience not yet flushed
+         */
+        private final AtomicInteger total;
+
+        /**
+         * The experience not yet flushed to the database
+         */
+        private final AtomicInteger pending;
+
+        /**
+         * When experience was last added
+         */
+        private volatile long lastUpdated;
+
+        /**
+         * Whether the entry has been removed from the buffer
+         */
+        private volatile boolean retired;
+
+        /**
+         * Whether the entry was removed by {@code discard}, so
+         * its experience is dropped rather than moved
+         */
+        private volatile boolean discarded;
+
+        /**
+         * Creates a new {@code BufferedExperience}
+         *
+         * @param storedExperience The experience stored in the database
+         */
+        private BufferedExperience(int storedExperience) {
+            total = new AtomicInteger(storedExperience);
+            pending = new AtomicInteger();
+            lastUpdated = System.currentTimeMillis();
+        }
+    }
+
+    /**
+     * The key of a guild member in the buffer
+     */
+    private static final class GuildMemberKey {
+
+        /**
+         * The id of the guild
+         */
+        private final long guildId;
+
+        /**
+         * The id of the member
+         */
+        private final long userId;
+
+        /**
+         * Creates a new {@code GuildMemberKey}
+         *
+         * @param guildId The id of the guild
+         * @param userId  The id of the member
+         */
+        private GuildMemberKey(long guildId, long userId) {
+            this.guildId = guildId;
+            this.userId = userId;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof GuildMemberKey)) {
+                return false;
+            }
+
+            GuildMemberKey other = (GuildMemberKey) obj;
+            return guildId == other.guildId && userId == other.userId;
+        }
+
+        @Override
+        public int hashCode() {
+            return Long.hashCode(guildId) * 31 + Long.hashCode(userId);
+        }
+    }
+}
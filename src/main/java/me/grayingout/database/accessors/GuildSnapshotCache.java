@@ -0,0 +1,301 @@
+package me.grayingout.database.accessors;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongFunction;
+import java.util.function.UnaryOperator;
+
+/**
+ * A read-through cache of immutable per-guild snapshots, such
+ * as a guild's configuration.
+ * <p>
+ * A guild's snapshot is loaded once, the first time it is
+ * read, and the writes made through the accessor replace the
+ * cached snapshot with an updated copy, so reads never have to
+ * go back to the database
+ * 
+ * @param <T> The type of snapshot
+ */
+public final class GuildSnapshotCache<T> {
+
+    /**
+     * The fraction of the cache kept when it grows past its
+     * maximum size
+     */
+    private static final double EVICTION_RETAIN_RATIO = 0.9;
+
+    /**
+     * The name of the cache
+     */
+    private final String name;
+
+    /**
+     * Loads the snapshot of a guild, completing with
+     * {@code null} if it could not be loaded
+     */
+    private final LongFunction<CompletableFuture<T>> loader;
+
+    /**
+     * The cached snapshots against the guild id
+     */
+    private final ConcurrentHashMap<Long, CachedSnapshot<T>> entries;
+
+    /**
+     * The number of guilds cached before the least recently
+     * read are evicted
+     */
+    private final int maxSize;
+
+    /**
+     * The number of reads answered from the cache
+     */
+    private final LongAdder hitCount;
+
+    /**
+     * The number of reads that had to load the snapshot
+     */
+    private final LongAdder missCount;
+
+    /**
+     * The number of snapshots evicted
+     */
+    private final LongAdder evictionCount;
+
+    /**
+     * Creates a new {@code GuildSnapshotCache}
+     *
+     * @param name    The name of the cache
+     * @param loader  Loads the snapshot of a guild, completing
+     *                with {@code null} if it could not be loaded
+     * @param maxSize The maximum number of guilds cached
+     */
+    GuildSnapshotCache(String name, LongFunction<CompletableFuture<T>> loader, int maxSize) {
+        this.name = name;
+        this.loader = loader;
+        this.maxSize = maxSize;
+        entries = new ConcurrentHashMap<>();
+        hitCount = new LongAdder();
+        missCount = new LongAdder();
+        evictionCount = new LongAdder();
+    }
+
+    /**
+     * Gets the snapshot of a guild, loading it
+     * if it is not cached
+     *
+     * @param guildId The id of the guild
+     * @return A future completed with the snapshot, which
+     *         fails if it could not be loaded
+     */
+    public final CompletableFuture<T> get(long guildId) {
+        CachedSnapshot<T> entry = entries.get(guildId);
+        if (entry != null) {
+            hitCount.increment();
+            entry.lastRead = System.nanoTime();
+            return entry.future;
+        }
+
+        CachedSnapshot<T> loading = new CachedSnapshot<>(new CompletableFuture<>());
+        entry = entries.putIfAbsent(guildId, loading);
+        if (entry != null) {
+            /* Another thread started loading it first */
+            hitCount.increment();
+            return entry.future;
+        }
+
+        missCount.increment();
+        loader.apply(guildId).whenComplete((snapshot, throwable) -> {
+            if (snapshot != null) {
+                loading.future.complete(snapshot);
+                return;
+            }
+
+            /* Load again next time as loading failed */
+            entries.remove(guildId, loading);
+            loading.future.completeExceptionally(throwable != null
+                ? throwable
+                : new IllegalStateException("Failed to load the " + name + " of guild " + guildId));
+        });
+
+        evictIfFull();
+        return loading.future;
+    }
+
+    /**
+     * Gets the snapshot of a guild if it has already been loaded,
+     * without loading it or counting as a read, for checks that
+     * must not wait on the database
+     *
+     * @param guildId The id of the guild
+     * @return The snapshot, or {@code null} if it is not cached or is still loading
+     */
+    public final T getIfLoaded(long guildId) {
+        CachedSnapshot<T> entry = entries.get(guildId);
+        if (entry == null || !entry.future.isDone() || entry.future.isCompletedExceptionally()) {
+            return null;
+        }
+
+        return entry.future.getNow(null);
+    }
+
+    /**
+     * Replaces the cached snapshot of a guild with an updated
+     * copy. Does nothing if the guild is not cached, as the next read
+     * will load the updated snapshot anyway
+     *
+     * @param guildId The id of the guild
+     * @param updater Creates the updated copy
+     * @return A future completed with the updated snapshot, or
+     *         {@code null} if the guild is not cached
+     */
+    final CompletableFuture<T> update(long guildId, UnaryOperator<T> updater) {
+        CachedSnapshot<T> entry = entries.computeIfPresent(guildId, (id, current) -> {
+            /* Chained on the current snapshot so concurrent updates are applied in order */
+            CachedSnapshot<T> updated = new CachedSnapshot<>(current.future.thenApply(updater));
+            updated.lastRead = current.lastRead;
+            return updated;
+        });
+
+        if (entry == null) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        CompletableFuture<T> future = entry.future;
+        future.whenComplete((snapshot, throwable) -> {
+            if (throwable != null) {
+                entries.remove(guildId, entry);
+            }
+        });
+
+        return future.exceptionally(throwable -> null);
+    }
+
+    /**
+     * Removes a guild from the cache, for example after the
+     * bot has left it
+     *
+     * @param guildId The id of the guild
+     */
+    public final void invalidate(long guildId) {
+        if (entries.remove(guildId) != null) {
+            evictionCount.increment();
+        }
+    }
+
+    /**
+     * Removes every guild from the cache
+     */
+    public final void invalidateAll() {
+        int size = entries.size();
+        entries.clear();
+        evictionCount.add(size);
+    }
+
+    /**
+     * Gets the number of guilds cached
+     *
+     * @return The size
+     */
+    public final int getSize() {
+        return entries.size();
+    }
+
+    /**
+     * Gets the number of reads answered from the cache
+     *
+     * @return The count
+     */
+    public final long getHitCount() {
+        return hitCount.sum();
+    }
+
+    /**
+     * Gets the number of reads that had to load
+     * the snapshot
+     *
+     * @return The count
+     */
+    public final long getMissCount() {
+        return missCount.sum();
+    }
+
+    /**
+     * Gets the number of snapshots evicted
+     *
+     * @return The count
+     */
+    public final long getEvictionCount() {
+        return evictionCount.sum();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s cache: %d cached, %d hits, %d misses, %d evictions",
+            name, getSize(), getHitCount(), getMissCount(), getEvictionCount());
+    }
+
+    /**
+     * Evicts the least recently read guilds once the cache
+     * has grown past its maximum size
+     */
+    private final void evictIfFull() {
+        if (entries.size() <= maxSize) {
+            return;
+        }
+
+        /* Copy the read times, as they change while sorting */
+        List<long[]> readTimes = new ArrayList<>(entries.size());
+        for (Map.Entry<Long, CachedSnapshot<T>> mapEntry : entries.entrySet()) {
+            readTimes.add(new long[] { mapEntry.getValue().lastRead, mapEntry.getKey() });
+        }
+        readTimes.sort(Comparator.comparingLong(readTime -> readTime[0]));
+
+        /* Evict down below the maximum so the scan is not repeated on every miss */
+        int toEvict = readTimes.size() - (int) (maxSize * EVICTION_RETAIN_RATIO);
+        for (int i = 0; i < toEvict; i++) {
+            CachedSnapshot<T> evicted = entries.get(readTimes.get(i)[1]);
+
+            /* Keep it if it was read since the scan */
+            if (evicted == null || evicted.lastRead != readTimes.get(i)[0]) {
+                continue;
+            }
+
+            if (entries.remove(readTimes.get(i)[1], evicted)) {
+                evictionCount.increment();
+            }
+        }
+    }
+
+    /**
+     * A cached snapshot and when it was last read
+     * 
+     * @param <T> The type of snapshot
+     */
+    private static final class CachedSnapshot<T> {
+
+        /**
+         * The future of the snapshot
+         */
+        private final CompletableFuture<T> future;
+
+        /**
+         * When the snapshot was last read
+         */
+        private volatile long lastRead;
+
+        /**
+         * Creates a new {@code CachedSnapshot}
+         *
+         * @param future The future of the snapshot
+         */
+        private CachedSnapshot(CompletableFuture<T> future) {
+            this.future = future;
+            lastRead = System.nanoTime();
+        }
+    }
+}
@@ -1,214 +1,170 @@
 package me.grayingout.database.accessors;
 
-import java.sql.Connection;
-import java.sql.PreparedStatement;
-import java.sql.ResultSet;
-import java.sql.SQLException;
-import java.sql.Statement;
-import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.IntSupplier;
+import java.util.function.UnaryOperator;
 
+import me.grayingout.App;
+import me.grayingout.database.entities.GuildLeaderboard;
 import me.grayingout.database.entities.GuildLevelRole;
+import me.grayingout.database.entities.GuildLevelRoleIndex;
 import me.grayingout.database.entities.GuildMemberLevelExperience;
-import me.grayingout.database.query.DatabaseQuery;
+import me.grayingout.database.storage.ExperienceDelta;
+import me.grayingout.database.storage.LevelRepository;
 import me.grayingout.util.Levelling;
 import net.dv8tion.jda.api.entities.Guild;
 import net.dv8tion.jda.api.entities.Member;
 import net.dv8tion.jda.api.entities.Role;
 
 /**
- * A {@code DatabaseAccessor} for accessing and modifying tables
- * within the levelling database
+ * Class for accessing and modifying the levelling data of
+ * guilds, buffering experience and caching what is read often
  */
-public final class LevellingDatabaseAccessor extends DatabaseAccessor {
+public final class LevellingDatabaseAccessor {
+
+    /**
+     * The repository the levelling data is stored in
+     */
+    private final LevelRepository repository;
+
+    /**
+     * Buffers experience increments before they are
+     * written to the repository
+     */
+    private final GuildMemberExperienceBuffer experienceBuffer;
+
+    /**
+     * The leaderboard of each guild, while it is being
+     * loaded and after
+     */
+    private final ConcurrentHashMap<Long, CompletableFuture<GuildLeaderboard>> leaderboards;
+
+    /**
+     * The cached level roles of each guild
+     */
+    private final GuildSnapshotCache<GuildLevelRoleIndex> levelRoleIndexCache;
 
     /**
      * Creates a new {@code LevellingDatabaseAccessor}
+     * 
+     * @param repository The repository the levelling data is stored in
      */
-    public LevellingDatabaseAccessor() {
-        super("levelling.db");
+    public LevellingDatabaseAccessor(LevelRepository repository) {
+        this.repository = repository;
+
+        experienceBuffer = new GuildMemberExperienceBuffer(
+            this,
+            Long.parseLong(App.env.get("LEVELLING_FLUSH_INTERVAL_MS", "5000")),
+            Integer.parseInt(App.env.get("LEVELLING_FLUSH_THRESHOLD", "1000"))
+        );
+
+        leaderboards = new ConcurrentHashMap<>();
+
+        levelRoleIndexCache = new GuildSnapshotCache<>(
+            "level role",
+            this::loadGuildLevelRoleIndex,
+            Integer.parseInt(App.env.get("LEVEL_ROLE_CACHE_SIZE", "10000"))
+        );
     }
 
-    @Override
-    void init() {
-        queueQuery(new DatabaseQuery<Void>() {
-            @Override
-            public Void execute(Connection connection) throws SQLException {
-                Statement statement = connection.createStatement();
-
-                /* Creates the table that stores member levelling data */
-                statement.execute(
-                    "CREATE TABLE IF NOT EXISTS GuildMemberLevelExperience ("
-                  + "  guild_id INTEGER NOT NULL,"
-                  + "  user_id INTEGER NOT NULL,"
-                  + "  level_experience INTEGER NOT NULL DEFAULT 0"
-                  + ")");
-                
-                /* Creates the table that stores guild level roles */
-                statement.execute(
-                    "CREATE TABLE IF NOT EXISTS GuildLevelRole ("
-                  + "  guild_id INTEGER NOT NULL,"
-                  + "  role_id INTEGER NOT NULL PRIMARY KEY,"
-                  + "  level_required INTEGER NOT NULL"
-                  + ")");
-
-                return null;
-            }  
-        });
+    /**
+     * Writes the buffered experience before the
+     * storage is closed
+     */
+    public void close() {
+        experienceBuffer.close();
     }
 
     /**
-     * Adds a new role as a level role to the level roles database
-     * table, or updates it if it is already present
+     * Adds a new role as a level role of its guild,
+     * or updates it if it is already present
      * 
      * @param role          The role to add
      * @param levelRequired The level required
+     * @return A future completed once the role has been added,
+     *         which fails if the write failed
      */
-    public final void addGuildLevelRole(Role role, int levelRequired) {
-        queueQuery(new DatabaseQuery<Void>() {
-            @Override
-            public Void execute(Connection connection) throws SQLException {
-                /* First check if the role is already in the table */
-                PreparedStatement selectStatement = connection.prepareStatement(
-                    "SELECT * FROM GuildLevelRole WHERE role_id == ?"
-                );
-
-                selectStatement.setLong(1, role.getIdLong());
-
-                ResultSet set = selectStatement.executeQuery();
-                if (set.next()) {
-                    /* Update the level required on the entry */
-                    PreparedStatement updateStatement = connection.prepareStatement(
-                        "UPDATE GuildLevelRole SET level_required = ? WHERE role_id == ?"
-                    );
-
-                    updateStatement.setInt(1, levelRequired);
-                    updateStatement.setLong(2, role.getIdLong());
-
-                    updateStatement.executeUpdate();
-
-                    return null;
-                }
-
-                /* Insert new entry */
-                PreparedStatement insertStatement = connection.prepareStatement(
-                    "INSERT INTO GuildLevelRole (guild_id, role_id, level_required) VALUES (?, ?, ?)"
-                );
-
-                insertStatement.setLong(1, role.getGuild().getIdLong());
-                insertStatement.setLong(2, role.getIdLong());
-                insertStatement.setInt(3, levelRequired);
-
-                insertStatement.executeUpdate();
-                
-                return null;
-            }
-        });
+    public final CompletableFuture<Void> addGuildLevelRole(Role role, int levelRequired) {
+        CompletableFuture<Boolean> future = repository.putLevelRole(role.getGuild().getIdLong(), role.getIdLong(), levelRequired);
+
+        return updateLevelRoleIndex(role.getGuild(), future, index -> index.withRole(role.getIdLong(), levelRequired));
     }
 
     /**
-     * Deletes a role from the guild level roles database table
-     * by its id
+     * Deletes a level role of a guild by its id
      * 
-     * @param role The role id to remove
+     * @param guild  The guild the role belongs to
+     * @param roleId The role id to remove
+     * @return A future completed once the role has been deleted,
+     *         which fails if the write failed
      */
-    public final void deleteGuildLevelRole(long roleId) {
-        queueQuery(new DatabaseQuery<Void>() {
-            @Override
-            public Void execute(Connection connection) throws SQLException {
-                PreparedStatement statement = connection.prepareStatement(
-                    "DELETE FROM GuildLevelRole WHERE role_id == ?"
-                );
-
-                statement.setLong(1, roleId);
+    public final CompletableFuture<Void> deleteGuildLevelRole(Guild guild, long roleId) {
+        CompletableFuture<Boolean> future = repository.deleteLevelRole(guild.getIdLong(), roleId);
 
-                statement.executeUpdate();
+        return updateLevelRoleIndex(guild, future, index -> index.withoutRole(roleId));
+    }
 
-                return null;
-            } 
-        });
+    /**
+     * Gets all the level roles for a guild, in order of
+     * the level required
+     * 
+     * @param guild The guild
+     * @return A future completed with the list of level roles
+     */
+    public final CompletableFuture<List<GuildLevelRole>> getGuildLevelRoles(Guild guild) {
+        return getGuildLevelRoleIndex(guild).thenApply(index -> index.getLevelRoles(guild));
     }
 
     /**
-     * Gets all the level roles for a guild
+     * Gets the index of the level roles for a guild
      * 
      * @param guild The guild
-     * @return The list of level roles
+     * @return A future completed with the index, which fails
+     *         if it could not be loaded
      */
-    @SuppressWarnings("unchecked")
-    public final List<GuildLevelRole> getGuildLevelRoles(Guild guild) {
-        CompletableFuture<Object> future = queueQuery(new DatabaseQuery<List<GuildLevelRole>>() {
-            @Override
-            public List<GuildLevelRole> execute(Connection connection) throws SQLException {
-                PreparedStatement statement = connection.prepareStatement(
-                    "SELECT * FROM GuildLevelRole WHERE guild_id == ?"
-                );
-
-                statement.setLong(1, guild.getIdLong());
-
-                ResultSet set = statement.executeQuery();
-
-                List<GuildLevelRole> guildLevelRoles = new ArrayList<>();
-
-                /* Add all level roles */
-                while (set.next()) {
-                    /* Check role exists still */
-                    if (guild.getRoleById(set.getLong("role_id")) == null) {
-                        deleteGuildLevelRole(set.getLong("role_id"));
-                        continue;
-                    }
-
-                    guildLevelRoles.add(new GuildLevelRole(
-                        guild.getRoleById(set.getLong("role_id")),
-                        set.getInt("level_required")
-                    ));
-                }
-
-                return guildLevelRoles;
-            }
-        });
+    public final CompletableFuture<GuildLevelRoleIndex> getGuildLevelRoleIndex(Guild guild) {
+        return levelRoleIndexCache.get(guild.getIdLong());
+    }
 
-        /* Wait for query to finish and return level roles */
-        return (List<GuildLevelRole>) future.join();
+    /**
+     * Gets the cache of level role indexes
+     * 
+     * @return The cache
+     */
+    public final GuildSnapshotCache<GuildLevelRoleIndex> getLevelRoleIndexCache() {
+        return levelRoleIndexCache;
     }
 
     /**
-     * Gets the top 5 member experience levels in a guild
+     * Gets the leaderboard of a guild, loading it the first time
      * 
-     * @return The top members
+     * @param guild The guild
+     * @return A future completed with the leaderboard, which fails
+     *         if it could not be loaded
      */
-    @SuppressWarnings("unchecked")
-    public final List<GuildMemberLevelExperience> getTopGuildMembers(Guild guild) {
-        CompletableFuture<Object> future = queueQuery(new DatabaseQuery<List<GuildMemberLevelExperience>>() {
-            @Override
-            public List<GuildMemberLevelExperience> execute(Connection connection) throws SQLException {
-                PreparedStatement statement = connection.prepareStatement(
-                    "SELECT level_experience, user_id FROM GuildMemberLevelExperience WHERE guild_id == ? AND level_experience > 0 ORDER BY level_experience DESC LIMIT 5"
-                );
-
-                statement.setLong(1, guild.getIdLong());
-
-                ResultSet set = statement.executeQuery();
-
-                List<GuildMemberLevelExperience> guildMemberLevelExperiences = new ArrayList<>();
-
-                /* Add all guild member experiences */
-                while (set.next()) {
-                    guildMemberLevelExperiences.add(
-                        new GuildMemberLevelExperience(
-                            guild.retrieveMemberById(set.getLong("user_id")).complete(),
-                            set.getInt("level_experience")
-                        )
-                    );
-                }
-                
-                return guildMemberLevelExperiences;
+    public final CompletableFuture<GuildLeaderboard> getGuildLeaderboard(Guild guild) {
+        CompletableFuture<GuildLeaderboard> future = leaderboards.computeIfAbsent(guild.getIdLong(), this::loadGuildLeaderboard);
+
+        /* Load again next time if loading failed */
+        future.whenComplete((leaderboard, throwable) -> {
+            if (throwable != null) {
+                leaderboards.remove(guild.getIdLong(), future);
             }
         });
 
-        /* Wait for query to finish and return top members */
-        return (List<GuildMemberLevelExperience>) future.join();
+        return future;
+    }
+
+    /**
+     * Drops the leaderboard of a guild from memory
+     * 
+     * @param guildId The id of the guild
+     */
+    public final void invalidateGuildLeaderboard(long guildId) {
+        leaderboards.remove(guildId);
     }
 
     /**
@@ -216,172 +172,182 @@ public final class LevellingDatabaseAccessor extends DatabaseAccessor {
      * 
      * @param member     The member to set the level experience of
      * @param experience The experience to set it to
+     * @return A future completed once the experience has been set
+     *         and the member's level roles updated, which fails if
+     *         the write failed
      */
-    public final void setGuildMemberLevelExperience(Member member, int experience) {
-        CompletableFuture<Object> future = queueQuery(new DatabaseQuery<Void>() {
-			@Override
-			public Void execute(Connection connection) throws SQLException {
-                /* Check to see if they have an entry in the database */
-                PreparedStatement selectStatement = connection.prepareStatement(
-                    "SELECT * FROM GuildMemberLevelExperience WHERE guild_id == ? AND user_id == ?"
-                );
-
-                selectStatement.setLong(1, member.getGuild().getIdLong());
-                selectStatement.setLong(2, member.getIdLong());
-
-                ResultSet set = selectStatement.executeQuery();
-
-                /* They have no entry, so insert */
-                if (!set.next()) {
-                    /* Insert new row */
-                    PreparedStatement insertStatement = connection.prepareStatement(
-                        "INSERT INTO GuildMemberLevelExperience (guild_id, user_id, level_experience) VALUES (?, ?, ?)"
-                    );
-    
-                    insertStatement.setLong(1, member.getGuild().getIdLong());
-                    insertStatement.setLong(2, member.getIdLong());
-                    insertStatement.setInt(3, experience);
-    
-                    insertStatement.executeUpdate();
-
-                    return null;
-                }
-
-                /* Set the member's experience to 'experience' */
-                PreparedStatement updateStatement = connection.prepareStatement(
-                    "UPDATE GuildMemberLevelExperience SET level_experience = ? WHERE guild_id == ? AND user_id == ?"
-                );
-
-                updateStatement.setInt(1, experience);
-                updateStatement.setLong(2, member.getGuild().getIdLong());
-                updateStatement.setLong(3, member.getIdLong());
-
-                updateStatement.executeUpdate();
-
-				return null;
-			}
-        });
+    public final CompletableFuture<Void> setGuildMemberLevelExperience(Member member, int experience) {
+        /* Buffered experience would be overwritten anyway */
+        experienceBuffer.discard(member.getGuild().getIdLong(), member.getIdLong());
+
+        CompletableFuture<Boolean> future = repository.setExperience(member.getGuild().getIdLong(), member.getIdLong(), experience);
+
+        /* Update the member's rank and level roles once written */
+        return future.thenCompose(result -> {
+            /* The stored experience is unchanged, so the rank and roles are too */
+            if (result == null) {
+                return CompletableFuture.<Void>failedFuture(new IllegalStateException(
+                    "Failed to store the experience of member " + member.getIdLong() + " in guild " + member.getGuild().getIdLong()));
+            }
 
-        /* Wait for query to finish */
-        future.join();
-        
-        /* Update the member's level roles */
-        Levelling.updateMemberLevelRoles(member);
+            updateLeaderboard(member.getGuild().getIdLong(), member.getIdLong(), () -> experience);
+            return Levelling.updateMemberLevelRoles(member, Levelling.getLevelFromExperience(experience));
+        });
     }
 
     /**
      * Sets the level experience of a guild member to 0
      * 
      * @param member The member to reset
+     * @return A future completed once the experience has been reset
      */
-    public final void resetGuildMemberExperience(Member member) {
-        setGuildMemberLevelExperience(member, 0);
+    public final CompletableFuture<Void> resetGuildMemberExperience(Member member) {
+        return setGuildMemberLevelExperience(member, 0);
     }
 
     /**
      * Adds a provided amount of experience to a guild members level experience
      * and returns the new level, if they have a new level, else
-     * {@code -1} is returned
+     * {@code -1} is returned. The experience is buffered and written
+     * to the database in batches
      * 
      * @param member The guild member
      * @param experience Amount to add
-     * @return The new level, or {@code -1}
+     * @return A future completed with the new level, or {@code -1}
      * @throws IllegalArgumentException If {@code experience} is less than 0
      */
-    public final int addExperienceToGuildMember(Member member, int experience) {
+    public final CompletableFuture<Integer> addExperienceToGuildMember(Member member, int experience) {
         if (experience < 0) {
             throw new IllegalArgumentException("Cannot add negative experience");
         }
 
-        CompletableFuture<Object> future = queueQuery(new DatabaseQuery<Integer>() {
-			@Override
-			public Integer execute(Connection connection) throws SQLException {
-                /* Check to see if they have an entry in the database */
-                PreparedStatement selectStatement = connection.prepareStatement(
-                    "SELECT * FROM GuildMemberLevelExperience WHERE guild_id == ? AND user_id == ?"
-                );
-
-                selectStatement.setLong(1, member.getGuild().getIdLong());
-                selectStatement.setLong(2, member.getIdLong());
-
-                ResultSet set = selectStatement.executeQuery();
-
-                /* User has no entry in the database */
-                if (!set.next()) {
-                    /* Insert experience into the database */
-                    PreparedStatement insertStatement = connection.prepareStatement(
-                        "INSERT INTO GuildMemberLevelExperience (guild_id, user_id, level_experience) VALUES (?, ?, ?)"
-                    );
-
-                    insertStatement.setLong(1, member.getGuild().getIdLong());
-                    insertStatement.setLong(2, member.getIdLong());
-                    insertStatement.setInt(3, experience);
-
-                    insertStatement.executeUpdate();
-
-                    /* Return member's new level if they have a new level */
-                    if (Levelling.getLevelFromExperience(experience) != 0) {
-                        return Levelling.getLevelFromExperience(experience);
-                    }
-                    return -1;
-                }
-
-                /* Get the member's current experience and level */
-                int currentExperience = set.getInt("level_experience");
-                int currentLevel = Levelling.getLevelFromExperience(currentExperience);
-
-                /* Add experience to current experience */
-                PreparedStatement updateStatement = connection.prepareStatement(
-                    "UPDATE GuildMemberLevelExperience SET level_experience = ? WHERE guild_id == ? AND user_id == ?"
-                );
-
-                updateStatement.setInt(1, set.getInt("level_experience") + experience);
-                updateStatement.setLong(2, member.getGuild().getIdLong());
-                updateStatement.setLong(3, member.getIdLong());
-
-                updateStatement.executeUpdate();
-                
-                /* Return member's new level if they have a new level */
-                int newLevel = Levelling.getLevelFromExperience(currentExperience + experience);
-                if (currentLevel != newLevel) {
-                    return newLevel;
-                }
-                return -1;
-			} 
-        });
-
-        /* Wait for query to finish and return result */
-        return (int) future.join();
+        return experienceBuffer.addExperience(member.getGuild().getIdLong(), member.getIdLong(), experience);
     }
 
     /**
      * Gets the level experience of a guild member
      * 
      * @param member The guild member
-     * @return Their level experience
+     * @return A future completed with their level experience
+     */
+    public final CompletableFuture<GuildMemberLevelExperience> getGildMemberLevelExperience(Member member) {
+        return experienceBuffer.getExperience(member.getGuild().getIdLong(), member.getIdLong())
+            .thenApply(experience -> new GuildMemberLevelExperience(member, experience));
+    }
+
+    /**
+     * Gets the experience buffer of the accessor
+     * 
+     * @return The experience buffer
+     */
+    public final GuildMemberExperienceBuffer getExperienceBuffer() {
+        return experienceBuffer;
+    }
+
+    /**
+     * Moves a member to their new place on the guild's leaderboard,
+     * if it has been loaded
+     * 
+     * @param guildId    The id of the guild
+     * @param userId     The id of the member
+     * @param experience Reads the current experience of the member
      */
-    public final GuildMemberLevelExperience getGildMemberLevelExperience(Member member) {
-        CompletableFuture<Object> future = queueQuery(new DatabaseQuery<Integer>() {
-            @Override
-            public Integer execute(Connection connection) throws SQLException {
-                PreparedStatement statement = connection.prepareStatement(
-                    "SELECT level_experience FROM GuildMemberLevelExperience WHERE guild_id == ? AND user_id == ?"
-                );
+    /* default */ final void updateLeaderboard(long guildId, long userId, IntSupplier experience) {
+        CompletableFuture<GuildLeaderboard> future = leaderboards.get(guildId);
+        if (future == null) {
+            /* Loaded with the current experience when first read */
+            return;
+        }
+
+        future.thenAccept(leaderboard -> {
+            /* Read under the leaderboard's lock so the latest experience is applied last */
+            synchronized (leaderboard) {
+                leaderboard.update(userId, experience.getAsInt());
+            }
+        });
+    }
+
+    /**
+     * Reads the level experience of a guild member stored
+     * in the database, ignoring any buffered experience
+     * 
+     * @param guildId The id of the guild
+     * @param userId  The id of the member
+     * @return A future completed with the stored experience, or {@code null} if the read failed
+     */
+    /* default */ final CompletableFuture<Integer> queryGuildMemberExperience(long guildId, long userId) {
+        return repository.getExperience(guildId, userId);
+    }
 
-                statement.setLong(1, member.getGuild().getIdLong());
-                statement.setLong(2, member.getIdLong());
+    /**
+     * Queues the writing of buffered experience deltas in
+     * a single transaction
+     * 
+     * @param deltas The experience deltas
+     * @return A future completed with {@code true}, or {@code null} if the write failed
+     */
+    /* default */ final CompletableFuture<Boolean> queueExperienceDeltas(List<ExperienceDelta> deltas) {
+        return repository.addExperience(deltas);
+    }
 
-                ResultSet set = statement.executeQuery();
+    /**
+     * Loads the leaderboard of a guild from the stored experience,
+     * and the experience that has not been flushed yet
+     * 
+     * @param guildId The id of the guild
+     * @return A future completed with the leaderboard
+     */
+    private final CompletableFuture<GuildLeaderboard> loadGuildLeaderboard(long guildId) {
+        return repository.getGuildExperience(guildId).thenApply(experienceByUserId -> {
+            if (experienceByUserId == null) {
+                throw new IllegalStateException("Failed to load the leaderboard of guild " + guildId);
+            }
 
-                if (!set.next()) {
-                    return 0;
-                }
+            GuildLeaderboard leaderboard = new GuildLeaderboard(guildId);
+            for (Map.Entry<Long, Integer> stored : experienceByUserId.entrySet()) {
+                leaderboard.update(stored.getKey(), stored.getValue());
+            }
 
-                return set.getInt("level_experience");
+            /* The buffered totals are newer than the stored ones */
+            for (Map.Entry<Long, Integer> buffered : experienceBuffer.getBufferedExperience(guildId).entrySet()) {
+                leaderboard.update(buffered.getKey(), buffered.getValue());
             }
+
+            return leaderboard;
         });
+    }
+
+    /**
+     * Loads the level roles of a guild
+     * 
+     * @param guildId The id of the guild
+     * @return A future completed with the index, or {@code null} if the read failed
+     */
+    private final CompletableFuture<GuildLevelRoleIndex> loadGuildLevelRoleIndex(long guildId) {
+        return repository.getLevelRoles(guildId).thenApply(levelsByRoleId ->
+            levelsByRoleId == null ? null : new GuildLevelRoleIndex(guildId, levelsByRoleId));
+    }
+
+    /**
+     * Replaces the cached level role index of a guild once a write
+     * to it has finished, or drops it if the write failed
+     * 
+     * @param guild   The guild
+     * @param written The future of the write, completed with {@code null} if it failed
+     * @param updater Applies the write to an index
+     * @return A future completed once the cache has been updated,
+     *         which fails if the write failed
+     */
+    private final CompletableFuture<Void> updateLevelRoleIndex(Guild guild, CompletableFuture<Boolean> written, UnaryOperator<GuildLevelRoleIndex> updater) {
+        return written.thenCompose(result -> {
+            /* Load it again on the next read, as the rows are unknown */
+            if (result == null) {
+                levelRoleIndexCache.invalidate(guild.getIdLong());
+                return CompletableFuture.<GuildLevelRoleIndex>failedFuture(new IllegalStateException(
+                    "Failed to store the level roles of guild " + guild.getIdLong()));
+            }
 
-        /* Wait for query to finish and return experience */
-        return new GuildMemberLevelExperience(member, (int) future.join());
+            return levelRoleIndexCache.update(guild.getIdLong(), updater);
+        }).thenApply(index -> null);
     }
 }
@@ -0,0 +1,140 @@
+package me.grayingout.database.accessors;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.UnaryOperator;
+
+import me.grayingout.database.entities.GuildConfiguration;
+import me.grayingout.database.migration.DatabaseMigration;
+import me.grayingout.database.migration.MigrationProgress;
+import me.grayingout.database.query.DatabaseQuery;
+import me.grayingout.database.query.ReadOnlyDatabaseQuery;
+import me.grayingout.database.storage.ConfigurationRepository;
+
+/**
+ * A {@code ConfigurationRepository} that stores a row
+ * for each guild in the configuration database
+ */
+public final class SqliteConfigurationRepository extends DatabaseAccessor implements ConfigurationRepository {
+
+    /**
+     * The migrations of the configuration schema, in version order
+     */
+    private static final List<DatabaseMigration> MIGRATIONS = Arrays.asList(
+        new DatabaseMigration() {
+            @Override
+            public String getDescription() {
+                return "Create the guild configuration table";
+            }
+
+            @Override
+            public void migrate(Connection connection, MigrationProgress progress) throws SQLException {
+                try (Statement statement = connection.createStatement()) {
+                    /* Creates the table that stores guild configurations */
+                    statement.execute(
+                        "CREATE TABLE IF NOT EXISTS GuildConfiguration ("
+                      + "  guild_id INTEGER NOT NULL PRIMARY KEY,"
+                      + "  logging_channel_id INTEGER DEFAULT -1,"
+                      + "  enabled_logging_types TEXT DEFAULT \"\","
+                      + "  welcome_channel_id INTEGER DEFAULT -1,"
+                      + "  welcome_message TEXT,"
+                      + "  dj_role_id INTEGER DEFAULT -1"
+                      + ")");
+                }
+            }
+        }
+    );
+
+    /**
+     * Creates a new {@code SqliteConfigurationRepository}, on the
+     * database the configuration schema is configured to be stored in
+     */
+    public SqliteConfigurationRepository() {
+        super("configuration", MIGRATIONS);
+    }
+
+    /**
+     * Creates a new {@code SqliteConfigurationRepository}
+     *
+     * @param database The database to store the configurations in
+     */
+    public SqliteConfigurationRepository(Database database) {
+        super("configuration", database, MIGRATIONS);
+    }
+
+    @Override
+    public CompletableFuture<GuildConfiguration> getConfiguration(long guildId) {
+        return queueQuery(new ReadOnlyDatabaseQuery<GuildConfiguration>() {
+            @Override
+            public GuildConfiguration execute(Connection connection) throws SQLException {
+                return readConfiguration(guildId);
+            }
+        });
+    }
+
+    @Override
+    public CompletableFuture<GuildConfiguration> updateConfiguration(long guildId, UnaryOperator<GuildConfiguration> updater) {
+        return queueQuery(new DatabaseQuery<GuildConfiguration>() {
+            @Override
+            public GuildConfiguration execute(Connection connection) throws SQLException {
+                /* Writes are executed in order, so nothing changes the row in between */
+                GuildConfiguration configuration = updater.apply(readConfiguration(guildId));
+
+                PreparedStatement statement = prepareStatement(
+                    "INSERT OR REPLACE INTO GuildConfiguration"
+                  + "  (guild_id, logging_channel_id, enabled_logging_types, welcome_channel_id, welcome_message, dj_role_id)"
+                  + "  VALUES (?, ?, ?, ?, ?, ?)"
+                );
+
+                statement.setLong(1, guildId);
+                statement.setLong(2, configuration.getLoggingChannelId());
+                statement.setString(3, GuildConfiguration.formatLoggingTypes(configuration.getEnabledLoggingTypes()));
+                statement.setLong(4, configuration.getWelcomeChannelId());
+                statement.setString(5, configuration.getCustomWelcomeMessage());
+                statement.setLong(6, configuration.getDJRoleId());
+
+                statement.executeUpdate();
+
+                return configuration;
+            }
+        });
+    }
+
+    /**
+     * Reads the configuration row of a guild. Must only be
+     * called from a query being executed
+     *
+     * @param guildId The id of the guild
+     * @return The configuration, or the default if there is no row
+     * @throws SQLException If the row could not be read
+     */
+    private final GuildConfiguration readConfiguration(long guildId) throws SQLException {
+        PreparedStatement statement = prepareStatement(
+            "SELECT logging_channel_id, enabled_logging_types, welcome_channel_id, welcome_message, dj_role_id FROM GuildConfiguration WHERE guild_id == ?"
+        );
+
+        statement.setLong(1, guildId);
+
+        try (ResultSet set = statement.executeQuery()) {
+            /* No configuration in table */
+            if (!set.next()) {
+                return GuildConfiguration.getDefault(guildId);
+            }
+
+            return new GuildConfiguration(
+                guildId,
+                set.getLong("logging_channel_id"),
+                GuildConfiguration.parseLoggingTypes(set.getString("enabled_logging_types")),
+                set.getLong("welcome_channel_id"),
+                set.getString("welcome_message"),
+                set.getLong("dj_role_id")
+            );
+        }
+    }
+}
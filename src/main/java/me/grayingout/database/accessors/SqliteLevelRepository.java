@@ -0,0 +1,288 @@
+package me.grayingout.database.accessors;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import me.grayingout.database.migration.DatabaseMigration;
+import me.grayingout.database.migration.MigrationProgress;
+import me.grayingout.database.migration.MigrationRunner;
+import me.grayingout.database.query.DatabaseQuery;
+import me.grayingout.database.query.ReadOnlyDatabaseQuery;
+import me.grayingout.database.storage.ExperienceDelta;
+import me.grayingout.database.storage.LevelRepository;
+
+/**
+ * A {@code LevelRepository} that stores member experience
+ * and level roles in the levelling database
+ */
+public final class SqliteLevelRepository extends DatabaseAccessor implements LevelRepository {
+
+    /**
+     * The migrations of the levelling schema, in version order
+     */
+    private static final List<DatabaseMigration> MIGRATIONS = Arrays.asList(
+        new DatabaseMigration() {
+            @Override
+            public String getDescription() {
+                return "Create the levelling tables and make member rows unique";
+            }
+
+            @Override
+            public void migrate(Connection connection, MigrationProgress progress) throws SQLException {
+                try (Statement statement = connection.createStatement()) {
+                    /* Creates the table that stores member levelling data */
+                    statement.execute(
+                        "CREATE TABLE IF NOT EXISTS GuildMemberLevelExperience ("
+                      + "  guild_id INTEGER NOT NULL,"
+                      + "  user_id INTEGER NOT NULL,"
+                      + "  level_experience INTEGER NOT NULL DEFAULT 0"
+                      + ")");
+
+                    /* Creates the table that stores guild level roles */
+                    statement.execute(
+                        "CREATE TABLE IF NOT EXISTS GuildLevelRole ("
+                      + "  guild_id INTEGER NOT NULL,"
+                      + "  role_id INTEGER NOT NULL PRIMARY KEY,"
+                      + "  level_required INTEGER NOT NULL"
+                      + ")");
+
+                    /* Level roles are loaded by guild */
+                    statement.execute(
+                        "CREATE INDEX IF NOT EXISTS GuildLevelRoleGuild"
+                      + "  ON GuildLevelRole (guild_id)");
+
+                    /* Merge duplicate member rows, keeping the highest experience. SQLite takes
+                       the bare rowid from the row holding the maximum, so this is one grouped pass */
+                    progress.startStep("Merging duplicate member rows");
+                    statement.execute(
+                        "DELETE FROM GuildMemberLevelExperience WHERE rowid NOT IN ("
+                      + "  SELECT rowid FROM ("
+                      + "    SELECT rowid, MAX(level_experience) FROM GuildMemberLevelExperience"
+                      + "    GROUP BY guild_id, user_id))");
+                }
+
+                /* Make the member index unique so they cannot come back */
+                progress.startStep("Building member indexes");
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("DROP INDEX IF EXISTS GuildMemberLevelExperienceMember");
+                }
+                MigrationRunner.executeLongRunning(connection,
+                    "CREATE UNIQUE INDEX IF NOT EXISTS GuildMemberLevelExperienceMember"
+                  + "  ON GuildMemberLevelExperience (guild_id, user_id)",
+                    progress);
+
+                /* Ranks members within a guild without sorting the table */
+                MigrationRunner.executeLongRunning(connection,
+                    "CREATE INDEX IF NOT EXISTS GuildMemberLevelExperienceRanking"
+                  + "  ON GuildMemberLevelExperience (guild_id, level_experience DESC)",
+                    progress);
+            }
+        },
+        new DatabaseMigration() {
+            @Override
+            public String getDescription() {
+                return "Store member experience clustered by guild member";
+            }
+
+            @Override
+            public void migrate(Connection connection, MigrationProgress progress) throws SQLException {
+                /* The primary key replaces the unique member index, and rows are stored in its order */
+                progress.startStep("Rewriting member experience");
+                MigrationRunner.rewriteTable(connection, "GuildMemberLevelExperience",
+                    "CREATE TABLE %s ("
+                  + "  guild_id INTEGER NOT NULL,"
+                  + "  user_id INTEGER NOT NULL,"
+                  + "  level_experience INTEGER NOT NULL DEFAULT 0,"
+                  + "  PRIMARY KEY (guild_id, user_id)"
+                  + ") WITHOUT ROWID",
+                    "guild_id, user_id, level_experience",
+                    progress);
+
+                /* Indexes are dropped with the old table */
+                progress.startStep("Building the ranking index");
+                MigrationRunner.executeLongRunning(connection,
+                    "CREATE INDEX GuildMemberLevelExperienceRanking"
+                  + "  ON GuildMemberLevelExperience (guild_id, level_experience DESC)",
+                    progress);
+            }
+        }
+    );
+
+    /**
+     * Creates a new {@code SqliteLevelRepository}, on the
+     * database the levelling schema is configured to be stored in
+     */
+    public SqliteLevelRepository() {
+        super("levelling", MIGRATIONS);
+    }
+
+    /**
+     * Creates a new {@code SqliteLevelRepository}
+     *
+     * @param database The database to store the levelling data in
+     */
+    public SqliteLevelRepository(Database database) {
+        super("levelling", database, MIGRATIONS);
+    }
+
+    @Override
+    public CompletableFuture<Integer> getExperience(long guildId, long userId) {
+        return queueQuery(new ReadOnlyDatabaseQuery<Integer>() {
+            @Override
+            public Integer execute(Connection connection) throws SQLException {
+                PreparedStatement statement = prepareStatement(
+                    "SELECT level_experience FROM GuildMemberLevelExperience WHERE guild_id == ? AND user_id == ?"
+                );
+
+                statement.setLong(1, guildId);
+                statement.setLong(2, userId);
+
+                try (ResultSet set = statement.executeQuery()) {
+                    if (!set.next()) {
+                        return 0;
+                    }
+
+                    return set.getInt("level_experience");
+                }
+            }
+        });
+    }
+
+    @Override
+    public CompletableFuture<Map<Long, Integer>> getGuildExperience(long guildId) {
+        return queueQuery(new ReadOnlyDatabaseQuery<Map<Long, Integer>>() {
+            @Override
+            public Map<Long, Integer> execute(Connection connection) throws SQLException {
+                PreparedStatement statement = prepareStatement(
+                    "SELECT user_id, level_experience FROM GuildMemberLevelExperience WHERE guild_id == ? AND level_experience > 0"
+                );
+
+                statement.setLong(1, guildId);
+
+                try (ResultSet set = statement.executeQuery()) {
+                    Map<Long, Integer> experienceByUserId = new HashMap<>();
+                    while (set.next()) {
+                        experienceByUserId.put(set.getLong("user_id"), set.getInt("level_experience"));
+                    }
+
+                    return experienceByUserId;
+                }
+            }
+        });
+    }
+
+    @Override
+    public CompletableFuture<Boolean> addExperience(List<ExperienceDelta> deltas) {
+        return queueQuery(new DatabaseQuery<Boolean>() {
+            @Override
+            public Boolean execute(Connection connection) throws SQLException {
+                /* Members are keyed by guild and user, so one upsert adds to or creates each row */
+                PreparedStatement statement = prepareStatement(
+                    "INSERT INTO GuildMemberLevelExperience (guild_id, user_id, level_experience) VALUES (?, ?, ?)"
+                  + "  ON CONFLICT (guild_id, user_id) DO UPDATE SET level_experience = level_experience + excluded.level_experience"
+                );
+
+                for (ExperienceDelta delta : deltas) {
+                    statement.setLong(1, delta.getGuildId());
+                    statement.setLong(2, delta.getUserId());
+                    statement.setInt(3, delta.getDelta());
+                    statement.addBatch();
+                }
+
+                statement.executeBatch();
+
+                return true;
+            }
+        });
+    }
+
+    @Override
+    public CompletableFuture<Boolean> setExperience(long guildId, long userId, int experience) {
+        return queueQuery(new DatabaseQuery<Boolean>() {
+            @Override
+            public Boolean execute(Connection connection) throws SQLException {
+                PreparedStatement statement = prepareStatement(
+                    "INSERT OR REPLACE INTO GuildMemberLevelExperience (guild_id, user_id, level_experience) VALUES (?, ?, ?)"
+                );
+
+                statement.setLong(1, guildId);
+                statement.setLong(2, userId);
+                statement.setInt(3, experience);
+
+                statement.executeUpdate();
+
+                return true;
+            }
+        });
+    }
+
+    @Override
+    public CompletableFuture<Map<Long, Integer>> getLevelRoles(long guildId) {
+        return queueQuery(new ReadOnlyDatabaseQuery<Map<Long, Integer>>() {
+            @Override
+            public Map<Long, Integer> execute(Connection connection) throws SQLException {
+                PreparedStatement statement = prepareStatement(
+                    "SELECT role_id, level_required FROM GuildLevelRole WHERE guild_id == ?"
+                );
+
+                statement.setLong(1, guildId);
+
+                try (ResultSet set = statement.executeQuery()) {
+                    Map<Long, Integer> levelsByRoleId = new HashMap<>();
+                    while (set.next()) {
+                        levelsByRoleId.put(set.getLong("role_id"), set.getInt("level_required"));
+                    }
+
+                    return levelsByRoleId;
+                }
+            }
+        });
+    }
+
+    @Override
+    public CompletableFuture<Boolean> putLevelRole(long guildId, long roleId, int levelRequired) {
+        return queueQuery(new DatabaseQuery<Boolean>() {
+            @Override
+            public Boolean execute(Connection connection) throws SQLException {
+                PreparedStatement statement = prepareStatement(
+                    "INSERT OR REPLACE INTO GuildLevelRole (guild_id, role_id, level_required) VALUES (?, ?, ?)"
+                );
+
+                statement.setLong(1, guildId);
+                statement.setLong(2, roleId);
+                statement.setInt(3, levelRequired);
+
+                statement.executeUpdate();
+
+                return true;
+            }
+        });
+    }
+
+    @Override
+    public CompletableFuture<Boolean> deleteLevelRole(long guildId, long roleId) {
+        return queueQuery(new DatabaseQuery<Boolean>() {
+            @Override
+            public Boolean execute(Connection connection) throws SQLException {
+                PreparedStatement statement = prepareStatement(
+                    "DELETE FROM GuildLevelRole WHERE role_id == ? AND guild_id == ?"
+                );
+
+                statement.setLong(1, roleId);
+                statement.setLong(2, guildId);
+
+                statement.executeUpdate();
+
+                return true;
+            }
+        });
+    }
+}
@@ -0,0 +1,116 @@
+package me.grayingout.database.accessors;
+
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import me.grayingout.database.storage.ConfigurationRepository;
+import me.grayingout.database.storage.LevelRepository;
+import me.grayingout.database.storage.StorageBackend;
+import me.grayingout.database.storage.WarningRepository;
+
+/**
+ * A {@code StorageBackend} that stores everything in sqlite,
+ * for {@code STORAGE_BACKEND=sqlite}, which is the default
+ */
+public final class SqliteStorageBackend implements StorageBackend {
+
+    /**
+     * The repository of level experience and level roles
+     */
+    private final SqliteLevelRepository levelRepository;
+
+    /**
+     * The repository of member warnings
+     */
+    private final SqliteWarningRepository warningRepository;
+
+    /**
+     * The repository of guild configurations
+     */
+    private final SqliteConfigurationRepository configurationRepository;
+
+    /**
+     * Creates a new {@code SqliteStorageBackend}, with each repository on
+     * the database its schema is configured to be stored in. The databases
+     * are opened and migrated at once, rather than one after another
+     *
+     * @throws IllegalStateException If a database could not be opened or migrated
+     */
+    public SqliteStorageBackend() {
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            Future<SqliteWarningRepository> warnings = executor.submit(() -> new SqliteWarningRepository());
+            Future<SqliteConfigurationRepository> configuration = executor.submit(() -> new SqliteConfigurationRepository());
+            Future<SqliteLevelRepository> levels = executor.submit(() -> new SqliteLevelRepository());
+
+            warningRepository = getOpened(warnings);
+            configurationRepository = getOpened(configuration);
+            levelRepository = getOpened(levels);
+        }
+    }
+
+    /**
+     * Creates a new {@code SqliteStorageBackend}, with
+     * every repository on one database
+     *
+     * @param database The database
+     */
+    public SqliteStorageBackend(Database database) {
+        warningRepository = new SqliteWarningRepository(database);
+        configurationRepository = new SqliteConfigurationRepository(database);
+        levelRepository = new SqliteLevelRepository(database);
+    }
+
+    @Override
+    public LevelRepository getLevelRepository() {
+        return levelRepository;
+    }
+
+    @Override
+    public WarningRepository getWarningRepository() {
+        return warningRepository;
+    }
+
+    @Override
+    public ConfigurationRepository getConfigurationRepository() {
+        return configurationRepository;
+    }
+
+    /**
+     * Waits for a repository to be opened
+     *
+     * @param <T>        The type of the repository
+     * @param repository The repository being opened
+     * @return The repository
+     * @throws IllegalStateException If it could not be opened
+     */
+    private static <T> T getOpened(Future<T> repository) {
+        try {
+            return repository.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException("Failed to open a repository", e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted opening a repository", e);
+        }
+    }
+
+    @Override
+    public void close() {
+        /* Repositories can share a database, so close each once */
+        Set<Database> databases = new LinkedHashSet<>();
+        databases.add(levelRepository.getDatabase());
+        databases.add(configurationRepository.getDatabase());
+        databases.add(warningRepository.getDatabase());
+
+        for (Database database : databases) {
+            database.close();
+        }
+    }
+}
@@ -0,0 +1,231 @@
+package me.grayingout.database.accessors;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import me.grayingout.database.entities.MemberWarning;
+import me.grayingout.database.migration.DatabaseMigration;
+import me.grayingout.database.migration.MigrationProgress;
+import me.grayingout.database.migration.MigrationRunner;
+import me.grayingout.database.query.DatabaseQuery;
+import me.grayingout.database.query.ReadOnlyDatabaseQuery;
+import me.grayingout.database.storage.WarningRepository;
+
+/**
+ * A {@code WarningRepository} that stores warnings
+ * in the warnings database
+ */
+public final class SqliteWarningRepository extends DatabaseAccessor implements WarningRepository {
+
+    /**
+     * The migrations of the warnings schema, in version order
+     */
+    private static final List<DatabaseMigration> MIGRATIONS = Arrays.asList(
+        new DatabaseMigration() {
+            @Override
+            public String getDescription() {
+                return "Create the member warnings table";
+            }
+
+            @Override
+            public void migrate(Connection connection, MigrationProgress progress) throws SQLException {
+                try (Statement statement = connection.createStatement()) {
+                    /* Creates the table that stores member warnings */
+                    statement.execute(
+                        "CREATE TABLE IF NOT EXISTS MemberWarning ("
+                      + "  warning_id INTEGER NOT NULL PRIMARY KEY AUTOINCREMENT,"
+                      + "  guild_id INTEGER NOT NULL,"
+                      + "  member_id INTEGER NOT NULL,"
+                      + "  moderator_id INTEGER NOT NULL,"
+                      + "  received_at INTEGER NOT NULL,"
+                      + "  reason TEXT NOT NULL"
+                      + ")");
+                }
+            }
+        },
+        new DatabaseMigration() {
+            @Override
+            public String getDescription() {
+                return "Index warnings by guild member";
+            }
+
+            @Override
+            public void migrate(Connection connection, MigrationProgress progress) throws SQLException {
+                /* Every warning query looks up by guild and member, newest first */
+                MigrationRunner.executeLongRunning(connection,
+                    "CREATE INDEX IF NOT EXISTS MemberWarningMember"
+                  + "  ON MemberWarning (guild_id, member_id, received_at DESC)",
+                    progress);
+            }
+        }
+    );
+
+    /**
+     * Creates a new {@code SqliteWarningRepository}, on the
+     * database the warnings schema is configured to be stored in
+     */
+    public SqliteWarningRepository() {
+        super("warnings", MIGRATIONS);
+    }
+
+    /**
+     * Creates a new {@code SqliteWarningRepository}
+     *
+     * @param database The database to store the warnings in
+     */
+    public SqliteWarningRepository(Database database) {
+        super("warnings", database, MIGRATIONS);
+    }
+
+    @Override
+    public CompletableFuture<MemberWarning> putWarning(long guildId, long memberId, long moderatorId, LocalDateTime receivedAt, String reason) {
+        return queueQuery(new DatabaseQuery<MemberWarning>() {
+            @Override
+            public MemberWarning execute(Connection connection) throws SQLException {
+                PreparedStatement insertStatement = prepareStatement(
+                    "INSERT INTO MemberWarning (guild_id, member_id, moderator_id, received_at, reason) VALUES (?, ?, ?, ?, ?)"
+                );
+
+                /* Using UTC+0 offset for timestamp */
+                insertStatement.setLong(1, guildId);
+                insertStatement.setLong(2, memberId);
+                insertStatement.setLong(3, moderatorId);
+                insertStatement.setLong(4, receivedAt.toEpochSecond(ZoneOffset.ofHours(0)));
+                insertStatement.setString(5, reason);
+
+                /* Insert */
+                insertStatement.executeUpdate();
+
+                PreparedStatement selectStatement = prepareStatement(
+                    "SELECT * FROM MemberWarning WHERE warning_id == last_insert_rowid()"
+                );
+
+                try (ResultSet set = selectStatement.executeQuery()) {
+                    /* Check for result */
+                    if (!set.next()) {
+                        return null;
+                    }
+
+                    return readWarning(set);
+                }
+            }
+        });
+    }
+
+    @Override
+    public CompletableFuture<List<MemberWarning>> getWarnings(long guildId, long memberId) {
+        return queueQuery(new ReadOnlyDatabaseQuery<List<MemberWarning>>() {
+            @Override
+            public List<MemberWarning> execute(Connection connection) throws SQLException {
+                PreparedStatement statement = prepareStatement(
+                    "SELECT * FROM MemberWarning WHERE guild_id == ? AND member_id == ? ORDER BY received_at DESC, warning_id DESC"
+                );
+
+                statement.setLong(1, guildId);
+                statement.setLong(2, memberId);
+
+                ArrayList<MemberWarning> warnings = new ArrayList<>();
+
+                try (ResultSet set = statement.executeQuery()) {
+                    /* Iterate over the results and add to list */
+                    while (set.next()) {
+                        warnings.add(readWarning(set));
+                    }
+
+                    return warnings;
+                }
+            }
+        });
+    }
+
+    @Override
+    public CompletableFuture<MemberWarning> getWarning(long guildId, long memberId, int warningId) {
+        return queueQuery(new ReadOnlyDatabaseQuery<MemberWarning>() {
+            @Override
+            public MemberWarning execute(Connection connection) throws SQLException {
+                PreparedStatement statement = prepareStatement(
+                    "SELECT * FROM MemberWarning WHERE warning_id == ? AND member_id == ? AND guild_id == ?"
+                );
+
+                statement.setInt(1, warningId);
+                statement.setLong(2, memberId);
+                statement.setLong(3, guildId);
+
+                try (ResultSet set = statement.executeQuery()) {
+                    /* Check result was found */
+                    if (!set.next()) {
+                        return null;
+                    }
+
+                    return readWarning(set);
+                }
+            }
+        });
+    }
+
+    @Override
+    public CompletableFuture<Boolean> deleteWarning(long guildId, long memberId, int warningId) {
+        return queueQuery(new DatabaseQuery<Boolean>() {
+            @Override
+            public Boolean execute(Connection connection) throws SQLException {
+                PreparedStatement statement = prepareStatement(
+                    "DELETE FROM MemberWarning WHERE warning_id == ? AND guild_id == ? AND member_id == ?"
+                );
+
+                statement.setInt(1, warningId);
+                statement.setLong(2, guildId);
+                statement.setLong(3, memberId);
+
+                statement.executeUpdate();
+
+                return true;
+            }
+        });
+    }
+
+    @Override
+    public CompletableFuture<Boolean> clearWarnings(long guildId, long memberId) {
+        return queueQuery(new DatabaseQuery<Boolean>() {
+            @Override
+            public Boolean execute(Connection connection) throws SQLException {
+                PreparedStatement statement = prepareStatement(
+                    "DELETE FROM MemberWarning WHERE guild_id == ? AND member_id == ?"
+                );
+
+                statement.setLong(1, guildId);
+                statement.setLong(2, memberId);
+
+                statement.executeUpdate();
+
+                return true;
+            }
+        });
+    }
+
+    /**
+     * Reads the warning on the current row of a result set
+     *
+     * @param set The result set
+     * @return The warning
+     * @throws SQLException If the row could not be read
+     */
+    private static final MemberWarning readWarning(ResultSet set) throws SQLException {
+        return new MemberWarning(
+            set.getInt("warning_id"),
+            set.getLong("guild_id"),
+            set.getLong("member_id"),
+            set.getLong("moderator_id"),
+            LocalDateTime.ofEpochSecond(set.getLong("received_at"), 0, ZoneOffset.ofHours(0)),
+            set.getString("reason")
+        );
+    }
+}
@@ -0,0 +1,256 @@
+package me.grayingout.database.entities;
+
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Set;
+
+import me.grayingout.database.entities.GuildLoggingChannel.LoggingEventType;
+import me.grayingout.util.WelcomeMessage;
+
+/**
+ * An immutable snapshot of a guild's row in the configuration
+ * database. Changes are made by creating an updated copy
+ */
+public final class GuildConfiguration {
+
+    /**
+     * The id of the guild
+     */
+    private final long guildId;
+
+    /**
+     * The id of the logging channel, or {@code -1}
+     */
+    private final long loggingChannelId;
+
+    /**
+     * The logging types that are enabled
+     */
+    private final Set<LoggingEventType> enabledLoggingTypes;
+
+    /**
+     * The id of the welcome channel, or {@code -1}
+     */
+    private final long welcomeChannelId;
+
+    /**
+     * The custom welcome message, or {@code null}
+     */
+    private final String welcomeMessage;
+
+    /**
+     * The id of the DJ role, or {@code -1}
+     */
+    private final long djRoleId;
+
+    /**
+     * Creates a new {@code GuildConfiguration}
+     *
+     * @param guildId             The id of the guild
+     * @param loggingChannelId    The id of the logging channel, or {@code -1}
+     * @param enabledLoggingTypes The logging types that are enabled
+     * @param welcomeChannelId    The id of the welcome channel, or {@code -1}
+     * @param welcomeMessage      The custom welcome message, or {@code null}
+     * @param djRoleId            The id of the DJ role, or {@code -1}
+     */
+    public GuildConfiguration(
+            long guildId,
+            long loggingChannelId,
+            Set<LoggingEventType> enabledLoggingTypes,
+            long welcomeChannelId,
+            String welcomeMessage,
+            long djRoleId) {
+        this.guildId = guildId;
+        this.loggingChannelId = loggingChannelId;
+        this.enabledLoggingTypes = Collections.unmodifiableSet(enabledLoggingTypes.isEmpty()
+            ? EnumSet.noneOf(LoggingEventType.class)
+            : EnumSet.copyOf(enabledLoggingTypes));
+        this.welcomeChannelId = welcomeChannelId;
+        this.welcomeMessage = welcomeMessage;
+        this.djRoleId = djRoleId;
+    }
+
+    /**
+     * Gets the configuration of a guild that has
+     * nothing set up
+     *
+     * @param guildId The id of the guild
+     * @return The default configuration
+     */
+    public static final GuildConfiguration getDefault(long guildId) {
+        return new GuildConfiguration(guildId, -1, EnumSet.noneOf(LoggingEventType.class), -1, null, -1);
+    }
+
+    /**
+     * Parses stored logging types
+     *
+     * @param loggingTypes The comma separated logging types, or {@code null}
+     * @return The logging types
+     */
+    public static final Set<LoggingEventType> parseLoggingTypes(String loggingTypes) {
+        Set<LoggingEventType> parsedLoggingTypes = EnumSet.noneOf(LoggingEventType.class);
+        if (loggingTypes == null) {
+            return parsedLoggingTypes;
+        }
+
+        /* Ignore empty and unknown entries */
+        for (String loggingType : loggingTypes.split(",")) {
+            for (LoggingEventType loggingEventType : LoggingEventType.values()) {
+                if (loggingEventType.name().equals(loggingType.trim())) {
+                    parsedLoggingTypes.add(loggingEventType);
+                }
+            }
+        }
+
+        return parsedLoggingTypes;
+    }
+
+    /**
+     * Formats logging types to be stored
+     *
+     * @param loggingTypes The logging types
+     * @return The comma separated logging types
+     */
+    public static final String formatLoggingTypes(Set<LoggingEventType> loggingTypes) {
+        StringBuilder builder = new StringBuilder();
+        for (LoggingEventType loggingType : loggingTypes) {
+            builder.append(",").append(loggingType.name());
+        }
+
+        return builder.toString();
+    }
+
+    /**
+     * Gets the id of the guild
+     *
+     * @return The guild id
+     */
+    public final long getGuildId() {
+        return guildId;
+    }
+
+    /**
+     * Gets the id of the logging channel
+     *
+     * @return The channel id, or {@code -1}
+     */
+    public final long getLoggingChannelId() {
+        return loggingChannelId;
+    }
+
+    /**
+     * Gets the logging types that are enabled
+     *
+     * @return The unmodifiable set of logging types
+     */
+    public final Set<LoggingEventType> getEnabledLoggingTypes() {
+        return enabledLoggingTypes;
+    }
+
+    /**
+     * Returns if a logging type is enabled
+     *
+     * @param loggingEventType The type
+     * @return If it is enabled
+     */
+    public final boolean isLoggingTypeEnabled(LoggingEventType loggingEventType) {
+        return enabledLoggingTypes.contains(loggingEventType);
+    }
+
+    /**
+     * Gets the id of the welcome channel
+     *
+     * @return The channel id, or {@code -1}
+     */
+    public final long getWelcomeChannelId() {
+        return welcomeChannelId;
+    }
+
+    /**
+     * Gets the welcome message, falling back to the
+     * default welcome message if none is set
+     *
+     * @return The welcome message
+     */
+    public final String getWelcomeMessage() {
+        return welcomeMessage == null ? WelcomeMessage.getDefaultWelcomeMessage() : welcomeMessage;
+    }
+
+    /**
+     * Gets the custom welcome message
+     *
+     * @return The welcome message, or {@code null} if none is set
+     */
+    public final String getCustomWelcomeMessage() {
+        return welcomeMessage;
+    }
+
+    /**
+     * Gets the id of the DJ role
+     *
+     * @return The role id, or {@code -1}
+     */
+    public final long getDJRoleId() {
+        return djRoleId;
+    }
+
+    /**
+     * Creates a copy with a different logging channel
+     *
+     * @param loggingChannelId The id of the logging channel, or {@code -1}
+     * @return The updated copy
+     */
+    public final GuildConfiguration withLoggingChannelId(long loggingChannelId) {
+        return new GuildConfiguration(guildId, loggingChannelId, enabledLoggingTypes, welcomeChannelId, welcomeMessage, djRoleId);
+    }
+
+    /**
+     * Creates a copy with a logging type enabled or disabled
+     *
+     * @param loggingEventType The logging type
+     * @param enabled          If it should be enabled
+     * @return The updated copy
+     */
+    public final GuildConfiguration withLoggingType(LoggingEventType loggingEventType, boolean enabled) {
+        Set<LoggingEventType> updatedLoggingTypes = EnumSet.noneOf(LoggingEventType.class);
+        updatedLoggingTypes.addAll(enabledLoggingTypes);
+
+        if (enabled) {
+            updatedLoggingTypes.add(loggingEventType);
+        } else {
+            updatedLoggingTypes.remove(loggingEventType);
+        }
+
+        return new GuildConfiguration(guildId, loggingChannelId, updatedLoggingTypes, welcomeChannelId, welcomeMessage, djRoleId);
+    }
+
+    /**
+     * Creates a copy with a different welcome channel
+     *
+     * @param welcomeChannelId The id of the welcome channel, or {@code -1}
+     * @return The updated copy
+     */
+    public final GuildConfiguration withWelcomeChannelId(long welcomeChannelId) {
+        return new GuildConfiguration(guildId, loggingChannelId, enabledLoggingTypes, welcomeChannelId, welcomeMessage, djRoleId);
+    }
+
+    /**
+     * Creates a copy with a different welcome message
+     *
+     * @param welcomeMessage The custom welcome message, or {@code null}
+     * @return The updated copy
+     */
+    public final GuildConfiguration withWelcomeMessage(String welcomeMessage) {
+        return new GuildConfiguration(guildId, loggingChannelId, enabledLoggingTypes, welcomeChannelId, welcomeMessage, djRoleId);
+    }
+
+    /**
+     * Creates a copy with a different DJ role
+     *
+     * @param djRoleId The id of the DJ role, or {@code -1}
+     * @return The updated copy
+     */
+    public final GuildConfiguration withDJRoleId(long djRoleId) {
+        return new GuildConfiguration(guildId, loggingChannelId, enabledLoggingTypes, welcomeChannelId, welcomeMessage, djRoleId);
+    }
+}
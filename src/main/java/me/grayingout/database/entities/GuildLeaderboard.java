@@ -0,0 +1,432 @@
+package me.grayingout.database.entities;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * The level experience of every ranked member in a guild, kept in
+ * leaderboard order so the rank of a member, and any page of the
+ * leaderboard, can be found in {@code O(log n)}.
+ * <p>
+ * Members are ordered by experience, highest first, and then by
+ * user id. Members without any experience are not ranked
+ */
+public final class GuildLeaderboard {
+
+    /**
+     * The id of the guild
+     */
+    private final long guildId;
+
+    /**
+     * The node of each ranked member against their user id
+     */
+    private final HashMap<Long, Node> nodes;
+
+    /**
+     * The root of the tree
+     */
+    private Node root;
+
+    /**
+     * The nodes before the key of the last split
+     */
+    private Node splitLeft;
+
+    /**
+     * The nodes from the key of the last split onwards
+     */
+    private Node splitRight;
+
+    /**
+     * Creates a new, empty {@code GuildLeaderboard}
+     *
+     * @param guildId The id of the guild
+     */
+    public GuildLeaderboard(long guildId) {
+        this.guildId = guildId;
+        nodes = new HashMap<>();
+    }
+
+    /**
+     * Gets the id of the guild
+     *
+     * @return The guild id
+     */
+    public final long getGuildId() {
+        return guildId;
+    }
+
+    /**
+     * Sets the experience of a member, moving them to
+     * their new place on the leaderboard
+     *
+     * @param userId     The id of the member
+     * @param experience The experience of the member
+     */
+    public final synchronized void update(long userId, int experience) {
+        Node node = nodes.get(userId);
+        if (node != null) {
+            if (node.experience == experience) {
+                return;
+            }
+
+            root = remove(root, node.experience, userId);
+            nodes.remove(userId);
+        }
+
+        /* Only members with experience are ranked */
+        if (experience <= 0) {
+            return;
+        }
+
+        node = new Node(userId, experience);
+        root = insert(root, node);
+        nodes.put(userId, node);
+    }
+
+    /**
+     * Gets the number of ranked members
+     *
+     * @return The number of members
+     */
+    public final synchronized int getSize() {
+        return nodes.size();
+    }
+
+    /**
+     * Gets the rank of a member, starting from {@code 1}
+     *
+     * @param userId The id of the member
+     * @return The rank, or {@code -1} if the member is not ranked
+     */
+    public final synchronized int getRank(long userId) {
+        Node node = nodes.get(userId);
+        if (node == null) {
+            return -1;
+        }
+
+        int rank = 1;
+        Node current = root;
+        while (current != null) {
+            int comparison = compare(node.experience, userId, current);
+            if (comparison == 0) {
+                return rank + size(current.left);
+            }
+
+            if (comparison < 0) {
+                current = current.left;
+            } else {
+                rank += size(current.left) + 1;
+                current = current.right;
+            }
+        }
+
+        return -1;
+    }
+
+    /**
+     * Gets a range of the leaderboard
+     *
+     * @param offset The number of members to skip
+     * @param count  The maximum number of members to get
+     * @return The members, in leaderboard order
+     */
+    public final synchronized List<Entry> getEntries(int offset, int count) {
+        List<Entry> entries = new ArrayList<>();
+        for (int index = Math.max(offset, 0); index < offset + count && index < size(root); index++) {
+            Node node = select(index);
+            entries.add(new Entry(node.userId, node.experience, index + 1));
+        }
+
+        return entries;
+    }
+
+    /**
+     * Compares a key with a node in leaderboard order
+     *
+     * @param experience The experience of the key
+     * @param userId     The user id of the key
+     * @param node       The node
+     * @return Less than {@code 0} if the key comes first, {@code 0} if
+     *         they are equal, else greater than {@code 0}
+     */
+    private static final int compare(int experience, long userId, Node node) {
+        if (experience != node.experience) {
+            return experience > node.experience ? -1 : 1;
+        }
+
+        return Long.compare(userId, node.userId);
+    }
+
+    /**
+     * Gets the size of a subtree
+     *
+     * @param node The root of the subtree, or {@code null}
+     * @return The number of nodes in it
+     */
+    private static final int size(Node node) {
+        return node == null ? 0 : node.size;
+    }
+
+    /**
+     * Recalculates the size of a node's subtree
+     *
+     * @param node The node
+     */
+    private static final void resize(Node node) {
+        node.size = size(node.left) + size(node.right) + 1;
+    }
+
+    /**
+     * Gets the node at a position in the leaderboard
+     *
+     * @param index The position, starting from {@code 0}
+     * @return The node
+     */
+    private final Node select(int index) {
+        Node current = root;
+        while (true) {
+            int leftSize = size(current.left);
+            if (index == leftSize) {
+                return current;
+            }
+
+            if (index < leftSize) {
+                current = current.left;
+            } else {
+                index -= leftSize + 1;
+                current = current.right;
+            }
+        }
+    }
+
+    /**
+     * Inserts a node into a subtree
+     *
+     * @param node     The root of the subtree, or {@code null}
+     * @param inserted The node to insert
+     * @return The new root of the subtree
+     */
+    private final Node insert(Node node, Node inserted) {
+        if (node == null) {
+            return inserted;
+        }
+
+        /* Becomes the root of this subtree */
+        if (inserted.priority > node.priority) {
+            split(node, inserted.experience, inserted.userId);
+            inserted.left = splitLeft;
+            inserted.right = splitRight;
+            resize(inserted);
+            return inserted;
+        }
+
+        if (compare(inserted.experience, inserted.userId, node) < 0) {
+            node.left = insert(node.left, inserted);
+        } else {
+            node.right = insert(node.right, inserted);
+        }
+
+        resize(node);
+        return node;
+    }
+
+    /**
+     * Removes a node from a subtree
+     *
+     * @param node       The root of the subtree, or {@code null}
+     * @param experience The experience of the node to remove
+     * @param userId     The user id of the node to remove
+     * @return The new root of the subtree
+     */
+    private final Node remove(Node node, int experience, long userId) {
+        if (node == null) {
+            return null;
+        }
+
+        int comparison = compare(experience, userId, node);
+        if (comparison == 0) {
+            return merge(node.left, node.right);
+        }
+
+        if (comparison < 0) {
+            node.left = remove(node.left, experience, userId);
+        } else {
+            node.right = remove(node.right, experience, userId);
+        }
+
+        resize(node);
+        return node;
+    }
+
+    /**
+     * Splits a subtree into the nodes before a key, stored in
+     * {@code splitLeft}, and the nodes from the key onwards,
+     * stored in {@code splitRight}
+     *
+     * @param node       The root of the subtree, or {@code null}
+     * @param experience The experience of the key
+     * @param userId     The user id of the key
+     */
+    private final void split(Node node, int experience, long userId) {
+        if (node == null) {
+            splitLeft = null;
+            splitRight = null;
+            return;
+        }
+
+        if (compare(experience, userId, node) > 0) {
+            split(node.right, experience, userId);
+            node.right = splitLeft;
+            resize(node);
+            splitLeft = node;
+        } else {
+            split(node.left, experience, userId);
+            node.left = splitRight;
+            resize(node);
+            splitRight = node;
+        }
+    }
+
+    /**
+     * Merges two subtrees, where every node in the first
+     * comes before every node in the second
+     *
+     * @param left  The first subtree, or {@code null}
+     * @param right The second subtree, or {@code null}
+     * @return The root of the merged subtree
+     */
+    private static final Node merge(Node left, Node right) {
+        if (left == null) {
+            return right;
+        }
+
+        if (right == null) {
+            return left;
+        }
+
+        if (left.priority > right.priority) {
+            left.right = merge(left.right, right);
+            resize(left);
+            return left;
+        }
+
+        right.left = merge(left, right.left);
+        resize(right);
+        return right;
+    }
+
+    /**
+     * A member's place on the leaderboard
+     */
+    public static final class Entry {
+
+        /**
+         * The id of the member
+         */
+        private final long userId;
+
+        /**
+         * The experience of the member
+         */
+        private final int experience;
+
+        /**
+         * The rank of the member
+         */
+        private final int rank;
+
+        /**
+         * Creates a new {@code Entry}
+         *
+         * @param userId     The id of the member
+         * @param experience The experience of the member
+         * @param rank       The rank of the member
+         */
+        private Entry(long userId, int experience, int rank) {
+            this.userId = userId;
+            this.experience = experience;
+            this.rank = rank;
+        }
+
+        /**
+         * Gets the id of the member
+         *
+         * @return The user id
+         */
+        public final long getUserId() {
+            return userId;
+        }
+
+        /**
+         * Gets the experience of the member
+         *
+         * @return The experience
+         */
+        public final int getExperience() {
+            return experience;
+        }
+
+        /**
+         * Gets the rank of the member, starting from {@code 1}
+         *
+         * @return The rank
+         */
+        public final int getRank() {
+            return rank;
+        }
+    }
+
+    /**
+     * A node of the tree, a treap ordered by leaderboard
+     * position and heap ordered by a random priority
+     */
+    private static final class Node {
+
+        /**
+         * The id of the member
+         */
+        private final long userId;
+
+        /**
+         * The experience of the member
+         */
+        private final int experience;
+
+        /**
+         * The random priority keeping the tree balanced
+         */
+        private final int priority;
+
+        /**
+         * The number of nodes in this subtree
+         */
+        private int size;
+
+        /**
+         * The subtree before this node
+         */
+        private Node left;
+
+        /**
+         * The subtree after this node
+         */
+        private Node right;
+
+        /**
+         * Creates a new {@code Node}
+         *
+         * @param userId     The id of the member
+         * @param experience The experience of the member
+         */
+        private Node(long userId, int experience) {
+            this.userId = userId;
+            this.experience = experience;
+            priority = ThreadLocalRandom.current().nextInt();
+            size = 1;
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package me.grayingout.database.entities;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+import net.dv8tion.jda.api.entities.Guild;
+import net.dv8tion.jda.api.entities.Role;
+
+/**
+ * An immutable index of a guild's level roles, sorted by the
+ * level required. Changes are made by creating an updated copy
+ */
+public final class GuildLevelRoleIndex {
+
+    /**
+     * The id of the guild
+     */
+    private final long guildId;
+
+    /**
+     * The level required for each role against the role id
+     */
+    private final Map<Long, Integer> levelsByRoleId;
+
+    /**
+     * The role ids against the level they require
+     */
+    private final NavigableMap<Integer, List<Long>> roleIdsByLevel;
+
+    /**
+     * Creates a new {@code GuildLevelRoleIndex}
+     *
+     * @param guildId        The id of the guild
+     * @param levelsByRoleId The level required for each role against the role id
+     */
+    public GuildLevelRoleIndex(long guildId, Map<Long, Integer> levelsByRoleId) {
+        this.guildId = guildId;
+        this.levelsByRoleId = Collections.unmodifiableMap(new HashMap<>(levelsByRoleId));
+
+        /* Group the roles by level */
+        TreeMap<Integer, List<Long>> roleIdsByLevel = new TreeMap<>();
+        for (Map.Entry<Long, Integer> entry : levelsByRoleId.entrySet()) {
+            roleIdsByLevel.computeIfAbsent(entry.getValue(), level -> new ArrayList<>()).add(entry.getKey());
+        }
+        this.roleIdsByLevel = Collections.unmodifiableNavigableMap(roleIdsByLevel);
+    }
+
+    /**
+     * Gets the index of a guild that has no
+     * level roles
+     *
+     * @param guildId The id of the guild
+     * @return The empty index
+     */
+    public static final GuildLevelRoleIndex getEmpty(long guildId) {
+        return new GuildLevelRoleIndex(guildId, Collections.emptyMap());
+    }
+
+    /**
+     * Gets the id of the guild
+     *
+     * @return The guild id
+     */
+    public final long getGuildId() {
+        return guildId;
+    }
+
+    /**
+     * Returns if the guild has no level roles
+     *
+     * @return If it is empty
+     */
+    public final boolean isEmpty() {
+        return levelsByRoleId.isEmpty();
+    }
+
+    /**
+     * Gets the ids of the roles a member at a level
+     * should have
+     *
+     * @param level The level of the member
+     * @return The role ids
+     */
+    public final List<Long> getUnlockedRoleIds(int level) {
+        return flatten(roleIdsByLevel.headMap(level, true).values());
+    }
+
+    /**
+     * Gets the ids of the roles a member at a level
+     * should not have
+     *
+     * @param level The level of the member
+     * @return The role ids
+     */
+    public final List<Long> getLockedRoleIds(int level) {
+        return flatten(roleIdsByLevel.tailMap(level, false).values());
+    }
+
+    /**
+     * Gets the level roles in order of the level required,
+     * leaving out roles that no longer exist in the guild
+     *
+     * @param guild The guild
+     * @return The level roles
+     */
+    public final List<GuildLevelRole> getLevelRoles(Guild guild) {
+        List<GuildLevelRole> levelRoles = new ArrayList<>(levelsByRoleId.size());
+        for (Map.Entry<Integer, List<Long>> entry : roleIdsByLevel.entrySet()) {
+            for (long roleId : entry.getValue()) {
+                Role role = guild.getRoleById(roleId);
+                if (role != null) {
+                    levelRoles.add(new GuildLevelRole(role, entry.getKey()));
+                }
+            }
+        }
+
+        return levelRoles;
+    }
+
+    /**
+     * Creates a copy with a role added, or its
+     * required level changed
+     *
+     * @param roleId        The id of the role
+     * @param levelRequired The level required
+     * @return The updated copy
+     */
+    public final GuildLevelRoleIndex withRole(long roleId, int levelRequired) {
+        Map<Long, Integer> updatedLevelsByRoleId = new HashMap<>(levelsByRoleId);
+        updatedLevelsByRoleId.put(roleId, levelRequired);
+
+        return new GuildLevelRoleIndex(guildId, updatedLevelsByRoleId);
+    }
+
+    /**
+     * Creates a copy with a role removed
+     *
+     * @param roleId The id of the role
+     * @return The updated copy
+     */
+    public final GuildLevelRoleIndex withoutRole(long roleId) {
+        if (!levelsByRoleId.containsKey(roleId)) {
+            return this;
+        }
+
+        Map<Long, Integer> updatedLevelsByRoleId = new HashMap<>(levelsByRoleId);
+        updatedLevelsByRoleId.remove(roleId);
+
+        return new GuildLevelRoleIndex(guildId, updatedLevelsByRoleId);
+    }
+
+    /**
+     * Flattens groups of role ids into one list
+     *
+     * @param groups The groups of role ids
+     * @return The role ids
+     */
+    private static final List<Long> flatten(Collection<List<Long>> groups) {
+        List<Long> roleIds = new ArrayList<>();
+        for (List<Long> group : groups) {
+            roleIds.addAll(group);
+        }
+
+        return roleIds;
+    }
+}
@@ -1,13 +1,14 @@
 package me.grayingout.database.entities;
 
-import java.util.HashMap;
-import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 
+import me.grayingout.bot.CachedMessage;
 import me.grayingout.bot.MessageCache;
+import me.grayingout.bot.journal.MessageJournal;
 import me.grayingout.database.accessors.DatabaseAccessorManager;
 import me.grayingout.util.EmbedFactory;
 import net.dv8tion.jda.api.entities.Guild;
-import net.dv8tion.jda.api.entities.Message;
 import net.dv8tion.jda.api.entities.channel.middleman.GuildMessageChannel;
 import net.dv8tion.jda.api.events.channel.ChannelCreateEvent;
 import net.dv8tion.jda.api.events.channel.ChannelDeleteEvent;
@@ -25,12 +26,6 @@ import net.dv8tion.jda.api.events.role.update.RoleUpdatePositionEvent;
  */
 public final class GuildLoggingChannel {
 
-    /**
-     * Holds a cache of the {@code GuildLoggingChannel} for a
-     * guild
-     */
-    private static final HashMap<Long, GuildLoggingChannel> guildLoggingChannels = new HashMap<>();
-
     /**
      * The guild the logging channel belongs to
      */
@@ -39,67 +34,68 @@ public final class GuildLoggingChannel {
     /**
      * The id of the logging channel
      */
-    private long channelId;
+    private final long channelId;
 
     /**
      * The logging channel
      */
-    private GuildMessageChannel channel;
+    private final GuildMessageChannel channel;
 
-    private List<LoggingEventType> enabledLoggingTypes;
+    /**
+     * The logging types to log
+     */
+    private final Set<LoggingEventType> enabledLoggingTypes;
 
     /**
      * Creates a new {@code GuildLoggingChannel} for the
      * specific guild
      * 
-     * @param guild               The guild
-     * @param channelId           The logging channel id
-     * @param enabledLoggingTypes The logging types to log
+     * @param guild         The guild
+     * @param configuration The configuration of the guild
      */
-    private GuildLoggingChannel(Guild guild, long channelId, List<LoggingEventType> enabledLoggingTypes) {
+    private GuildLoggingChannel(Guild guild, GuildConfiguration configuration) {
         this.guild = guild;
-        this.channelId = channelId;
+        channelId = configuration.getLoggingChannelId();
         channel = guild.getChannelById(GuildMessageChannel.class, channelId);
-        this.enabledLoggingTypes = enabledLoggingTypes;
+        enabledLoggingTypes = configuration.getEnabledLoggingTypes();
     }
 
     /**
-     * Gets the {@code GuildLoggingChannel} for a guild
+     * Gets the {@code GuildLoggingChannel} for a guild from
+     * its cached configuration
      * 
      * @param guild The guild
-     * @return The bot logging channel
+     * @return A future completed with the bot logging channel
      */
-    public static final GuildLoggingChannel getGuildLoggingChannel(Guild guild) {
-        /* Check if already created a bot logging channel */
-        if (guildLoggingChannels.get(guild.getIdLong()) != null) {
-            return guildLoggingChannels.get(guild.getIdLong());
-        }
-
-        guildLoggingChannels.put(guild.getIdLong(), new GuildLoggingChannel(
-            guild,
-            DatabaseAccessorManager.getConfigurationDatabaseAccessor().getLoggingChannelId(guild),
-            DatabaseAccessorManager.getConfigurationDatabaseAccessor().getEnabledLoggingTypes(guild)
-        ));
-
-        return guildLoggingChannels.get(guild.getIdLong());
+    public static final CompletableFuture<GuildLoggingChannel> getGuildLoggingChannel(Guild guild) {
+        return DatabaseAccessorManager.getConfigurationDatabaseAccessor().getGuildConfiguration(guild)
+            .thenApply(configuration -> new GuildLoggingChannel(guild, configuration));
     }
 
     /**
-     * Refreshes the logging channel of a guild
+     * Only keeps a guild's messages in the message journal
+     * while deleted messages are being logged
+     * 
+     * @param configuration The configuration of the guild
      */
-    public static final void refreshLoggingChannel(Guild guild) {
-        if (guildLoggingChannels.get(guild.getIdLong()) != null) {
-            guildLoggingChannels.get(guild.getIdLong()).refresh();
+    public static final void updateMessageRetention(GuildConfiguration configuration) {
+        MessageJournal journal = MessageJournal.getInstance();
+        if (journal == null) {
+            return;
         }
+
+        journal.setGuildRetention(configuration.getGuildId(), configuration.isLoggingTypeEnabled(LoggingEventType.MESSAGE_DELETION_LOGGING)
+            ? journal.getDefaultRetention()
+            : 0);
     }
 
     /**
-     * Refreshes the logging channel - internal use
+     * Gets the guild the logging channel belongs to
+     * 
+     * @return The guild
      */
-    public final void refresh() {
-        channelId = DatabaseAccessorManager.getConfigurationDatabaseAccessor().getLoggingChannelId(guild);
-        enabledLoggingTypes = DatabaseAccessorManager.getConfigurationDatabaseAccessor().getEnabledLoggingTypes(guild);
-        channel = guild.getChannelById(GuildMessageChannel.class, channelId);
+    public final Guild getGuild() {
+        return guild;
     }
 
     /**
@@ -138,16 +134,41 @@ public final class GuildLoggingChannel {
         }
 
         /* Check if the message deleted is in the message cache */
-        if (MessageCache.getInstance().getMessageByIdLong(event.getMessageIdLong()) != null) {
-            Message message = MessageCache.getInstance().getMessageByIdLong(event.getMessageIdLong());
-
+        CachedMessage message = MessageCache.getInstance().getMessageByIdLong(event.getMessageIdLong());
+        if (message != null) {
             /* Log known message */
             channel.sendMessageEmbeds(EmbedFactory.createDeletedMessageLogEmbed(message)).queue();
             return;
         }
 
-        /* Log unknown message */
-        channel.sendMessageEmbeds(EmbedFactory.createUnknownDeletedMessageLogEmbed(
+        /* Check if the message outlived the cache in the message journal */
+        MessageJournal journal = MessageJournal.getInstance();
+        if (journal == null) {
+            logUnknownMessageDelete(channel, event);
+            return;
+        }
+
+        /* The channel can be changed before the journal answers */
+        GuildMessageChannel loggingChannel = channel;
+        journal.getMessageByIdLong(event.getMessageIdLong()).thenAccept(journaled -> {
+            if (journaled != null) {
+                loggingChannel.sendMessageEmbeds(EmbedFactory.createDeletedMessageLogEmbed(journaled)).queue();
+                return;
+            }
+
+            logUnknownMessageDelete(loggingChannel, event);
+        });
+    }
+
+    /**
+     * Logs the deletion of a message that is not stored
+     * anywhere
+     * 
+     * @param loggingChannel The channel to log to
+     * @param event          The deletion event
+     */
+    private static final void logUnknownMessageDelete(GuildMessageChannel loggingChannel, MessageDeleteEvent event) {
+        loggingChannel.sendMessageEmbeds(EmbedFactory.createUnknownDeletedMessageLogEmbed(
             event.getChannel(),
             event.getMessageIdLong()
         )).queue();
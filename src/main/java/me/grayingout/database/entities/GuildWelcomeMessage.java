@@ -1,6 +1,6 @@
 package me.grayingout.database.entities;
 
-import java.util.HashMap;
+import java.util.concurrent.CompletableFuture;
 
 import me.grayingout.database.accessors.DatabaseAccessorManager;
 import net.dv8tion.jda.api.entities.Guild;
@@ -12,12 +12,6 @@ import net.dv8tion.jda.api.entities.channel.middleman.GuildMessageChannel;
  */
 public final class GuildWelcomeMessage {
 
-    /**
-     * Store the GuildWelcomeMessage singletons for each guild
-     * against its id
-     */
-    private static final HashMap<Long, GuildWelcomeMessage> welcomeMessages = new HashMap<>();
-
     /**
      * The guild this welcome message belongs to
      */
@@ -26,70 +20,41 @@ public final class GuildWelcomeMessage {
     /**
      * The id of the welcome channel
      */
-    private long channelId;
+    private final long channelId;
 
     /**
      * The welcome channel
      */
-    private GuildMessageChannel channel;
+    private final GuildMessageChannel channel;
     
     /**
      * The welcome message
      */
-    private String message;
+    private final String message;
 
     /**
      * Creates a new {@code GuildWelcomeMessage}
      * 
-     * @param guild     The guild this object belongs to
-     * @param channelId The id of the welcome message channel
-     * @param message   The welcome message
+     * @param guild         The guild this object belongs to
+     * @param configuration The configuration of the guild
      */
-    private GuildWelcomeMessage(Guild guild, long channelId, String message) {
+    private GuildWelcomeMessage(Guild guild, GuildConfiguration configuration) {
         this.guild = guild;
-        this.channelId = channelId;
-        this.channel = guild.getChannelById(GuildMessageChannel.class, channelId);
-        this.message = message;
+        channelId = configuration.getWelcomeChannelId();
+        channel = guild.getChannelById(GuildMessageChannel.class, channelId);
+        message = configuration.getWelcomeMessage();
     }
 
     /**
-     * Gets the singleton {@code GuildWelcomeMessage} instance for
-     * a guild
+     * Gets the {@code GuildWelcomeMessage} for a guild from
+     * its cached configuration
      * 
      * @param guild The guild
-     * @return The singleton
+     * @return A future completed with the welcome message
      */
-    public static GuildWelcomeMessage getGuildWelcomeMessage(Guild guild) {
-        /* Check singleton exists */
-        if (welcomeMessages.get(guild.getIdLong()) == null) {
-            welcomeMessages.put(guild.getIdLong(), new GuildWelcomeMessage(
-                guild,
-                DatabaseAccessorManager.getConfigurationDatabaseAccessor().getWelcomeChannelId(guild),
-                DatabaseAccessorManager.getConfigurationDatabaseAccessor().getWelcomeMessage(guild)
-            ));
-        }
-
-        return welcomeMessages.get(guild.getIdLong());
-    }
-
-    /**
-     * Refreshes the data inside a specific guild singleton
-     * 
-     * @param guild THe guild to refresh
-     */
-    public static void refreshWelcomeMessage(Guild guild) {
-        if (welcomeMessages.get(guild.getIdLong()) != null) {
-            welcomeMessages.get(guild.getIdLong()).refresh();
-        }
-    }
-
-    /**
-     * Refreshes the data within this singleton
-     */
-    public final void refresh() {
-        channelId = DatabaseAccessorManager.getConfigurationDatabaseAccessor().getWelcomeChannelId(guild);
-        channel = guild.getChannelById(GuildMessageChannel.class, channelId);
-        message = DatabaseAccessorManager.getConfigurationDatabaseAccessor().getWelcomeMessage(guild);
+    public static CompletableFuture<GuildWelcomeMessage> getGuildWelcomeMessage(Guild guild) {
+        return DatabaseAccessorManager.getConfigurationDatabaseAccessor().getGuildConfiguration(guild)
+            .thenApply(configuration -> new GuildWelcomeMessage(guild, configuration));
     }
 
     /**
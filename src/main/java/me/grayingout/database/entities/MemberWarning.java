@@ -2,13 +2,12 @@ package me.grayingout.database.entities;
 
 import java.time.LocalDateTime;
 
-import me.grayingout.App;
 import net.dv8tion.jda.api.entities.Guild;
 import net.dv8tion.jda.api.entities.Member;
 
 /**
- * A class which holds the data fetched from the warnings database
- * MemberWarning table
+ * A class which holds a warning given to a guild member,
+ * as stored by the warning repository
  */
 public final class MemberWarning {
     
@@ -22,31 +21,16 @@ public final class MemberWarning {
      */
     private final long guildId;
 
-    /**
-     * The guild the warning was in
-     */
-    private final Guild guild;
-
     /**
      * The user id of the member that received the warning
      */
     private final long memberId;
 
-    /**
-     * The member that received the warning
-     */
-    private final Member member;
-
     /**
      * The user id of the member that gave the warning
      */
     private final long moderatorId;
 
-    /**
-     * The member that gave the warning
-     */
-    private final Member moderator;
-
     /**
      * The date and time the warning was received
      */
@@ -74,10 +58,6 @@ public final class MemberWarning {
         this.moderatorId = moderatorId;
         this.receivedAt = receivedAt;
         this.reason = reason;
-
-        this.guild = App.getBot().getJDA().getGuildById(guildId);
-        this.member = this.guild.getMemberById(memberId);
-        this.moderator = this.guild.getMemberById(moderatorId);
     }
 
     /**
@@ -89,6 +69,15 @@ public final class MemberWarning {
         return warningId;
     }
 
+    /**
+     * Get the id of the guild the warning was in
+     * 
+     * @return The guild id
+     */
+    public long getGuildId() {
+        return guildId;
+    }
+
     /**
      * Get the date and time the warning was received
      * 
@@ -108,12 +97,13 @@ public final class MemberWarning {
     }
 
     /**
-     * Gets the warned member
+     * Gets the warned member from the provided guild
      * 
-     * @return The member
+     * @param guild The guild of the member
+     * @return The member, or {@code null} if they are not cached
      */
     public Member getMember(Guild guild) {
-        return member;
+        return guild.getMemberById(memberId);
     }
 
     /**
@@ -129,10 +119,10 @@ public final class MemberWarning {
      * Gets the warner member from the provided guild
      * 
      * @param guild The guild of the member
-     * @return The member
+     * @return The member, or {@code null} if they are not cached
      */
     public Member getModerator(Guild guild) {
-        return moderator;
+        return guild.getMemberById(moderatorId);
     }
 
     /**
@@ -0,0 +1,29 @@
+package me.grayingout.database.migration;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * A forward migration of a database schema, from the version
+ * before it to its own version
+ */
+public interface DatabaseMigration {
+
+    /**
+     * Gets a short description of what the migration
+     * changes, used when reporting progress
+     * 
+     * @return The description
+     */
+    String getDescription();
+
+    /**
+     * Called by the {@code MigrationRunner} to apply the migration,
+     * inside the transaction that also records the new version
+     * 
+     * @param connection The connection to the database
+     * @param progress   Reports the progress of long running steps
+     * @throws SQLException If the migration fails, which rolls it back
+     */
+    void migrate(Connection connection, MigrationProgress progress) throws SQLException;
+}
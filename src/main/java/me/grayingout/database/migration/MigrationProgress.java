@@ -0,0 +1,104 @@
+package me.grayingout.database.migration;
+
+import java.util.concurrent.TimeUnit;
+
+import me.grayingout.logging.Logger;
+
+/**
+ * Reports the progress of a migration, at most once per
+ * interval so large tables do not flood the log
+ */
+public final class MigrationProgress {
+
+    /**
+     * The logger
+     */
+    private static final Logger logger = Logger.getLogger(MigrationProgress.class);
+
+    /**
+     * The least time between two reports
+     */
+    private static final long REPORT_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(2);
+
+    /**
+     * What is being migrated, prefixed to every report
+     */
+    private final String name;
+
+    /**
+     * When the current step started
+     */
+    private long stepStartedAt;
+
+    /**
+     * When progress was last reported
+     */
+    private long lastReportedAt;
+
+    /**
+     * Creates a new {@code MigrationProgress}
+     * 
+     * @param name What is being migrated
+     */
+    MigrationProgress(String name) {
+        this.name = name;
+        stepStartedAt = System.nanoTime();
+        lastReportedAt = stepStartedAt;
+    }
+
+    /**
+     * Starts a new step of the migration
+     * 
+     * @param step What the step does
+     */
+    public final void startStep(String step) {
+        stepStartedAt = System.nanoTime();
+        lastReportedAt = stepStartedAt;
+        logger.info("Started a migration step", "migration", name, "step", step);
+    }
+
+    /**
+     * Reports how far through the current step the
+     * migration is, if a report is due
+     * 
+     * @param done  The number of rows done
+     * @param total The total number of rows
+     */
+    public final void update(long done, long total) {
+        if (!isReportDue()) {
+            return;
+        }
+
+        logger.info("Migration step progress", "migration", name, "done", done, "total", total,
+            "percent", Math.round(total == 0 ? 100.0 : done * 100.0 / total));
+    }
+
+    /**
+     * Reports that the current step is still running, for
+     * steps that cannot tell how far through they are
+     */
+    public final void stillRunning() {
+        if (!isReportDue()) {
+            return;
+        }
+
+        logger.info("Migration step still running", "migration", name,
+            "seconds", TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - stepStartedAt));
+    }
+
+    /**
+     * Returns if enough time has passed for another report,
+     * and if so starts the next interval
+     * 
+     * @return If a report is due
+     */
+    private boolean isReportDue() {
+        long now = System.nanoTime();
+        if (now - lastReportedAt < REPORT_INTERVAL_NANOS) {
+            return false;
+        }
+
+        lastReportedAt = now;
+        return true;
+    }
+}
@@ -0,0 +1,286 @@
+package me.grayingout.database.migration;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.sqlite.ProgressHandler;
+
+import me.grayingout.logging.Logger;
+
+/**
+ * Brings a database schema up to date at startup.
+ * <p>
+ * A database can hold several schemas, each owned by one accessor.
+ * The version of each schema is stored in the {@code SchemaVersion}
+ * table, and migration {@code n} in the list moves the schema from
+ * version {@code n} to {@code n + 1}. Files written before versions
+ * were stored per schema only held one, in SQLite's {@code user_version},
+ * which is used until the schema has a row of its own. Each pending migration is applied in its
+ * own transaction together with its new version, so a failed migration
+ * leaves the database at the last version that succeeded.
+ * <p>
+ * A schema newer than the migrations know about
+ * was written by a newer version of the bot, so the runner refuses
+ * to touch it
+ */
+public final class MigrationRunner {
+
+    /**
+     * The logger
+     */
+    private static final Logger logger = Logger.getLogger(MigrationRunner.class);
+
+    /**
+     * The number of rows copied in each step of a table rewrite
+     */
+    private static final int REWRITE_BATCH_SIZE = 10000;
+
+    /**
+     * The number of SQLite virtual machine instructions between
+     * checks on a long running statement
+     */
+    private static final int PROGRESS_HANDLER_INSTRUCTIONS = 1000000;
+
+    /**
+     * The name of the database, used when reporting
+     */
+    private final String databaseName;
+
+    /**
+     * The name of the schema the migrations belong to
+     */
+    private final String schemaName;
+
+    /**
+     * The migrations, in version order
+     */
+    private final List<DatabaseMigration> migrations;
+
+    /**
+     * Creates a new {@code MigrationRunner}
+     * 
+     * @param databaseName The name of the database
+     * @param schemaName   The name of the schema
+     * @param migrations   The migrations, in version order
+     */
+    public MigrationRunner(String databaseName, String schemaName, List<DatabaseMigration> migrations) {
+        this.databaseName = databaseName;
+        this.schemaName = schemaName;
+        this.migrations = new ArrayList<>(migrations);
+    }
+
+    /**
+     * Gets the schema version the migrations bring the database to
+     * 
+     * @return The latest version
+     */
+    public final int getLatestVersion() {
+        return migrations.size();
+    }
+
+    /**
+     * Applies every pending migration. The connection must
+     * not be in auto-commit mode
+     * 
+     * @param connection The connection to the database
+     * @throws IllegalStateException If the schema is newer than the
+     *                               latest version, or a migration fails
+     */
+    public final void migrate(Connection connection) {
+        int version;
+        try {
+            version = getSchemaVersion(connection, schemaName);
+            connection.commit();
+        } catch (SQLException e) {
+            throw new IllegalStateException("Failed to read the version of the " + schemaName + " schema of " + databaseName, e);
+        }
+
+        /* Written by a newer version of the bot */
+        if (version > getLatestVersion()) {
+            throw new IllegalStateException(String.format(
+                "The %s schema of %s has version %d, but the latest known version is %d. Refusing to start",
+                schemaName, databaseName, version, getLatestVersion()));
+        }
+
+        for (int i = version; i < getLatestVersion(); i++) {
+            DatabaseMigration migration = migrations.get(i);
+            MigrationProgress progress = new MigrationProgress(databaseName + " " + schemaName + " v" + (i + 1));
+
+            progress.startStep(migration.getDescription());
+            long startedAt = System.currentTimeMillis();
+
+            try {
+                migration.migrate(connection, progress);
+                setSchemaVersion(connection, schemaName, i + 1);
+                connection.commit();
+            } catch (SQLException | RuntimeException e) {
+                try {
+                    connection.rollback();
+                } catch (SQLException rollbackException) {
+                    logger.error("Failed to roll back a failed migration", rollbackException,
+                        "database", databaseName, "schema", schemaName, "version", i + 1);
+                }
+
+                throw new IllegalStateException(String.format(
+                    "Failed to migrate the %s schema of %s to version %d", schemaName, databaseName, i + 1), e);
+            }
+
+            logger.info("Migrated a schema", "database", databaseName, "schema", schemaName,
+                "version", i + 1, "ms", System.currentTimeMillis() - startedAt);
+        }
+    }
+
+    /**
+     * Runs a statement that can take a long time, such as building
+     * an index on a large table, reporting that it is still running
+     * 
+     * @param connection The connection to the database
+     * @param sql        The statement
+     * @param progress   The progress of the migration
+     * @throws SQLException If the statement fails
+     */
+    public static final void executeLongRunning(Connection connection, String sql, MigrationProgress progress) throws SQLException {
+        ProgressHandler.setHandler(connection, PROGRESS_HANDLER_INSTRUCTIONS, new ProgressHandler() {
+            @Override
+            protected int progress() {
+                progress.stillRunning();
+
+                /* Carry on */
+                return 0;
+            }
+        });
+
+        try (Statement statement = connection.createStatement()) {
+            statement.execute(sql);
+        } finally {
+            ProgressHandler.clearHandler(connection);
+        }
+    }
+
+    /**
+     * Rewrites a table into a new definition, copying its rows in
+     * batches and reporting progress. The table's indexes are dropped
+     * with it, so they must be created again afterwards
+     * 
+     * @param connection     The connection to the database
+     * @param table          The name of the table
+     * @param createTableSql Creates the new definition, with {@code %s}
+     *                       in place of the table name
+     * @param columns        The comma separated columns to copy
+     * @param progress       The progress of the migration
+     * @throws SQLException If the rewrite fails
+     */
+    public static final void rewriteTable(
+            Connection connection,
+            String table,
+            String createTableSql,
+            String columns,
+            MigrationProgress progress) throws SQLException {
+        String rewriteTable = table + "_rewrite";
+
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("DROP TABLE IF EXISTS " + rewriteTable);
+            statement.execute(String.format(createTableSql, rewriteTable));
+
+            long total;
+            try (ResultSet set = statement.executeQuery("SELECT count(*) FROM " + table)) {
+                total = set.getLong(1);
+            }
+
+            /* Copy in rowid order, a batch at a time */
+            try (
+                PreparedStatement boundStatement = connection.prepareStatement(
+                    "SELECT max(rowid), count(*) FROM (SELECT rowid FROM " + table + " WHERE rowid > ? ORDER BY rowid LIMIT ?)");
+                PreparedStatement copyStatement = connection.prepareStatement(
+                    "INSERT INTO " + rewriteTable + " (" + columns + ") SELECT " + columns + " FROM " + table + " WHERE rowid > ? AND rowid <= ?")
+            ) {
+                long lastRowId = Long.MIN_VALUE;
+                long copied = 0;
+                while (true) {
+                    boundStatement.setLong(1, lastRowId);
+                    boundStatement.setInt(2, REWRITE_BATCH_SIZE);
+
+                    long batchEnd;
+                    long batchSize;
+                    try (ResultSet set = boundStatement.executeQuery()) {
+                        batchEnd = set.getLong(1);
+                        batchSize = set.getLong(2);
+                    }
+
+                    if (batchSize == 0) {
+                        break;
+                    }
+
+                    copyStatement.setLong(1, lastRowId);
+                    copyStatement.setLong(2, batchEnd);
+                    copyStatement.executeUpdate();
+
+                    lastRowId = batchEnd;
+                    copied += batchSize;
+                    progress.update(copied, total);
+                }
+            }
+
+            statement.execute("DROP TABLE " + table);
+            statement.execute("ALTER TABLE " + rewriteTable + " RENAME TO " + table);
+        }
+    }
+
+    /**
+     * Reads the version of a schema, creating the table the
+     * versions are stored in if needed
+     * 
+     * @param connection The connection to the database
+     * @param schemaName The name of the schema
+     * @return The version, or {@code 0} if the schema has never been migrated
+     * @throws SQLException If it could not be read
+     */
+    public static final int getSchemaVersion(Connection connection, String schemaName) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute(
+                "CREATE TABLE IF NOT EXISTS SchemaVersion ("
+              + "  schema_name TEXT NOT NULL PRIMARY KEY,"
+              + "  version INTEGER NOT NULL"
+              + ")");
+        }
+
+        try (PreparedStatement statement = connection.prepareStatement(
+                "SELECT version FROM SchemaVersion WHERE schema_name == ?")) {
+            statement.setString(1, schemaName);
+
+            try (ResultSet set = statement.executeQuery()) {
+                if (set.next()) {
+                    return set.getInt("version");
+                }
+            }
+        }
+
+        /* Written when the file only held this schema */
+        try (Statement statement = connection.createStatement();
+                ResultSet set = statement.executeQuery("PRAGMA user_version")) {
+            return set.getInt(1);
+        }
+    }
+
+    /**
+     * Records the version of a schema
+     * 
+     * @param connection The connection to the database
+     * @param schemaName The name of the schema
+     * @param version    The version
+     * @throws SQLException If it could not be written
+     */
+    public static final void setSchemaVersion(Connection connection, String schemaName, int version) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(
+                "INSERT OR REPLACE INTO SchemaVersion (schema_name, version) VALUES (?, ?)")) {
+            statement.setString(1, schemaName);
+            statement.setInt(2, version);
+            statement.executeUpdate();
+        }
+    }
+}
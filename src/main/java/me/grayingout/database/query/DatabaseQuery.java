@@ -17,4 +17,15 @@ public interface DatabaseQuery<T> {
      * @return The response object of type {@code T}
      */
     T execute(Connection connection) throws SQLException;
+
+    /**
+     * Returns if the query only reads from the database. Read-only
+     * queries can be executed on a read connection, rather than
+     * waiting behind writes
+     * 
+     * @return If the query is read-only
+     */
+    default boolean isReadOnly() {
+        return false;
+    }
 }
@@ -0,0 +1,14 @@
+package me.grayingout.database.query;
+
+/**
+ * A query that only reads from the database, so it can be
+ * executed on a read connection alongside other reads
+ */
+@FunctionalInterface
+public interface ReadOnlyDatabaseQuery<T> extends DatabaseQuery<T> {
+
+    @Override
+    default boolean isReadOnly() {
+        return true;
+    }
+}
@@ -0,0 +1,32 @@
+package me.grayingout.database.storage;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.function.UnaryOperator;
+
+import me.grayingout.database.entities.GuildConfiguration;
+
+/**
+ * Stores the configuration of each guild
+ */
+public interface ConfigurationRepository {
+
+    /**
+     * Gets the configuration of a guild
+     *
+     * @param guildId The id of the guild
+     * @return A future completed with the configuration, which is
+     *         the default if none has been stored
+     */
+    CompletableFuture<GuildConfiguration> getConfiguration(long guildId);
+
+    /**
+     * Changes the configuration of a guild. The stored configuration
+     * is read, updated and written without any other write to it
+     * in between
+     *
+     * @param guildId The id of the guild
+     * @param updater Applies the change to the stored configuration
+     * @return A future completed with the updated configuration
+     */
+    CompletableFuture<GuildConfiguration> updateConfiguration(long guildId, UnaryOperator<GuildConfiguration> updater);
+}
@@ -0,0 +1,62 @@
+package me.grayingout.database.storage;
+
+/**
+ * Experience to add to a guild member's stored total
+ */
+public final class ExperienceDelta {
+
+    /**
+     * The id of the guild
+     */
+    private final long guildId;
+
+    /**
+     * The id of the member
+     */
+    private final long userId;
+
+    /**
+     * The experience to add
+     */
+    private final int delta;
+
+    /**
+     * Creates a new {@code ExperienceDelta}
+     *
+     * @param guildId The id of the guild
+     * @param userId  The id of the member
+     * @param delta   The experience to add
+     */
+    public ExperienceDelta(long guildId, long userId, int delta) {
+        this.guildId = guildId;
+        this.userId = userId;
+        this.delta = delta;
+    }
+
+    /**
+     * Gets the id of the guild
+     *
+     * @return The guild id
+     */
+    public final long getGuildId() {
+        return guildId;
+    }
+
+    /**
+     * Gets the id of the member
+     *
+     * @return The user id
+     */
+    public final long getUserId() {
+        return userId;
+    }
+
+    /**
+     * Gets the experience to add
+     *
+     * @return The experience delta
+     */
+    public final int getDelta() {
+        return delta;
+    }
+}
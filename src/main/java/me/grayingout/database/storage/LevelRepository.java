@@ -0,0 +1,80 @@
+package me.grayingout.database.storage;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Stores the level experience of guild members, and the
+ * roles rewarded for reaching a level.
+ * <p>
+ * Like every repository, reads complete with {@code null} if they
+ * fail, and writes complete with {@code true} once written, or
+ * {@code null} if they fail
+ */
+public interface LevelRepository {
+
+    /**
+     * Gets the stored experience of a guild member
+     *
+     * @param guildId The id of the guild
+     * @param userId  The id of the member
+     * @return A future completed with the experience, which
+     *         is {@code 0} if none has been stored
+     */
+    CompletableFuture<Integer> getExperience(long guildId, long userId);
+
+    /**
+     * Gets the stored experience of every member of a guild
+     * that has more than none
+     *
+     * @param guildId The id of the guild
+     * @return A future completed with the experience against the user ids
+     */
+    CompletableFuture<Map<Long, Integer>> getGuildExperience(long guildId);
+
+    /**
+     * Adds experience to guild members, all at once
+     *
+     * @param deltas The experience to add
+     * @return A future completed once the experience has been added
+     */
+    CompletableFuture<Boolean> addExperience(List<ExperienceDelta> deltas);
+
+    /**
+     * Sets the experience of a guild member
+     *
+     * @param guildId    The id of the guild
+     * @param userId     The id of the member
+     * @param experience The experience
+     * @return A future completed once the experience has been set
+     */
+    CompletableFuture<Boolean> setExperience(long guildId, long userId, int experience);
+
+    /**
+     * Gets the level roles of a guild
+     *
+     * @param guildId The id of the guild
+     * @return A future completed with the level required against the role ids
+     */
+    CompletableFuture<Map<Long, Integer>> getLevelRoles(long guildId);
+
+    /**
+     * Adds a level role to a guild, or changes the level it requires
+     *
+     * @param guildId       The id of the guild
+     * @param roleId        The id of the role
+     * @param levelRequired The level required
+     * @return A future completed once the role has been stored
+     */
+    CompletableFuture<Boolean> putLevelRole(long guildId, long roleId, int levelRequired);
+
+    /**
+     * Removes a level role from a guild
+     *
+     * @param guildId The id of the guild
+     * @param roleId  The id of the role
+     * @return A future completed once the role has been removed
+     */
+    CompletableFuture<Boolean> deleteLevelRole(long guildId, long roleId);
+}
@@ -0,0 +1,36 @@
+package me.grayingout.database.storage;
+
+/**
+ * Where the bot's data is stored, chosen with {@code STORAGE_BACKEND}
+ * in the environment. Every backend must pass the storage
+ * conformance tests
+ */
+public interface StorageBackend {
+
+    /**
+     * Gets the repository of level experience and level roles
+     *
+     * @return The level repository
+     */
+    LevelRepository getLevelRepository();
+
+    /**
+     * Gets the repository of member warnings
+     *
+     * @return The warning repository
+     */
+    WarningRepository getWarningRepository();
+
+    /**
+     * Gets the repository of guild configurations
+     *
+     * @return The configuration repository
+     */
+    ConfigurationRepository getConfigurationRepository();
+
+    /**
+     * Writes everything that has been stored, and closes
+     * the backend. Anything stored afterwards fails
+     */
+    void close();
+}
@@ -0,0 +1,64 @@
+package me.grayingout.database.storage;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import me.grayingout.database.entities.MemberWarning;
+
+/**
+ * Stores the warnings given to guild members
+ */
+public interface WarningRepository {
+
+    /**
+     * Stores a new warning, giving it the next warning id
+     *
+     * @param guildId     The id of the guild
+     * @param memberId    The id of the member receiving the warning
+     * @param moderatorId The id of the member giving the warning
+     * @param receivedAt  When the warning was given, in UTC
+     * @param reason      The reason for the warning
+     * @return A future completed with the stored warning
+     */
+    CompletableFuture<MemberWarning> putWarning(long guildId, long memberId, long moderatorId, LocalDateTime receivedAt, String reason);
+
+    /**
+     * Gets the warnings of a guild member, newest first
+     *
+     * @param guildId  The id of the guild
+     * @param memberId The id of the member
+     * @return A future completed with the warnings
+     */
+    CompletableFuture<List<MemberWarning>> getWarnings(long guildId, long memberId);
+
+    /**
+     * Gets a warning of a guild member by its id
+     *
+     * @param guildId   The id of the guild
+     * @param memberId  The id of the member
+     * @param warningId The id of the warning
+     * @return A future completed with the warning, or {@code null} if
+     *         the member has no such warning
+     */
+    CompletableFuture<MemberWarning> getWarning(long guildId, long memberId, int warningId);
+
+    /**
+     * Deletes a warning of a guild member
+     *
+     * @param guildId   The id of the guild
+     * @param memberId  The id of the member
+     * @param warningId The id of the warning
+     * @return A future completed once the warning has been deleted
+     */
+    CompletableFuture<Boolean> deleteWarning(long guildId, long memberId, int warningId);
+
+    /**
+     * Deletes every warning of a guild member
+     *
+     * @param guildId  The id of the guild
+     * @param memberId The id of the member
+     * @return A future completed once the warnings have been deleted
+     */
+    CompletableFuture<Boolean> clearWarnings(long guildId, long memberId);
+}
@@ -0,0 +1,155 @@
+package me.grayingout.database.storage.kv;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.UnaryOperator;
+
+import me.grayingout.database.entities.GuildConfiguration;
+import me.grayingout.database.storage.ConfigurationRepository;
+import me.grayingout.logging.Logger;
+
+/**
+ * A {@code ConfigurationRepository} that stores the configuration
+ * of each guild under {@code configuration/<guild id>}
+ */
+final class KeyValueConfigurationRepository extends KeyValueRepository implements ConfigurationRepository {
+
+    /**
+     * The logger
+     */
+    private static final Logger logger = Logger.getLogger(KeyValueConfigurationRepository.class);
+
+    /**
+     * The version of the encoding of the stored configurations
+     */
+    private static final byte ENCODING_VERSION = 1;
+
+    /**
+     * Creates a new {@code KeyValueConfigurationRepository}
+     *
+     * @param store The store to store the configurations in
+     */
+    /* default */ KeyValueConfigurationRepository(LogStructuredStore store) {
+        super(store);
+    }
+
+    @Override
+    public CompletableFuture<GuildConfiguration> getConfiguration(long guildId) {
+        try {
+            return CompletableFuture.completedFuture(readConfiguration(guildId));
+        } catch (IOException e) {
+            logger.error("Failed to read a configuration from the key-value store", e, "guild", guildId);
+            return CompletableFuture.completedFuture(null);
+        }
+    }
+
+    @Override
+    public CompletableFuture<GuildConfiguration> updateConfiguration(long guildId, UnaryOperator<GuildConfiguration> updater) {
+        /* Nothing changes the configuration between reading and writing it */
+        synchronized (this) {
+            GuildConfiguration configuration;
+            try {
+                configuration = updater.apply(readConfiguration(guildId));
+            } catch (IOException e) {
+                logger.error("Failed to read a configuration from the key-value store", e, "guild", guildId);
+                return CompletableFuture.completedFuture(null);
+            }
+
+            if (write(new LogStructuredStore.Batch().put(getKey(guildId), encode(configuration))).join() == null) {
+                return CompletableFuture.completedFuture(null);
+            }
+
+            return CompletableFuture.completedFuture(configuration);
+        }
+    }
+
+    /**
+     * Reads the stored configuration of a guild
+     *
+     * @param guildId The id of the guild
+     * @return The configuration, or the default if none is stored
+     * @throws IOException If the stored configuration could not be decoded
+     */
+    private GuildConfiguration readConfiguration(long guildId) throws IOException {
+        byte[] value = store.get(getKey(guildId));
+        if (value == null) {
+            return GuildConfiguration.getDefault(guildId);
+        }
+
+        try (DataInputStream input = new DataInputStream(new ByteArrayInputStream(value))) {
+            byte version = input.readByte();
+            if (version != ENCODING_VERSION) {
+                throw new IOException("Unknown configuration encoding " + version);
+            }
+
+            long loggingChannelId = input.readLong();
+            String enabledLoggingTypes = input.readUTF();
+            long welcomeChannelId = input.readLong();
+
+            String welcomeMessage = null;
+            if (input.readBoolean()) {
+                byte[] encodedMessage = new byte[input.readInt()];
+                input.readFully(encodedMessage);
+                welcomeMessage = new String(encodedMessage, StandardCharsets.UTF_8);
+            }
+
+            return new GuildConfiguration(
+                guildId,
+                loggingChannelId,
+                GuildConfiguration.parseLoggingTypes(enabledLoggingTypes),
+                welcomeChannelId,
+                welcomeMessage,
+                input.readLong()
+            );
+        }
+    }
+
+    /**
+     * Encodes a configuration to be stored
+     *
+     * @param configuration The configuration
+     * @return The value
+     */
+    private static byte[] encode(GuildConfiguration configuration) {
+        ByteArrayOutputStream value = new ByteArrayOutputStream();
+
+        try (DataOutputStream output = new DataOutputStream(value)) {
+            output.writeByte(ENCODING_VERSION);
+            output.writeLong(configuration.getLoggingChannelId());
+            output.writeUTF(GuildConfiguration.formatLoggingTypes(configuration.getEnabledLoggingTypes()));
+            output.writeLong(configuration.getWelcomeChannelId());
+
+            /* The message is not limited to the length writeUTF allows */
+            String welcomeMessage = configuration.getCustomWelcomeMessage();
+            output.writeBoolean(welcomeMessage != null);
+            if (welcomeMessage != null) {
+                byte[] encodedMessage = welcomeMessage.getBytes(StandardCharsets.UTF_8);
+                output.writeInt(encodedMessage.length);
+                output.write(encodedMessage);
+            }
+
+            output.writeLong(configuration.getDJRoleId());
+        } catch (IOException e) {
+            /* Never thrown when writing to memory */
+            throw new UncheckedIOException(e);
+        }
+
+        return value.toByteArray();
+    }
+
+    /**
+     * Gets the key of the configuration of a guild
+     *
+     * @param guildId The id of the guild
+     * @return The key
+     */
+    private static String getKey(long guildId) {
+        return "configuration/" + guildId;
+    }
+}
@@ -0,0 +1,107 @@
+package me.grayingout.database.storage.kv;
+
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import me.grayingout.database.storage.ExperienceDelta;
+import me.grayingout.database.storage.LevelRepository;
+
+/**
+ * A {@code LevelRepository} that stores the experience of each
+ * guild member as a counter, under
+ * {@code level/experience/<guild id>/<user id>}, and the level
+ * required by each level role under {@code level/role/<guild id>/<role id>}
+ */
+final class KeyValueLevelRepository extends KeyValueRepository implements LevelRepository {
+
+    /**
+     * Creates a new {@code KeyValueLevelRepository}
+     *
+     * @param store The store to store the levelling data in
+     */
+    /* default */ KeyValueLevelRepository(LogStructuredStore store) {
+        super(store);
+    }
+
+    @Override
+    public CompletableFuture<Integer> getExperience(long guildId, long userId) {
+        return CompletableFuture.completedFuture((int) store.getCounter(getExperiencePrefix(guildId) + userId));
+    }
+
+    @Override
+    public CompletableFuture<Map<Long, Integer>> getGuildExperience(long guildId) {
+        String prefix = getExperiencePrefix(guildId);
+
+        Map<Long, Integer> experienceByUserId = new HashMap<>();
+        for (Map.Entry<String, byte[]> entry : store.scan(prefix).entrySet()) {
+            int experience = (int) LogStructuredStore.decodeCounter(entry.getValue());
+            if (experience > 0) {
+                experienceByUserId.put(Long.parseLong(entry.getKey().substring(prefix.length())), experience);
+            }
+        }
+
+        return CompletableFuture.completedFuture(experienceByUserId);
+    }
+
+    @Override
+    public CompletableFuture<Boolean> addExperience(List<ExperienceDelta> deltas) {
+        LogStructuredStore.Batch batch = new LogStructuredStore.Batch();
+        for (ExperienceDelta delta : deltas) {
+            batch.increment(getExperiencePrefix(delta.getGuildId()) + delta.getUserId(), delta.getDelta());
+        }
+
+        return write(batch);
+    }
+
+    @Override
+    public CompletableFuture<Boolean> setExperience(long guildId, long userId, int experience) {
+        return write(new LogStructuredStore.Batch()
+            .put(getExperiencePrefix(guildId) + userId, LogStructuredStore.encodeCounter(experience)));
+    }
+
+    @Override
+    public CompletableFuture<Map<Long, Integer>> getLevelRoles(long guildId) {
+        String prefix = getLevelRolePrefix(guildId);
+
+        Map<Long, Integer> levelsByRoleId = new HashMap<>();
+        for (Map.Entry<String, byte[]> entry : store.scan(prefix).entrySet()) {
+            levelsByRoleId.put(Long.parseLong(entry.getKey().substring(prefix.length())), ByteBuffer.wrap(entry.getValue()).getInt());
+        }
+
+        return CompletableFuture.completedFuture(levelsByRoleId);
+    }
+
+    @Override
+    public CompletableFuture<Boolean> putLevelRole(long guildId, long roleId, int levelRequired) {
+        return write(new LogStructuredStore.Batch()
+            .put(getLevelRolePrefix(guildId) + roleId, ByteBuffer.allocate(Integer.BYTES).putInt(levelRequired).array()));
+    }
+
+    @Override
+    public CompletableFuture<Boolean> deleteLevelRole(long guildId, long roleId) {
+        return write(new LogStructuredStore.Batch().delete(getLevelRolePrefix(guildId) + roleId));
+    }
+
+    /**
+     * Gets the prefix of the experience keys of a guild
+     *
+     * @param guildId The id of the guild
+     * @return The prefix
+     */
+    private static String getExperiencePrefix(long guildId) {
+        return "level/experience/" + guildId + "/";
+    }
+
+    /**
+     * Gets the prefix of the level role keys of a guild
+     *
+     * @param guildId The id of the guild
+     * @return The prefix
+     */
+    private static String getLevelRolePrefix(long guildId) {
+        return "level/role/" + guildId + "/";
+    }
+}
@@ -0,0 +1,49 @@
+package me.grayingout.database.storage.kv;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+
+import me.grayingout.logging.Logger;
+
+/**
+ * A repository stored in a {@code LogStructuredStore}. Everything it
+ * reads is held in memory, so its futures are completed before they
+ * are returned
+ */
+abstract class KeyValueRepository {
+
+    /**
+     * The logger
+     */
+    private static final Logger logger = Logger.getLogger(KeyValueRepository.class);
+
+    /**
+     * The store the repository is stored in
+     */
+    /* default */ final LogStructuredStore store;
+
+    /**
+     * Creates a new {@code KeyValueRepository}
+     *
+     * @param store The store the repository is stored in
+     */
+    /* default */ KeyValueRepository(LogStructuredStore store) {
+        this.store = store;
+    }
+
+    /**
+     * Writes a batch to the store
+     *
+     * @param batch The batch
+     * @return A future completed with {@code true}, or {@code null} if the write failed
+     */
+    /* default */ final CompletableFuture<Boolean> write(LogStructuredStore.Batch batch) {
+        try {
+            store.apply(batch);
+            return CompletableFuture.completedFuture(true);
+        } catch (IOException e) {
+            logger.error("Failed to write to the key-value store", e);
+            return CompletableFuture.completedFuture(null);
+        }
+    }
+}
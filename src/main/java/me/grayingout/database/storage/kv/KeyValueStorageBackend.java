@@ -0,0 +1,135 @@
+package me.grayingout.database.storage.kv;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import me.grayingout.App;
+import me.grayingout.database.storage.ConfigurationRepository;
+import me.grayingout.database.storage.LevelRepository;
+import me.grayingout.database.storage.StorageBackend;
+import me.grayingout.database.storage.WarningRepository;
+import me.grayingout.logging.Logger;
+
+/**
+ * A {@code StorageBackend} that stores everything in one
+ * {@code LogStructuredStore}, for {@code STORAGE_BACKEND=kv}.
+ * <p>
+ * Everything is held in memory, so reads never wait on the disk,
+ * and experience increments are appended as counter deltas. Writes
+ * are appended straight away but only synced every
+ * {@code KV_SYNC_INTERVAL_MS}, so a power loss can lose that long
+ * of writes, though never leave a write half applied
+ */
+public final class KeyValueStorageBackend implements StorageBackend {
+
+    /**
+     * The logger
+     */
+    private static final Logger logger = Logger.getLogger(KeyValueStorageBackend.class);
+
+    /**
+     * The store everything is stored in
+     */
+    private final LogStructuredStore store;
+
+    /**
+     * The repository of level experience and level roles
+     */
+    private final KeyValueLevelRepository levelRepository;
+
+    /**
+     * The repository of member warnings
+     */
+    private final KeyValueWarningRepository warningRepository;
+
+    /**
+     * The repository of guild configurations
+     */
+    private final KeyValueConfigurationRepository configurationRepository;
+
+    /**
+     * Syncs and compacts the store in the background
+     */
+    private final ScheduledExecutorService scheduler;
+
+    /**
+     * Creates a new {@code KeyValueStorageBackend}, stored in
+     * {@code KV_STORAGE_PATH} and synced every {@code KV_SYNC_INTERVAL_MS}
+     *
+     * @throws IOException If the store could not be opened
+     */
+    public KeyValueStorageBackend() throws IOException {
+        this(
+            new File(App.env.get("KV_STORAGE_PATH", "storage.kv")),
+            Long.parseLong(App.env.get("KV_SYNC_INTERVAL_MS", "1000"))
+        );
+    }
+
+    /**
+     * Creates a new {@code KeyValueStorageBackend}
+     *
+     * @param file           The file to store everything in
+     * @param syncIntervalMs The interval between syncs in milliseconds
+     * @throws IOException If the store could not be opened
+     */
+    public KeyValueStorageBackend(File file, long syncIntervalMs) throws IOException {
+        store = new LogStructuredStore(file);
+        levelRepository = new KeyValueLevelRepository(store);
+        warningRepository = new KeyValueWarningRepository(store);
+        configurationRepository = new KeyValueConfigurationRepository(store);
+
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "kv-storage-sync");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::syncAndCompact, syncIntervalMs, syncIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public LevelRepository getLevelRepository() {
+        return levelRepository;
+    }
+
+    @Override
+    public WarningRepository getWarningRepository() {
+        return warningRepository;
+    }
+
+    @Override
+    public ConfigurationRepository getConfigurationRepository() {
+        return configurationRepository;
+    }
+
+    @Override
+    public void close() {
+        scheduler.shutdown();
+
+        try {
+            scheduler.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        try {
+            store.close();
+        } catch (IOException e) {
+            logger.error("Failed to sync the key-value store while closing it", e);
+        }
+    }
+
+    /**
+     * Syncs the store, and compacts it if most of its log is overwritten values
+     */
+    private void syncAndCompact() {
+        try {
+            store.sync();
+            store.compactIfNeeded();
+        } catch (IOException e) {
+            logger.error("Failed to sync the key-value store", e);
+        }
+    }
+}
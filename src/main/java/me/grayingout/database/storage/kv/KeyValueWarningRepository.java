@@ -0,0 +1,140 @@
+package me.grayingout.database.storage.kv;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import me.grayingout.database.entities.MemberWarning;
+import me.grayingout.database.storage.WarningRepository;
+
+/**
+ * A {@code WarningRepository} that stores each warning under
+ * {@code warning/<guild id>/<member id>/<warning id>}, with the
+ * ids taken from the {@code warning/sequence} counter
+ */
+final class KeyValueWarningRepository extends KeyValueRepository implements WarningRepository {
+
+    /**
+     * The counter the warning ids are taken from
+     */
+    private static final String SEQUENCE_KEY = "warning/sequence";
+
+    /**
+     * Orders warnings newest first, as the sqlite repository does
+     */
+    private static final Comparator<MemberWarning> NEWEST_FIRST = Comparator
+        .comparing(MemberWarning::getReceivedAt)
+        .thenComparingInt(MemberWarning::getWarningId)
+        .reversed();
+
+    /**
+     * Creates a new {@code KeyValueWarningRepository}
+     *
+     * @param store The store to store the warnings in
+     */
+    /* default */ KeyValueWarningRepository(LogStructuredStore store) {
+        super(store);
+    }
+
+    @Override
+    public CompletableFuture<MemberWarning> putWarning(long guildId, long memberId, long moderatorId, LocalDateTime receivedAt, String reason) {
+        /* Using UTC+0 offset for timestamp */
+        byte[] encodedReason = reason.getBytes(StandardCharsets.UTF_8);
+        byte[] value = ByteBuffer.allocate(Long.BYTES * 2 + encodedReason.length)
+            .putLong(moderatorId)
+            .putLong(receivedAt.toEpochSecond(ZoneOffset.ofHours(0)))
+            .put(encodedReason)
+            .array();
+
+        /* The id is read and taken in one write, so no other warning can take it */
+        int warningId;
+        synchronized (store) {
+            warningId = (int) store.getCounter(SEQUENCE_KEY) + 1;
+
+            if (write(new LogStructuredStore.Batch()
+                    .increment(SEQUENCE_KEY, 1)
+                    .put(getPrefix(guildId, memberId) + warningId, value)).join() == null) {
+                return CompletableFuture.completedFuture(null);
+            }
+        }
+
+        return CompletableFuture.completedFuture(readWarning(warningId, guildId, memberId, value));
+    }
+
+    @Override
+    public CompletableFuture<List<MemberWarning>> getWarnings(long guildId, long memberId) {
+        String prefix = getPrefix(guildId, memberId);
+
+        List<MemberWarning> warnings = new ArrayList<>();
+        for (Map.Entry<String, byte[]> entry : store.scan(prefix).entrySet()) {
+            int warningId = Integer.parseInt(entry.getKey().substring(prefix.length()));
+            warnings.add(readWarning(warningId, guildId, memberId, entry.getValue()));
+        }
+
+        warnings.sort(NEWEST_FIRST);
+        return CompletableFuture.completedFuture(warnings);
+    }
+
+    @Override
+    public CompletableFuture<MemberWarning> getWarning(long guildId, long memberId, int warningId) {
+        byte[] value = store.get(getPrefix(guildId, memberId) + warningId);
+
+        return CompletableFuture.completedFuture(value == null ? null : readWarning(warningId, guildId, memberId, value));
+    }
+
+    @Override
+    public CompletableFuture<Boolean> deleteWarning(long guildId, long memberId, int warningId) {
+        return write(new LogStructuredStore.Batch().delete(getPrefix(guildId, memberId) + warningId));
+    }
+
+    @Override
+    public CompletableFuture<Boolean> clearWarnings(long guildId, long memberId) {
+        LogStructuredStore.Batch batch = new LogStructuredStore.Batch();
+        for (String key : store.scan(getPrefix(guildId, memberId)).keySet()) {
+            batch.delete(key);
+        }
+
+        return write(batch);
+    }
+
+    /**
+     * Gets the prefix of the warning keys of a guild member
+     *
+     * @param guildId  The id of the guild
+     * @param memberId The id of the member
+     * @return The prefix
+     */
+    private static String getPrefix(long guildId, long memberId) {
+        return "warning/" + guildId + "/" + memberId + "/";
+    }
+
+    /**
+     * Reads a stored warning
+     *
+     * @param warningId The id of the warning
+     * @param guildId   The id of the guild
+     * @param memberId  The id of the member
+     * @param value     The stored value
+     * @return The warning
+     */
+    private static MemberWarning readWarning(int warningId, long guildId, long memberId, byte[] value) {
+        ByteBuffer buffer = ByteBuffer.wrap(value);
+        long moderatorId = buffer.getLong();
+        long receivedAt = buffer.getLong();
+
+        return new MemberWarning(
+            warningId,
+            guildId,
+            memberId,
+            moderatorId,
+            LocalDateTime.ofEpochSecond(receivedAt, 0, ZoneOffset.ofHours(0)),
+            new String(value, buffer.position(), buffer.remaining(), StandardCharsets.UTF_8)
+        );
+    }
+}
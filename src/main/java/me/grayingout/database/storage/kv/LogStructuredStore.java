@@ -0,0 +1,661 @@
+package me.grayingout.database.storage.kv;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.zip.CRC32;
+
+import me.grayingout.logging.Logger;
+
+/**
+ * An embedded key-value store, held in memory and made durable
+ * by appending every write to a log file.
+ * <p>
+ * Each batch of writes is appended as one frame of
+ * {@code [length][crc32][operations]}, so a frame torn by a crash
+ * is detected and dropped when the log is replayed on open.
+ * Counters are 8 byte values that are incremented by appending
+ * only the delta, so a hot counter costs a few bytes a write.
+ * Once most of the log is overwritten values it is compacted,
+ * by writing the live values to a new log and swapping it in
+ */
+final class LogStructuredStore {
+
+    /**
+     * The logger
+     */
+    private static final Logger logger = Logger.getLogger(LogStructuredStore.class);
+
+    /**
+     * The operation that stores a value
+     */
+    private static final byte PUT = 1;
+
+    /**
+     * The operation that removes a value
+     */
+    private static final byte DELETE = 2;
+
+    /**
+     * The operation that adds to a counter
+     */
+    private static final byte ADD = 3;
+
+    /**
+     * The bytes before the operations of a frame
+     */
+    private static final int FRAME_HEADER_BYTES = 8;
+
+    /**
+     * The largest frame that is not treated as torn
+     */
+    private static final int MAX_FRAME_BYTES = 64 * 1024 * 1024;
+
+    /**
+     * The size compacted frames are filled to
+     */
+    private static final int COMPACTION_FRAME_BYTES = 64 * 1024;
+
+    /**
+     * The size the log must reach before it is compacted
+     */
+    private static final long COMPACTION_MIN_BYTES = 4 * 1024 * 1024;
+
+    /**
+     * The log file
+     */
+    private final File file;
+
+    /**
+     * The live values against their keys
+     */
+    private final ConcurrentSkipListMap<String, byte[]> values;
+
+    /**
+     * The channel appending to the log, or {@code null} once closed
+     */
+    private FileChannel channel;
+
+    /**
+     * The size of the log
+     */
+    private long logBytes;
+
+    /**
+     * The size the live values would take in a compacted log
+     */
+    private long liveBytes;
+
+    /**
+     * Whether there are writes that have not been synced
+     */
+    private boolean dirty;
+
+    /**
+     * Creates a new {@code LogStructuredStore}, replaying
+     * the log if it already exists
+     *
+     * @param file The log file
+     * @throws IOException If the log could not be opened
+     */
+    LogStructuredStore(File file) throws IOException {
+        this.file = file;
+        values = new ConcurrentSkipListMap<>();
+
+        if (file.exists()) {
+            replay();
+        }
+
+        channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+
+        /* Drop a torn frame, so the next one is not appended after it */
+        if (channel.size() > logBytes) {
+            logger.warn("Dropping torn bytes from the end of the key-value store", "file", file, "bytes", channel.size() - logBytes);
+            channel.truncate(logBytes);
+        }
+        channel.position(logBytes);
+    }
+
+    /**
+     * Gets a value
+     *
+     * @param key The key
+     * @return The value, which must not be modified, or {@code null} if there is none
+     */
+    byte[] get(String key) {
+        return values.get(key);
+    }
+
+    /**
+     * Gets a counter
+     *
+     * @param key The key
+     * @return The counter, which is {@code 0} if there is none
+     */
+    long getCounter(String key) {
+        byte[] value = values.get(key);
+        return value == null ? 0 : decodeCounter(value);
+    }
+
+    /**
+     * Gets the values with keys that start with a prefix, in order of key
+     *
+     * @param prefix The prefix
+     * @return A view of the values against their keys
+     */
+    NavigableMap<String, byte[]> scan(String prefix) {
+        return values.subMap(prefix, true, prefix + Character.MAX_VALUE, false);
+    }
+
+    /**
+     * Stores a value
+     *
+     * @param key   The key
+     * @param value The value, which must not be modified afterwards
+     * @throws IOException If it could not be written
+     */
+    void put(String key, byte[] value) throws IOException {
+        apply(new Batch().put(key, value));
+    }
+
+    /**
+     * Removes a value
+     *
+     * @param key The key
+     * @throws IOException If it could not be written
+     */
+    void delete(String key) throws IOException {
+        apply(new Batch().delete(key));
+    }
+
+    /**
+     * Adds to a counter
+     *
+     * @param key   The key
+     * @param delta The amount to add
+     * @return The counter after adding to it
+     * @throws IOException If it could not be written
+     */
+    synchronized long increment(String key, long delta) throws IOException {
+        apply(new Batch().increment(key, delta));
+        return getCounter(key);
+    }
+
+    /**
+     * Writes a batch to the log as one frame, and then applies it
+     * in order. After a crash either all of it is replayed or none
+     *
+     * @param batch The batch
+     * @throws IOException              If it could not be written, in which
+     *                                  case none of it is applied
+     * @throws IllegalArgumentException If it adds to a value that is not a counter
+     */
+    synchronized void apply(Batch batch) throws IOException {
+        if (channel == null) {
+            throw new ClosedChannelException();
+        }
+
+        if (batch.operations.isEmpty()) {
+            return;
+        }
+
+        for (Operation operation : batch.operations) {
+            byte[] value = values.get(operation.key);
+            if (operation.type == ADD && value != null && value.length != Long.BYTES) {
+                throw new IllegalArgumentException(operation.key + " is not a counter");
+            }
+        }
+
+        ByteArrayOutputStream payload = new ByteArrayOutputStream();
+        DataOutputStream output = new DataOutputStream(payload);
+        for (Operation operation : batch.operations) {
+            writeOperation(output, operation);
+        }
+
+        ByteBuffer frame = encodeFrame(payload.toByteArray());
+        try {
+            while (frame.hasRemaining()) {
+                channel.write(frame);
+            }
+        } catch (IOException e) {
+            /* Cut off what was written, so later frames are not lost behind it */
+            channel.truncate(logBytes);
+            channel.position(logBytes);
+            throw e;
+        }
+
+        logBytes += frame.limit();
+        dirty = true;
+
+        for (Operation operation : batch.operations) {
+            applyOperation(operation);
+        }
+    }
+
+    /**
+     * Forces the appended writes to disk
+     *
+     * @throws IOException If they could not be synced
+     */
+    void sync() throws IOException {
+        FileChannel syncedChannel;
+        synchronized (this) {
+            if (!dirty || channel == null) {
+                return;
+            }
+
+            dirty = false;
+            syncedChannel = channel;
+        }
+
+        /* Synced outside the lock, so writes are not held up by the disk */
+        try {
+            syncedChannel.force(false);
+        } catch (ClosedChannelException e) {
+            /* Compacting and closing sync the log themselves */
+        } catch (IOException e) {
+            synchronized (this) {
+                dirty = true;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Compacts the log if most of it is overwritten values
+     *
+     * @return If the log was compacted
+     * @throws IOException If it could not be compacted
+     */
+    synchronized boolean compactIfNeeded() throws IOException {
+        if (channel == null || logBytes < COMPACTION_MIN_BYTES || logBytes < liveBytes * 2) {
+            return false;
+        }
+
+        compact();
+        return true;
+    }
+
+    /**
+     * Rewrites the log with only the live values, and atomically
+     * replaces the old log with it
+     *
+     * @throws IOException If it could not be compacted, in which
+     *                     case the old log is kept
+     */
+    synchronized void compact() throws IOException {
+        if (channel == null) {
+            throw new ClosedChannelException();
+        }
+
+        File compactedFile = new File(file.getPath() + ".compact");
+        long compactedBytes = 0;
+
+        try (FileChannel compactedChannel = FileChannel.open(compactedFile.toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteArrayOutputStream payload = new ByteArrayOutputStream();
+            DataOutputStream output = new DataOutputStream(payload);
+
+            for (Map.Entry<String, byte[]> entry : values.entrySet()) {
+                writeOperation(output, new Operation(PUT, entry.getKey(), entry.getValue(), 0));
+
+                if (payload.size() >= COMPACTION_FRAME_BYTES) {
+                    compactedBytes += writeFully(compactedChannel, encodeFrame(payload.toByteArray()));
+                    payload.reset();
+                }
+            }
+
+            if (payload.size() > 0) {
+                compactedBytes += writeFully(compactedChannel, encodeFrame(payload.toByteArray()));
+            }
+
+            compactedChannel.force(false);
+        } catch (IOException e) {
+            compactedFile.delete();
+            throw e;
+        }
+
+        /* Everything written to the old log is in the compacted one */
+        Files.move(compactedFile.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        channel.close();
+
+        channel = FileChannel.open(file.toPath(), StandardOpenOption.WRITE);
+        channel.position(compactedBytes);
+        logBytes = compactedBytes;
+        dirty = false;
+    }
+
+    /**
+     * Syncs and closes the log. Anything written afterwards fails
+     *
+     * @throws IOException If it could not be synced
+     */
+    synchronized void close() throws IOException {
+        if (channel == null) {
+            return;
+        }
+
+        try {
+            channel.force(false);
+        } finally {
+            channel.close();
+            channel = null;
+        }
+    }
+
+    /**
+     * Gets the size of the log
+     *
+     * @return The size in bytes
+     */
+    synchronized long getLogBytes() {
+        return logBytes;
+    }
+
+    /**
+     * Gets the size the live values would take in a compacted log
+     *
+     * @return The size in bytes
+     */
+    synchronized long getLiveBytes() {
+        return liveBytes;
+    }
+
+    /**
+     * Encodes a counter value
+     *
+     * @param counter The counter
+     * @return The value
+     */
+    static byte[] encodeCounter(long counter) {
+        return ByteBuffer.allocate(Long.BYTES).putLong(counter).array();
+    }
+
+    /**
+     * Decodes a counter value
+     *
+     * @param value The value
+     * @return The counter
+     */
+    static long decodeCounter(byte[] value) {
+        return ByteBuffer.wrap(value).getLong();
+    }
+
+    /**
+     * Replays the log into memory, stopping at the first frame
+     * that is incomplete or fails its checksum
+     *
+     * @throws IOException If the log could not be read
+     */
+    private void replay() throws IOException {
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            while (true) {
+                byte[] payload;
+                try {
+                    int length = input.readInt();
+                    if (length <= 0 || length > MAX_FRAME_BYTES) {
+                        return;
+                    }
+
+                    int checksum = input.readInt();
+                    payload = new byte[length];
+                    input.readFully(payload);
+
+                    if (checksum != checksum(payload)) {
+                        return;
+                    }
+                } catch (EOFException e) {
+                    return;
+                }
+
+                DataInputStream operations = new DataInputStream(new ByteArrayInputStream(payload));
+                while (operations.available() > 0) {
+                    applyOperation(readOperation(operations));
+                }
+
+                logBytes += FRAME_HEADER_BYTES + payload.length;
+            }
+        }
+    }
+
+    /**
+     * Applies an operation to the values in memory
+     *
+     * @param operation The operation
+     */
+    private void applyOperation(Operation operation) {
+        byte[] previous = values.get(operation.key);
+        byte[] value;
+
+        switch (operation.type) {
+            case PUT:
+                value = operation.value;
+                break;
+            case ADD:
+                value = encodeCounter((previous == null ? 0 : decodeCounter(previous)) + operation.delta);
+                break;
+            default:
+                value = null;
+                break;
+        }
+
+        if (previous != null) {
+            liveBytes -= getLiveSize(operation.key, previous);
+        }
+
+        if (value == null) {
+            values.remove(operation.key);
+        } else {
+            values.put(operation.key, value);
+            liveBytes += getLiveSize(operation.key, value);
+        }
+    }
+
+    /**
+     * Gets the size a value takes in a compacted log
+     *
+     * @param key   The key
+     * @param value The value
+     * @return The size in bytes
+     */
+    private static long getLiveSize(String key, byte[] value) {
+        /* The type, key length and value length, then the key and value */
+        return 9 + key.getBytes(StandardCharsets.UTF_8).length + value.length;
+    }
+
+    /**
+     * Writes an operation to a frame's payload
+     *
+     * @param output    The payload
+     * @param operation The operation
+     * @throws IOException If it could not be written
+     */
+    private static void writeOperation(DataOutputStream output, Operation operation) throws IOException {
+        byte[] key = operation.key.getBytes(StandardCharsets.UTF_8);
+
+        output.writeByte(operation.type);
+        output.writeInt(key.length);
+        output.write(key);
+
+        if (operation.type == PUT) {
+            output.writeInt(operation.value.length);
+            output.write(operation.value);
+        } else if (operation.type == ADD) {
+            output.writeLong(operation.delta);
+        }
+    }
+
+    /**
+     * Reads an operation from a frame's payload
+     *
+     * @param input The payload
+     * @return The operation
+     * @throws IOException If the payload is malformed
+     */
+    private static Operation readOperation(DataInputStream input) throws IOException {
+        byte type = input.readByte();
+        byte[] key = new byte[input.readInt()];
+        input.readFully(key);
+
+        switch (type) {
+            case PUT:
+                byte[] value = new byte[input.readInt()];
+                input.readFully(value);
+                return new Operation(PUT, new String(key, StandardCharsets.UTF_8), value, 0);
+            case DELETE:
+                return new Operation(DELETE, new String(key, StandardCharsets.UTF_8), null, 0);
+            case ADD:
+                return new Operation(ADD, new String(key, StandardCharsets.UTF_8), null, input.readLong());
+            default:
+                throw new IOException("Unknown operation " + type + " in the log");
+        }
+    }
+
+    /**
+     * Encodes a frame around a payload
+     *
+     * @param payload The payload
+     * @return The frame, ready to be written
+     */
+    private static ByteBuffer encodeFrame(byte[] payload) {
+        ByteBuffer frame = ByteBuffer.allocate(FRAME_HEADER_BYTES + payload.length);
+        frame.putInt(payload.length);
+        frame.putInt(checksum(payload));
+        frame.put(payload);
+        frame.flip();
+        return frame;
+    }
+
+    /**
+     * Writes a buffer to a channel
+     *
+     * @param channel The channel
+     * @param buffer  The buffer
+     * @return The number of bytes written
+     * @throws IOException If it could not be written
+     */
+    private static int writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        int written = buffer.remaining();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        return written;
+    }
+
+    /**
+     * Calculates the checksum of a payload
+     *
+     * @param payload The payload
+     * @return The checksum
+     */
+    private static int checksum(byte[] payload) {
+        CRC32 crc = new CRC32();
+        crc.update(payload, 0, payload.length);
+        return (int) crc.getValue();
+    }
+
+    /**
+     * Writes to apply to the store all at once
+     */
+    static final class Batch {
+
+        /**
+         * The operations, in order
+         */
+        private final List<Operation> operations = new ArrayList<>();
+
+        /**
+         * Stores a value
+         *
+         * @param key   The key
+         * @param value The value, which must not be modified afterwards
+         * @return The batch
+         */
+        Batch put(String key, byte[] value) {
+            operations.add(new Operation(PUT, key, value, 0));
+            return this;
+        }
+
+        /**
+         * Removes a value
+         *
+         * @param key The key
+         * @return The batch
+         */
+        Batch delete(String key) {
+            operations.add(new Operation(DELETE, key, null, 0));
+            return this;
+        }
+
+        /**
+         * Adds to a counter
+         *
+         * @param key   The key
+         * @param delta The amount to add
+         * @return The batch
+         */
+        Batch increment(String key, long delta) {
+            operations.add(new Operation(ADD, key, null, delta));
+            return this;
+        }
+    }
+
+    /**
+     * A single write to the store
+     */
+    private static final class Operation {
+
+        /**
+         * The type of the operation
+         */
+        private final byte type;
+
+        /**
+         * The key written to
+         */
+        private final String key;
+
+        /**
+         * The value stored, for a put
+         */
+        private final byte[] value;
+
+        /**
+         * The amount added, for an increment
+         */
+        private final long delta;
+
+        /**
+         * Creates a new {@code Operation}
+         *
+         * @param type  The type of the operation
+         * @param key   The key written to
+         * @param value The value stored, for a put
+         * @param delta The amount added, for an increment
+         */
+        private Operation(byte type, String key, byte[] value, long delta) {
+            this.type = type;
+            this.key = key;
+            this.value = value;
+            this.delta = delta;
+        }
+    }
+}
@@ -0,0 +1,195 @@
+package me.grayingout.lifecycle;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import me.grayingout.App;
+import me.grayingout.logging.Logger;
+
+/**
+ * Shuts the bot down in order when the JVM is stopped, such as on
+ * {@code SIGTERM}. Components register what they need doing against
+ * a {@link ShutdownStage}, and the stages are run one after another,
+ * so events stop before commands are drained, and caches are flushed
+ * before the storage they write to is closed.
+ * <p>
+ * The tasks of a stage are run in the order they were registered, on
+ * a thread of the stage's own. If a stage takes longer than its timeout
+ * it is left running and the next stage is started, so one stuck task
+ * cannot stop the storage being closed. How long each task and stage
+ * took is logged
+ */
+public final class LifecycleManager {
+
+    /**
+     * The logger
+     */
+    private static final Logger logger = Logger.getLogger(LifecycleManager.class);
+
+    /**
+     * The singleton instance
+     */
+    private static final LifecycleManager lifecycleManager = new LifecycleManager();
+
+    /**
+     * The tasks of each stage, in the order they were registered.
+     * Guarded by itself
+     */
+    private final Map<ShutdownStage, List<NamedTask>> tasks;
+
+    /**
+     * If the shutdown has started
+     */
+    private final AtomicBoolean shuttingDown;
+
+    private LifecycleManager() {
+        tasks = new EnumMap<>(ShutdownStage.class);
+        shuttingDown = new AtomicBoolean();
+
+        Runtime.getRuntime().addShutdownHook(new Thread(this::shutdown, "shutdown"));
+    }
+
+    /**
+     * Gets the {@code LifecycleManager} singleton
+     *
+     * @return The singleton
+     */
+    public static final LifecycleManager getInstance() {
+        return lifecycleManager;
+    }
+
+    /**
+     * Registers a task to be run while shutting down. Tasks
+     * registered once the shutdown has started are not run
+     *
+     * @param stage The stage to run it in
+     * @param name  The name of the task, which is logged
+     * @param task  The task
+     */
+    public final void register(ShutdownStage stage, String name, ShutdownTask task) {
+        synchronized (tasks) {
+            tasks.computeIfAbsent(stage, s -> new ArrayList<>()).add(new NamedTask(name, task));
+        }
+    }
+
+    /**
+     * Returns if the shutdown has started
+     *
+     * @return If the bot is shutting down
+     */
+    public final boolean isShuttingDown() {
+        return shuttingDown.get();
+    }
+
+    /**
+     * Runs every stage, then waits for the log to be written.
+     * Only the first call does anything
+     */
+    public final void shutdown() {
+        if (!shuttingDown.compareAndSet(false, true)) {
+            return;
+        }
+
+        long start = System.nanoTime();
+        logger.info("Shutting down");
+
+        for (ShutdownStage stage : ShutdownStage.values()) {
+            List<NamedTask> stageTasks;
+            synchronized (tasks) {
+                stageTasks = new ArrayList<>(tasks.getOrDefault(stage, new ArrayList<>()));
+            }
+
+            if (!stageTasks.isEmpty()) {
+                runStage(stage, stageTasks);
+            }
+        }
+
+        logger.info("Shut down", "ms", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+
+        /* The log writer is a daemon, so nothing is written after this returns */
+        Logger.flush();
+    }
+
+    /**
+     * Runs the tasks of a stage on a thread of its own,
+     * waiting for them for up to the stage's timeout
+     *
+     * @param stage      The stage
+     * @param stageTasks The tasks of the stage
+     */
+    private void runStage(ShutdownStage stage, List<NamedTask> stageTasks) {
+        long timeoutSeconds = Long.parseLong(App.env.get(
+            "SHUTDOWN_" + stage.name() + "_TIMEOUT_SECONDS", Integer.toString(stage.getDefaultTimeoutSeconds())));
+        long start = System.nanoTime();
+
+        Thread thread = new Thread(() -> {
+            for (NamedTask task : stageTasks) {
+                runTask(stage, task);
+            }
+        }, "shutdown-" + stage.name().toLowerCase());
+        thread.setDaemon(true);
+        thread.start();
+
+        try {
+            thread.join(TimeUnit.SECONDS.toMillis(timeoutSeconds));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        if (thread.isAlive()) {
+            logger.warn("Shutdown stage timed out, starting the next stage", "stage", stage, "ms", millis, "timeout_s", timeoutSeconds);
+        } else {
+            logger.info("Shutdown stage finished", "stage", stage, "ms", millis);
+        }
+    }
+
+    /**
+     * Runs a task, logging how long it took
+     *
+     * @param stage The stage the task is in
+     * @param task  The task
+     */
+    private static void runTask(ShutdownStage stage, NamedTask task) {
+        long start = System.nanoTime();
+        try {
+            task.task.run();
+            logger.debug("Shutdown task finished", "stage", stage, "task", task.name,
+                "ms", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        } catch (Exception e) {
+            logger.error("Shutdown task failed", e, "stage", stage, "task", task.name,
+                "ms", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        }
+    }
+
+    /**
+     * A task, with the name it is logged as
+     */
+    private static final class NamedTask {
+
+        /**
+         * The name of the task
+         */
+        private final String name;
+
+        /**
+         * The task
+         */
+        private final ShutdownTask task;
+
+        /**
+         * Creates a new {@code NamedTask}
+         *
+         * @param name The name of the task
+         * @param task The task
+         */
+        private NamedTask(String name, ShutdownTask task) {
+            this.name = name;
+            this.task = task;
+        }
+    }
+}
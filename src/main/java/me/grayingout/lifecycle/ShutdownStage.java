@@ -0,0 +1,68 @@
+package me.grayingout.lifecycle;
+
+/**
+ * The stages the bot is shut down in, in order. Each stage has a
+ * timeout, after which the next stage is started even if it has
+ * not finished, which can be set with
+ * {@code SHUTDOWN_<STAGE>_TIMEOUT_SECONDS}
+ */
+public enum ShutdownStage {
+
+    /**
+     * Stop handling gateway events, so no new work is started
+     */
+    STOP_EVENTS(2),
+
+    /**
+     * Wait for the commands being executed to finish
+     */
+    DRAIN_COMMANDS(15),
+
+    /**
+     * Stop the audio players
+     */
+    STOP_AUDIO(5),
+
+    /**
+     * Send the queued requests to Discord, and disconnect
+     */
+    DISCONNECT(10),
+
+    /**
+     * Write what is cached in memory through to storage
+     */
+    FLUSH_CACHES(10),
+
+    /**
+     * Execute and commit the queued queries, and close the storage
+     */
+    CLOSE_STORAGE(30),
+
+    /**
+     * Stop serving metrics
+     */
+    STOP_METRICS(5);
+
+    /**
+     * The timeout of the stage when not configured, in seconds
+     */
+    private final int defaultTimeoutSeconds;
+
+    /**
+     * Creates a new {@code ShutdownStage}
+     *
+     * @param defaultTimeoutSeconds The timeout of the stage when not configured, in seconds
+     */
+    private ShutdownStage(int defaultTimeoutSeconds) {
+        this.defaultTimeoutSeconds = defaultTimeoutSeconds;
+    }
+
+    /**
+     * Gets the timeout of the stage when not configured
+     *
+     * @return The timeout in seconds
+     */
+    public final int getDefaultTimeoutSeconds() {
+        return defaultTimeoutSeconds;
+    }
+}
@@ -0,0 +1,16 @@
+package me.grayingout.lifecycle;
+
+/**
+ * Something done while the bot is shut down
+ */
+@FunctionalInterface
+public interface ShutdownTask {
+
+    /**
+     * Does the task. It may block until done, as the
+     * stage it is in is timed out if it takes too long
+     *
+     * @throws Exception If the task failed, which does not stop the others
+     */
+    void run() throws Exception;
+}
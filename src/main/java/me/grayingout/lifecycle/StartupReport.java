@@ -0,0 +1,103 @@
+package me.grayingout.lifecycle;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import me.grayingout.logging.Logger;
+
+/**
+ * Times the phases of starting the bot, such as opening the databases
+ * and logging in, and logs them together once the bot is ready, so a
+ * slow start can be put down to the phase that caused it. Phases can
+ * overlap, as some are run in the background
+ */
+public final class StartupReport {
+
+    /**
+     * The logger
+     */
+    private static final Logger logger = Logger.getLogger(StartupReport.class);
+
+    /**
+     * The singleton instance
+     */
+    private static final StartupReport startupReport = new StartupReport();
+
+    /**
+     * When the bot started, in nanoseconds
+     */
+    private final long startedAt;
+
+    /**
+     * The milliseconds each phase took against its name,
+     * in the order they finished. Guarded by itself
+     */
+    private final Map<String, Long> phases;
+
+    /**
+     * If the report has been logged
+     */
+    private boolean finished;
+
+    private StartupReport() {
+        startedAt = System.nanoTime();
+        phases = new LinkedHashMap<>();
+    }
+
+    /**
+     * Gets the {@code StartupReport} singleton
+     *
+     * @return The singleton
+     */
+    public static final StartupReport getInstance() {
+        return startupReport;
+    }
+
+    /**
+     * Records a phase having finished
+     *
+     * @param phase     The name of the phase
+     * @param startedAt When the phase started, from {@link System#nanoTime()}
+     */
+    public final void record(String phase, long startedAt) {
+        long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt);
+        synchronized (phases) {
+            phases.put(phase, millis);
+        }
+
+        logger.debug("Startup phase finished", "phase", phase, "ms", millis);
+    }
+
+    /**
+     * Logs how long the bot took to start, and each phase
+     * recorded so far. Only the first call logs anything
+     *
+     * @param keyValues More keys and values to log, alternating
+     */
+    public final void finish(Object... keyValues) {
+        List<Object> values = new ArrayList<>();
+        values.add("ms");
+        values.add(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt));
+
+        synchronized (phases) {
+            if (finished) {
+                return;
+            }
+            finished = true;
+
+            for (Map.Entry<String, Long> phase : phases.entrySet()) {
+                values.add(phase.getKey() + "_ms");
+                values.add(phase.getValue());
+            }
+        }
+
+        for (Object value : keyValues) {
+            values.add(value);
+        }
+
+        logger.info("Started", values.toArray());
+    }
+}
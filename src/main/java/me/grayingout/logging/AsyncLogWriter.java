@@ -0,0 +1,436 @@
+package me.grayingout.logging;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import me.grayingout.App;
+
+/**
+ * Hands log records from the threads logging them to a background
+ * thread, which formats them and writes them to the console and a
+ * rolling log file, so logging never waits on I/O.
+ * <p>
+ * Records go through a fixed ring buffer of reused slots. A logging
+ * thread claims a slot, fills it in and publishes it, without
+ * locking or formatting anything. If the writer falls so far behind
+ * that the buffer is full, records below {@code ERROR} are dropped
+ * and counted rather than blocking the gateway, and errors wait for
+ * a free slot.
+ * <p>
+ * Records are written in the logfmt format, as
+ * {@code time=... level=... logger=... thread=... msg="..."}
+ * followed by their keys and values, then any stack trace
+ */
+/* default */ final class AsyncLogWriter {
+
+    /**
+     * How long the writer sleeps for when there is nothing to write,
+     * unless it is woken by a record being published
+     */
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+    /**
+     * How much formatted text is written at once, if the
+     * writer does not catch up before then
+     */
+    private static final int MAX_BATCH_CHARS = 1 << 16;
+
+    /**
+     * The singleton instance, configured in the environment
+     */
+    private static final class Holder {
+        private static final AsyncLogWriter instance = new AsyncLogWriter(
+            LogLevel.valueOf(App.env.get("LOG_LEVEL", "INFO").toUpperCase()),
+            Integer.parseInt(App.env.get("LOG_BUFFER_SIZE", "8192")),
+            Boolean.parseBoolean(App.env.get("LOG_CONSOLE", "true")),
+            App.env.get("LOG_DIRECTORY", "logs"),
+            Long.parseLong(App.env.get("LOG_FILE_MAX_MB", "16")) << 20,
+            Integer.parseInt(App.env.get("LOG_FILE_COUNT", "5"))
+        );
+    }
+
+    /**
+     * The least severe level written
+     */
+    private final LogLevel minimumLevel;
+
+    /**
+     * The ring buffer of slots, a power of two in size
+     */
+    private final LogRecord[] slots;
+
+    /**
+     * Used to find the slot of a sequence
+     */
+    private final int mask;
+
+    /**
+     * The sequence of the next record to be claimed
+     */
+    private final AtomicLong head;
+
+    /**
+     * The sequence of the next record to be written, only
+     * changed by the writer thread
+     */
+    private volatile long tail;
+
+    /**
+     * The sequence up to which records have been written and
+     * flushed, only changed by the writer thread
+     */
+    private volatile long flushed;
+
+    /**
+     * If the writer thread is about to sleep, or sleeping
+     */
+    private volatile boolean sleeping;
+
+    /**
+     * The records dropped because the buffer was full, and
+     * not yet reported
+     */
+    private final AtomicLong droppedCount;
+
+    /**
+     * If records are written to the console
+     */
+    private final boolean console;
+
+    /**
+     * The rolling log file, or {@code null} if it could not be opened
+     */
+    private final RollingLogFile file;
+
+    /**
+     * The thread writing the records
+     */
+    private final Thread writerThread;
+
+    /**
+     * The records being written to standard output, reused
+     */
+    private final StringBuilder outBuilder;
+
+    /**
+     * The records being written to standard error, reused
+     */
+    private final StringBuilder errBuilder;
+
+    /**
+     * The value being formatted, reused
+     */
+    private final StringBuilder valueBuilder;
+
+    /**
+     * Creates a new {@code AsyncLogWriter} and starts its writer thread
+     *
+     * @param minimumLevel The least severe level written
+     * @param bufferSize   The number of records the buffer holds, rounded up to a power of two
+     * @param console      If records are written to the console
+     * @param directory    The directory of the log files, or {@code null} to not write to a file
+     * @param maxFileBytes The size a log file is rolled over at, in bytes
+     * @param maxFileCount The most log files kept
+     */
+    /* default */ AsyncLogWriter(LogLevel minimumLevel, int bufferSize, boolean console, String directory, long maxFileBytes, int maxFileCount) {
+        this.minimumLevel = minimumLevel;
+        this.console = console;
+
+        int size = Integer.highestOneBit(Math.max(2, bufferSize) - 1) << 1;
+        slots = new LogRecord[size];
+        for (int i = 0; i < size; i++) {
+            slots[i] = new LogRecord();
+        }
+        mask = size - 1;
+        head = new AtomicLong();
+        droppedCount = new AtomicLong();
+        outBuilder = new StringBuilder();
+        errBuilder = new StringBuilder();
+        valueBuilder = new StringBuilder();
+
+        RollingLogFile rollingLogFile = null;
+        if (directory != null && !directory.isEmpty()) {
+            try {
+                rollingLogFile = new RollingLogFile(new File(directory), maxFileBytes, maxFileCount);
+            } catch (IOException e) {
+                /* The logger cannot log its own failure */
+                System.err.println("Failed to open the log file in " + directory + ", logging to the console only");
+                e.printStackTrace();
+            }
+        }
+        file = rollingLogFile;
+
+        writerThread = new Thread(this::runWriter, "log-writer");
+        writerThread.setDaemon(true);
+        writerThread.start();
+    }
+
+    /**
+     * Gets the {@code AsyncLogWriter} singleton, configured with
+     * {@code LOG_LEVEL}, {@code LOG_BUFFER_SIZE}, {@code LOG_CONSOLE},
+     * {@code LOG_DIRECTORY}, {@code LOG_FILE_MAX_MB} and {@code LOG_FILE_COUNT}
+     *
+     * @return The singleton
+     */
+    /* default */ static AsyncLogWriter getInstance() {
+        return Holder.instance;
+    }
+
+    /**
+     * Returns if records of a level are written
+     *
+     * @param level The level
+     * @return If they are written
+     */
+    /* default */ boolean isEnabled(LogLevel level) {
+        return level.compareTo(minimumLevel) >= 0;
+    }
+
+    /**
+     * Hands a record to the writer thread
+     *
+     * @param level      The severity
+     * @param loggerName The name of the logger
+     * @param message    What happened
+     * @param throwable  The failure, or {@code null}
+     * @param keyValues  The keys and values, alternating
+     */
+    /* default */ void log(LogLevel level, String loggerName, String message, Throwable throwable, Object[] keyValues) {
+        if (!isEnabled(level)) {
+            return;
+        }
+
+        long sequence = claim(level == LogLevel.ERROR);
+        if (sequence < 0) {
+            droppedCount.incrementAndGet();
+            return;
+        }
+
+        LogRecord record = slots[(int) sequence & mask];
+        record.timestampMillis = System.currentTimeMillis();
+        record.level = level;
+        record.loggerName = loggerName;
+        record.thread = Thread.currentThread();
+        record.message = message;
+        record.keyValues = keyValues;
+        record.throwable = throwable;
+
+        /* Publish, after which the writer may read the record */
+        record.sequence = sequence;
+
+        if (sleeping) {
+            LockSupport.unpark(writerThread);
+        }
+    }
+
+    /**
+     * Waits for the records logged so far to be written and flushed
+     *
+     * @param timeout How long to wait for
+     * @param unit    The unit of the timeout
+     * @return If they were written in time
+     */
+    /* default */ boolean flush(long timeout, TimeUnit unit) {
+        long target = head.get();
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+
+        while (flushed < target) {
+            if (System.nanoTime() - deadline >= 0) {
+                return false;
+            }
+
+            LockSupport.unpark(writerThread);
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+        }
+
+        return true;
+    }
+
+    /**
+     * Claims the next slot of the buffer
+     *
+     * @param wait If the slot should be waited for when the buffer is full
+     * @return The sequence of the slot, or {@code -1} if the buffer is full
+     */
+    private long claim(boolean wait) {
+        while (true) {
+            long sequence = head.get();
+
+            if (sequence - tail >= slots.length) {
+                /* The writer thread must not wait on itself */
+                if (!wait || Thread.currentThread() == writerThread) {
+                    return -1;
+                }
+
+                LockSupport.unpark(writerThread);
+                LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(50));
+                continue;
+            }
+
+            if (head.compareAndSet(sequence, sequence + 1)) {
+                return sequence;
+            }
+        }
+    }
+
+    /**
+     * Writes records as they are published, flushing each
+     * time it catches up, until the program exits
+     */
+    private void runWriter() {
+        long sequence = tail;
+
+        while (true) {
+            LogRecord record = slots[(int) sequence & mask];
+
+            if (record.sequence != sequence) {
+                writeBatch(sequence);
+
+                /* Check again once marked as sleeping, so a publish cannot be missed */
+                sleeping = true;
+                if (record.sequence != sequence) {
+                    LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+                }
+                sleeping = false;
+                continue;
+            }
+
+            format(record);
+            record.clear();
+            tail = ++sequence;
+
+            if (outBuilder.length() + errBuilder.length() >= MAX_BATCH_CHARS) {
+                writeBatch(sequence);
+            }
+        }
+    }
+
+    /**
+     * Formats a record onto the builder of its console stream
+     *
+     * @param record The record
+     */
+    private void format(LogRecord record) {
+        StringBuilder builder = record.level.compareTo(LogLevel.WARN) >= 0 ? errBuilder : outBuilder;
+
+        builder.append("time=");
+        DateTimeFormatter.ISO_INSTANT.formatTo(Instant.ofEpochMilli(record.timestampMillis), builder);
+        builder.append(" level=").append(record.level.name());
+        builder.append(" logger=").append(record.loggerName);
+        builder.append(" thread=");
+        appendValue(builder, record.thread.getName());
+        builder.append(" msg=");
+        appendValue(builder, record.message);
+
+        Object[] keyValues = record.keyValues;
+        for (int i = 0; i < keyValues.length; i += 2) {
+            builder.append(' ').append(keyValues[i]).append('=');
+            appendValue(builder, i + 1 < keyValues.length ? keyValues[i + 1] : null);
+        }
+        builder.append('\n');
+
+        if (record.throwable != null) {
+            StringWriter stackTrace = new StringWriter();
+            record.throwable.printStackTrace(new PrintWriter(stackTrace));
+            builder.append(stackTrace.getBuffer());
+        }
+    }
+
+    /**
+     * Writes the formatted records, and a record of any that were dropped,
+     * then flushes them. Failures are reported on standard error, as the
+     * writer cannot log them
+     *
+     * @param sequence The sequence of the next record to be written
+     */
+    private void writeBatch(long sequence) {
+        long dropped = droppedCount.getAndSet(0);
+        if (dropped > 0) {
+            LogRecord record = new LogRecord();
+            record.timestampMillis = System.currentTimeMillis();
+            record.level = LogLevel.WARN;
+            record.loggerName = "AsyncLogWriter";
+            record.thread = writerThread;
+            record.message = "Dropped log records, the log buffer was full";
+            record.keyValues = new Object[] { "dropped", dropped };
+            format(record);
+        }
+
+        if (outBuilder.length() == 0 && errBuilder.length() == 0) {
+            flushed = sequence;
+            return;
+        }
+
+        if (console) {
+            System.out.print(outBuilder);
+            System.err.print(errBuilder);
+        }
+
+        if (file != null) {
+            try {
+                file.write(outBuilder.toString().getBytes(StandardCharsets.UTF_8));
+                file.write(errBuilder.toString().getBytes(StandardCharsets.UTF_8));
+                file.flush();
+            } catch (IOException e) {
+                System.err.println("Failed to write to the log file");
+                e.printStackTrace();
+            }
+        }
+
+        outBuilder.setLength(0);
+        errBuilder.setLength(0);
+        flushed = sequence;
+    }
+
+    /**
+     * Appends a value, quoted if it is empty or has spaces,
+     * quotes, equals signs or control characters in it
+     *
+     * @param builder The builder
+     * @param value   The value
+     */
+    private void appendValue(StringBuilder builder, Object value) {
+        valueBuilder.setLength(0);
+        if (value instanceof LogValue) {
+            ((LogValue) value).appendTo(valueBuilder);
+        } else {
+            valueBuilder.append(value);
+        }
+
+        boolean quote = valueBuilder.length() == 0;
+        for (int i = 0; i < valueBuilder.length() && !quote; i++) {
+            char c = valueBuilder.charAt(i);
+            quote = c <= ' ' || c == '"' || c == '=';
+        }
+
+        if (!quote) {
+            builder.append(valueBuilder);
+            return;
+        }
+
+        builder.append('"');
+        for (int i = 0; i < valueBuilder.length(); i++) {
+            char c = valueBuilder.charAt(i);
+            if (c == '"' || c == '\\') {
+                builder.append('\\').append(c);
+            } else if (c == '\n') {
+                builder.append("\\n");
+            } else if (c == '\r') {
+                builder.append("\\r");
+            } else if (c == '\t') {
+                builder.append("\\t");
+            } else {
+                builder.append(c);
+            }
+        }
+        builder.append('"');
+    }
+}
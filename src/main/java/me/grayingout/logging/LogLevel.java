@@ -0,0 +1,27 @@
+package me.grayingout.logging;
+
+/**
+ * The severity of a log record
+ */
+public enum LogLevel {
+
+    /**
+     * Detail only wanted while debugging
+     */
+    DEBUG,
+
+    /**
+     * Something expected happening
+     */
+    INFO,
+
+    /**
+     * Something unexpected that the bot can carry on from
+     */
+    WARN,
+
+    /**
+     * Something failing
+     */
+    ERROR
+}
@@ -0,0 +1,62 @@
+package me.grayingout.logging;
+
+/**
+ * A slot of the log ring buffer, reused for every
+ * record written through it
+ */
+/* default */ final class LogRecord {
+
+    /**
+     * The sequence of the record in the slot, which is set last
+     * by the producer, once the other fields can be read, or
+     * {@code -1} before the slot is first used
+     */
+    /* default */ volatile long sequence = -1;
+
+    /**
+     * When the record was logged, in milliseconds since the epoch
+     */
+    /* default */ long timestampMillis;
+
+    /**
+     * The severity
+     */
+    /* default */ LogLevel level;
+
+    /**
+     * The name of the logger
+     */
+    /* default */ String loggerName;
+
+    /**
+     * The thread it was logged on
+     */
+    /* default */ Thread thread;
+
+    /**
+     * What happened
+     */
+    /* default */ String message;
+
+    /**
+     * The keys and values, alternating
+     */
+    /* default */ Object[] keyValues;
+
+    /**
+     * The failure, or {@code null}
+     */
+    /* default */ Throwable throwable;
+
+    /**
+     * Drops the references the record holds, once it is written
+     */
+    /* default */ void clear() {
+        level = null;
+        loggerName = null;
+        thread = null;
+        message = null;
+        keyValues = null;
+        throwable = null;
+    }
+}
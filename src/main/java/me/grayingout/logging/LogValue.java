@@ -0,0 +1,17 @@
+package me.grayingout.logging;
+
+/**
+ * A value of a log record that is only formatted when it is
+ * written, on the log writer thread, rather than when logged.
+ * It must only read state that does not change afterwards
+ */
+@FunctionalInterface
+public interface LogValue {
+
+    /**
+     * Appends the value
+     *
+     * @param builder The builder to append it to
+     */
+    void appendTo(StringBuilder builder);
+}
@@ -0,0 +1,126 @@
+package me.grayingout.logging;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Logs structured records, each a short message and alternating
+ * keys and values, such as
+ * <pre>
+ * logger.info("Slash command used", "command", name, "user", userId);
+ * </pre>
+ * Records are handed to a background thread to be formatted and
+ * written, so values must not change after they are logged. A value
+ * that is costly to format can be a {@code LogValue}, which is only
+ * formatted by the background thread
+ */
+public final class Logger {
+
+    /**
+     * The name of the logger, written with each record
+     */
+    private final String name;
+
+    /**
+     * Creates a new {@code Logger}
+     *
+     * @param name The name of the logger
+     */
+    private Logger(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Gets a logger named after a class
+     *
+     * @param type The class
+     * @return The logger
+     */
+    public static final Logger getLogger(Class<?> type) {
+        return new Logger(type.getSimpleName());
+    }
+
+    /**
+     * Waits for the records logged so far to be written, such
+     * as while shutting down, for up to five seconds
+     */
+    public static final void flush() {
+        AsyncLogWriter.getInstance().flush(5, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Returns if records of a level are written, so values
+     * that are costly to get can be skipped
+     *
+     * @param level The level
+     * @return If they are written
+     */
+    public final boolean isEnabled(LogLevel level) {
+        return AsyncLogWriter.getInstance().isEnabled(level);
+    }
+
+    /**
+     * Logs detail only wanted while debugging
+     *
+     * @param message   What happened
+     * @param keyValues The keys and values, alternating
+     */
+    public final void debug(String message, Object... keyValues) {
+        AsyncLogWriter.getInstance().log(LogLevel.DEBUG, name, message, null, keyValues);
+    }
+
+    /**
+     * Logs something expected happening
+     *
+     * @param message   What happened
+     * @param keyValues The keys and values, alternating
+     */
+    public final void info(String message, Object... keyValues) {
+        AsyncLogWriter.getInstance().log(LogLevel.INFO, name, message, null, keyValues);
+    }
+
+    /**
+     * Logs something unexpected that the bot can carry on from
+     *
+     * @param message   What happened
+     * @param keyValues The keys and values, alternating
+     */
+    public final void warn(String message, Object... keyValues) {
+        AsyncLogWriter.getInstance().log(LogLevel.WARN, name, message, null, keyValues);
+    }
+
+    /**
+     * Logs something unexpected that the bot can carry on from,
+     * with the exception it caused
+     *
+     * @param message   What happened
+     * @param throwable The exception
+     * @param keyValues The keys and values, alternating
+     */
+    public final void warn(String message, Throwable throwable, Object... keyValues) {
+        AsyncLogWriter.getInstance().log(LogLevel.WARN, name, message, throwable, keyValues);
+    }
+
+    /**
+     * Logs something failing. Unlike other levels, this waits
+     * for room rather than being dropped if the log is backed up
+     *
+     * @param message   What happened
+     * @param keyValues The keys and values, alternating
+     */
+    public final void error(String message, Object... keyValues) {
+        AsyncLogWriter.getInstance().log(LogLevel.ERROR, name, message, null, keyValues);
+    }
+
+    /**
+     * Logs something failing, with the exception it caused. Unlike other
+     * levels, this waits for room rather than being dropped if the
+     * log is backed up
+     *
+     * @param message   What happened
+     * @param throwable The exception
+     * @param keyValues The keys and values, alternating
+     */
+    public final void error(String message, Throwable throwable, Object... keyValues) {
+        AsyncLogWriter.getInstance().log(LogLevel.ERROR, name, message, throwable, keyValues);
+    }
+}
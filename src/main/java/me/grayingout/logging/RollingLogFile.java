@@ -0,0 +1,142 @@
+package me.grayingout.logging;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * A log file that is rolled over once it reaches its size limit.
+ * The current file is {@code bot.log}, and rolled files are renamed
+ * to {@code bot.1.log}, {@code bot.2.log} and so on, oldest last,
+ * deleting the oldest once there are too many. Only used by
+ * the log writer thread
+ */
+/* default */ final class RollingLogFile {
+
+    /**
+     * The directory of the files
+     */
+    private final File directory;
+
+    /**
+     * The size a file is rolled over at, in bytes
+     */
+    private final long maxFileBytes;
+
+    /**
+     * The most files kept, including the current file
+     */
+    private final int maxFileCount;
+
+    /**
+     * The stream to the current file
+     */
+    private OutputStream output;
+
+    /**
+     * The size of the current file, in bytes
+     */
+    private long fileBytes;
+
+    /**
+     * Opens a {@code RollingLogFile}, appending to
+     * the current file if there is one
+     *
+     * @param directory    The directory of the files, created if needed
+     * @param maxFileBytes The size a file is rolled over at, in bytes
+     * @param maxFileCount The most files kept, including the current file
+     * @throws IOException If the current file could not be opened
+     */
+    /* default */ RollingLogFile(File directory, long maxFileBytes, int maxFileCount) throws IOException {
+        this.directory = directory;
+        this.maxFileBytes = maxFileBytes;
+        this.maxFileCount = Math.max(1, maxFileCount);
+
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Failed to create the log directory " + directory);
+        }
+
+        open();
+    }
+
+    /**
+     * Writes to the current file, rolling it over first
+     * if the bytes would take it over its size limit
+     *
+     * @param bytes The bytes
+     * @throws IOException If they could not be written
+     */
+    /* default */ void write(byte[] bytes) throws IOException {
+        if (fileBytes > 0 && fileBytes + bytes.length > maxFileBytes) {
+            roll();
+        }
+
+        output.write(bytes);
+        fileBytes += bytes.length;
+    }
+
+    /**
+     * Flushes what has been written to the file
+     *
+     * @throws IOException If it could not be flushed
+     */
+    /* default */ void flush() throws IOException {
+        output.flush();
+    }
+
+    /**
+     * Closes the current file
+     *
+     * @throws IOException If it could not be closed
+     */
+    /* default */ void close() throws IOException {
+        output.close();
+    }
+
+    /**
+     * Opens the current file for appending
+     *
+     * @throws IOException If it could not be opened
+     */
+    private void open() throws IOException {
+        File file = getFile(0);
+        fileBytes = file.length();
+        output = new BufferedOutputStream(new FileOutputStream(file, true), 1 << 16);
+    }
+
+    /**
+     * Closes the current file, shifts each file along one,
+     * deleting the oldest, and opens a new current file
+     *
+     * @throws IOException If the new file could not be opened
+     */
+    private void roll() throws IOException {
+        output.close();
+
+        File oldest = getFile(maxFileCount - 1);
+        if (oldest.exists() && !oldest.delete()) {
+            System.err.println("Failed to delete the log file " + oldest);
+        }
+
+        for (int i = maxFileCount - 2; i >= 0; i--) {
+            File file = getFile(i);
+            if (file.exists() && !file.renameTo(getFile(i + 1))) {
+                System.err.println("Failed to roll over the log file " + file);
+            }
+        }
+
+        open();
+    }
+
+    /**
+     * Gets a file, by how many times it has been rolled over
+     *
+     * @param index How many times it has been rolled over, {@code 0} for the current file
+     * @return The file
+     */
+    private File getFile(int index) {
+        return new File(directory, index == 0 ? "bot.log" : "bot." + index + ".log");
+    }
+}
@@ -0,0 +1,47 @@
+package me.grayingout.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A count that only goes up, such as the number of
+ * commands executed. It can be incremented from any thread
+ */
+public final class Counter {
+
+    /**
+     * The count
+     */
+    private final LongAdder count;
+
+    /**
+     * Creates a new {@code Counter} at zero
+     */
+    public Counter() {
+        count = new LongAdder();
+    }
+
+    /**
+     * Adds one to the count
+     */
+    public final void increment() {
+        count.increment();
+    }
+
+    /**
+     * Adds to the count
+     *
+     * @param amount The amount to add, which must not be negative
+     */
+    public final void add(long amount) {
+        count.add(amount);
+    }
+
+    /**
+     * Gets the count
+     *
+     * @return The count
+     */
+    public final long get() {
+        return count.sum();
+    }
+}
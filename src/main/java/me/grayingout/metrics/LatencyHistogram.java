@@ -0,0 +1,186 @@
+package me.grayingout.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Records durations in buckets that grow with the duration, like
+ * an HDR histogram, so percentiles are within about 6% of the
+ * recorded durations from nanoseconds up to half an hour, in a fixed
+ * few kilobytes. Durations can be recorded from any thread
+ */
+public final class LatencyHistogram {
+
+    /**
+     * The number of bits of each duration kept, after its highest bit
+     */
+    private static final int SUB_BUCKET_BITS = 4;
+
+    /**
+     * The number of buckets each power of two is split into
+     */
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+
+    /**
+     * The longest duration told apart, longer ones are counted as it
+     */
+    private static final long MAX_NANOS = (1L << 41) - 1;
+
+    /**
+     * The number of durations in each bucket
+     */
+    private final AtomicLongArray counts;
+
+    /**
+     * The total of the durations
+     */
+    private final LongAdder totalNanos;
+
+    /**
+     * The longest duration
+     */
+    private final AtomicLong maxNanos;
+
+    /**
+     * Creates a new, empty {@code LatencyHistogram}
+     */
+    public LatencyHistogram() {
+        counts = new AtomicLongArray(getBucket(MAX_NANOS) + 1);
+        totalNanos = new LongAdder();
+        maxNanos = new AtomicLong();
+    }
+
+    /**
+     * Records a duration
+     *
+     * @param nanos The duration in nanoseconds
+     */
+    public final void record(long nanos) {
+        nanos = Math.max(0, nanos);
+
+        counts.incrementAndGet(getBucket(Math.min(nanos, MAX_NANOS)));
+        totalNanos.add(nanos);
+
+        long max = maxNanos.get();
+        while (nanos > max && !maxNanos.compareAndSet(max, nanos)) {
+            max = maxNanos.get();
+        }
+    }
+
+    /**
+     * Records the time since a start time
+     *
+     * @param startNanos The start time, from {@link System#nanoTime()}
+     */
+    public final void recordSince(long startNanos) {
+        record(System.nanoTime() - startNanos);
+    }
+
+    /**
+     * Gets the number of durations recorded
+     *
+     * @return The count
+     */
+    public final long getCount() {
+        long count = 0;
+        for (int i = 0; i < counts.length(); i++) {
+            count += counts.get(i);
+        }
+        return count;
+    }
+
+    /**
+     * Gets the total of the durations recorded
+     *
+     * @return The total in nanoseconds
+     */
+    public final long getTotalNanos() {
+        return totalNanos.sum();
+    }
+
+    /**
+     * Gets the longest duration recorded
+     *
+     * @return The duration in nanoseconds
+     */
+    public final long getMaxNanos() {
+        return maxNanos.get();
+    }
+
+    /**
+     * Gets a percentile of the durations recorded. Durations recorded
+     * while it is read may or may not be included
+     *
+     * @param percentile The percentile, from 0 to 100
+     * @return The duration in nanoseconds, or {@code 0} if none are recorded
+     */
+    public final long getPercentile(double percentile) {
+        long[] snapshot = new long[counts.length()];
+        long count = 0;
+        for (int i = 0; i < snapshot.length; i++) {
+            snapshot[i] = counts.get(i);
+            count += snapshot[i];
+        }
+
+        if (count == 0) {
+            return 0;
+        }
+
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+        long seen = 0;
+        for (int i = 0; i < snapshot.length; i++) {
+            seen += snapshot[i];
+            if (seen >= rank) {
+                /* The longest duration is known exactly, so never go over it */
+                return Math.min(getBucketUpperBound(i), getMaxNanos());
+            }
+        }
+
+        return getMaxNanos();
+    }
+
+    /**
+     * Gets a percentile of the durations recorded
+     *
+     * @param percentile The percentile, from 0 to 100
+     * @param unit       The unit to get it in
+     * @return The duration
+     */
+    public final double getPercentile(double percentile, TimeUnit unit) {
+        return (double) getPercentile(percentile) / unit.toNanos(1);
+    }
+
+    /**
+     * Gets the bucket a duration is counted in
+     *
+     * @param nanos The duration in nanoseconds
+     * @return The index of the bucket
+     */
+    private static int getBucket(long nanos) {
+        if (nanos < SUB_BUCKET_COUNT) {
+            return (int) nanos;
+        }
+
+        int highestBit = 63 - Long.numberOfLeadingZeros(nanos);
+        int shift = highestBit - SUB_BUCKET_BITS;
+        return (shift + 1) * SUB_BUCKET_COUNT + (int) ((nanos >>> shift) & (SUB_BUCKET_COUNT - 1));
+    }
+
+    /**
+     * Gets the longest duration counted in a bucket
+     *
+     * @param bucket The index of the bucket
+     * @return The duration in nanoseconds
+     */
+    private static long getBucketUpperBound(int bucket) {
+        if (bucket < SUB_BUCKET_COUNT) {
+            return bucket;
+        }
+
+        int shift = bucket / SUB_BUCKET_COUNT - 1;
+        long lowerBound = (long) (SUB_BUCKET_COUNT + bucket % SUB_BUCKET_COUNT) << shift;
+        return lowerBound + (1L << shift) - 1;
+    }
+}
@@ -0,0 +1,143 @@
+package me.grayingout.metrics;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * A family of metrics with the same name, one for each
+ * combination of the values of its labels
+ *
+ * @param <T> The type of the metrics
+ */
+public final class MetricFamily<T> implements MetricsCollector {
+
+    /**
+     * Writes one metric of a family
+     *
+     * @param <T> The type of the metric
+     */
+    /* default */ interface MetricWriter<T> {
+
+        /**
+         * Writes the samples of a metric
+         *
+         * @param writer      The writer to write them to
+         * @param name        The name of the family
+         * @param labelNames  The names of the labels
+         * @param labelValues The values of the metric's labels
+         * @param metric      The metric
+         */
+        void write(MetricsWriter writer, String name, String[] labelNames, String[] labelValues, T metric);
+    }
+
+    /**
+     * The name of the family
+     */
+    private final String name;
+
+    /**
+     * What the family measures
+     */
+    private final String help;
+
+    /**
+     * The Prometheus type of the family
+     */
+    private final String type;
+
+    /**
+     * The names of the labels
+     */
+    private final String[] labelNames;
+
+    /**
+     * Creates each metric
+     */
+    private final Supplier<T> factory;
+
+    /**
+     * Writes each metric
+     */
+    private final MetricWriter<T> metricWriter;
+
+    /**
+     * The metrics against the values of their labels
+     */
+    private final Map<List<String>, T> metrics;
+
+    /**
+     * Creates a new {@code MetricFamily}
+     *
+     * @param name         The name of the family
+     * @param help         What the family measures
+     * @param type         The Prometheus type of the family
+     * @param labelNames   The names of the labels
+     * @param factory      Creates each metric
+     * @param metricWriter Writes each metric
+     */
+    /* default */ MetricFamily(String name, String help, String type, String[] labelNames, Supplier<T> factory, MetricWriter<T> metricWriter) {
+        this.name = name;
+        this.help = help;
+        this.type = type;
+        this.labelNames = labelNames.clone();
+        this.factory = factory;
+        this.metricWriter = metricWriter;
+        metrics = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Gets the metric with the values of the labels, creating
+     * it the first time it is used. Callers on a hot path
+     * should hold on to the metric rather than get it each time
+     *
+     * @param labelValues The values of the labels, in the order of their names
+     * @return The metric
+     * @throws IllegalArgumentException If the number of values does not match the labels
+     */
+    public final T get(String... labelValues) {
+        if (labelValues.length != labelNames.length) {
+            throw new IllegalArgumentException(String.format("%s has %d labels, but got %d values", name, labelNames.length, labelValues.length));
+        }
+
+        return metrics.computeIfAbsent(Arrays.asList(labelValues.clone()), k -> factory.get());
+    }
+
+    /**
+     * Gets the name of the family
+     *
+     * @return The name
+     */
+    public final String getName() {
+        return name;
+    }
+
+    /**
+     * Gets the Prometheus type of the family
+     *
+     * @return The type
+     */
+    public final String getType() {
+        return type;
+    }
+
+    /**
+     * Gets the names of the labels
+     *
+     * @return The label names
+     */
+    public final String[] getLabelNames() {
+        return labelNames.clone();
+    }
+
+    @Override
+    public void collect(MetricsWriter writer) {
+        writer.writeFamily(name, help, type);
+
+        for (Map.Entry<List<String>, T> entry : metrics.entrySet()) {
+            metricWriter.write(writer, name, labelNames, entry.getKey().toArray(new String[0]), entry.getValue());
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package me.grayingout.metrics;
+
+/**
+ * Writes metrics whose values are read when they are scraped,
+ * such as the depth of a queue
+ */
+public interface MetricsCollector {
+
+    /**
+     * Writes the current value of the metrics
+     *
+     * @param writer The writer to write them to
+     */
+    void collect(MetricsWriter writer);
+}
@@ -0,0 +1,156 @@
+package me.grayingout.metrics;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.DoubleSupplier;
+
+import me.grayingout.logging.Logger;
+
+/**
+ * Holds the bot's metrics, and writes them in the Prometheus
+ * text format when they are scraped.
+ * <p>
+ * Counters and timers are kept in families, with a metric for each
+ * combination of label values. Anything cheaper to read when scraped
+ * than to keep up to date, such as a queue depth, is registered as a
+ * gauge or a {@code MetricsCollector} instead
+ */
+public final class MetricsRegistry {
+
+    /**
+     * The logger
+     */
+    private static final Logger logger = Logger.getLogger(MetricsRegistry.class);
+
+    /**
+     * The singleton instance
+     */
+    private static final MetricsRegistry metricsRegistry = new MetricsRegistry();
+
+    /**
+     * The collectors against their names, in the order they were registered
+     */
+    private final Map<String, MetricsCollector> collectors;
+
+    private MetricsRegistry() {
+        collectors = new LinkedHashMap<>();
+    }
+
+    /**
+     * Gets the {@code MetricsRegistry} singleton
+     * 
+     * @return The singleton
+     */
+    public static final MetricsRegistry getInstance() {
+        return metricsRegistry;
+    }
+
+    /**
+     * Gets a family of counters, creating it the first time it is used
+     *
+     * @param name       The name of the family, ending in {@code _total}
+     * @param help       What the counters count
+     * @param labelNames The names of the labels
+     * @return The family
+     * @throws IllegalArgumentException If a different family has the name
+     */
+    public final MetricFamily<Counter> counter(String name, String help, String... labelNames) {
+        return getFamily(new MetricFamily<Counter>(name, help, "counter", labelNames, Counter::new,
+            (writer, familyName, familyLabelNames, labelValues, counter) -> writer.writeSample(familyName, familyLabelNames, labelValues, counter.get())));
+    }
+
+    /**
+     * Gets a family of timers, which are written as summaries
+     * in seconds, creating it the first time it is used
+     *
+     * @param name       The name of the family, ending in {@code _seconds}
+     * @param help       What the timers time
+     * @param labelNames The names of the labels
+     * @return The family
+     * @throws IllegalArgumentException If a different family has the name
+     */
+    public final MetricFamily<LatencyHistogram> timer(String name, String help, String... labelNames) {
+        return getFamily(new MetricFamily<LatencyHistogram>(name, help, "summary", labelNames, LatencyHistogram::new, MetricsWriter::writeSummary));
+    }
+
+    /**
+     * Registers a gauge, which is read when scraped. Replaces
+     * any gauge or collector already registered with the name
+     *
+     * @param name  The name of the gauge
+     * @param help  What the gauge measures
+     * @param value Reads the value of the gauge
+     */
+    public final void gauge(String name, String help, DoubleSupplier value) {
+        register(name, writer -> {
+            writer.writeFamily(name, help, "gauge");
+            writer.writeSample(name, new String[0], new String[0], value.getAsDouble());
+        });
+    }
+
+    /**
+     * Registers a collector, which writes its metrics when scraped.
+     * Replaces any collector already registered with the name
+     *
+     * @param name      The name of the collector
+     * @param collector The collector
+     */
+    public final void register(String name, MetricsCollector collector) {
+        synchronized (collectors) {
+            collectors.put(name, collector);
+        }
+    }
+
+    /**
+     * Writes every metric in the Prometheus text format. A collector that
+     * fails is left out, rather than failing the whole scrape
+     *
+     * @return The metrics
+     */
+    public final String scrape() {
+        MetricsCollector[] snapshot;
+        synchronized (collectors) {
+            snapshot = collectors.values().toArray(new MetricsCollector[0]);
+        }
+
+        MetricsWriter writer = new MetricsWriter();
+        for (MetricsCollector collector : snapshot) {
+            try {
+                collector.collect(writer);
+            } catch (RuntimeException e) {
+                logger.error("Failed to collect metrics", e);
+            }
+        }
+
+        return writer.toString();
+    }
+
+    /**
+     * Gets the family registered with the name of a new one,
+     * registering the new one if there is none
+     *
+     * @param <T>    The type of the metrics
+     * @param family The new family
+     * @return The registered family
+     * @throws IllegalArgumentException If a different family has the name
+     */
+    @SuppressWarnings("unchecked")
+    private <T> MetricFamily<T> getFamily(MetricFamily<T> family) {
+        synchronized (collectors) {
+            MetricsCollector existing = collectors.get(family.getName());
+            if (existing == null) {
+                collectors.put(family.getName(), family);
+                return family;
+            }
+
+            if (!(existing instanceof MetricFamily)
+                    || !((MetricFamily<?>) existing).getType().equals(family.getType())
+                    || !Arrays.equals(((MetricFamily<?>) existing).getLabelNames(), family.getLabelNames())) {
+                throw new IllegalArgumentException("A different metric is already registered as " + family.getName());
+            }
+
+            return (MetricFamily<T>) existing;
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package me.grayingout.metrics;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import me.grayingout.App;
+import me.grayingout.logging.Logger;
+
+/**
+ * Serves the metrics of a {@code MetricsRegistry} over HTTP, in the
+ * Prometheus text format, at {@code /metrics}. It only listens on
+ * the loopback address by default, so the metrics are not public
+ */
+public final class MetricsServer {
+
+    /**
+     * The logger
+     */
+    private static final Logger logger = Logger.getLogger(MetricsServer.class);
+
+    /**
+     * The HTTP server
+     */
+    private final HttpServer server;
+
+    /**
+     * Handles the requests, on one thread
+     */
+    private final ExecutorService executor;
+
+    /**
+     * Creates a new {@code MetricsServer}, which is not
+     * listening until it is started
+     *
+     * @param host     The address to listen on
+     * @param port     The port to listen on
+     * @param registry The registry to serve the metrics of
+     * @throws IOException If the port could not be bound
+     */
+    public MetricsServer(String host, int port, MetricsRegistry registry) throws IOException {
+        server = HttpServer.create(new InetSocketAddress(host, port), 0);
+        executor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "metrics-server");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        server.setExecutor(executor);
+        server.createContext("/metrics", exchange -> handle(exchange, registry));
+    }
+
+    /**
+     * Starts a {@code MetricsServer} for the registry singleton on the
+     * {@code METRICS_HOST} (127.0.0.1 by default) and {@code METRICS_PORT}
+     * (9464 by default) configured in the environment
+     *
+     * @return The server, or {@code null} if {@code METRICS_PORT} is 0
+     *         or the server could not be started
+     */
+    public static final MetricsServer startFromEnvironment() {
+        int port = Integer.parseInt(App.env.get("METRICS_PORT", "9464"));
+        if (port == 0) {
+            return null;
+        }
+
+        try {
+            MetricsServer metricsServer = new MetricsServer(App.env.get("METRICS_HOST", "127.0.0.1"), port, MetricsRegistry.getInstance());
+            metricsServer.start();
+            return metricsServer;
+        } catch (IOException e) {
+            /* The bot is still usable without its metrics */
+            logger.error("Failed to start the metrics server", e, "port", port);
+            return null;
+        }
+    }
+
+    /**
+     * Starts listening for requests
+     */
+    public final void start() {
+        server.start();
+    }
+
+    /**
+     * Stops listening, and stops the requests thread
+     */
+    public final void stop() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    /**
+     * Gets the port the server is listening on, which is
+     * chosen by the system if it was created with port 0
+     *
+     * @return The port
+     */
+    public final int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * Responds to a request for the metrics
+     *
+     * @param exchange The request and its response
+     * @param registry The registry to serve the metrics of
+     * @throws IOException If the response could not be sent
+     */
+    private static void handle(HttpExchange exchange, MetricsRegistry registry) throws IOException {
+        try {
+            if (!exchange.getRequestMethod().equals("GET") && !exchange.getRequestMethod().equals("HEAD")) {
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+
+            byte[] body = registry.scrape().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+
+            if (exchange.getRequestMethod().equals("HEAD")) {
+                exchange.sendResponseHeaders(200, -1);
+                return;
+            }
+
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream output = exchange.getResponseBody()) {
+                output.write(body);
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package me.grayingout.metrics;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writes metrics in the Prometheus text format. Each family
+ * is written with {@link #writeFamily}, followed by its samples
+ */
+public final class MetricsWriter {
+
+    /**
+     * The quantiles written for each summary
+     */
+    private static final double[] QUANTILES = { 0.5, 0.9, 0.99, 0.999 };
+
+    /**
+     * The text written so far
+     */
+    private final StringBuilder builder;
+
+    /**
+     * Creates a new, empty {@code MetricsWriter}
+     */
+    public MetricsWriter() {
+        builder = new StringBuilder();
+    }
+
+    /**
+     * Writes the header of a family of metrics
+     *
+     * @param name The name of the family
+     * @param help What the family measures
+     * @param type The Prometheus type, {@code counter}, {@code gauge} or {@code summary}
+     */
+    public final void writeFamily(String name, String help, String type) {
+        builder.append("# HELP ").append(name).append(' ').append(help.replace("\\", "\\\\").replace("\n", "\\n")).append('\n');
+        builder.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+    }
+
+    /**
+     * Writes a sample
+     *
+     * @param name        The name of the sample
+     * @param labelNames  The names of its labels
+     * @param labelValues The values of its labels
+     * @param value       The value
+     */
+    public final void writeSample(String name, String[] labelNames, String[] labelValues, double value) {
+        writeSample(name, labelNames, labelValues, null, null, value);
+    }
+
+    /**
+     * Writes the percentiles, total and count of a histogram
+     * as the samples of a summary, in seconds
+     *
+     * @param name        The name of the summary
+     * @param labelNames  The names of its labels
+     * @param labelValues The values of its labels
+     * @param histogram   The histogram
+     */
+    public final void writeSummary(String name, String[] labelNames, String[] labelValues, LatencyHistogram histogram) {
+        for (double quantile : QUANTILES) {
+            writeSample(name, labelNames, labelValues, "quantile", Double.toString(quantile),
+                histogram.getPercentile(quantile * 100, TimeUnit.SECONDS));
+        }
+
+        writeSample(name + "_sum", labelNames, labelValues, (double) histogram.getTotalNanos() / TimeUnit.SECONDS.toNanos(1));
+        writeSample(name + "_count", labelNames, labelValues, histogram.getCount());
+    }
+
+    /**
+     * Writes a sample, with an extra label
+     *
+     * @param name        The name of the sample
+     * @param labelNames  The names of its labels
+     * @param labelValues The values of its labels
+     * @param extraName   The name of the extra label, or {@code null}
+     * @param extraValue  The value of the extra label
+     * @param value       The value
+     */
+    private void writeSample(String name, String[] labelNames, String[] labelValues, String extraName, String extraValue, double value) {
+        builder.append(name);
+
+        if (labelNames.length > 0 || extraName != null) {
+            builder.append('{');
+            for (int i = 0; i < labelNames.length; i++) {
+                appendLabel(labelNames[i], labelValues[i]);
+            }
+            if (extraName != null) {
+                appendLabel(extraName, extraValue);
+            }
+
+            /* Replace the trailing comma */
+            builder.setCharAt(builder.length() - 1, '}');
+        }
+
+        builder.append(' ');
+        if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+            builder.append((long) value);
+        } else if (Double.isNaN(value)) {
+            builder.append("NaN");
+        } else if (Double.isInfinite(value)) {
+            builder.append(value > 0 ? "+Inf" : "-Inf");
+        } else {
+            builder.append(value);
+        }
+        builder.append('\n');
+    }
+
+    /**
+     * Appends a label, followed by a comma
+     *
+     * @param name  The name of the label
+     * @param value The value of the label
+     */
+    private void appendLabel(String name, String value) {
+        builder.append(name).append("=\"");
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '\\' || c == '"') {
+                builder.append('\\').append(c);
+            } else if (c == '\n') {
+                builder.append("\\n");
+            } else {
+                builder.append(c);
+            }
+        }
+        builder.append("\",");
+    }
+
+    @Override
+    public String toString() {
+        return builder.toString();
+    }
+}
@@ -1,6 +1,7 @@
 package me.grayingout.util;
 
 import java.util.EnumSet;
+import java.util.concurrent.CompletableFuture;
 
 import me.grayingout.bot.audioplayer.handler.AudioLoadResult;
 import me.grayingout.bot.audioplayer.handler.AudioLoadResultType;
@@ -9,7 +10,6 @@ import net.dv8tion.jda.api.Permission;
 import net.dv8tion.jda.api.entities.Guild;
 import net.dv8tion.jda.api.entities.Member;
 import net.dv8tion.jda.api.entities.MessageEmbed.Field;
-import net.dv8tion.jda.api.entities.Role;
 import net.dv8tion.jda.api.entities.channel.Channel;
 import net.dv8tion.jda.api.entities.channel.middleman.AudioChannel;
 import net.dv8tion.jda.api.events.interaction.command.SlashCommandInteractionEvent;
@@ -24,23 +24,19 @@ public final class Audio {
      * DJ commands, which are restricted commands)
      * 
      * @param member The member to check
-     * @return If the member is a DJ
+     * @return A future completed with if the member is a DJ
      */
-    public static final boolean isMemberAValidDJ(Member member) {
+    public static final CompletableFuture<Boolean> isMemberAValidDJ(Member member) {
         /* Check member's permissions first, and owner status */
         EnumSet<Permission> permissions = member.getPermissions();
         if (permissions.contains(Permission.ADMINISTRATOR) || permissions.contains(Permission.MANAGE_SERVER) || member.isOwner()) {
-            return true;
+            return CompletableFuture.completedFuture(true);
         }
 
         /* Check DJ role */
-        Role djRole = DatabaseAccessorManager.getConfigurationDatabaseAccessor()
-            .getGuildDJRole(member.getGuild());
-        if (member.getRoles().contains(djRole)) {
-            return true;
-        }
-
-        return false;
+        return DatabaseAccessorManager.getConfigurationDatabaseAccessor()
+            .getGuildDJRole(member.getGuild())
+            .thenApply(djRole -> djRole != null && member.getRoles().contains(djRole));
     }
 
     /**
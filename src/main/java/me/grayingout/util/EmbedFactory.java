@@ -7,13 +7,12 @@ import java.util.Collection;
 import java.util.List;
 import java.util.stream.Collectors;
 
+import me.grayingout.bot.CachedMessage;
 import net.dv8tion.jda.api.EmbedBuilder;
 import net.dv8tion.jda.api.audit.ActionType;
 import net.dv8tion.jda.api.audit.AuditLogEntry;
 import net.dv8tion.jda.api.audit.AuditLogKey;
 import net.dv8tion.jda.api.entities.Member;
-import net.dv8tion.jda.api.entities.Message;
-import net.dv8tion.jda.api.entities.Message.Attachment;
 import net.dv8tion.jda.api.entities.MessageEmbed;
 import net.dv8tion.jda.api.entities.MessageEmbed.Field;
 import net.dv8tion.jda.api.entities.User;
@@ -75,6 +74,26 @@ public final class EmbedFactory {
         return createErrorEmbed("Insufficient Permission", "This can only be used by a DJ");
     }
 
+    /**
+     * An embed for when a command or button could not be
+     * completed, such as when the database failed
+     * 
+     * @return The built embed
+     */
+    public static final MessageEmbed createFailedEmbed() {
+        return createErrorEmbed("Something Went Wrong", "This could not be completed, please try again later");
+    }
+
+    /**
+     * An embed for when a command is turned away, as too many
+     * are already waiting in the guild
+     * 
+     * @return The built embed
+     */
+    public static final MessageEmbed createBusyEmbed() {
+        return createWarningEmbed("Busy", "Too many commands are running in this server, please try again shortly");
+    }
+
     /**
      * An embed for when an audio channel command is executed
      * outside an audio channel
@@ -294,30 +313,31 @@ public final class EmbedFactory {
     /**
      * An embed for logging a deleted message
      * 
-     * @param message The deleted message
+     * @param message The cached snapshot of the deleted message
      * @return The built embed, and any embeds on the message
      */
-    public static final Collection<MessageEmbed> createDeletedMessageLogEmbed(Message message) {
+    public static final Collection<MessageEmbed> createDeletedMessageLogEmbed(CachedMessage message) {
         List<MessageEmbed> embeds = new ArrayList<>();
         
         /* Build deleted message embed */
         EmbedBuilder builder = new EmbedBuilder()
             .setColor(Color.BLUE)
             .setTitle("✂ **Message Deleted**")
-            .addField("Channel", message.getChannel().getAsMention() + " (" + message.getChannel().getId() + ")", false)
-            .addField("Author", message.getAuthor().getAsMention() + " (" + message.getAuthor().getId() + ")", false)
+            .addField("Channel", message.getChannelAsMention() + " (" + message.getChannelIdLong() + ")", false)
+            .addField("Author", message.getAuthorAsMention() + " (" + message.getAuthorIdLong() + ")", false)
             .setFooter(message.getId())
             .setTimestamp(LocalDateTime.now());
         
         /* Add content field if has content */
-        if (message.getContentRaw().length() > 0) {
-            builder.addField("Content", message.getContentRaw(), false);
+        String content = message.getContentRaw();
+        if (content.length() > 0) {
+            builder.addField("Content", content, false);
         }
         
         /* Add attachments if it has attachments */
         StringBuilder attachments = new StringBuilder();
-        for (Attachment attachment : message.getAttachments()) {
-            attachments.append(attachment.getProxyUrl() + "\n");
+        for (String attachmentUrl : message.getAttachmentUrls()) {
+            attachments.append(attachmentUrl + "\n");
         }
         if (attachments.length() > 0) {
             builder.addField("Attachments", attachments.toString(), false);
@@ -0,0 +1,63 @@
+package me.grayingout.util;
+
+import java.util.concurrent.CompletionException;
+import java.util.function.Function;
+
+import me.grayingout.logging.Logger;
+import net.dv8tion.jda.api.entities.MessageEmbed;
+import net.dv8tion.jda.api.interactions.callbacks.IReplyCallback;
+
+/**
+ * Utility methods for working with futures
+ */
+public final class Futures {
+
+    /**
+     * The logger
+     */
+    private static final Logger logger = Logger.getLogger(Futures.class);
+
+    /**
+     * Prints the failure of a future. Used with
+     * {@code exceptionally} at the end of a chain
+     * so failures are not silently dropped
+     * 
+     * @param <T>       The type of the future
+     * @param throwable The failure
+     * @return {@code null}
+     */
+    public static final <T> T printFailure(Throwable throwable) {
+        /* Print the actual cause rather than the wrapper */
+        if (throwable instanceof CompletionException && throwable.getCause() != null) {
+            throwable = throwable.getCause();
+        }
+
+        logger.error("Asynchronous task failed", throwable);
+        return null;
+    }
+
+    /**
+     * Creates a handler for the failure of a future that answers an
+     * interaction, which prints the failure and replies with an error,
+     * so the user is not left waiting for a reply. Used with
+     * {@code exceptionally} at the end of a command's chain, where
+     * {@link #printFailure} is used when there is nobody to answer
+     * 
+     * @param <T>         The type of the future
+     * @param interaction The interaction, deferred or not
+     * @return The handler, which returns {@code null}
+     */
+    public static final <T> Function<Throwable, T> replyFailure(IReplyCallback interaction) {
+        return throwable -> {
+            printFailure(throwable);
+
+            MessageEmbed embed = EmbedFactory.createFailedEmbed();
+            if (interaction.isAcknowledged()) {
+                interaction.getHook().sendMessageEmbeds(embed).queue();
+            } else {
+                interaction.replyEmbeds(embed).setEphemeral(true).queue();
+            }
+            return null;
+        };
+    }
+}
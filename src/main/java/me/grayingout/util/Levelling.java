@@ -1,9 +1,13 @@
 package me.grayingout.util;
 
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 
 import me.grayingout.database.accessors.DatabaseAccessorManager;
-import me.grayingout.database.entities.GuildLevelRole;
+import net.dv8tion.jda.api.entities.Guild;
 import net.dv8tion.jda.api.entities.Member;
 import net.dv8tion.jda.api.entities.Role;
 
@@ -42,35 +46,61 @@ public final class Levelling {
      * Update the level roles of a member
      * 
      * @param member The member to update
+     * @return A future completed once the role changes have been made
      */
-    public static final void updateMemberLevelRoles(Member member) {
-        /* Get member level */
-        int level = DatabaseAccessorManager
+    public static final CompletableFuture<Void> updateMemberLevelRoles(Member member) {
+        return DatabaseAccessorManager
             .getLevellingDatabaseAccessor()
             .getGildMemberLevelExperience(member)
-            .getLevel();
+            .thenCompose(levelExperience -> updateMemberLevelRoles(member, levelExperience.getLevel()));
+    }
 
-        /* Get the level roles */
-        List<GuildLevelRole> levelRoles = DatabaseAccessorManager
+    /**
+     * Update the level roles of a member whose level
+     * is already known
+     * 
+     * @param member The member to update
+     * @param level  The level of the member
+     * @return A future completed once the role changes have been made
+     */
+    public static final CompletableFuture<Void> updateMemberLevelRoles(Member member, int level) {
+        return DatabaseAccessorManager
             .getLevellingDatabaseAccessor()
-            .getGuildLevelRoles(member.getGuild());
-        
-        /* Get the member's current roles */
-        List<Role> roles = member.getRoles();
-        
-        /* Check the level roles against the member's roles */
-        for (GuildLevelRole levelRole : levelRoles) {
-            /* Member missing role */
-            if (levelRole.getRequiredLevel() <= level && !roles.contains(levelRole.getRole())) {
-                member.getGuild().addRoleToMember(member, levelRole.getRole()).queue();
-                continue;
-            }
+            .getGuildLevelRoleIndex(member.getGuild())
+            .thenCompose(levelRoleIndex -> {
+                if (levelRoleIndex.isEmpty()) {
+                    return CompletableFuture.completedFuture(null);
+                }
 
-            /* Member shouldn't have role */
-            if (levelRole.getRequiredLevel() > level && roles.contains(levelRole.getRole())) {
-                member.getGuild().removeRoleFromMember(member, levelRole.getRole()).queue();
-                continue;
-            }
-        }
+                Guild guild = member.getGuild();
+
+                /* Get the member's current roles */
+                Set<Role> roles = new HashSet<>(member.getRoles());
+
+                /* Member missing role */
+                List<Role> rolesToAdd = new ArrayList<>();
+                for (long roleId : levelRoleIndex.getUnlockedRoleIds(level)) {
+                    Role role = guild.getRoleById(roleId);
+                    if (role != null && !roles.contains(role)) {
+                        rolesToAdd.add(role);
+                    }
+                }
+
+                /* Member shouldn't have role */
+                List<Role> rolesToRemove = new ArrayList<>();
+                for (long roleId : levelRoleIndex.getLockedRoleIds(level)) {
+                    Role role = guild.getRoleById(roleId);
+                    if (role != null && roles.contains(role)) {
+                        rolesToRemove.add(role);
+                    }
+                }
+
+                if (rolesToAdd.isEmpty() && rolesToRemove.isEmpty()) {
+                    return CompletableFuture.completedFuture(null);
+                }
+
+                /* Make all the changes in one request */
+                return guild.modifyMemberRoles(member, rolesToAdd, rolesToRemove).submit();
+            });
     }
 }
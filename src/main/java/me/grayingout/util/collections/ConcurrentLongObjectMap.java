@@ -0,0 +1,327 @@
+package me.grayingout.util.collections;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A concurrent hash map with primitive {@code long} keys.
+ * <p>
+ * The map is split into segments, each an open addressing table with
+ * linear probing. Reads never lock, while writes lock only the segment
+ * the key hashes to. A slot's key never changes once it is set, removed
+ * entries are marked with a tombstone instead, and tombstones are only
+ * cleared when a segment is rebuilt into a new table. This way a reader
+ * can always trust the key it finds in a slot.
+ * <p>
+ * {@code null} values are not supported
+ *
+ * @param <V> The type of the values
+ */
+public final class ConcurrentLongObjectMap<V> {
+
+    /**
+     * Marks a removed entry
+     */
+    private static final Object TOMBSTONE = new Object();
+
+    /**
+     * The fraction of slots, including tombstones, that can be
+     * used before a segment is rebuilt
+     */
+    private static final float LOAD_FACTOR = 0.6f;
+
+    /**
+     * The segments of the map
+     */
+    private final Segment[] segments;
+
+    /**
+     * Used to pick the segment of a hash
+     */
+    private final int segmentShift;
+
+    /**
+     * Creates a new {@code ConcurrentLongObjectMap}
+     *
+     * @param expectedSize The number of entries expected
+     * @param segmentCount The number of segments, rounded up to a power of two
+     */
+    public ConcurrentLongObjectMap(int expectedSize, int segmentCount) {
+        int count = segmentCount <= 1 ? 1 : Integer.highestOneBit(segmentCount - 1) << 1;
+        segments = new Segment[count];
+        segmentShift = 32 - Integer.numberOfTrailingZeros(count);
+
+        for (int i = 0; i < count; i++) {
+            segments[i] = new Segment(Math.max(1, expectedSize / count));
+        }
+    }
+
+    /**
+     * Creates a new {@code ConcurrentLongObjectMap} with a
+     * segment for each available processor
+     *
+     * @param expectedSize The number of entries expected
+     */
+    public ConcurrentLongObjectMap(int expectedSize) {
+        this(expectedSize, Runtime.getRuntime().availableProcessors() * 4);
+    }
+
+    /**
+     * Gets the value for a key, without locking
+     *
+     * @param key The key
+     * @return The value, or {@code null} if not present
+     */
+    @SuppressWarnings("unchecked")
+    public final V get(long key) {
+        int hash = LongObjectHashMap.hash(key);
+        Table table = segmentFor(hash).table;
+
+        int mask = table.keys.length() - 1;
+        int index = hash & mask;
+
+        Object value;
+        while ((value = table.values.get(index)) != null) {
+            if (table.keys.get(index) == key) {
+                return value == TOMBSTONE ? null : (V) value;
+            }
+            index = (index + 1) & mask;
+        }
+
+        return null;
+    }
+
+    /**
+     * Puts a value against a key
+     *
+     * @param key   The key
+     * @param value The value
+     * @return The previous value, or {@code null} if there was none
+     * @throws NullPointerException If {@code value} is {@code null}
+     */
+    public final V put(long key, V value) {
+        if (value == null) {
+            throw new NullPointerException("Null values are not supported");
+        }
+
+        int hash = LongObjectHashMap.hash(key);
+        return segmentFor(hash).put(key, hash, value);
+    }
+
+    /**
+     * Removes the value for a key
+     *
+     * @param key The key
+     * @return The removed value, or {@code null} if not present
+     */
+    public final V remove(long key) {
+        int hash = LongObjectHashMap.hash(key);
+        return segmentFor(hash).remove(key, hash, null);
+    }
+
+    /**
+     * Removes the value for a key, only if it is currently
+     * mapped to the expected value
+     *
+     * @param key      The key
+     * @param expected The expected value
+     * @return If the value was removed
+     */
+    public final boolean remove(long key, V expected) {
+        int hash = LongObjectHashMap.hash(key);
+        return segmentFor(hash).remove(key, hash, expected) != null;
+    }
+
+    /**
+     * Gets the number of entries in the map. This is only
+     * a snapshot while the map is being written to
+     *
+     * @return The size
+     */
+    public final int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            size += segment.size;
+        }
+        return size;
+    }
+
+    /**
+     * Gets the segment a hash belongs to, using the high bits
+     * so the low bits remain for the slot index
+     *
+     * @param hash The hash
+     * @return The segment
+     */
+    private final Segment segmentFor(int hash) {
+        return segmentShift == 32 ? segments[0] : segments[hash >>> segmentShift];
+    }
+
+    /**
+     * The slots of a segment
+     */
+    private static final class Table {
+
+        /**
+         * The keys of the slots
+         */
+        private final AtomicLongArray keys;
+
+        /**
+         * The values of the slots, {@code null} marks an
+         * empty slot
+         */
+        private final AtomicReferenceArray<Object> values;
+
+        /**
+         * Creates a new {@code Table}
+         *
+         * @param capacity The capacity, a power of two
+         */
+        private Table(int capacity) {
+            keys = new AtomicLongArray(capacity);
+            values = new AtomicReferenceArray<>(capacity);
+        }
+    }
+
+    /**
+     * A lock striped part of the map
+     */
+    private static final class Segment {
+
+        /**
+         * The current table, replaced when the segment is rebuilt
+         */
+        private volatile Table table;
+
+        /**
+         * The number of live entries
+         */
+        private volatile int size;
+
+        /**
+         * The number of slots holding an entry or a tombstone
+         */
+        private int usedSlots;
+
+        /**
+         * Creates a new {@code Segment}
+         *
+         * @param expectedSize The number of entries expected
+         */
+        private Segment(int expectedSize) {
+            table = new Table(capacityFor(expectedSize));
+        }
+
+        /**
+         * Puts a value against a key
+         *
+         * @param key   The key
+         * @param hash  The hash of the key
+         * @param value The value
+         * @return The previous value, or {@code null}
+         */
+        @SuppressWarnings("unchecked")
+        private synchronized <V> V put(long key, int hash, V value) {
+            Table current = table;
+            int mask = current.keys.length() - 1;
+            int index = hash & mask;
+
+            Object existing;
+            while ((existing = current.values.get(index)) != null) {
+                if (current.keys.get(index) == key) {
+                    current.values.set(index, value);
+
+                    if (existing == TOMBSTONE) {
+                        size++;
+                        return null;
+                    }
+                    return (V) existing;
+                }
+                index = (index + 1) & mask;
+            }
+
+            /* The key must be visible before the value marks the slot used */
+            current.keys.set(index, key);
+            current.values.set(index, value);
+            size++;
+
+            if (++usedSlots > current.keys.length() * LOAD_FACTOR) {
+                rebuild();
+            }
+
+            return null;
+        }
+
+        /**
+         * Removes the value for a key
+         *
+         * @param key      The key
+         * @param hash     The hash of the key
+         * @param expected The value expected, or {@code null} for any value
+         * @return The removed value, or {@code null}
+         */
+        @SuppressWarnings("unchecked")
+        private synchronized <V> V remove(long key, int hash, Object expected) {
+            Table current = table;
+            int mask = current.keys.length() - 1;
+            int index = hash & mask;
+
+            Object existing;
+            while ((existing = current.values.get(index)) != null) {
+                if (current.keys.get(index) == key) {
+                    if (existing == TOMBSTONE || (expected != null && existing != expected)) {
+                        return null;
+                    }
+
+                    current.values.set(index, TOMBSTONE);
+                    size--;
+                    return (V) existing;
+                }
+                index = (index + 1) & mask;
+            }
+
+            return null;
+        }
+
+        /**
+         * Copies the live entries into a new table, dropping
+         * tombstones and growing it if needed
+         */
+        private void rebuild() {
+            Table current = table;
+            Table rebuilt = new Table(capacityFor(size));
+            int mask = rebuilt.keys.length() - 1;
+
+            for (int i = 0; i < current.keys.length(); i++) {
+                Object value = current.values.get(i);
+                if (value == null || value == TOMBSTONE) {
+                    continue;
+                }
+
+                long key = current.keys.get(i);
+                int index = LongObjectHashMap.hash(key) & mask;
+                while (rebuilt.values.get(index) != null) {
+                    index = (index + 1) & mask;
+                }
+
+                rebuilt.keys.set(index, key);
+                rebuilt.values.set(index, value);
+            }
+
+            usedSlots = size;
+            table = rebuilt;
+        }
+
+        /**
+         * Gets the table capacity that holds a number of entries
+         * with room to spare
+         *
+         * @param entries The number of entries
+         * @return The capacity, a power of two
+         */
+        private static int capacityFor(int entries) {
+            return Integer.highestOneBit(Math.max(8, (int) (entries * 2 / LOAD_FACTOR)) - 1) << 1;
+        }
+    }
+}
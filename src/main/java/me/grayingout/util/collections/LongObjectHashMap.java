@@ -0,0 +1,238 @@
+package me.grayingout.util.collections;
+
+import java.util.Arrays;
+
+/**
+ * A hash map with primitive {@code long} keys, using open addressing
+ * with linear probing so no entry objects or boxed keys are allocated.
+ * <p>
+ * {@code null} values are not supported, as an empty slot is marked
+ * by a {@code null} value. This class is not thread-safe
+ *
+ * @param <V> The type of the values
+ */
+public final class LongObjectHashMap<V> {
+
+    /**
+     * The fraction of slots that can be used before resizing
+     */
+    private static final float LOAD_FACTOR = 0.6f;
+
+    /**
+     * The keys of the map
+     */
+    private long[] keys;
+
+    /**
+     * The values of the map, {@code null} marks an empty slot
+     */
+    private Object[] values;
+
+    /**
+     * The number of entries in the map
+     */
+    private int size;
+
+    /**
+     * The number of entries before the map is resized
+     */
+    private int resizeThreshold;
+
+    /**
+     * Creates a new {@code LongObjectHashMap}
+     *
+     * @param expectedSize The number of entries expected
+     */
+    public LongObjectHashMap(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(16, (int) (expectedSize / LOAD_FACTOR)) - 1) << 1;
+        keys = new long[capacity];
+        values = new Object[capacity];
+        resizeThreshold = (int) (capacity * LOAD_FACTOR);
+    }
+
+    /**
+     * Creates a new {@code LongObjectHashMap}
+     */
+    public LongObjectHashMap() {
+        this(16);
+    }
+
+    /**
+     * Gets the value for a key
+     *
+     * @param key The key
+     * @return The value, or {@code null} if not present
+     */
+    @SuppressWarnings("unchecked")
+    public final V get(long key) {
+        int mask = keys.length - 1;
+        int index = hash(key) & mask;
+
+        while (values[index] != null) {
+            if (keys[index] == key) {
+                return (V) values[index];
+            }
+            index = (index + 1) & mask;
+        }
+
+        return null;
+    }
+
+    /**
+     * Puts a value against a key
+     *
+     * @param key   The key
+     * @param value The value
+     * @return The previous value, or {@code null} if there was none
+     * @throws NullPointerException If {@code value} is {@code null}
+     */
+    @SuppressWarnings("unchecked")
+    public final V put(long key, V value) {
+        if (value == null) {
+            throw new NullPointerException("Null values are not supported");
+        }
+
+        int mask = keys.length - 1;
+        int index = hash(key) & mask;
+
+        while (values[index] != null) {
+            if (keys[index] == key) {
+                V previous = (V) values[index];
+                values[index] = value;
+                return previous;
+            }
+            index = (index + 1) & mask;
+        }
+
+        keys[index] = key;
+        values[index] = value;
+
+        if (++size > resizeThreshold) {
+            resize(keys.length << 1);
+        }
+
+        return null;
+    }
+
+    /**
+     * Removes the value for a key
+     *
+     * @param key The key
+     * @return The removed value, or {@code null} if not present
+     */
+    @SuppressWarnings("unchecked")
+    public final V remove(long key) {
+        int mask = keys.length - 1;
+        int index = hash(key) & mask;
+
+        while (values[index] != null) {
+            if (keys[index] == key) {
+                V previous = (V) values[index];
+                values[index] = null;
+                size--;
+
+                shiftBack(index);
+                return previous;
+            }
+            index = (index + 1) & mask;
+        }
+
+        return null;
+    }
+
+    /**
+     * Gets the number of entries in the map
+     *
+     * @return The size
+     */
+    public final int size() {
+        return size;
+    }
+
+    /**
+     * Returns if the map has no entries
+     *
+     * @return If it is empty
+     */
+    public final boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Removes all entries from the map
+     */
+    public final void clear() {
+        Arrays.fill(values, null);
+        size = 0;
+    }
+
+    /**
+     * Moves entries after a removed slot back, so that no entry
+     * is left unreachable behind the now empty slot
+     *
+     * @param removedIndex The index of the removed slot
+     */
+    private final void shiftBack(int removedIndex) {
+        int mask = keys.length - 1;
+        int gap = removedIndex;
+        int index = (gap + 1) & mask;
+
+        while (values[index] != null) {
+            int home = hash(keys[index]) & mask;
+
+            /* Only move the entry if the gap lies between its home slot and its slot */
+            if (((index - home) & mask) >= ((index - gap) & mask)) {
+                keys[gap] = keys[index];
+                values[gap] = values[index];
+                values[index] = null;
+                gap = index;
+            }
+
+            index = (index + 1) & mask;
+        }
+    }
+
+    /**
+     * Resizes the map to a new capacity
+     *
+     * @param capacity The new capacity, a power of two
+     */
+    private final void resize(int capacity) {
+        long[] oldKeys = keys;
+        Object[] oldValues = values;
+
+        keys = new long[capacity];
+        values = new Object[capacity];
+        resizeThreshold = (int) (capacity * LOAD_FACTOR);
+
+        int mask = capacity - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldValues[i] == null) {
+                continue;
+            }
+
+            int index = hash(oldKeys[i]) & mask;
+            while (values[index] != null) {
+                index = (index + 1) & mask;
+            }
+
+            keys[index] = oldKeys[i];
+            values[index] = oldValues[i];
+        }
+    }
+
+    /**
+     * Spreads the bits of a key, as snowflake ids share most
+     * of their high bits and are mostly sequential. Uses the
+     * MurmurHash3 finalizer, so nearby ids do not cluster
+     *
+     * @param key The key
+     * @return The hash
+     */
+    static final int hash(long key) {
+        long h = key;
+        h = (h ^ (h >>> 33)) * 0xFF51AFD7ED558CCDL;
+        h = (h ^ (h >>> 33)) * 0xC4CEB9FE1A85EC53L;
+        return (int) (h ^ (h >>> 33));
+    }
+}
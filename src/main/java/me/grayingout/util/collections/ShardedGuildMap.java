@@ -0,0 +1,129 @@
+package me.grayingout.util.collections;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongFunction;
+import java.util.stream.Stream;
+
+/**
+ * A concurrent map of per-guild state, partitioned by the gateway
+ * shard each guild is on. A guild never moves between shards while
+ * they are running, so each partition is only written by its shard's
+ * events and the commands of its guilds, and a shard's state can be
+ * counted or dropped on its own, such as when the shard is restarted.
+ * <p>
+ * {@code null} values are not supported
+ *
+ * @param <V> The type of the values
+ */
+public final class ShardedGuildMap<V> {
+
+    /**
+     * The state of each shard's guilds against the shard id,
+     * with a partition added the first time a shard is used
+     */
+    private final Map<Integer, Map<Long, V>> shards;
+
+    /**
+     * Creates a new, empty {@code ShardedGuildMap}
+     */
+    public ShardedGuildMap() {
+        shards = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Gets the state of a guild
+     *
+     * @param shardId The id of the guild's shard
+     * @param guildId The id of the guild
+     * @return The state, or {@code null} if there is none
+     */
+    public final V get(int shardId, long guildId) {
+        Map<Long, V> shard = shards.get(shardId);
+        return shard == null ? null : shard.get(guildId);
+    }
+
+    /**
+     * Gets the state of a guild, creating it if there is none.
+     * It is created at most once
+     *
+     * @param shardId The id of the guild's shard
+     * @param guildId The id of the guild
+     * @param create  Creates the state from the guild id
+     * @return The state
+     */
+    public final V computeIfAbsent(int shardId, long guildId, LongFunction<V> create) {
+        V value = get(shardId, guildId);
+        if (value != null) {
+            return value;
+        }
+
+        return shards.computeIfAbsent(shardId, id -> new ConcurrentHashMap<>())
+            .computeIfAbsent(guildId, id -> create.apply(id));
+    }
+
+    /**
+     * Removes the state of a guild
+     *
+     * @param shardId The id of the guild's shard
+     * @param guildId The id of the guild
+     * @return The state removed, or {@code null} if there was none
+     */
+    public final V remove(int shardId, long guildId) {
+        Map<Long, V> shard = shards.get(shardId);
+        return shard == null ? null : shard.remove(guildId);
+    }
+
+    /**
+     * Removes the state of every guild on a shard
+     *
+     * @param shardId The id of the shard
+     * @return The state removed against the guild ids
+     */
+    public final Map<Long, V> removeShard(int shardId) {
+        Map<Long, V> shard = shards.remove(shardId);
+        return shard == null ? Collections.emptyMap() : shard;
+    }
+
+    /**
+     * Removes the state of every guild
+     */
+    public final void clear() {
+        shards.clear();
+    }
+
+    /**
+     * Gets the number of guilds with state on a shard
+     *
+     * @param shardId The id of the shard
+     * @return The number of guilds
+     */
+    public final int size(int shardId) {
+        Map<Long, V> shard = shards.get(shardId);
+        return shard == null ? 0 : shard.size();
+    }
+
+    /**
+     * Gets the number of guilds with state on every shard
+     *
+     * @return The number of guilds
+     */
+    public final int size() {
+        int size = 0;
+        for (Map<Long, V> shard : shards.values()) {
+            size += shard.size();
+        }
+        return size;
+    }
+
+    /**
+     * Gets the state of every guild. It is weakly consistent,
+     * so it may or may not see concurrent changes
+     *
+     * @return The state of every guild
+     */
+    public final Stream<V> values() {
+        return shards.values().stream().flatMap(shard -> shard.values().stream());
+    }
+}
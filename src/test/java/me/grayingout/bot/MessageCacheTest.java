@@ -0,0 +1,121 @@
+package me.grayingout.bot;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+/**
+ * Tests the bounds and time to live of {@code MessageCache}
+ */
+public class MessageCacheTest extends TestCase {
+
+    /**
+     * @return the suite of tests being tested
+     */
+    public static Test suite() {
+        return new TestSuite(MessageCacheTest.class);
+    }
+
+    public void testNewestSnapshotReplacesTheOld() {
+        MessageCache cache = new MessageCache(10, 10, 60000, 1);
+        cache.put(message(1, 100, "first"));
+        cache.put(message(1, 100, "edited"));
+
+        assertEquals(1, cache.size());
+        assertEquals("edited", cache.getMessageByIdLong(1).getContentRaw());
+        assertNull(cache.getMessageByIdLong(2));
+    }
+
+    public void testOldestMessagesAreDroppedPastTheSizeBound() {
+        MessageCache cache = new MessageCache(3, 10, 60000, 1);
+        for (long id = 1; id <= 5; id++) {
+            cache.put(message(id, 100 + id, "a"));
+        }
+
+        assertEquals(3, cache.size());
+        assertNull(cache.getMessageByIdLong(1));
+        assertNull(cache.getMessageByIdLong(2));
+        for (long id = 3; id <= 5; id++) {
+            assertNotNull(cache.getMessageByIdLong(id));
+        }
+    }
+
+    public void testEditedMessageCountsAsNewlyWritten() {
+        MessageCache cache = new MessageCache(3, 10, 60000, 1);
+        cache.put(message(1, 100, "a"));
+        cache.put(message(2, 100, "a"));
+        cache.put(message(3, 100, "a"));
+        cache.put(message(1, 100, "edited"));
+        cache.put(message(4, 100, "a"));
+
+        assertEquals(3, cache.size());
+        assertEquals("edited", cache.getMessageByIdLong(1).getContentRaw());
+        assertNull(cache.getMessageByIdLong(2));
+    }
+
+    public void testGuildBoundOnlyDropsThatGuildsMessages() {
+        MessageCache cache = new MessageCache(100, 2, 60000, 1);
+        cache.put(message(1, 100, "quiet guild"));
+        for (long id = 2; id <= 6; id++) {
+            cache.put(message(id, 200, "busy guild"));
+        }
+
+        assertEquals(3, cache.size());
+        assertNotNull(cache.getMessageByIdLong(1));
+        assertNull(cache.getMessageByIdLong(4));
+        assertNotNull(cache.getMessageByIdLong(5));
+        assertNotNull(cache.getMessageByIdLong(6));
+    }
+
+    public void testStripesShareTheBounds() {
+        /* Not a multiple of the stripe count, so the shares differ */
+        MessageCache cache = new MessageCache(42, 1000, 60000, 4);
+        for (long id = 1; id <= 1000; id++) {
+            cache.put(message(id << 22, 100, "a"));
+        }
+
+        assertTrue(cache.size() <= 42);
+        assertNotNull(cache.getMessageByIdLong(1000L << 22));
+    }
+
+    public void testRepeatedEditsDoNotGrowTheCache() {
+        MessageCache cache = new MessageCache(10, 10, 60000, 1);
+        for (int i = 0; i < 10000; i++) {
+            cache.put(message(1, 100, "edit " + i));
+        }
+        cache.put(message(2, 100, "a"));
+
+        assertEquals(2, cache.size());
+        assertEquals("edit 9999", cache.getMessageByIdLong(1).getContentRaw());
+    }
+
+    public void testExpiredMessagesAreNotReturnedAndAreRemoved() throws Exception {
+        MessageCache cache = new MessageCache(10, 10, 50, 1);
+        cache.put(message(1, 100, "a"));
+        assertNotNull(cache.getMessageByIdLong(1));
+
+        Thread.sleep(100);
+        assertNull(cache.getMessageByIdLong(1));
+
+        /* Expired messages are removed on the next write */
+        cache.put(message(2, 100, "b"));
+        assertEquals(1, cache.size());
+        assertNotNull(cache.getMessageByIdLong(2));
+    }
+
+    /**
+     * Creates a message snapshot
+     *
+     * @param id      The id of the message
+     * @param guildId The id of the guild
+     * @param content The content of the message
+     * @return The snapshot
+     */
+    private static CachedMessage message(long id, long guildId, String content) {
+        return new CachedMessage(id, guildId, 3, 4, "user#0001", content.getBytes(StandardCharsets.UTF_8),
+            new String[0], Collections.emptyList(), 0, 0);
+    }
+}
@@ -0,0 +1,198 @@
+package me.grayingout.database.accessors;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+import me.grayingout.database.query.ReadOnlyDatabaseQuery;
+
+/**
+ * Tests the group commit of queued writes in {@code Database},
+ * and the retry of each write when a batch fails
+ */
+public class DatabaseTest extends TestCase {
+
+    /**
+     * The directory the database is stored in
+     */
+    private File directory;
+
+    /**
+     * The database being tested
+     */
+    private Database database;
+
+    /**
+     * Released to let the writer carry on past {@link #holdWriter()}
+     */
+    private CountDownLatch writerGate;
+
+    /**
+     * @return the suite of tests being tested
+     */
+    public static Test suite() {
+        return new TestSuite(DatabaseTest.class);
+    }
+
+    @Override
+    protected void setUp() throws Exception {
+        directory = Files.createTempDirectory("database-test").toFile();
+
+        /* Batches only take the writes already waiting, so they can be built up deterministically */
+        database = new Database(new File(directory, "test.db").getPath(), 2, 64, 0);
+        database.queueQuery(connection -> {
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("CREATE TABLE Items (id INTEGER PRIMARY KEY)");
+            }
+            return true;
+        }).join();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        database.close();
+
+        for (File file : directory.listFiles()) {
+            file.delete();
+        }
+        directory.delete();
+    }
+
+    public void testWaitingWritesAreCommittedTogether() {
+        holdWriter();
+        List<CompletableFuture<Integer>> inserts = new ArrayList<>();
+        for (int id = 1; id <= 5; id++) {
+            inserts.add(insert(id, null));
+        }
+
+        long commits = database.getWriteLaneMetrics().getCommitCount();
+        writerGate.countDown();
+
+        for (CompletableFuture<Integer> insert : inserts) {
+            assertEquals(Integer.valueOf(1), insert.join());
+        }
+        /* One for the held write, and one for the batch */
+        assertEquals(commits + 2, database.getWriteLaneMetrics().getCommitCount());
+        assertEquals(Integer.valueOf(5), countItems().join());
+    }
+
+    public void testFailedWriteIsRetriedAloneAndOthersAreKept() {
+        AtomicInteger firstAttempts = new AtomicInteger();
+        AtomicInteger lastAttempts = new AtomicInteger();
+
+        holdWriter();
+        CompletableFuture<Integer> first = insert(1, firstAttempts);
+        CompletableFuture<Integer> failing = database.queueQuery(connection -> {
+            try (Statement statement = connection.createStatement()) {
+                return statement.executeUpdate("INSERT INTO Missing VALUES (1)");
+            }
+        });
+        CompletableFuture<Integer> last = insert(2, lastAttempts);
+        writerGate.countDown();
+
+        assertEquals(Integer.valueOf(1), first.join());
+        assertNull(failing.join());
+        assertEquals(Integer.valueOf(1), last.join());
+
+        /* The batch stopped at the failure and was rolled back, then each write retried on its own */
+        assertEquals(2, firstAttempts.get());
+        assertEquals(1, lastAttempts.get());
+        assertEquals(Integer.valueOf(2), countItems().join());
+    }
+
+    public void testThrowingWriteDoesNotFailTheBatch() {
+        holdWriter();
+        CompletableFuture<Integer> first = insert(1, null);
+        CompletableFuture<Object> throwing = database.queueQuery(connection -> {
+            throw new IllegalStateException("Broken query");
+        });
+        CompletableFuture<Integer> last = insert(2, null);
+        writerGate.countDown();
+
+        assertEquals(Integer.valueOf(1), first.join());
+        assertNull(throwing.join());
+        assertEquals(Integer.valueOf(1), last.join());
+        assertEquals(Integer.valueOf(2), countItems().join());
+    }
+
+    public void testReadQueuedAfterAWriteCompletesSeesIt() {
+        for (int id = 1; id <= 20; id++) {
+            insert(id, null).join();
+            assertEquals(Integer.valueOf(id), countItems().join());
+        }
+    }
+
+    public void testQueriesQueuedAfterClosingCompleteWithNull() {
+        database.close();
+
+        assertNull(insert(1, null).join());
+        assertNull(countItems().join());
+    }
+
+    /**
+     * Queues a write that holds the writer until {@link #writerGate}
+     * is released, so the writes queued meanwhile form one batch
+     */
+    private void holdWriter() {
+        writerGate = new CountDownLatch(1);
+        CountDownLatch holding = new CountDownLatch(1);
+
+        database.queueQuery(connection -> {
+            holding.countDown();
+            try {
+                writerGate.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return true;
+        });
+
+        try {
+            holding.await();
+        } catch (InterruptedException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Queues the insert of an item
+     *
+     * @param id       The id of the item
+     * @param attempts Counts the times the insert is executed, or {@code null}
+     * @return A future completed with the number of rows inserted, or {@code null}
+     */
+    private CompletableFuture<Integer> insert(int id, AtomicInteger attempts) {
+        return database.queueQuery(connection -> {
+            if (attempts != null) {
+                attempts.incrementAndGet();
+            }
+
+            try (Statement statement = connection.createStatement()) {
+                return statement.executeUpdate("INSERT INTO Items VALUES (" + id + ")");
+            }
+        });
+    }
+
+    /**
+     * Queues a read of the number of items
+     *
+     * @return A future completed with the number of items, or {@code null}
+     */
+    private CompletableFuture<Integer> countItems() {
+        return database.queueQuery((ReadOnlyDatabaseQuery<Integer>) connection -> {
+            try (Statement statement = connection.createStatement();
+                    ResultSet set = statement.executeQuery("SELECT count(*) FROM Items")) {
+                return set.getInt(1);
+            }
+        });
+    }
+}
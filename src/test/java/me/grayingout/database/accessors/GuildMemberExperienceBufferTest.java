@@ -0,0 +1,228 @@
+package me.grayingout.database.accessors;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+import me.grayingout.database.storage.ExperienceDelta;
+import me.grayingout.database.storage.LevelRepository;
+import me.grayingout.util.Levelling;
+
+/**
+ * Tests the buffering, flushing and discarding of
+ * {@code GuildMemberExperienceBuffer}
+ */
+public class GuildMemberExperienceBufferTest extends TestCase {
+
+    /**
+     * The repository the buffer flushes to
+     */
+    private InMemoryLevelRepository repository;
+
+    /**
+     * The accessor whose repository is used
+     */
+    private LevellingDatabaseAccessor accessor;
+
+    /**
+     * The buffer being tested, only flushed when asked to
+     */
+    private GuildMemberExperienceBuffer buffer;
+
+    /**
+     * @return the suite of tests being tested
+     */
+    public static Test suite() {
+        return new TestSuite(GuildMemberExperienceBufferTest.class);
+    }
+
+    @Override
+    protected void setUp() {
+        repository = new InMemoryLevelRepository();
+        accessor = new LevellingDatabaseAccessor(repository);
+        buffer = new GuildMemberExperienceBuffer(accessor, 3600000, Integer.MAX_VALUE);
+    }
+
+    @Override
+    protected void tearDown() {
+        buffer.close();
+        accessor.close();
+    }
+
+    public void testExperienceIsBufferedUntilFlushed() {
+        repository.setExperience(1, 2, 100).join();
+
+        buffer.addExperience(1, 2, 10).join();
+        buffer.addExperience(1, 2, 5).join();
+
+        assertEquals(Integer.valueOf(115), buffer.getExperience(1, 2).join());
+        assertEquals(Integer.valueOf(100), repository.getExperience(1, 2).join());
+
+        buffer.flush().join();
+        assertEquals(Integer.valueOf(115), repository.getExperience(1, 2).join());
+        assertEquals(1, repository.addExperienceCalls);
+
+        /* Nothing is pending, so nothing is written */
+        buffer.flush().join();
+        assertEquals(1, repository.addExperienceCalls);
+    }
+
+    public void testNewLevelIsReturnedOnlyWhenReached() {
+        int needed = Levelling.getExperienceForLevel(1);
+
+        assertEquals(Integer.valueOf(-1), buffer.addExperience(1, 2, needed - 1).join());
+        assertEquals(Integer.valueOf(Levelling.getLevelFromExperience(needed)), buffer.addExperience(1, 2, 1).join());
+        assertEquals(Integer.valueOf(-1), buffer.addExperience(1, 2, 1).join());
+    }
+
+    public void testFailedFlushIsWrittenByTheNext() {
+        buffer.addExperience(1, 2, 10).join();
+        buffer.addExperience(1, 3, 20).join();
+
+        repository.failWrites = true;
+        buffer.flush().join();
+        assertEquals(Integer.valueOf(0), repository.getExperience(1, 2).join());
+
+        /* Experience added meanwhile is written along with the failed flush */
+        buffer.addExperience(1, 2, 1).join();
+
+        repository.failWrites = false;
+        buffer.flush().join();
+        assertEquals(Integer.valueOf(11), repository.getExperience(1, 2).join());
+        assertEquals(Integer.valueOf(20), repository.getExperience(1, 3).join());
+        assertEquals(Integer.valueOf(11), buffer.getExperience(1, 2).join());
+    }
+
+    public void testDiscardDropsUnflushedExperience() {
+        repository.setExperience(1, 2, 100).join();
+        buffer.addExperience(1, 2, 10).join();
+
+        /* As when the member's experience is overwritten */
+        buffer.discard(1, 2);
+        repository.setExperience(1, 2, 50).join();
+
+        buffer.flush().join();
+        assertEquals(0, repository.addExperienceCalls);
+        assertEquals(Integer.valueOf(50), repository.getExperience(1, 2).join());
+
+        /* Loaded again from the overwritten experience */
+        buffer.addExperience(1, 2, 5).join();
+        assertEquals(Integer.valueOf(55), buffer.getExperience(1, 2).join());
+        buffer.flush().join();
+        assertEquals(Integer.valueOf(55), repository.getExperience(1, 2).join());
+    }
+
+    public void testMembersAreBufferedPerGuild() {
+        buffer.addExperience(1, 2, 10).join();
+        buffer.addExperience(1, 3, 20).join();
+        buffer.addExperience(4, 2, 30).join();
+
+        Map<Long, Integer> expected = new HashMap<>();
+        expected.put(2L, 10);
+        expected.put(3L, 20);
+        assertEquals(expected, buffer.getBufferedExperience(1));
+        assertEquals(Collections.singletonMap(2L, 30), buffer.getBufferedExperience(4));
+    }
+
+    public void testFailedLoadFailsTheIncrement() {
+        repository.failReads = true;
+
+        try {
+            buffer.addExperience(1, 2, 10).join();
+            fail("Expected the increment to fail");
+        } catch (CompletionException e) {
+            assertTrue(e.getCause() instanceof IllegalStateException);
+        }
+
+        /* Nothing was buffered against the missing stored experience */
+        repository.failReads = false;
+        repository.setExperience(1, 2, 100).join();
+        assertEquals(Integer.valueOf(100), buffer.getExperience(1, 2).join());
+    }
+
+    /**
+     * A level repository held in memory, whose reads
+     * and writes can be made to fail
+     */
+    private static final class InMemoryLevelRepository implements LevelRepository {
+
+        /**
+         * The experience of each guild member
+         */
+        private final Map<String, Integer> experience = new HashMap<>();
+
+        /**
+         * The number of successful {@code addExperience} calls
+         */
+        private int addExperienceCalls;
+
+        /**
+         * If reads complete with {@code null}
+         */
+        private volatile boolean failReads;
+
+        /**
+         * If writes complete with {@code null}
+         */
+        private volatile boolean failWrites;
+
+        @Override
+        public synchronized CompletableFuture<Integer> getExperience(long guildId, long userId) {
+            if (failReads) {
+                return CompletableFuture.completedFuture(null);
+            }
+            return CompletableFuture.completedFuture(experience.getOrDefault(guildId + "/" + userId, 0));
+        }
+
+        @Override
+        public synchronized CompletableFuture<Map<Long, Integer>> getGuildExperience(long guildId) {
+            Map<Long, Integer> guildExperience = new HashMap<>();
+            for (Map.Entry<String, Integer> entry : experience.entrySet()) {
+                if (entry.getKey().startsWith(guildId + "/")) {
+                    guildExperience.put(Long.parseLong(entry.getKey().substring(entry.getKey().indexOf('/') + 1)), entry.getValue());
+                }
+            }
+            return CompletableFuture.completedFuture(guildExperience);
+        }
+
+        @Override
+        public synchronized CompletableFuture<Boolean> addExperience(List<ExperienceDelta> deltas) {
+            if (failWrites) {
+                return CompletableFuture.completedFuture(null);
+            }
+
+            addExperienceCalls++;
+            for (ExperienceDelta delta : deltas) {
+                experience.merge(delta.getGuildId() + "/" + delta.getUserId(), delta.getDelta(), Integer::sum);
+            }
+            return CompletableFuture.completedFuture(true);
+        }
+
+        @Override
+        public synchronized CompletableFuture<Boolean> setExperience(long guildId, long userId, int experience) {
+            this.experience.put(guildId + "/" + userId, experience);
+            return CompletableFuture.completedFuture(true);
+        }
+
+        @Override
+        public CompletableFuture<Map<Long, Integer>> getLevelRoles(long guildId) {
+            return CompletableFuture.completedFuture(Collections.emptyMap());
+        }
+
+        @Override
+        public CompletableFuture<Boolean> putLevelRole(long guildId, long roleId, int levelRequired) {
+            return CompletableFuture.completedFuture(true);
+        }
+
+        @Override
+        public CompletableFuture<Boolean> deleteLevelRole(long guildId, long roleId) {
+            return CompletableFuture.completedFuture(true);
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package me.grayingout.database.entities;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+/**
+ * Tests the ranking, pagination and updates of {@code GuildLeaderboard}
+ */
+public class GuildLeaderboardTest extends TestCase {
+
+    /**
+     * @return the suite of tests being tested
+     */
+    public static Test suite() {
+        return new TestSuite(GuildLeaderboardTest.class);
+    }
+
+    public void testMembersAreRankedByExperienceThenUserId() {
+        GuildLeaderboard leaderboard = new GuildLeaderboard(1);
+        leaderboard.update(10, 50);
+        leaderboard.update(11, 200);
+        leaderboard.update(12, 50);
+        leaderboard.update(13, 120);
+
+        assertEquals(4, leaderboard.getSize());
+        assertEquals(1, leaderboard.getRank(11));
+        assertEquals(2, leaderboard.getRank(13));
+
+        /* Ties are broken by the lower user id */
+        assertEquals(3, leaderboard.getRank(10));
+        assertEquals(4, leaderboard.getRank(12));
+
+        assertEquals(-1, leaderboard.getRank(99));
+    }
+
+    public void testMembersWithoutExperienceAreNotRanked() {
+        GuildLeaderboard leaderboard = new GuildLeaderboard(1);
+        leaderboard.update(10, 0);
+        leaderboard.update(11, 5);
+
+        assertEquals(1, leaderboard.getSize());
+        assertEquals(-1, leaderboard.getRank(10));
+
+        /* Setting a ranked member back to zero removes them */
+        leaderboard.update(11, 0);
+        assertEquals(0, leaderboard.getSize());
+        assertEquals(-1, leaderboard.getRank(11));
+        assertTrue(leaderboard.getEntries(0, 10).isEmpty());
+    }
+
+    public void testUpdateMovesMemberToTheirNewRank() {
+        GuildLeaderboard leaderboard = new GuildLeaderboard(1);
+        leaderboard.update(10, 300);
+        leaderboard.update(11, 200);
+        leaderboard.update(12, 100);
+
+        leaderboard.update(12, 400);
+        assertEquals(3, leaderboard.getSize());
+        assertEquals(1, leaderboard.getRank(12));
+        assertEquals(2, leaderboard.getRank(10));
+        assertEquals(3, leaderboard.getRank(11));
+
+        leaderboard.update(12, 150);
+        assertEquals(3, leaderboard.getRank(12));
+        assertEquals(150, leaderboard.getEntries(2, 1).get(0).getExperience());
+
+        /* Setting the same experience again changes nothing */
+        leaderboard.update(12, 150);
+        assertEquals(3, leaderboard.getSize());
+        assertEquals(3, leaderboard.getRank(12));
+    }
+
+    public void testEntriesArePaged() {
+        GuildLeaderboard leaderboard = new GuildLeaderboard(1);
+        for (int i = 0; i < 25; i++) {
+            leaderboard.update(100 + i, (i + 1) * 10);
+        }
+
+        List<GuildLeaderboard.Entry> first = leaderboard.getEntries(0, 10);
+        assertEquals(10, first.size());
+        assertEquals(124, first.get(0).getUserId());
+        assertEquals(250, first.get(0).getExperience());
+        assertEquals(1, first.get(0).getRank());
+        assertEquals(115, first.get(9).getUserId());
+        assertEquals(10, first.get(9).getRank());
+
+        List<GuildLeaderboard.Entry> last = leaderboard.getEntries(20, 10);
+        assertEquals(5, last.size());
+        assertEquals(21, last.get(0).getRank());
+        assertEquals(100, last.get(4).getUserId());
+        assertEquals(25, last.get(4).getRank());
+
+        assertTrue(leaderboard.getEntries(25, 10).isEmpty());
+        assertTrue(leaderboard.getEntries(0, 0).isEmpty());
+    }
+
+    public void testRandomUpdatesMatchSortedOrder() {
+        GuildLeaderboard leaderboard = new GuildLeaderboard(1);
+        Map<Long, Integer> experience = new HashMap<>();
+        Random random = new Random(42);
+
+        for (int i = 0; i < 5000; i++) {
+            long userId = random.nextInt(500);
+            int value = random.nextInt(10) == 0 ? 0 : random.nextInt(1000);
+            leaderboard.update(userId, value);
+
+            if (value > 0) {
+                experience.put(userId, value);
+            } else {
+                experience.remove(userId);
+            }
+        }
+
+        List<Map.Entry<Long, Integer>> expected = new ArrayList<>(experience.entrySet());
+        expected.sort(Comparator.<Map.Entry<Long, Integer>>comparingInt(e -> -e.getValue())
+            .thenComparingLong(Map.Entry::getKey));
+
+        assertEquals(expected.size(), leaderboard.getSize());
+
+        List<GuildLeaderboard.Entry> entries = leaderboard.getEntries(0, expected.size());
+        for (int i = 0; i < expected.size(); i++) {
+            long userId = expected.get(i).getKey();
+            assertEquals(userId, entries.get(i).getUserId());
+            assertEquals(expected.get(i).getValue().intValue(), entries.get(i).getExperience());
+            assertEquals(i + 1, entries.get(i).getRank());
+            assertEquals(i + 1, leaderboard.getRank(userId));
+        }
+    }
+}
@@ -0,0 +1,255 @@
+package me.grayingout.database.migration;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+/**
+ * Tests the version tracking and rollback of {@code MigrationRunner}
+ */
+public class MigrationRunnerTest extends TestCase {
+
+    /**
+     * The directory the database is stored in
+     */
+    private File directory;
+
+    /**
+     * The connection to the database, not in auto-commit mode
+     */
+    private Connection connection;
+
+    /**
+     * The descriptions of the migrations applied, in order
+     */
+    private List<String> applied;
+
+    /**
+     * @return the suite of tests being tested
+     */
+    public static Test suite() {
+        return new TestSuite(MigrationRunnerTest.class);
+    }
+
+    @Override
+    protected void setUp() throws Exception {
+        directory = Files.createTempDirectory("migration-test").toFile();
+        connection = DriverManager.getConnection("jdbc:sqlite:" + new File(directory, "test.db").getPath());
+        connection.setAutoCommit(false);
+        applied = new ArrayList<>();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        connection.close();
+
+        for (File file : directory.listFiles()) {
+            file.delete();
+        }
+        directory.delete();
+    }
+
+    public void testPendingMigrationsAreAppliedInOrder() throws Exception {
+        MigrationRunner runner = new MigrationRunner("test", "Levels", Arrays.asList(
+            migration("create", "CREATE TABLE Levels (user_id INTEGER PRIMARY KEY, experience INTEGER)"),
+            migration("insert", "INSERT INTO Levels VALUES (1, 10)")
+        ));
+
+        runner.migrate(connection);
+
+        assertEquals(Arrays.asList("create", "insert"), applied);
+        assertEquals(2, MigrationRunner.getSchemaVersion(connection, "Levels"));
+        assertEquals(1, count("Levels"));
+    }
+
+    public void testOnlyNewMigrationsAreApplied() throws Exception {
+        DatabaseMigration create = migration("create", "CREATE TABLE Levels (user_id INTEGER PRIMARY KEY)");
+        new MigrationRunner("test", "Levels", Collections.singletonList(create)).migrate(connection);
+
+        /* Up to date, so nothing runs */
+        new MigrationRunner("test", "Levels", Collections.singletonList(create)).migrate(connection);
+        assertEquals(Arrays.asList("create"), applied);
+
+        new MigrationRunner("test", "Levels", Arrays.asList(
+            create,
+            migration("add column", "ALTER TABLE Levels ADD COLUMN experience INTEGER")
+        )).migrate(connection);
+
+        assertEquals(Arrays.asList("create", "add column"), applied);
+        assertEquals(2, MigrationRunner.getSchemaVersion(connection, "Levels"));
+    }
+
+    public void testFailedMigrationIsRolledBack() throws Exception {
+        List<DatabaseMigration> migrations = new ArrayList<>(Arrays.asList(
+            migration("create", "CREATE TABLE Levels (user_id INTEGER PRIMARY KEY)"),
+            migration("broken", "CREATE TABLE Partial (id INTEGER)", "INSERT INTO Missing VALUES (1)")
+        ));
+
+        try {
+            new MigrationRunner("test", "Levels", migrations).migrate(connection);
+            fail("Expected the migration to fail");
+        } catch (IllegalStateException e) {
+            assertTrue(e.getCause() instanceof SQLException);
+        }
+
+        /* Left at the last version that succeeded, without the failed migration's changes */
+        assertEquals(1, MigrationRunner.getSchemaVersion(connection, "Levels"));
+        assertTrue(tableExists("Levels"));
+        assertFalse(tableExists("Partial"));
+
+        /* Fixed, it is applied from the failed version */
+        migrations.set(1, migration("fixed", "CREATE TABLE Partial (id INTEGER)"));
+        new MigrationRunner("test", "Levels", migrations).migrate(connection);
+
+        assertEquals(Arrays.asList("create", "broken", "fixed"), applied);
+        assertEquals(2, MigrationRunner.getSchemaVersion(connection, "Levels"));
+        assertTrue(tableExists("Partial"));
+    }
+
+    public void testNewerSchemaIsRefused() throws Exception {
+        /* Creates the version table, then records a version from a newer bot */
+        MigrationRunner.getSchemaVersion(connection, "Levels");
+        MigrationRunner.setSchemaVersion(connection, "Levels", 3);
+        connection.commit();
+
+        try {
+            new MigrationRunner("test", "Levels", Collections.singletonList(
+                migration("create", "CREATE TABLE Levels (user_id INTEGER PRIMARY KEY)"))).migrate(connection);
+            fail("Expected a newer schema to be refused");
+        } catch (IllegalStateException e) {
+            /* Expected */
+        }
+
+        assertTrue(applied.isEmpty());
+        assertEquals(3, MigrationRunner.getSchemaVersion(connection, "Levels"));
+    }
+
+    public void testSchemasAreVersionedSeparately() throws Exception {
+        new MigrationRunner("test", "Levels", Arrays.asList(
+            migration("levels 1", "CREATE TABLE Levels (user_id INTEGER PRIMARY KEY)"),
+            migration("levels 2", "ALTER TABLE Levels ADD COLUMN experience INTEGER")
+        )).migrate(connection);
+        new MigrationRunner("test", "Warnings", Collections.singletonList(
+            migration("warnings 1", "CREATE TABLE Warnings (id INTEGER PRIMARY KEY)")
+        )).migrate(connection);
+
+        assertEquals(2, MigrationRunner.getSchemaVersion(connection, "Levels"));
+        assertEquals(1, MigrationRunner.getSchemaVersion(connection, "Warnings"));
+        assertEquals(0, MigrationRunner.getSchemaVersion(connection, "Configuration"));
+    }
+
+    public void testUserVersionIsUsedUntilTheSchemaHasARow() throws Exception {
+        /* A file written when it only held one schema */
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE Levels (user_id INTEGER PRIMARY KEY)");
+            statement.execute("PRAGMA user_version = 1");
+        }
+        connection.commit();
+
+        new MigrationRunner("test", "Levels", Arrays.asList(
+            migration("create", "CREATE TABLE Levels (user_id INTEGER PRIMARY KEY)"),
+            migration("add column", "ALTER TABLE Levels ADD COLUMN experience INTEGER")
+        )).migrate(connection);
+
+        assertEquals(Arrays.asList("add column"), applied);
+        assertEquals(2, MigrationRunner.getSchemaVersion(connection, "Levels"));
+    }
+
+    public void testRewriteTableCopiesEveryRow() throws Exception {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE Levels (user_id INTEGER, experience INTEGER)");
+        }
+        try (PreparedStatement statement = connection.prepareStatement("INSERT INTO Levels VALUES (?, ?)")) {
+            for (int i = 0; i < 25000; i++) {
+                statement.setInt(1, i);
+                statement.setInt(2, i * 2);
+                statement.addBatch();
+            }
+            statement.executeBatch();
+        }
+
+        /* More rows than a single batch of the rewrite */
+        MigrationRunner.rewriteTable(connection, "Levels",
+            "CREATE TABLE %s (user_id INTEGER PRIMARY KEY, experience INTEGER NOT NULL)",
+            "user_id, experience", new MigrationProgress("test"));
+        connection.commit();
+
+        assertEquals(25000, count("Levels"));
+        try (Statement statement = connection.createStatement();
+                ResultSet set = statement.executeQuery("SELECT sum(experience) FROM Levels")) {
+            assertEquals(24999L * 25000L, set.getLong(1));
+        }
+        assertFalse(tableExists("Levels_rewrite"));
+    }
+
+    /**
+     * Creates a migration that runs statements, and
+     * records that it was applied
+     *
+     * @param description The description of the migration
+     * @param statements  The statements it runs
+     * @return The migration
+     */
+    private DatabaseMigration migration(String description, String... statements) {
+        return new DatabaseMigration() {
+            @Override
+            public String getDescription() {
+                return description;
+            }
+
+            @Override
+            public void migrate(Connection connection, MigrationProgress progress) throws SQLException {
+                applied.add(description);
+                try (Statement statement = connection.createStatement()) {
+                    for (String sql : statements) {
+                        statement.execute(sql);
+                    }
+                }
+            }
+        };
+    }
+
+    /**
+     * Counts the rows of a table
+     *
+     * @param table The name of the table
+     * @return The number of rows
+     * @throws SQLException If they could not be counted
+     */
+    private int count(String table) throws SQLException {
+        try (Statement statement = connection.createStatement();
+                ResultSet set = statement.executeQuery("SELECT count(*) FROM " + table)) {
+            return set.getInt(1);
+        }
+    }
+
+    /**
+     * Returns if a table exists
+     *
+     * @param table The name of the table
+     * @return If it exists
+     * @throws SQLException If it could not be checked
+     */
+    private boolean tableExists(String table) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(
+                "SELECT 1 FROM sqlite_master WHERE type == 'table' AND name == ?")) {
+            statement.setString(1, table);
+            try (ResultSet set = statement.executeQuery()) {
+                return set.next();
+            }
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package me.grayingout.database.storage;
+
+import java.io.File;
+
+import junit.framework.Test;
+import junit.framework.TestSuite;
+import me.grayingout.database.accessors.Database;
+import me.grayingout.database.accessors.SqliteStorageBackend;
+
+/**
+ * Runs the storage conformance tests against {@code SqliteStorageBackend}
+ */
+public class SqliteStorageBackendTest extends StorageBackendConformanceTest {
+
+    /**
+     * @return the suite of tests being tested
+     */
+    public static Test suite() {
+        return new TestSuite(SqliteStorageBackendTest.class);
+    }
+
+    @Override
+    protected StorageBackend createBackend(File directory) {
+        return new SqliteStorageBackend(new Database(new File(directory, "bot.db").getPath(), 2, 64, 0));
+    }
+}
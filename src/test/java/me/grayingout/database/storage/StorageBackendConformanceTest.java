@@ -0,0 +1,223 @@
+package me.grayingout.database.storage;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import junit.framework.TestCase;
+import me.grayingout.database.entities.GuildConfiguration;
+import me.grayingout.database.entities.GuildLoggingChannel.LoggingEventType;
+import me.grayingout.database.entities.MemberWarning;
+
+/**
+ * The tests every {@code StorageBackend} must pass, so
+ * the backends can be swapped without the bot noticing
+ */
+public abstract class StorageBackendConformanceTest extends TestCase {
+
+    /**
+     * The directory the backend is stored in
+     */
+    protected File directory;
+
+    /**
+     * The backend being tested
+     */
+    protected StorageBackend backend;
+
+    /**
+     * Creates the backend being tested
+     *
+     * @param directory An empty directory to store it in
+     * @return The backend
+     * @throws Exception If it could not be created
+     */
+    protected abstract StorageBackend createBackend(File directory) throws Exception;
+
+    @Override
+    protected void setUp() throws Exception {
+        directory = Files.createTempDirectory("storage-test").toFile();
+        backend = createBackend(directory);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        backend.close();
+
+        for (File file : directory.listFiles()) {
+            file.delete();
+        }
+        directory.delete();
+    }
+
+    public void testExperienceIsZeroWhenNoneIsStored() {
+        assertEquals(Integer.valueOf(0), backend.getLevelRepository().getExperience(1, 2).join());
+        assertTrue(backend.getLevelRepository().getGuildExperience(1).join().isEmpty());
+    }
+
+    public void testExperienceIsAddedAndSet() {
+        LevelRepository levels = backend.getLevelRepository();
+
+        assertEquals(Boolean.TRUE, levels.addExperience(Arrays.asList(
+            new ExperienceDelta(1, 2, 10),
+            new ExperienceDelta(1, 3, 5),
+            new ExperienceDelta(1, 2, 7),
+            new ExperienceDelta(4, 2, 1)
+        )).join());
+        assertEquals(Integer.valueOf(17), levels.getExperience(1, 2).join());
+        assertEquals(Integer.valueOf(5), levels.getExperience(1, 3).join());
+        assertEquals(Integer.valueOf(1), levels.getExperience(4, 2).join());
+
+        assertEquals(Boolean.TRUE, levels.setExperience(1, 3, 100).join());
+        assertEquals(Boolean.TRUE, levels.addExperience(Collections.singletonList(new ExperienceDelta(1, 3, 1))).join());
+        assertEquals(Integer.valueOf(101), levels.getExperience(1, 3).join());
+
+        assertEquals(Boolean.TRUE, levels.setExperience(1, 5, 9).join());
+        assertEquals(Integer.valueOf(9), levels.getExperience(1, 5).join());
+    }
+
+    public void testGuildExperienceOnlyHasMembersWithExperience() {
+        LevelRepository levels = backend.getLevelRepository();
+
+        levels.addExperience(Arrays.asList(new ExperienceDelta(1, 2, 10), new ExperienceDelta(1, 3, 5), new ExperienceDelta(6, 2, 3))).join();
+        levels.setExperience(1, 3, 0).join();
+
+        Map<Long, Integer> expected = new HashMap<>();
+        expected.put(2L, 10);
+        assertEquals(expected, levels.getGuildExperience(1).join());
+    }
+
+    public void testLevelRolesAreStoredPerGuild() {
+        LevelRepository levels = backend.getLevelRepository();
+
+        assertTrue(levels.getLevelRoles(1).join().isEmpty());
+        assertEquals(Boolean.TRUE, levels.putLevelRole(1, 10, 5).join());
+        assertEquals(Boolean.TRUE, levels.putLevelRole(1, 11, 10).join());
+        assertEquals(Boolean.TRUE, levels.putLevelRole(2, 12, 1).join());
+        assertEquals(Boolean.TRUE, levels.putLevelRole(1, 10, 7).join());
+
+        Map<Long, Integer> expected = new HashMap<>();
+        expected.put(10L, 7);
+        expected.put(11L, 10);
+        assertEquals(expected, levels.getLevelRoles(1).join());
+
+        assertEquals(Boolean.TRUE, levels.deleteLevelRole(1, 10).join());
+        assertEquals(Collections.singletonMap(11L, 10), levels.getLevelRoles(1).join());
+        assertEquals(Collections.singletonMap(12L, 1), levels.getLevelRoles(2).join());
+    }
+
+    public void testWarningsAreStoredAndReadBack() {
+        WarningRepository warnings = backend.getWarningRepository();
+        LocalDateTime receivedAt = LocalDateTime.of(2023, 1, 2, 3, 4, 5);
+
+        MemberWarning warning = warnings.putWarning(1, 2, 3, receivedAt, "Spamming").join();
+        assertEquals(1, warning.getGuildId());
+        assertEquals(2, warning.getMemberId());
+        assertEquals(3, warning.getModeratorId());
+        assertEquals(receivedAt, warning.getReceivedAt());
+        assertEquals("Spamming", warning.getReason());
+
+        MemberWarning stored = warnings.getWarning(1, 2, warning.getWarningId()).join();
+        assertEquals(warning.getWarningId(), stored.getWarningId());
+        assertEquals(receivedAt, stored.getReceivedAt());
+        assertEquals("Spamming", stored.getReason());
+
+        /* Only found for the member it was given to */
+        assertNull(warnings.getWarning(1, 3, warning.getWarningId()).join());
+        assertNull(warnings.getWarning(2, 2, warning.getWarningId()).join());
+    }
+
+    public void testWarningIdsAreUniqueAndNotReused() {
+        WarningRepository warnings = backend.getWarningRepository();
+        LocalDateTime receivedAt = LocalDateTime.of(2023, 1, 2, 3, 4, 5);
+
+        int first = warnings.putWarning(1, 2, 3, receivedAt, "a").join().getWarningId();
+        int second = warnings.putWarning(1, 4, 3, receivedAt, "b").join().getWarningId();
+        assertTrue(first != second);
+
+        warnings.deleteWarning(1, 4, second).join();
+        int third = warnings.putWarning(1, 4, 3, receivedAt, "c").join().getWarningId();
+        assertTrue(third != first && third != second);
+    }
+
+    public void testWarningsAreListedNewestFirst() {
+        WarningRepository warnings = backend.getWarningRepository();
+        LocalDateTime receivedAt = LocalDateTime.of(2023, 1, 2, 3, 4, 5);
+
+        int oldest = warnings.putWarning(1, 2, 3, receivedAt.minusDays(1), "oldest").join().getWarningId();
+        int sameTimeFirst = warnings.putWarning(1, 2, 3, receivedAt, "first").join().getWarningId();
+        int sameTimeSecond = warnings.putWarning(1, 2, 3, receivedAt, "second").join().getWarningId();
+        warnings.putWarning(1, 9, 3, receivedAt, "other member").join();
+
+        List<MemberWarning> listed = warnings.getWarnings(1, 2).join();
+        assertEquals(3, listed.size());
+        assertEquals(sameTimeSecond, listed.get(0).getWarningId());
+        assertEquals(sameTimeFirst, listed.get(1).getWarningId());
+        assertEquals(oldest, listed.get(2).getWarningId());
+    }
+
+    public void testWarningsAreDeletedAndCleared() {
+        WarningRepository warnings = backend.getWarningRepository();
+        LocalDateTime receivedAt = LocalDateTime.of(2023, 1, 2, 3, 4, 5);
+
+        int deleted = warnings.putWarning(1, 2, 3, receivedAt, "a").join().getWarningId();
+        warnings.putWarning(1, 2, 3, receivedAt, "b").join();
+        warnings.putWarning(1, 5, 3, receivedAt, "c").join();
+
+        assertEquals(Boolean.TRUE, warnings.deleteWarning(1, 2, deleted).join());
+        assertNull(warnings.getWarning(1, 2, deleted).join());
+        assertEquals(1, warnings.getWarnings(1, 2).join().size());
+
+        /* Deleting a warning that does not exist is not a failure */
+        assertEquals(Boolean.TRUE, warnings.deleteWarning(1, 2, deleted).join());
+
+        assertEquals(Boolean.TRUE, warnings.clearWarnings(1, 2).join());
+        assertTrue(warnings.getWarnings(1, 2).join().isEmpty());
+        assertEquals(1, warnings.getWarnings(1, 5).join().size());
+    }
+
+    public void testConfigurationIsDefaultWhenNoneIsStored() {
+        GuildConfiguration configuration = backend.getConfigurationRepository().getConfiguration(1).join();
+        GuildConfiguration expected = GuildConfiguration.getDefault(1);
+
+        assertEquals(expected.getLoggingChannelId(), configuration.getLoggingChannelId());
+        assertEquals(expected.getEnabledLoggingTypes(), configuration.getEnabledLoggingTypes());
+        assertEquals(expected.getWelcomeChannelId(), configuration.getWelcomeChannelId());
+        assertEquals(expected.getCustomWelcomeMessage(), configuration.getCustomWelcomeMessage());
+        assertEquals(expected.getDJRoleId(), configuration.getDJRoleId());
+    }
+
+    public void testConfigurationIsUpdated() {
+        ConfigurationRepository configurations = backend.getConfigurationRepository();
+
+        GuildConfiguration updated = configurations.updateConfiguration(1, configuration -> configuration
+            .withLoggingChannelId(10)
+            .withLoggingType(LoggingEventType.ROLE_LOGGING, true)
+            .withWelcomeChannelId(11)
+            .withWelcomeMessage("Welcome {{member}} ❤")
+            .withDJRoleId(12)).join();
+        assertEquals(10, updated.getLoggingChannelId());
+
+        /* Each update starts from the stored configuration */
+        configurations.updateConfiguration(1, configuration -> configuration
+            .withLoggingType(LoggingEventType.CHANNEL_LOGGING, true)).join();
+
+        GuildConfiguration stored = configurations.getConfiguration(1).join();
+        assertEquals(10, stored.getLoggingChannelId());
+        assertTrue(stored.isLoggingTypeEnabled(LoggingEventType.ROLE_LOGGING));
+        assertTrue(stored.isLoggingTypeEnabled(LoggingEventType.CHANNEL_LOGGING));
+        assertFalse(stored.isLoggingTypeEnabled(LoggingEventType.MESSAGE_DELETION_LOGGING));
+        assertEquals(11, stored.getWelcomeChannelId());
+        assertEquals("Welcome {{member}} ❤", stored.getCustomWelcomeMessage());
+        assertEquals(12, stored.getDJRoleId());
+
+        /* Other guilds are untouched */
+        assertEquals(GuildConfiguration.getDefault(2).getLoggingChannelId(),
+            configurations.getConfiguration(2).join().getLoggingChannelId());
+    }
+}
@@ -0,0 +1,125 @@
+package me.grayingout.database.storage.kv;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.time.LocalDateTime;
+import java.util.Collections;
+
+import junit.framework.Test;
+import junit.framework.TestSuite;
+import me.grayingout.database.storage.ExperienceDelta;
+import me.grayingout.database.storage.StorageBackend;
+import me.grayingout.database.storage.StorageBackendConformanceTest;
+
+/**
+ * Runs the storage conformance tests against {@code KeyValueStorageBackend},
+ * along with the tests of replaying and compacting its log
+ */
+public class KeyValueStorageBackendTest extends StorageBackendConformanceTest {
+
+    /**
+     * @return the suite of tests being tested
+     */
+    public static Test suite() {
+        return new TestSuite(KeyValueStorageBackendTest.class);
+    }
+
+    @Override
+    protected StorageBackend createBackend(File directory) throws Exception {
+        return new KeyValueStorageBackend(getLogFile(), 60000);
+    }
+
+    public void testEverythingIsReplayedWhenReopened() throws Exception {
+        backend.getLevelRepository().addExperience(Collections.singletonList(new ExperienceDelta(1, 2, 10))).join();
+        backend.getLevelRepository().addExperience(Collections.singletonList(new ExperienceDelta(1, 2, 5))).join();
+        backend.getLevelRepository().putLevelRole(1, 3, 4).join();
+        int warningId = backend.getWarningRepository().putWarning(1, 2, 3, LocalDateTime.of(2023, 1, 2, 3, 4, 5), "a").join().getWarningId();
+        backend.getConfigurationRepository().updateConfiguration(1, configuration -> configuration.withDJRoleId(7)).join();
+
+        reopen();
+
+        assertEquals(Integer.valueOf(15), backend.getLevelRepository().getExperience(1, 2).join());
+        assertEquals(Collections.singletonMap(3L, 4), backend.getLevelRepository().getLevelRoles(1).join());
+        assertEquals("a", backend.getWarningRepository().getWarning(1, 2, warningId).join().getReason());
+        assertEquals(7, backend.getConfigurationRepository().getConfiguration(1).join().getDJRoleId());
+
+        /* The sequence is replayed too, so ids are not reused */
+        assertTrue(backend.getWarningRepository().putWarning(1, 2, 3, LocalDateTime.now(), "b").join().getWarningId() != warningId);
+    }
+
+    public void testTornFrameIsDroppedWhenReopened() throws Exception {
+        backend.getLevelRepository().setExperience(1, 2, 10).join();
+        backend.getLevelRepository().setExperience(1, 3, 20).join();
+        backend.close();
+
+        /* Cut the last frame short, as a crash while appending it would */
+        try (RandomAccessFile file = new RandomAccessFile(getLogFile(), "rw")) {
+            file.setLength(file.length() - 3);
+        }
+
+        backend = createBackend(directory);
+        assertEquals(Integer.valueOf(10), backend.getLevelRepository().getExperience(1, 2).join());
+        assertEquals(Integer.valueOf(0), backend.getLevelRepository().getExperience(1, 3).join());
+
+        /* Writes after the torn frame are not lost behind it */
+        backend.getLevelRepository().setExperience(1, 3, 30).join();
+        reopen();
+        assertEquals(Integer.valueOf(30), backend.getLevelRepository().getExperience(1, 3).join());
+    }
+
+    public void testLogIsCompactedToTheLiveValues() throws Exception {
+        backend.close();
+
+        LogStructuredStore store = new LogStructuredStore(getLogFile());
+        try {
+            for (int i = 0; i < 200000; i++) {
+                store.increment("counter/" + (i % 10), 1);
+            }
+            store.put("value", new byte[] { 1, 2, 3 });
+            store.put("deleted", new byte[] { 4 });
+            store.delete("deleted");
+
+            long logBytes = store.getLogBytes();
+            assertTrue(store.compactIfNeeded());
+            assertTrue(store.getLogBytes() < logBytes / 100);
+            assertEquals(store.getLogBytes(), getLogFile().length());
+            assertFalse(store.compactIfNeeded());
+
+            /* Appending carries on after the compacted log */
+            store.increment("counter/0", 5);
+        } finally {
+            store.close();
+        }
+
+        store = new LogStructuredStore(getLogFile());
+        try {
+            assertEquals(20005, store.getCounter("counter/0"));
+            assertEquals(20000, store.getCounter("counter/9"));
+            assertEquals(3, store.get("value").length);
+            assertNull(store.get("deleted"));
+        } finally {
+            store.close();
+        }
+
+        backend = createBackend(directory);
+    }
+
+    /**
+     * Closes the backend and opens it again from its log
+     *
+     * @throws Exception If it could not be opened
+     */
+    private void reopen() throws Exception {
+        backend.close();
+        backend = createBackend(directory);
+    }
+
+    /**
+     * Gets the log file of the backend
+     *
+     * @return The log file
+     */
+    private File getLogFile() {
+        return new File(directory, "storage.kv");
+    }
+}
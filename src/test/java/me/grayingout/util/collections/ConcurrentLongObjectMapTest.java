@@ -0,0 +1,187 @@
+package me.grayingout.util.collections;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+/**
+ * Tests {@code ConcurrentLongObjectMap}, including its tombstones
+ * and the rebuilding of its segments
+ */
+public class ConcurrentLongObjectMapTest extends TestCase {
+
+    /**
+     * @return the suite of tests being tested
+     */
+    public static Test suite() {
+        return new TestSuite(ConcurrentLongObjectMapTest.class);
+    }
+
+    public void testValuesArePutReplacedAndRemoved() {
+        ConcurrentLongObjectMap<String> map = new ConcurrentLongObjectMap<>(16, 4);
+
+        assertNull(map.put(1, "a"));
+        assertNull(map.put(0, "zero"));
+        assertNull(map.put(-5, "negative"));
+        assertEquals("a", map.put(1, "b"));
+        assertEquals(3, map.size());
+
+        assertEquals("b", map.get(1));
+        assertEquals("zero", map.get(0));
+        assertEquals("negative", map.get(-5));
+        assertNull(map.get(2));
+
+        assertEquals("b", map.remove(1));
+        assertNull(map.remove(1));
+        assertNull(map.get(1));
+        assertEquals(2, map.size());
+    }
+
+    public void testNullValuesAreRejected() {
+        ConcurrentLongObjectMap<String> map = new ConcurrentLongObjectMap<>(16);
+        try {
+            map.put(1, null);
+            fail("Expected a NullPointerException");
+        } catch (NullPointerException e) {
+            /* Expected */
+        }
+    }
+
+    public void testRemoveOnlyRemovesTheExpectedValue() {
+        ConcurrentLongObjectMap<String> map = new ConcurrentLongObjectMap<>(16);
+        String value = new String("a");
+        map.put(1, value);
+
+        /* Values are compared by identity */
+        assertFalse(map.remove(1, new String("a")));
+        assertEquals("a", map.get(1));
+
+        assertTrue(map.remove(1, value));
+        assertNull(map.get(1));
+        assertFalse(map.remove(1, value));
+    }
+
+    public void testRemovedKeyCanBePutAgain() {
+        ConcurrentLongObjectMap<String> map = new ConcurrentLongObjectMap<>(16, 1);
+        map.put(1, "a");
+        map.remove(1);
+
+        assertNull(map.put(1, "b"));
+        assertEquals("b", map.get(1));
+        assertEquals(1, map.size());
+    }
+
+    public void testTombstonesAreClearedByRebuilding() {
+        ConcurrentLongObjectMap<Long> map = new ConcurrentLongObjectMap<>(8, 1);
+        map.put(-1, -1L);
+
+        /* Churns through far more keys than the table has slots */
+        for (long key = 0; key < 100000; key++) {
+            map.put(key, key);
+            assertEquals(Long.valueOf(key), map.remove(key));
+        }
+
+        assertEquals(1, map.size());
+        assertEquals(Long.valueOf(-1), map.get(-1));
+        assertNull(map.get(99999));
+    }
+
+    public void testSegmentsGrowPastTheirExpectedSize() {
+        ConcurrentLongObjectMap<Long> map = new ConcurrentLongObjectMap<>(1, 2);
+        Map<Long, Long> expected = new HashMap<>();
+        Random random = new Random(7);
+
+        for (int i = 0; i < 50000; i++) {
+            long key = random.nextLong() % 20000;
+            if (random.nextInt(4) == 0) {
+                assertEquals(expected.remove(key), map.remove(key));
+            } else {
+                assertEquals(expected.put(key, (long) i), map.put(key, (long) i));
+            }
+        }
+
+        assertEquals(expected.size(), map.size());
+        for (long key = -20000; key < 20000; key++) {
+            assertEquals(expected.get(key), map.get(key));
+        }
+    }
+
+    public void testReadersSeeEveryValueWhileSegmentsAreRebuilt() throws Exception {
+        ConcurrentLongObjectMap<Long> map = new ConcurrentLongObjectMap<>(1, 4);
+        int writers = 4;
+        int keysPerWriter = 20000;
+
+        /* Present throughout, so a reader must always find them */
+        for (long key = -100; key < 0; key++) {
+            map.put(key, key);
+        }
+
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicReference<String> failure = new AtomicReference<>();
+        Thread[] threads = new Thread[writers + 1];
+
+        for (int w = 0; w < writers; w++) {
+            long first = (long) w * keysPerWriter;
+            threads[w] = new Thread(() -> {
+                awaitQuietly(start);
+                for (long key = first; key < first + keysPerWriter; key++) {
+                    map.put(key, key);
+                    if (key % 3 == 0) {
+                        map.remove(key);
+                    }
+                }
+            });
+        }
+
+        threads[writers] = new Thread(() -> {
+            awaitQuietly(start);
+            for (int i = 0; i < 200; i++) {
+                for (long key = -100; key < 0; key++) {
+                    if (!Long.valueOf(key).equals(map.get(key))) {
+                        failure.compareAndSet(null, "Missing " + key);
+                    }
+                }
+            }
+        });
+
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertNull(failure.get());
+
+        int expectedSize = 100;
+        for (long key = 0; key < (long) writers * keysPerWriter; key++) {
+            if (key % 3 == 0) {
+                assertNull(map.get(key));
+            } else {
+                assertEquals(Long.valueOf(key), map.get(key));
+                expectedSize++;
+            }
+        }
+        assertEquals(expectedSize, map.size());
+    }
+
+    /**
+     * Waits for a latch, ignoring interrupts
+     *
+     * @param latch The latch
+     */
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}